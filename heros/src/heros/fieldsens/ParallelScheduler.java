@@ -0,0 +1,117 @@
+package heros.fieldsens;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Scheduler executing jobs on a {@link ForkJoinPool}. The {@link PreparableJob#prepare()} parts of jobs,
+ * i.e. the evaluation of flow functions, are executed concurrently. Everything modifying solver state is
+ * serialized, because resolvers of different method analyzers call each other synchronously.
+ * Flow functions and the interprocedural control-flow graph must therefore be thread safe.
+ * Jobs scheduled before {@link #runAndAwaitCompletion()} are held back until it is called.
+ */
+public class ParallelScheduler extends Scheduler {
+
+	private final ForkJoinPool pool;
+	private final Object stateLock = new Object();
+	private final Object completionLock = new Object();
+	private final AtomicInteger pendingJobs = new AtomicInteger();
+	private final AtomicLong executedJobs = new AtomicLong();
+	private final List<Runnable> heldBackJobs = Lists.newLinkedList();
+	private volatile boolean started = false;
+	private volatile Throwable failure;
+
+	public ParallelScheduler() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public ParallelScheduler(int parallelism) {
+		this.pool = new ForkJoinPool(parallelism);
+	}
+
+	@Override
+	public void schedule(Runnable job) {
+		pendingJobs.incrementAndGet();
+		if(started)
+			pool.execute(new Task(job));
+		else
+			heldBackJobs.add(job);
+	}
+
+	@Override
+	public void runAndAwaitCompletion() {
+		started = true;
+		for(Runnable job : heldBackJobs)
+			pool.execute(new Task(job));
+		heldBackJobs.clear();
+
+		synchronized (completionLock) {
+			while(pendingJobs.get() > 0) {
+				try {
+					completionLock.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("Interrupted while waiting for scheduled jobs", e);
+				}
+			}
+		}
+
+		Throwable t = failure;
+		if(t instanceof RuntimeException)
+			throw (RuntimeException) t;
+		if(t instanceof Error)
+			throw (Error) t;
+		if(t != null)
+			throw new RuntimeException(t);
+	}
+
+	/**
+	 * Number of jobs executed so far.
+	 */
+	public long getExecutedJobCount() {
+		return executedJobs.get();
+	}
+
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	private class Task implements Runnable {
+
+		private final Runnable job;
+
+		private Task(Runnable job) {
+			this.job = job;
+		}
+
+		@Override
+		public void run() {
+			try {
+				// once a job failed, remaining jobs are only drained
+				if(failure == null) {
+					if(job instanceof PreparableJob)
+						((PreparableJob) job).prepare();
+					synchronized (stateLock) {
+						job.run();
+					}
+					executedJobs.incrementAndGet();
+				}
+			} catch (Throwable t) {
+				synchronized (completionLock) {
+					if(failure == null)
+						failure = t;
+				}
+			} finally {
+				if(pendingJobs.decrementAndGet() == 0) {
+					synchronized (completionLock) {
+						completionLock.notifyAll();
+					}
+				}
+			}
+		}
+	}
+}
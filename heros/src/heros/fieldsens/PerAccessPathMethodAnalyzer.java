@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import org.slf4j.Logger;
@@ -133,20 +134,32 @@ class PerAccessPathMethodAnalyzer<Field, Fact, Stmt, Method> {
 		return method+"; "+sourceFact+accessPath;
 	}
 
-	void processCall(WrappedFactAtStatement<Field,Fact, Stmt, Method> factAtStmt) {
-		Collection<Method> calledMethods = context.icfg.getCalleesOfCallAt(factAtStmt.getStatement());
-		for (Method calledMethod : calledMethods) {
+	private Map<Method, Collection<ConstrainedFact<Field, Fact, Stmt, Method>>> computeCallTargets(WrappedFactAtStatement<Field,Fact, Stmt, Method> factAtStmt) {
+		Map<Method, Collection<ConstrainedFact<Field, Fact, Stmt, Method>>> result = Maps.newLinkedHashMap();
+		for (Method calledMethod : context.icfg.getCalleesOfCallAt(factAtStmt.getStatement())) {
 			FlowFunction<Field, Fact, Stmt, Method> flowFunction = context.flowFunctions.getCallFlowFunction(factAtStmt.getStatement(), calledMethod);
-			Collection<ConstrainedFact<Field, Fact, Stmt, Method>> targetFacts =  flowFunction.computeTargets(factAtStmt.getFact(), new AccessPathHandler<Field, Fact, Stmt, Method>(factAtStmt.getAccessPath(), factAtStmt.getResolver()));
-			for (ConstrainedFact<Field, Fact, Stmt, Method> targetFact : targetFacts) {
+			result.put(calledMethod, flowFunction.computeTargets(factAtStmt.getFact(), new AccessPathHandler<Field, Fact, Stmt, Method>(factAtStmt.getAccessPath(), factAtStmt.getResolver())));
+		}
+		return result;
+	}
+
+	void processCall(WrappedFactAtStatement<Field,Fact, Stmt, Method> factAtStmt, Map<Method, Collection<ConstrainedFact<Field, Fact, Stmt, Method>>> callTargets,
+			Map<Stmt, Collection<ConstrainedFact<Field, Fact, Stmt, Method>>> callToReturnTargets) {
+		for (Entry<Method, Collection<ConstrainedFact<Field, Fact, Stmt, Method>>> entry : callTargets.entrySet()) {
+			for (ConstrainedFact<Field, Fact, Stmt, Method> targetFact : entry.getValue()) {
 				//TODO handle constraint
-				MethodAnalyzer<Field, Fact, Stmt, Method> analyzer = context.getAnalyzer(calledMethod);
+				MethodAnalyzer<Field, Fact, Stmt, Method> analyzer = context.getAnalyzer(entry.getKey());
 				analyzer.addIncomingEdge(new CallEdge<Field, Fact, Stmt, Method>(this,
 						factAtStmt, targetFact.getFact()));
 			}
 		}
 		
-		processCallToReturnEdge(factAtStmt);
+		if(isJoiningCall(factAtStmt.getStatement())) {
+			ctrFlowJoinResolvers.getOrCreate(factAtStmt.getAsFactAtStatement()).addIncoming(factAtStmt.getWrappedFact());
+		}
+		else {
+			processNonJoiningCallToReturnFlow(callToReturnTargets);
+		}
 	}
 
 	void processExit(WrappedFactAtStatement<Field, Fact, Stmt, Method> factAtStmt) {
@@ -179,51 +192,57 @@ class PerAccessPathMethodAnalyzer<Field, Fact, Stmt, Method> {
 		}
 	}
 	
-	private void processCallToReturnEdge(WrappedFactAtStatement<Field, Fact, Stmt, Method> factAtStmt) {
-		Stmt stmt = factAtStmt.getStatement();
-		int numberOfPredecessors = context.icfg.getPredsOf(stmt).size();		
-		if(numberOfPredecessors > 1 || (context.icfg.isStartPoint(stmt) && numberOfPredecessors > 0)) {
-			ctrFlowJoinResolvers.getOrCreate(factAtStmt.getAsFactAtStatement()).addIncoming(factAtStmt.getWrappedFact());
-		}
-		else {
-			processNonJoiningCallToReturnFlow(factAtStmt);
-		}
+	private boolean isJoiningCall(Stmt stmt) {
+		int numberOfPredecessors = context.icfg.getPredsOf(stmt).size();
+		return numberOfPredecessors > 1 || (context.icfg.isStartPoint(stmt) && numberOfPredecessors > 0);
 	}
 
-	private void processNonJoiningCallToReturnFlow(WrappedFactAtStatement<Field, Fact, Stmt, Method> factAtStmt) {
-		Collection<Stmt> returnSites = context.icfg.getReturnSitesOfCallAt(factAtStmt.getStatement());
-		for(Stmt returnSite : returnSites) {
+	private Map<Stmt, Collection<ConstrainedFact<Field, Fact, Stmt, Method>>> computeCallToReturnTargets(WrappedFactAtStatement<Field, Fact, Stmt, Method> factAtStmt) {
+		Map<Stmt, Collection<ConstrainedFact<Field, Fact, Stmt, Method>>> result = Maps.newLinkedHashMap();
+		for(Stmt returnSite : context.icfg.getReturnSitesOfCallAt(factAtStmt.getStatement())) {
 			FlowFunction<Field, Fact, Stmt, Method> flowFunction = context.flowFunctions.getCallToReturnFlowFunction(factAtStmt.getStatement(), returnSite);
-			Collection<ConstrainedFact<Field, Fact, Stmt, Method>> targetFacts = flowFunction.computeTargets(factAtStmt.getFact(), new AccessPathHandler<Field, Fact, Stmt, Method>(factAtStmt.getAccessPath(), factAtStmt.getResolver()));
-			for (ConstrainedFact<Field, Fact, Stmt, Method> targetFact : targetFacts) {
+			result.put(returnSite, flowFunction.computeTargets(factAtStmt.getFact(), new AccessPathHandler<Field, Fact, Stmt, Method>(factAtStmt.getAccessPath(), factAtStmt.getResolver())));
+		}
+		return result;
+	}
+
+	private void processNonJoiningCallToReturnFlow(Map<Stmt, Collection<ConstrainedFact<Field, Fact, Stmt, Method>>> callToReturnTargets) {
+		for(Entry<Stmt, Collection<ConstrainedFact<Field, Fact, Stmt, Method>>> entry : callToReturnTargets.entrySet()) {
+			for (ConstrainedFact<Field, Fact, Stmt, Method> targetFact : entry.getValue()) {
 				//TODO handle constraint
-				scheduleEdgeTo(new WrappedFactAtStatement<Field, Fact, Stmt, Method>(returnSite, targetFact.getFact()));
+				scheduleEdgeTo(new WrappedFactAtStatement<Field, Fact, Stmt, Method>(entry.getKey(), targetFact.getFact()));
 			}
 		}
 	}
 
-	private void processNormalFlow(WrappedFactAtStatement<Field,Fact, Stmt, Method> factAtStmt) {
-		Stmt stmt = factAtStmt.getStatement();
+	private boolean isJoiningNormalFlow(Stmt stmt) {
 		int numberOfPredecessors = context.icfg.getPredsOf(stmt).size();
-		if((numberOfPredecessors > 1 && !context.icfg.isExitStmt(stmt)) || (context.icfg.isStartPoint(stmt) && numberOfPredecessors > 0)) {
+		return (numberOfPredecessors > 1 && !context.icfg.isExitStmt(stmt)) || (context.icfg.isStartPoint(stmt) && numberOfPredecessors > 0);
+	}
+
+	private void processNormalFlow(WrappedFactAtStatement<Field,Fact, Stmt, Method> factAtStmt, Collection<ConstrainedFact<Field, Fact, Stmt, Method>> normalTargets) {
+		if(isJoiningNormalFlow(factAtStmt.getStatement())) {
 			ctrFlowJoinResolvers.getOrCreate(factAtStmt.getAsFactAtStatement()).addIncoming(factAtStmt.getWrappedFact());
 		}
 		else {
-			processNormalNonJoiningFlow(factAtStmt);
+			processNormalNonJoiningFlow(factAtStmt, normalTargets);
 		}
 	}
 
 	void processFlowFromJoinStmt(WrappedFactAtStatement<Field, Fact, Stmt, Method> factAtStmt) {
 		if(context.icfg.isCallStmt(factAtStmt.getStatement()))
-			processNonJoiningCallToReturnFlow(factAtStmt);
+			processNonJoiningCallToReturnFlow(computeCallToReturnTargets(factAtStmt));
 		else
-			processNormalNonJoiningFlow(factAtStmt);
+			processNormalNonJoiningFlow(factAtStmt, computeNormalTargets(factAtStmt));
 	}
 
-	private void processNormalNonJoiningFlow(WrappedFactAtStatement<Field, Fact, Stmt, Method> factAtStmt) {
-		final List<Stmt> successors = context.icfg.getSuccsOf(factAtStmt.getStatement());
+	private Collection<ConstrainedFact<Field, Fact, Stmt, Method>> computeNormalTargets(WrappedFactAtStatement<Field, Fact, Stmt, Method> factAtStmt) {
 		FlowFunction<Field, Fact, Stmt, Method> flowFunction = context.flowFunctions.getNormalFlowFunction(factAtStmt.getStatement());
-		Collection<ConstrainedFact<Field, Fact, Stmt, Method>> targetFacts = flowFunction.computeTargets(factAtStmt.getFact(), new AccessPathHandler<Field, Fact, Stmt, Method>(factAtStmt.getAccessPath(), factAtStmt.getResolver()));
+		return flowFunction.computeTargets(factAtStmt.getFact(), new AccessPathHandler<Field, Fact, Stmt, Method>(factAtStmt.getAccessPath(), factAtStmt.getResolver()));
+	}
+
+	private void processNormalNonJoiningFlow(WrappedFactAtStatement<Field, Fact, Stmt, Method> factAtStmt, Collection<ConstrainedFact<Field, Fact, Stmt, Method>> targetFacts) {
+		final List<Stmt> successors = context.icfg.getSuccsOf(factAtStmt.getStatement());
 		for (final ConstrainedFact<Field, Fact, Stmt, Method> targetFact : targetFacts) {
 			if(targetFact.getConstraint() == null)
 				scheduleEdgeTo(successors, targetFact.getFact());
@@ -287,24 +306,43 @@ class PerAccessPathMethodAnalyzer<Field, Fact, Stmt, Method> {
 		return sourceFact.equals(context.zeroValue);
 	}
 
-	private class Job implements Runnable {
+	private class Job implements Scheduler.PreparableJob {
 
 		private WrappedFactAtStatement<Field, Fact, Stmt, Method> factAtStmt;
+		private boolean prepared = false;
+		private Map<Method, Collection<ConstrainedFact<Field, Fact, Stmt, Method>>> callTargets;
+		private Map<Stmt, Collection<ConstrainedFact<Field, Fact, Stmt, Method>>> callToReturnTargets;
+		private Collection<ConstrainedFact<Field, Fact, Stmt, Method>> normalTargets;
 
 		public Job(WrappedFactAtStatement<Field, Fact, Stmt, Method> factAtStmt) {
 			this.factAtStmt = factAtStmt;
 		}
 
+		@Override
+		public void prepare() {
+			prepared = true;
+			Stmt stmt = factAtStmt.getStatement();
+			if (context.icfg.isCallStmt(stmt)) {
+				callTargets = computeCallTargets(factAtStmt);
+				if (!isJoiningCall(stmt))
+					callToReturnTargets = computeCallToReturnTargets(factAtStmt);
+			} else if (!context.icfg.getSuccsOf(stmt).isEmpty() && !isJoiningNormalFlow(stmt)) {
+				normalTargets = computeNormalTargets(factAtStmt);
+			}
+		}
+
 		@Override
 		public void run() {
+			if (!prepared)
+				prepare();
 			if (context.icfg.isCallStmt(factAtStmt.getStatement())) {
-				processCall(factAtStmt);
+				processCall(factAtStmt, callTargets, callToReturnTargets);
 			} else {
 				if (context.icfg.isExitStmt(factAtStmt.getStatement())) {
 					processExit(factAtStmt);
 				}
 				if (!context.icfg.getSuccsOf(factAtStmt.getStatement()).isEmpty()) {
-					processNormalFlow(factAtStmt);
+					processNormalFlow(factAtStmt, normalTargets);
 				}
 			}
 		}
@@ -27,4 +27,12 @@ public class Scheduler {
 		}
 	}
 
+	/**
+	 * Job whose work is split into a part without side effects on the solver state, e.g. the evaluation of
+	 * flow functions, and a part that applies its results. Schedulers may call {@link #prepare()} concurrently
+	 * to other jobs, {@link #run()} must call it itself if it has not been called before.
+	 */
+	public static interface PreparableJob extends Runnable {
+		void prepare();
+	}
 }
@@ -0,0 +1,129 @@
+package heros.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ResultSink} which converts each result into a record and writes the records in batches
+ * from a separate thread. The records are buffered in a bounded queue, threads handing in results
+ * block while the buffer is full, so the writer is never more than the buffer size behind.
+ *
+ * @param <T> The type of records written
+ */
+public abstract class BatchingResultSink<N,D,V,T> implements ResultSink<N,D,V> {
+
+	private final BlockingQueue<T> buffer;
+	private final int batchSize;
+	private final Thread writer;
+
+	private volatile boolean closed = false;
+	private volatile Throwable exception = null;
+
+	private long written = 0;
+	private long batches = 0;
+
+	/**
+	 * @param bufferSize The maximum number of records waiting to be written
+	 * @param batchSize The maximum number of records passed to {@link #writeBatch(List)} at once
+	 */
+	public BatchingResultSink(int bufferSize, int batchSize) {
+		if(bufferSize < 1 || batchSize < 1) {
+			throw new IllegalArgumentException("Buffer and batch size must be positive");
+		}
+		this.buffer = new ArrayBlockingQueue<T>(bufferSize);
+		this.batchSize = batchSize;
+		this.writer = new Thread(this::drain, getClass().getSimpleName() + " writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Converts the values at the given node into a record, null to write nothing.
+	 * Called by the threads handing in the results.
+	 */
+	protected abstract T convert(N n, Map<D,V> values);
+
+	/**
+	 * Writes the given records. Always called by the same thread.
+	 */
+	protected abstract void writeBatch(List<T> batch) throws Exception;
+
+	@Override
+	public void accept(N n, Map<D,V> values) {
+		if(closed) {
+			throw new IllegalStateException("Result sink is closed");
+		}
+		rethrow();
+		T record = convert(n, values);
+		if(record == null) {
+			return;
+		}
+		try {
+			// back pressure: wait for the writer, but fail if it died in between
+			while(!buffer.offer(record, 100, TimeUnit.MILLISECONDS)) {
+				rethrow();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for the result writer", e);
+		}
+	}
+
+	private void drain() {
+		List<T> batch = new ArrayList<T>(batchSize);
+		try {
+			while(!closed || !buffer.isEmpty()) {
+				T first = buffer.poll(100, TimeUnit.MILLISECONDS);
+				if(first == null) {
+					continue;
+				}
+				batch.add(first);
+				buffer.drainTo(batch, batchSize - 1);
+				writeBatch(batch);
+				written += batch.size();
+				batches++;
+				batch.clear();
+			}
+		} catch (Throwable e) {
+			exception = e;
+			// unblock waiting producers
+			buffer.clear();
+		}
+	}
+
+	private void rethrow() {
+		Throwable e = exception;
+		if(e != null) {
+			throw new RuntimeException("Writing results failed", e);
+		}
+	}
+
+	/**
+	 * Waits until all buffered records are written.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		rethrow();
+	}
+
+	/**
+	 * Number of records written so far, only exact after {@link #close()}.
+	 */
+	public long getWrittenCount() {
+		return written;
+	}
+
+	public long getBatchCount() {
+		return batches;
+	}
+}
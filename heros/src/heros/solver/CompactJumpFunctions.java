@@ -0,0 +1,202 @@
+package heros.solver;
+
+import heros.EdgeFunction;
+import heros.ThreadSafe;
+
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Memory-compact variant of {@link JumpFunctions}. Facts are numbered by an {@link ObjectNumberer}
+ * and each target stores its jump functions in a {@link LongKeyMap} keyed by the numbers of the
+ * source and target fact, so no {@link PathEdge} or map entry objects are kept per jump function.
+ * Lookups which return {@link PathEdge}s create them on demand.
+ */
+@ThreadSafe
+public class CompactJumpFunctions<N,D,L> extends JumpFunctions<N,D,L> {
+
+	private final ObjectNumberer<D> facts = new ObjectNumberer<D>();
+
+	// Synchronized on the map of the target
+	private final ConcurrentMap<N, LongKeyMap<EdgeFunction<L>>> data = new ConcurrentHashMap<N, LongKeyMap<EdgeFunction<L>>>();
+
+	public CompactJumpFunctions(EdgeFunction<L> allTop) {
+		super(allTop);
+	}
+
+	private static long key(int sourceVal, int targetVal) {
+		return ((long) sourceVal << 32) | (targetVal & 0xFFFFFFFFL);
+	}
+
+	private static int sourceOf(long key) {
+		return (int) (key >>> 32);
+	}
+
+	private static int targetOf(long key) {
+		return (int) key;
+	}
+
+	@Override
+	public void addFunction(D sourceVal, N target, D targetVal, EdgeFunction<L> function) {
+		assert sourceVal!=null;
+		assert target!=null;
+		assert targetVal!=null;
+		assert function!=null;
+
+		//we do not store the default function (all-top)
+		if(function.equalTo(allTop)) return;
+
+		long key = key(facts.add(sourceVal), facts.add(targetVal));
+		LongKeyMap<EdgeFunction<L>> edges = data.get(target);
+		if(edges == null) {
+			edges = data.computeIfAbsent(target, t -> new LongKeyMap<EdgeFunction<L>>());
+		}
+		synchronized (edges) {
+			if(edges.put(key, function) == null) {
+				count.incrementAndGet();
+			}
+		}
+	}
+
+	@Override
+	public boolean replaceFunction(PathEdge<N,D> edge, EdgeFunction<L> expected, EdgeFunction<L> function) {
+		assert function!=null;
+
+		long key = key(facts.add(edge.factAtSource()), facts.add(edge.factAtTarget()));
+		LongKeyMap<EdgeFunction<L>> edges = data.get(edge.getTarget());
+		if(edges == null) {
+			edges = data.computeIfAbsent(edge.getTarget(), t -> new LongKeyMap<EdgeFunction<L>>());
+		}
+		synchronized (edges) {
+			if(edges.get(key) != expected) {
+				return false;
+			}
+			if(edges.put(key, function) == null) {
+				count.incrementAndGet();
+			}
+			return true;
+		}
+	}
+
+	@Override
+	public Collection<Map.Entry<D,EdgeFunction<L>>> reverseLookup(N target, D targetVal) {
+		assert target!=null;
+		assert targetVal!=null;
+
+		Collection<Map.Entry<D,EdgeFunction<L>>> res = new LinkedList<>();
+		LongKeyMap<EdgeFunction<L>> edges = data.get(target);
+		int number = facts.numberOf(targetVal);
+		if(edges != null && number >= 0) {
+			synchronized (edges) {
+				for(int i = 0; i < edges.capacity(); i++) {
+					long key = edges.keyAt(i);
+					if(key != -1 && targetOf(key) == number) {
+						res.add(new AbstractMap.SimpleEntry<D,EdgeFunction<L>>(facts.get(sourceOf(key)), edges.valueAt(i)));
+					}
+				}
+			}
+		}
+		return res;
+	}
+
+	@Override
+	public Map<D,EdgeFunction<L>> forwardLookup(D sourceVal, N target) {
+		assert sourceVal!=null;
+		assert target!=null;
+
+		Map<D,EdgeFunction<L>> res = new HashMap<D,EdgeFunction<L>>();
+		LongKeyMap<EdgeFunction<L>> edges = data.get(target);
+		int number = facts.numberOf(sourceVal);
+		if(edges != null && number >= 0) {
+			synchronized (edges) {
+				for(int i = 0; i < edges.capacity(); i++) {
+					long key = edges.keyAt(i);
+					if(key != -1 && sourceOf(key) == number) {
+						res.put(facts.get(targetOf(key)), edges.valueAt(i));
+					}
+				}
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Returns a snapshot of the jump functions with the given target.
+	 */
+	@Override
+	public Map<PathEdge<N, D>, EdgeFunction<L>> lookupByTarget(N target) {
+		LongKeyMap<EdgeFunction<L>> edges = data.get(target);
+		if(edges == null) {
+			return Collections.emptyMap();
+		}
+		synchronized (edges) {
+			Map<PathEdge<N, D>, EdgeFunction<L>> res = new HashMap<PathEdge<N, D>, EdgeFunction<L>>(edges.size() * 2);
+			for(int i = 0; i < edges.capacity(); i++) {
+				long key = edges.keyAt(i);
+				if(key != -1) {
+					res.put(new PathEdge<N,D>(facts.get(sourceOf(key)), target, facts.get(targetOf(key))), edges.valueAt(i));
+				}
+			}
+			return res;
+		}
+	}
+
+	@Override
+	public int getFunctionCount(N target) {
+		LongKeyMap<EdgeFunction<L>> edges = data.get(target);
+		if(edges == null) {
+			return 0;
+		}
+		synchronized (edges) {
+			return edges.size();
+		}
+	}
+
+	@Override
+	public boolean edgeExists(PathEdge<N,D> edge) {
+		return getFunction(edge) != null;
+	}
+
+	@Override
+	public EdgeFunction<L> getFunction(PathEdge<N, D> edge) {
+		LongKeyMap<EdgeFunction<L>> edges = data.get(edge.getTarget());
+		if(edges == null) {
+			return null;
+		}
+		int sourceVal = facts.numberOf(edge.factAtSource());
+		int targetVal = facts.numberOf(edge.factAtTarget());
+		if(sourceVal < 0 || targetVal < 0) {
+			return null;
+		}
+		synchronized (edges) {
+			return edges.get(key(sourceVal, targetVal));
+		}
+	}
+
+	@Override
+	public int removeTarget(N target) {
+		LongKeyMap<EdgeFunction<L>> edges = data.remove(target);
+		if(edges == null) {
+			return 0;
+		}
+		synchronized (edges) {
+			return edges.size();
+		}
+	}
+
+	@Override
+	public void clear() {
+		data.clear();
+	}
+
+	@Override
+	public int getTargetCount() {
+		return data.size();
+	}
+}
@@ -28,13 +28,15 @@ import heros.PGSQLConnector;
 import heros.SynchronizedBy;
 import heros.ZeroedFlowFunctions;
 import heros.edgefunc.EdgeIdentity;
+import heros.solver.SolverBudget.DegradationPolicy;
+import heros.solver.SolverBudget.Resource;
 
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
-import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -44,6 +46,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
@@ -52,6 +56,7 @@ import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
@@ -63,6 +68,7 @@ import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Table;
 import com.google.common.collect.Table.Cell;
+import com.google.common.collect.Tables;
 
 /**
  * Solves the given {@link IDETabulationProblem} as described in the 1996 paper by Sagiv,
@@ -102,13 +108,13 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 	
 	//stores summaries that were queried before they were computed
 	//see CC 2010 paper by Naeem, Lhotak and Rodriguez
-	@SynchronizedBy("consistent lock on 'incoming'")
-	protected final Table<N,D,Table<N,D,EdgeFunction<V>>> endSummary = HashBasedTable.create();
+	@SynchronizedBy("consistent lock on 'incoming' for updates, concurrent maps for reads")
+	protected final Table<N,D,Table<N,D,EdgeFunction<V>>> endSummary = concurrentTable();
 
 	//edges going along calls
 	//see CC 2010 paper by Naeem, Lhotak and Rodriguez
-	@SynchronizedBy("consistent lock on field")
-	protected final Table<N,D,Map<N,Set<D>>> incoming = HashBasedTable.create();
+	@SynchronizedBy("consistent lock on field for updates, concurrent maps for reads")
+	protected final Table<N,D,Map<N,Set<D>>> incoming = concurrentTable();
 	
 	@DontSynchronize("stateless")
 	protected final FlowFunctions<N, D, M> flowFunctions;
@@ -125,8 +131,12 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 	@DontSynchronize("stateless")
 	protected final EdgeFunction<V> allTop;
 
-	@SynchronizedBy("consistent lock on field")
-	public final Table<N,D,V> val = HashBasedTable.create();	
+	//values of phase II, updated by atomic join-and-set, see joinVal(..)
+	@SynchronizedBy("thread safe data structure")
+	private final Map<N,Map<D,V>> values = new ConcurrentHashMap<N,Map<D,V>>();
+
+	@SynchronizedBy("thread safe data structure")
+	public final Table<N,D,V> val = Tables.newCustomTable(values, ConcurrentHashMap::new);
 	
 	@DontSynchronize("benign races")
 	public long flowFunctionApplicationCount;
@@ -140,6 +150,15 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 	@DontSynchronize("benign races")
 	public long durationFlowFunctionConstruction;
 	
+	@DontSynchronize("benign races")
+	public long worklistMergeCount;
+	
+	@DontSynchronize("benign races")
+	public int maxOuterWorklistSize;
+	
+	@DontSynchronize("benign races")
+	public int maxInnerWorklistSize;
+	
 	@DontSynchronize("benign races")
 	public long durationFlowFunctionApplication;
 
@@ -160,6 +179,52 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 	
 	private ForkJoinPool forkJoinPool = new ForkJoinPool();
 	
+	//regions are only handed to other workers while fewer tasks than this are queued locally
+	private static final int SURPLUS_TASKS = 3;
+	
+	//orders the targets of the worklists, null to process them in LIFO order
+	private TopologicalSorter<N,M> topologicalSorter;
+	
+	private final Map<M,Map<N,Integer>> topologicalPositions = new ConcurrentHashMap<M,Map<N,Integer>>();
+	
+	private SolverBudget budget = SolverBudget.unlimited();
+	
+	@DontSynchronize("only written by first thread exceeding a budget, benign races")
+	private volatile DegradationPolicy globalDegradation = null;
+	
+	private volatile long startTime = System.currentTimeMillis();
+	
+	@SynchronizedBy("thread safe data structure")
+	private final Map<N,DegradationPolicy> approximatedStatements = new ConcurrentHashMap<N,DegradationPolicy>();
+	
+	@SynchronizedBy("thread safe data structure")
+	private final Set<M> skippedMethods = ConcurrentHashMap.newKeySet();
+	
+	@SynchronizedBy("thread safe data structure")
+	private final Set<N> exceededTargets = ConcurrentHashMap.newKeySet();
+	
+	//drops solver state as soon as it is no longer needed, see setReleaseSolverState
+	private boolean releaseSolverState = false;
+	
+	@SynchronizedBy("thread safe implementation required")
+	private ResultSink<N,D,V> resultSink = null;
+	
+	@SynchronizedBy("thread safe implementation required")
+	private SummaryStore<N,D,M,V> summaryStore = null;
+	
+	//null if the whole exploded super graph is explored, see setRelevantNodes
+	@SynchronizedBy("read-only during the analysis")
+	private Set<N> relevantNodes = null;
+	
+	//true for summaries loaded from the summary store, false for the ones computed by this solver
+	@SynchronizedBy("thread safe data structure, consistent lock on 'incoming' for loading")
+	private final Map<Pair<N,D>,Boolean> storedSummaries = new ConcurrentHashMap<Pair<N,D>,Boolean>();
+	
+	private int storedSummaryCount = 0;
+	
+	@DontSynchronize("only updated atomically")
+	private final AtomicInteger releasedMethodCount = new AtomicInteger();
+	
 	private boolean enableNeo4Jlogging = false;
 	private boolean enablePGSQLlogging = false;
 	private boolean enableAntiAbstraction = true;
@@ -182,6 +247,18 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 	 * @param edgeFunctionCacheBuilder A valid {@link CacheBuilder} or <code>null</code> if no caching is to be used for edge functions.
 	 */
 	public IDESolver(IDETabulationProblem<N,D,M,V,I> tabulationProblem, @SuppressWarnings("rawtypes") CacheBuilder flowFunctionCacheBuilder, @SuppressWarnings("rawtypes") CacheBuilder edgeFunctionCacheBuilder) {
+		this(tabulationProblem, flowFunctionCacheBuilder, edgeFunctionCacheBuilder, false);
+	}
+
+	/**
+	 * Creates a solver for the given problem, constructing caches with the given {@link CacheBuilder}. The solver must then be started by calling
+	 * {@link #solve()}.
+	 * @param flowFunctionCacheBuilder A valid {@link CacheBuilder} or <code>null</code> if no caching is to be used for flow functions.
+	 * @param edgeFunctionCacheBuilder A valid {@link CacheBuilder} or <code>null</code> if no caching is to be used for edge functions.
+	 * @param compactJumpFunctions If true, jump functions are stored in {@link CompactJumpFunctions}.
+	 */
+	public IDESolver(IDETabulationProblem<N,D,M,V,I> tabulationProblem, @SuppressWarnings("rawtypes") CacheBuilder flowFunctionCacheBuilder, @SuppressWarnings("rawtypes") CacheBuilder edgeFunctionCacheBuilder,
+			boolean compactJumpFunctions) {
 		if(logger.isDebugEnabled()) {
 			if(flowFunctionCacheBuilder != null) {
 				flowFunctionCacheBuilder = flowFunctionCacheBuilder.recordStats();
@@ -213,7 +290,7 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 		this.initialSeeds = tabulationProblem.initialSeeds();
 		this.valueLattice = tabulationProblem.joinLattice();
 		this.allTop = tabulationProblem.allTopFunction();
-		this.jumpFn = new JumpFunctions<N,D,V>(allTop);
+		this.jumpFn = compactJumpFunctions ? new CompactJumpFunctions<N,D,V>(allTop) : new JumpFunctions<N,D,V>(allTop);
 		this.followReturnsPastSeeds = tabulationProblem.followReturnsPastSeeds();
 		this.numThreads = Math.max(1,tabulationProblem.numThreads());
 		this.computeValues = tabulationProblem.computeValues();
@@ -259,6 +336,164 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 	}
 
 	
+	/**
+	 * Sets the number of worker threads used for the exploded super graph.
+	 * Defaults to the number of available processors.
+	 */
+	public void setParallelism(int parallelism) {
+		forkJoinPool.shutdown();
+		forkJoinPool = new ForkJoinPool(parallelism);
+	}
+	
+	/**
+	 * Sets the resource limits of this solver. By default, the solver is not limited.
+	 */
+	public void setBudget(SolverBudget budget) {
+		this.budget = budget;
+	}
+	
+	public SolverBudget getBudget() {
+		return budget;
+	}
+	
+	/**
+	 * If enabled, the incoming call edges are dropped once the exploded super graph is complete
+	 * and the jump functions of a method are dropped as soon as the values of all its statements
+	 * are computed. Jump functions are no longer available after {@link #solve()}, end summaries
+	 * are kept. Disabled by default.
+	 */
+	public void setReleaseSolverState(boolean releaseSolverState) {
+		this.releaseSolverState = releaseSolverState;
+	}
+	
+	/**
+	 * Sets a sink which receives the values of each statement as soon as they are final. If
+	 * {@link #setReleaseSolverState(boolean)} is enabled as well, the values handed to the sink
+	 * are dropped from {@link #val}.
+	 */
+	public void setResultSink(ResultSink<N,D,V> resultSink) {
+		this.resultSink = resultSink;
+	}
+	
+	/**
+	 * Sets a store which persists the end summaries of some methods across runs.
+	 */
+	public void setSummaryStore(SummaryStore<N,D,M,V> summaryStore) {
+		this.summaryStore = summaryStore;
+	}
+	
+	/**
+	 * Restricts the analysis to the given nodes, edges to all other nodes are dropped. Results are
+	 * exact at nodes whose predecessors on all valid paths from the seeds are relevant, e.g., the
+	 * backward slice of some queried nodes. By default, all nodes are relevant.
+	 */
+	public void setRelevantNodes(Set<N> relevantNodes) {
+		this.relevantNodes = relevantNodes;
+	}
+	
+	/**
+	 * Number of end summaries loaded from the summary store.
+	 */
+	public int getLoadedSummaryCount() {
+		int count = 0;
+		for(boolean loaded : storedSummaries.values()) {
+			if(loaded) {
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Number of end summaries handed to the summary store.
+	 */
+	public int getStoredSummaryCount() {
+		return storedSummaryCount;
+	}
+	
+	/**
+	 * Number of methods whose jump functions were dropped, see {@link #setReleaseSolverState(boolean)}.
+	 */
+	public int getReleasedMethodCount() {
+		return releasedMethodCount.get();
+	}
+	
+	/**
+	 * Returns the statements at which edges were widened or dropped because a budget was exceeded,
+	 * together with the applied policy. Results at these statements and at statements reachable
+	 * from them are approximations.
+	 */
+	public Map<N,DegradationPolicy> getApproximatedStatements() {
+		return Collections.unmodifiableMap(approximatedStatements);
+	}
+	
+	/**
+	 * Returns true if a global budget (time, propagations, heap) was exceeded, i.e., all results may be approximated.
+	 */
+	public boolean isBudgetExceeded() {
+		return globalDegradation != null;
+	}
+	
+	/**
+	 * Returns true if the result at the given statement may be approximated because a budget was exceeded,
+	 * i.e., a global budget was exceeded or propagation was degraded within the method of the statement.
+	 */
+	public boolean isApproximated(N n) {
+		if(globalDegradation != null || approximatedStatements.containsKey(n)) {
+			return true;
+		}
+		return !approximatedStatements.isEmpty() && approximatedMethods().contains(icfg.getMethodOf(n));
+	}
+	
+	private volatile Set<M> approximatedMethods = null;
+	private volatile int approximatedMethodsSize = -1;
+	
+	private Set<M> approximatedMethods() {
+		Set<M> methods = approximatedMethods;
+		if(methods == null || approximatedMethodsSize != approximatedStatements.size()) {
+			methods = new HashSet<M>();
+			for(N n : approximatedStatements.keySet()) {
+				methods.add(icfg.getMethodOf(n));
+			}
+			approximatedMethodsSize = approximatedStatements.size();
+			approximatedMethods = methods;
+		}
+		return methods;
+	}
+	
+	/**
+	 * Sets the sorter which determines the order of the worklists within a method, e.g. reverse postorder.
+	 * Without sorter, the most recently added target is processed first.
+	 */
+	public void setTopologicalSorter(TopologicalSorter<N,M> topologicalSorter) {
+		this.topologicalSorter = topologicalSorter;
+	}
+	
+	private TargetWorklist<N, NewPathEdgeProcessingTask> newWorklist() {
+		return new TargetWorklist<N, NewPathEdgeProcessingTask>(NewPathEdgeProcessingTask::getTarget,
+				NewPathEdgeProcessingTask::addTask, this::topologicalPosition);
+	}
+	
+	private int topologicalPosition(N n) {
+		if(topologicalSorter == null) {
+			return 0;
+		}
+		M method = icfg.getMethodOf(n);
+		Map<N,Integer> positions = topologicalPositions.get(method);
+		if(positions == null) {
+			positions = new HashMap<N,Integer>();
+			List<N> order = topologicalSorter.getPseudoTopologicalOrder(method);
+			if(order != null) {
+				for(N unit : order) {
+					positions.put(unit, positions.size());
+				}
+			}
+			topologicalPositions.putIfAbsent(method, positions);
+		}
+		Integer position = positions.get(n);
+		return position == null ? Integer.MAX_VALUE : position;
+	}
+	
 	/**
 	 * Runs the solver on the configured problem. This can take some time.
 	 */
@@ -279,7 +514,11 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 		if(enableNeo4Jlogging) neo4j = new Neo4JConnector<N,D>();
 		if(enablePGSQLlogging) pgsql = new PGSQLConnector<N,D,I,M>();
 		
+		startTime = System.currentTimeMillis();
 		forkJoinPool.invoke(new InitialSeeds());
+		if(!approximatedStatements.isEmpty() || globalDegradation != null) {
+			logger.warn("Budget exceeded, results at {} statements are approximated ({})", approximatedStatements.size(), budget);
+		}
 		awaitCompletionComputeValuesAndShutdown();
 		
 		if(enableNeo4Jlogging) neo4j.writeQueue();
@@ -298,16 +537,12 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 			
 			Queue<NewPathEdgeProcessingTask> tasks = new LinkedList<NewPathEdgeProcessingTask>();
 			
-			HashSet<N> joinPoints = new LinkedHashSet<N>();
-			
-			if(initialSeeds.size() > 1) {
-				throw new IllegalStateException("Only thinking about a single initial seed at the moment");
-			}
-			
+			//each seed starts its own task, all of them run in parallel
 			for(Entry<N, Set<D>> seed: initialSeeds.entrySet()) {
 				N startPoint = seed.getKey();
 				for(D val: seed.getValue()) {
-					NewPathEdgeProcessingTask task = propagate(zeroValue, startPoint, val, EdgeIdentity.<V>v(), null, false, joinPoints);
+					//tasks add their join points to the set, so seeds must not share one
+					NewPathEdgeProcessingTask task = propagate(zeroValue, startPoint, val, EdgeIdentity.<V>v(), null, false, new LinkedHashSet<N>());
 					if(task != null) {
 						tasks.add(task);
 					}
@@ -363,6 +598,7 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 			runExecutorAndAwaitCompletion();
 			durationFlowFunctionConstruction = System.currentTimeMillis() - before;
 		}
+		storeSummaries();
 		if(computeValues) {
 			final long before = System.currentTimeMillis();
 			computeValues();
@@ -468,11 +704,19 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 				if(enableNeo4Jlogging) neo4j.logEdge(sP, edge, "processCall");
 				if(enablePGSQLlogging) pgsql.logEdge(sP, edge, "processCall", icfg);
 				
+				boolean summarized = summaryStore != null && summaryStore.isSummarized(sCalledProcN);
+				
 				//for each result node of the call-flow function
 				for(D d3: res) {
-					//create initial self-loop
-					// @TODO Changes fourth parameter -> check again
-					task = propagate(d3, sP, d3, f, n, false, joinPoints); //line 15
+					//create initial self-loop, unless the summary is known from the store
+					if(!summarized) {
+						// @TODO Changes fourth parameter -> check again
+						task = propagate(d3, sP, d3, f, n, false, joinPoints); //line 15
+					} else if(!loadSummary(sCalledProcN, sP, d3)) {
+						task = propagate(d3, sP, d3, summaryEntryFunction(), n, false, joinPoints);
+					} else {
+						task = null;
+					}
 					if(task != null) {
 						tasks.add(task);
 					}
@@ -534,6 +778,66 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 		return tasks;
 	}
 
+	/**
+	 * Installs the stored end summary of the given method for <sP,d3> on first use.
+	 * @return True if the summary is taken from the summary store
+	 */
+	private boolean loadSummary(M method, N sP, D d3) {
+		Pair<N,D> key = new Pair<N,D>(sP, d3);
+		Boolean loaded = storedSummaries.get(key);
+		if(loaded != null) {
+			return loaded;
+		}
+		Table<N,D,EdgeFunction<V>> summary = summaryStore.load(method, sP, d3);
+		synchronized (incoming) {
+			loaded = storedSummaries.get(key);
+			if(loaded == null) {
+				loaded = summary != null;
+				if(loaded) {
+					for(Cell<N,D,EdgeFunction<V>> cell : summary.cellSet()) {
+						addEndSummary(sP, d3, cell.getRowKey(), cell.getColumnKey(), cell.getValue());
+					}
+				}
+				storedSummaries.put(key, loaded);
+			}
+		}
+		return loaded;
+	}
+	
+	/**
+	 * Hands all end summaries computed for methods of the summary store to the store. Skipped if
+	 * a budget was exceeded, the summaries may be incomplete then.
+	 */
+	private void storeSummaries() {
+		if(summaryStore == null) {
+			return;
+		}
+		if(globalDegradation != null || !approximatedStatements.isEmpty()) {
+			logger.info("Not storing summaries, results are approximated");
+			return;
+		}
+		for(Entry<Pair<N,D>,Boolean> entry : storedSummaries.entrySet()) {
+			if(!entry.getValue()) {
+				N sP = entry.getKey().getO1();
+				D d3 = entry.getKey().getO2();
+				Table<N,D,EdgeFunction<V>> summary = endSummary.get(sP, d3);
+				if(summary == null) {
+					summary = HashBasedTable.create();
+				}
+				summaryStore.store(icfg.getMethodOf(sP), sP, d3, summary);
+				storedSummaryCount++;
+			}
+		}
+	}
+	
+	/**
+	 * The jump function of the initial self-loop at the start point of a method handled by the
+	 * summary store. Must not depend on the calling context.
+	 */
+	protected EdgeFunction<V> summaryEntryFunction() {
+		return EdgeIdentity.v();
+	}
+	
 	/**
 	 * Computes the call flow function for the given call-site abstraction
 	 * @param callFlowFunction The call flow function to compute
@@ -589,6 +893,9 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 			
 			//register end-summary
 			synchronized (incoming) {
+				//another thread may have joined into the edge since f was read, the summary must not
+				//be replaced by an older function
+				f = jumpFunction(edge);
 				addEndSummary(sP, d1, n, d2, f);
 				//copy to avoid concurrent modification exceptions by other threads
 				for (Entry<N, Set<D>> entry : incoming(d1, sP).entrySet())
@@ -762,8 +1069,6 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 		return flowFunction.computeTargets(d2);
 	}
 	
-	private Set<N> skippedTargets = new HashSet<>();
-	
 
 	/**
 	 * Propagates the flow further down the exploded super graph, merging any edge function that might
@@ -790,41 +1095,52 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 			throw new IllegalArgumentException("Passed edge function must not be null.");
 		}
 		
-		PathEdge<N,D> edge = new PathEdge<N,D>(sourceVal, target, targetVal);		
-		
-		jumpFnE = jumpFn.getFunction(edge);
-		if(jumpFnE==null) jumpFnE = allTop; //JumpFn is initialized to all-top (see line [2] in SRH96 paper)
-		fPrime = jumpFnE.joinWith(f);
-		newFunction = !fPrime.equalTo(jumpFnE);
-		
-//		logger.info("propage(sourceVal={}, target={}, targetVal={}, fPrime={})", sourceVal, target, targetVal, fPrime);
-		
-		if(newFunction) {
-			newFunction = vetoNewFunction(sourceVal, target, targetVal, fPrime);
+		if(relevantNodes != null && !relevantNodes.contains(target)) {
+			return null;
 		}
 		
-		// Hack to test performance - stop propagation after fixed number of taints per edge
-		long skipTargetLimit = 1000;
-		if(jumpFn.lookupByTarget(target).size() > skipTargetLimit)
-		{ 
-			if(skippedTargets.add(target))
-			{
-				System.out.println("Skip target " + skippedTargets.size() + ": " + target.toString() + " in method " + icfg.getMethodOf(target));
-			}
-			newFunction = false;
-		}
+		PathEdge<N,D> edge = new PathEdge<N,D>(sourceVal, target, targetVal);		
 		
-		if(newFunction) {
-			//logger.info("jumpFn.addFunction(sourceVal={}, target={}, targetVal={}, fPrime={})", sourceVal, target, targetVal, fPrime);
-			jumpFn.addFunction(sourceVal, target, targetVal, fPrime);
+		// Regions run in parallel, so another thread may join into the same edge. The join is
+		// only stored if the edge still has the function it was computed from, otherwise it is
+		// computed again from the other thread's function. Only the thread storing a new
+		// function schedules the edge.
+		EdgeFunction<V> stored;
+		do {
+			stored = jumpFn.getFunction(edge);
+			jumpFnE = stored == null ? allTop : stored; //JumpFn is initialized to all-top (see line [2] in SRH96 paper)
+			fPrime = widenFunction(target, jumpFnE.joinWith(f));
+			newFunction = !fPrime.equalTo(jumpFnE);
 			
-			NewPathEdgeProcessingTask task = new NewPathEdgeProcessingTask(edge, joinPoints, jumpFn.getCount());
-			task.setJoinPoint(joinPoints);
-			return task;
-			// scheduleEdgeProcessing(edge);
-		} else {
-			return null;
-		}
+//			logger.info("propage(sourceVal={}, target={}, targetVal={}, fPrime={})", sourceVal, target, targetVal, fPrime);
+			
+			if(newFunction) {
+				newFunction = vetoNewFunction(sourceVal, target, targetVal, fPrime);
+			}
+			
+			if(newFunction) {
+				DegradationPolicy degradation = checkBudget(target);
+				if(degradation == DegradationPolicy.WIDEN) {
+					fPrime = approximateFunction(target, fPrime);
+					newFunction = !fPrime.equalTo(jumpFnE);
+				} else if(degradation != null) {
+					newFunction = false;
+				}
+				if(degradation != null) {
+					approximatedStatements.putIfAbsent(target, degradation);
+				}
+			}
+			
+			if(!newFunction) {
+				return null;
+			}
+			//logger.info("jumpFn.addFunction(sourceVal={}, target={}, targetVal={}, fPrime={})", sourceVal, target, targetVal, fPrime);
+		} while(!jumpFn.replaceFunction(edge, stored, fPrime));
+		
+		NewPathEdgeProcessingTask task = new NewPathEdgeProcessingTask(edge, joinPoints, jumpFn.getCount());
+		task.setJoinPoint(joinPoints);
+		return task;
+		// scheduleEdgeProcessing(edge);
 	}
 	
 	// To be overwritten
@@ -838,6 +1154,93 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 		return true;
 	}
 	
+	/**
+	 * Checks the budget before a new jump function for the given target is stored.
+	 * @return The policy to apply or null if the budget is not exceeded
+	 */
+	private DegradationPolicy checkBudget(N target) {
+		if(globalDegradation == DegradationPolicy.ABORT) {
+			return DegradationPolicy.ABORT;
+		}
+		if(!skippedMethods.isEmpty() && skippedMethods.contains(icfg.getMethodOf(target))) {
+			return DegradationPolicy.SKIP_METHOD;
+		}
+		
+		// time and heap are only checked every 1024 functions
+		if(globalDegradation == null && (propagationCount >= budget.getLimit(Resource.PROPAGATIONS)
+				|| ((jumpFn.getCount() & 1023) == 0 && (System.currentTimeMillis() - startTime >= budget.getLimit(Resource.WALL_CLOCK_MILLIS)
+						|| usedHeap() >= budget.getLimit(Resource.USED_HEAP_BYTES))))) {
+			for(Resource resource : new Resource[] { Resource.PROPAGATIONS, Resource.WALL_CLOCK_MILLIS, Resource.USED_HEAP_BYTES }) {
+				if(budget.isLimited(resource) && isExceeded(resource)) {
+					globalDegradation = budget.getPolicy(resource);
+					logger.warn("Budget {} of {} exceeded, applying {}", resource, budget.getLimit(resource), globalDegradation);
+					break;
+				}
+			}
+		}
+		DegradationPolicy degradation = globalDegradation;
+		
+		if(jumpFn.getFunctionCount(target) > budget.getLimit(Resource.FAN_OUT)) {
+			DegradationPolicy fanOut = budget.getPolicy(Resource.FAN_OUT);
+			if(exceededTargets.add(target)) {
+				logger.warn("Fan-out of {} in {} exceeds {}, applying {}", target, icfg.getMethodOf(target), budget.getLimit(Resource.FAN_OUT), fanOut);
+			}
+			if(degradation == null || fanOut.compareTo(degradation) > 0) {
+				degradation = fanOut;
+			}
+		}
+		
+		if(degradation == DegradationPolicy.SKIP_METHOD) {
+			skippedMethods.add(icfg.getMethodOf(target));
+		}
+		return degradation;
+	}
+	
+	private boolean isExceeded(Resource resource) {
+		switch(resource) {
+		case PROPAGATIONS:
+			return propagationCount >= budget.getLimit(resource);
+		case WALL_CLOCK_MILLIS:
+			return System.currentTimeMillis() - startTime >= budget.getLimit(resource);
+		case USED_HEAP_BYTES:
+			return usedHeap() >= budget.getLimit(resource);
+		default:
+			return false;
+		}
+	}
+	
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+	
+	/**
+	 * Returns the least precise function, which is used for new jump functions to the given target
+	 * once a budget with policy {@link DegradationPolicy#WIDEN} is exceeded.
+	 * The default implementation cannot construct such a function and returns f.
+	 */
+	protected EdgeFunction<V> approximateFunction(N target, EdgeFunction<V> f) {
+		// To be overwritten
+		return f;
+	}
+	
+	/**
+	 * Called with each joined jump function before it is stored for the given target.
+	 * Subclasses may return a less precise function to bound the cost of later joins.
+	 */
+	protected EdgeFunction<V> widenFunction(N target, EdgeFunction<V> f) {
+		// To be overwritten
+		return f;
+	}
+	
+	/**
+	 * Like {@link #widenFunction(Object, EdgeFunction)} for the values computed in phase II.
+	 */
+	protected V widenValue(N n, V v) {
+		// To be overwritten
+		return v;
+	}
+	
 	protected Collection<Entry<PathEdge<N, D>, EdgeFunction<V>>> findMatchingAbstractions(N target) {
 		// To be overwritten
 		return null;
@@ -858,6 +1261,11 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 	 * Computes the final values for edge functions.
 	 */
 	private void computeValues() {	
+		//neither needed for the values nor for the statistics
+		if(releaseSolverState) {
+			incoming.clear();
+		}
+		
 		//Phase II(i)
         logger.debug("Computing the final values for the edge functions");
 		for(Entry<N, Set<D>> seed: initialSeeds.entrySet()) {
@@ -875,16 +1283,32 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 		} catch (InterruptedException e) {
 			e.printStackTrace();
 		}
+		propagateValueHistory.clear();
 		
 		//Phase II(ii)
-		//we create an array of all nodes and then dispatch fractions of this array to multiple threads
-		
-//		Set<N> allNonCallStartNodes = icfg.allNonCallStartNodes();
-//		Set<N> allNonCallStartNodes = icfg.allNodes();
-		Iterable<N> allNonCallStartNodes = icfg.allNonCallStartNodes();
+		//the values at start points and call sites are final now, each method is computed
+		//by a single task which may then release the jump functions of the method
+		Map<M,List<N>> nodesByMethod = new HashMap<M,List<N>>();
+		for(N n : icfg.allNonCallStartNodes()) {
+			M method = icfg.getMethodOf(n);
+			List<N> nodes = nodesByMethod.get(method);
+			if(nodes == null) {
+				nodes = new ArrayList<N>();
+				nodesByMethod.put(method, nodes);
+			}
+			nodes.add(n);
+		}
+		//every reached method has values at its start points, methods consisting only of start
+		//points and call sites still need a task to hand out and release their state
+		for(N n : values.keySet()) {
+			M method = icfg.getMethodOf(n);
+			if(!nodesByMethod.containsKey(method)) {
+				nodesByMethod.put(method, new ArrayList<N>());
+			}
+		}
 		
-		for(N n : allNonCallStartNodes) {
-			ValueComputationTask task = new ValueComputationTask(n);
+		for(Entry<M,List<N>> methodAndNodes : nodesByMethod.entrySet()) {
+			ValueComputationTask task = new ValueComputationTask(methodAndNodes.getKey(), methodAndNodes.getValue());
 			scheduleValueComputationTask(task);
 		}
 		
@@ -895,6 +1319,44 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 			e.printStackTrace();
 		}
 	}
+	
+	/**
+	 * Called once the values of all statements of the given method are final and handed to the
+	 * result sink, if any. With {@link #setReleaseSolverState(boolean)} the jump functions of the
+	 * method are already dropped.
+	 * May be called by multiple threads concurrently, for different methods.
+	 */
+	protected void methodValuesComputed(M method, Collection<N> nodes) {
+		// To be overwritten
+	}
+	
+	/**
+	 * Hands the values of all statements of the given method to the result sink.
+	 */
+	private void sinkMethod(M method, Collection<N> nodes) {
+		Set<N> allNodes = new LinkedHashSet<N>(icfg.getStartPointsOf(method));
+		allNodes.addAll(icfg.getCallsFromWithin(method));
+		allNodes.addAll(nodes);
+		for(N n : allNodes) {
+			Map<D,V> row = values.get(n);
+			if(row != null && !row.isEmpty()) {
+				resultSink.accept(n, Collections.unmodifiableMap(row));
+				if(releaseSolverState) {
+					values.remove(n);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Drops all jump functions with a target in the given method.
+	 */
+	private void releaseMethod(M method, Collection<N> nodes) {
+		jumpFn.removeTargets(nodes);
+		jumpFn.removeTargets(icfg.getCallsFromWithin(method));
+		jumpFn.removeTargets(icfg.getStartPointsOf(method));
+		releasedMethodCount.incrementAndGet();
+	}
 
 	private void propagateValueAtStart(Pair<N, D> nAndD, N n) {
 		D d = nAndD.getO2();		
@@ -912,13 +1374,15 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 		}
 	}
 	
-	private Set<Pair<N, D>> propagateValueHistory = new HashSet<>();
+	private final ConcurrentMap<Pair<N, D>, V> propagateValueHistory = new ConcurrentHashMap<Pair<N, D>, V>();
 	
 	private void propagateValueAtCall(Pair<N, D> nAndD, N n) {
 		D d = nAndD.getO2();
 
-		// Prevent unnecessary duplicate work
-		if(propagateValueHistory.contains(nAndD))
+		// Prevent unnecessary duplicate work, the value at the call may still grow after it was
+		// propagated once, so it is only skipped if it was already propagated with the same value
+		V value = val(n,d);
+		if(value.equals(propagateValueHistory.put(nAndD, value)))
 		{
 			return;
 		}
@@ -957,42 +1421,73 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 				}
 			}
 		}
-		
-		propagateValueHistory.add(nAndD);
-		
 	}
 	
 	private void propagateValue(N nHashN, D nHashD, V v) {
-		synchronized (val) {
-			V valNHash = val(nHashN, nHashD);
-			V vPrime = valueLattice.join(valNHash,v);
-			if(!vPrime.equals(valNHash)) {
-				setVal(nHashN, nHashD, vPrime);
-				scheduleValueProcessing(new ValuePropagationTask(new Pair<N,D>(nHashN,nHashD)));
-			}
+		if(joinVal(nHashN, nHashD, v)) {
+			scheduleValueProcessing(new ValuePropagationTask(new Pair<N,D>(nHashN,nHashD)));
 		}
 	}
 
 	private V val(N nHashN, D nHashD){ 
-		V l;
-		synchronized (val) {
-			l = val.get(nHashN, nHashD);
-		}
+		Map<D,V> row = values.get(nHashN);
+		V l = row == null ? null : row.get(nHashD);
 		if(l==null) return valueLattice.topElement(); //implicitly initialized to top; see line [1] of Fig. 7 in SRH96 paper
 		else return l;
 	}
 	
 	private void setVal(N nHashN, D nHashD,V l){
 		// TOP is the implicit default value which we do not need to store.
-		synchronized (val) {
-			if (l == valueLattice.topElement())  {   // do not store top values
-				val.remove(nHashN, nHashD);
+		if (l == valueLattice.topElement())  {   // do not store top values
+			Map<D,V> row = values.get(nHashN);
+			if(row != null) {
+				row.remove(nHashD);
+			}
+		}
+		else {
+			valRow(nHashN).put(nHashD,l);
+		}
+	}
+	
+	/**
+	 * Atomically joins v into the value of nHashN and nHashD.
+	 * The join is computed outside of any lock and retried if another thread updated the value in between.
+	 * @return True if the value changed
+	 */
+	private boolean joinVal(N nHashN, D nHashD, V v) {
+		ConcurrentMap<D,V> row = valRow(nHashN);
+		while(true) {
+			V old = row.get(nHashD);
+			V valNHash = old == null ? valueLattice.topElement() : old;
+			V vPrime = widenValue(nHashN, valueLattice.join(valNHash,v));
+			if(vPrime.equals(valNHash)) {
+				return false;
 			}
-			else {
-				val.put(nHashN, nHashD,l);
+			boolean updated;
+			if(vPrime == valueLattice.topElement()) {
+				updated = old == null || row.remove(nHashD, old);
+			} else if(old == null) {
+				updated = row.putIfAbsent(nHashD, vPrime) == null;
+			} else {
+				updated = row.replace(nHashD, old, vPrime);
+			}
+			if(updated) {
+				return true;
 			}
 		}
 	}
+	
+	private ConcurrentMap<D,V> valRow(N n) {
+		Map<D,V> row = values.get(n);
+		if(row == null) {
+			row = values.computeIfAbsent(n, k -> new ConcurrentHashMap<D,V>());
+		}
+		return (ConcurrentMap<D,V>) row;
+	}
+	
+	private static <R,C,W> Table<R,C,W> concurrentTable() {
+		return Tables.newCustomTable(new ConcurrentHashMap<R,Map<C,W>>(), ConcurrentHashMap::new);
+	}
 
 	private EdgeFunction<V> jumpFunction(PathEdge<N,D> edge) {
 		//synchronized (jumpFn) {
@@ -1012,7 +1507,7 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 	private void addEndSummary(N sP, D d1, N eP, D d2, EdgeFunction<V> f) {
 		Table<N, D, EdgeFunction<V>> summaries = endSummary.get(sP, d1);
 		if(summaries==null) {
-			summaries = HashBasedTable.create();
+			summaries = concurrentTable();
 			endSummary.put(sP, d1, summaries);
 		}
 		//note: at this point we don't need to join with a potential previous f
@@ -1022,23 +1517,21 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 	}	
 	
 	private Map<N, Set<D>> incoming(D d1, N sP) {
-		synchronized (incoming) {
-			Map<N, Set<D>> map = incoming.get(sP, d1);
-			if(map==null) return Collections.emptyMap();
-			return map;
-		}
+		Map<N, Set<D>> map = incoming.get(sP, d1);
+		if(map==null) return Collections.emptyMap();
+		return map;
 	}
 	
 	protected void addIncoming(N sP, D d3, N n, D d2) {
 		synchronized (incoming) {
 			Map<N, Set<D>> summaries = incoming.get(sP, d3);
 			if(summaries==null) {
-				summaries = new HashMap<N, Set<D>>();
+				summaries = new ConcurrentHashMap<N, Set<D>>();
 				incoming.put(sP, d3, summaries);
 			}
 			Set<D> set = summaries.get(n);
 			if(set==null) {
-				set = new HashSet<D>();
+				set = ConcurrentHashMap.newKeySet();
 				summaries.put(n,set);
 			}
 			set.add(d2);
@@ -1187,11 +1680,9 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 				Set<N> inc = new HashSet<N>();
 				Collection<N> startPointsOf = icfg.getStartPointsOf(methodThatNeedsSummary);
 				for(N sP: startPointsOf) {
-					synchronized (incoming) {
-						for (Entry<D, Map<N, Set<D>>> entry : incoming.row(sP).entrySet()) {
-							for(N n : entry.getValue().keySet()) {
-								inc.add(n);
-							}
+					for (Entry<D, Map<N, Set<D>>> entry : incoming.row(sP).entrySet()) {
+						for(N n : entry.getValue().keySet()) {
+							inc.add(n);
 						}
 					}
 				}
@@ -1335,6 +1826,10 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 			for(D abstractionToHandle : abstractionsToHandle)
 			{
 				D antiAbstraction = deriveAntiAbstraction(abstractionToHandle);
+				if(antiAbstraction == null) {
+					// the problem does not derive anti abstractions
+					continue;
+				}
 				
 				boolean alreadyExists = jumpFn.getFunction(new PathEdge<N, D>(antiAbstraction, firstStartPoint, antiAbstraction)) != null;
 //						System.out.println("AntiAbstraction already exists: " + alreadyExists);
@@ -1366,28 +1861,11 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 		}
 		
 		
-		private void addOrExtend(Deque<NewPathEdgeProcessingTask> tasks, NewPathEdgeProcessingTask task)
-		{
-			boolean found = false;
-			for(NewPathEdgeProcessingTask t : tasks)
-			{
-				if(t.getTarget() == task.getTarget()) {
-					found = true;
-					t.addTask(task);
-				}
-			}
-			if(!found) {
-				tasks.addFirst(task);
-			}
-		}
-		
 		@Override
 		protected List<NewPathEdgeProcessingTask> compute() {
 			
 			assert joinPoints != null : "joinPoint not set";
 
-			long propagationCountLimit = 150000;
-			
 			Collection<NewPathEdgeProcessingTask> groupedTasks = computePart1();
 			
 			// groupedTasks contains all pathEdges to be done grouped by their target
@@ -1406,8 +1884,8 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 			
 			if(nonRecursiveVersion) {
 				
-				Deque<NewPathEdgeProcessingTask> outerWorklist = new LinkedList<>();
-				Deque<NewPathEdgeProcessingTask> innerWorklist = new LinkedList<>();
+				TargetWorklist<N, NewPathEdgeProcessingTask> outerWorklist = newWorklist();
+				TargetWorklist<N, NewPathEdgeProcessingTask> innerWorklist = newWorklist();
 				
 				for(NewPathEdgeProcessingTask task : groupedTasks)
 				{
@@ -1415,20 +1893,22 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 					
 					if(joinPoint.contains(target))
 					{
-						addOrExtend(outerWorklist, task);
+						outerWorklist.add(task);
 					} else {										
-						addOrExtend(innerWorklist, task);
+						innerWorklist.add(task);
 					}
 				}
 				
 				// disable recursive handling
 				groupedTasks.clear();
 				
+				List<ForkJoinTask<List<NewPathEdgeProcessingTask>>> regions = new ArrayList<>();
+				
 				do {
 					
-					while(!innerWorklist.isEmpty() && propagationCount < propagationCountLimit)
+					while(!innerWorklist.isEmpty() && globalDegradation != DegradationPolicy.ABORT)
 					{
-						NewPathEdgeProcessingTask task = innerWorklist.pop();
+						NewPathEdgeProcessingTask task = innerWorklist.poll();
 						
 						Collection<N> subJoinPoints = getJoinPoint(task.getTarget());
 						
@@ -1450,24 +1930,12 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 					
 						for(NewPathEdgeProcessingTask subTask : subGroupedTasks) {
 							
-							if(joinPoint.contains(subTask.getTarget()))
+							// Extend a corresponding task in outer if there is one
+							if(joinPoint.contains(subTask.getTarget()) || outerWorklist.contains(subTask.getTarget()))
 							{
-								addOrExtend(outerWorklist, subTask);
+								outerWorklist.add(subTask);
 							} else {	
-								// Search if there is already a corresponding task in outer
-								boolean foundInOuter = false;
-								for(NewPathEdgeProcessingTask t : outerWorklist)
-								{
-									if(t.getTarget().equals(subTask.getTarget())) {
-										foundInOuter = true;
-									}
-								}
-								
-								if(foundInOuter) {
-									addOrExtend(outerWorklist, subTask);
-								} else {
-									addOrExtend(innerWorklist, subTask);
-								}
+								innerWorklist.add(subTask);
 							}
 						}
 						
@@ -1479,21 +1947,46 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 					// update joinPoint, pop outerWorklist
 					if(!outerWorklist.isEmpty())
 					{
-						innerWorklist.push(outerWorklist.pop());
-						Collection<N> newJoinPoint = getJoinPoint(innerWorklist.peek().getTarget());
+						// hand the oldest join point regions to idle workers
+						while(outerWorklist.size() > 1 && getSurplusQueuedTaskCount() < SURPLUS_TASKS)
+						{
+							NewPathEdgeProcessingTask region = outerWorklist.pollLast();
+							region.setJoinPoint(new HashSet<N>(joinPoint));
+							regions.add(region.fork());
+						}
+						
+						NewPathEdgeProcessingTask next = outerWorklist.poll();
+						innerWorklist.add(next);
+						Collection<N> newJoinPoint = getJoinPoint(next.getTarget());
 //						newJoinPoint.addAll(joinPoint);
 //						joinPoint = newJoinPoint;
 						joinPoint.addAll(newJoinPoint);
 					}
 
-				} while(!innerWorklist.isEmpty() && propagationCount < propagationCountLimit);
+				} while(!innerWorklist.isEmpty() && globalDegradation != DegradationPolicy.ABORT);
+				
+				// edges of aborted tasks are stored but not processed
+				for(TargetWorklist<N, NewPathEdgeProcessingTask> worklist : Arrays.asList(innerWorklist, outerWorklist))
+				{
+					while(!worklist.isEmpty())
+					{
+						approximatedStatements.putIfAbsent(worklist.poll().getTarget(), DegradationPolicy.ABORT);
+					}
+				}
 				
-				if(propagationCount >= propagationCountLimit)
+				for(ForkJoinTask<List<NewPathEdgeProcessingTask>> region : regions)
 				{
-					System.err.println("Stopped because of limit of propagationCount (IDESolver)");
+					tasks.addAll(region.join());
 				}
 				
+				worklistMergeCount += outerWorklist.getMerges() + innerWorklist.getMerges();
+				maxOuterWorklistSize = Math.max(maxOuterWorklistSize, outerWorklist.getMaxSize());
+				maxInnerWorklistSize = Math.max(maxInnerWorklistSize, innerWorklist.getMaxSize());
+				
 				logger.info("propagationCount " + propagationCount);
+				logger.debug("Worklists: {} merges, max. {} outer and {} inner tasks (all tasks: {} merges, max. {} outer and {} inner tasks)",
+						outerWorklist.getMerges() + innerWorklist.getMerges(), outerWorklist.getMaxSize(), innerWorklist.getMaxSize(),
+						worklistMergeCount, maxOuterWorklistSize, maxInnerWorklistSize);
 			
 			} else {
 				while(!groupedTasks.isEmpty()) {
@@ -1642,28 +2135,36 @@ public class IDESolver<N,D,M,V,I extends InterproceduralCFG<N, M>> {
 	
 	private class ValueComputationTask implements Runnable, Comparable<ValueComputationTask> {
 
-		private N n;
+		private final M method;
+		private final Collection<N> nodes;
 		
-		public ValueComputationTask(N value) {
-			this.n = value;
+		public ValueComputationTask(M method, Collection<N> nodes) {
+			this.method = method;
+			this.nodes = nodes;
 		}
 
 		public void run() {
-			for(N sP: icfg.getStartPointsOf(icfg.getMethodOf(n))) {					
-				Map<PathEdge<N, D>, EdgeFunction<V>> lookupByTarget = jumpFn.lookupByTarget(n);
-				for(Entry<PathEdge<N, D>, EdgeFunction<V>> sourceValTargetValAndFunction : lookupByTarget.entrySet()) {
-					PathEdge<N,D> edge = sourceValTargetValAndFunction.getKey();
-					D dPrime = edge.factAtSource();
-					D d = edge.factAtTarget();
-					EdgeFunction<V> fPrime = sourceValTargetValAndFunction.getValue();
-					synchronized (val) {
-						//logger.info("setVal {}, {}, {}", n, d, valueLattice.join(val(n,d),fPrime.computeTarget(val(sP,dPrime))));
-						setVal(n,d,valueLattice.join(val(n,d),fPrime.computeTarget(val(sP,dPrime))));
+			Collection<N> startPoints = icfg.getStartPointsOf(method);
+			for(N n : nodes) {
+				for(N sP: startPoints) {					
+					Map<PathEdge<N, D>, EdgeFunction<V>> lookupByTarget = jumpFn.lookupByTarget(n);
+					for(Entry<PathEdge<N, D>, EdgeFunction<V>> sourceValTargetValAndFunction : lookupByTarget.entrySet()) {
+						PathEdge<N,D> edge = sourceValTargetValAndFunction.getKey();
+						D dPrime = edge.factAtSource();
+						D d = edge.factAtTarget();
+						EdgeFunction<V> fPrime = sourceValTargetValAndFunction.getValue();
+						joinVal(n, d, fPrime.computeTarget(val(sP,dPrime)));
+						flowFunctionApplicationCount++;
 					}
-					flowFunctionApplicationCount++;
 				}
-				
 			}
+			if(releaseSolverState) {
+				releaseMethod(method, nodes);
+			}
+			if(resultSink != null) {
+				sinkMethod(method, nodes);
+			}
+			methodValuesComputed(method, nodes);
 		}
 
 		@Override
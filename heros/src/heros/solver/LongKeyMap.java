@@ -0,0 +1,121 @@
+package heros.solver;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map with primitive long keys. Keys must not be -1.
+ * Not thread safe.
+ */
+class LongKeyMap<V> {
+
+	private static final long FREE = -1L;
+
+	private long[] keys;
+	private Object[] values;
+	private int size = 0;
+
+	public LongKeyMap() {
+		this(4);
+	}
+
+	public LongKeyMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+		keys = new long[capacity];
+		Arrays.fill(keys, FREE);
+		values = new Object[capacity];
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private int indexOf(long key) {
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while(keys[i] != FREE) {
+			if(keys[i] == key) {
+				return i;
+			}
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		int i = indexOf(key);
+		return i < 0 ? null : (V) values[i];
+	}
+
+	public boolean containsKey(long key) {
+		return indexOf(key) >= 0;
+	}
+
+	/**
+	 * @return The previous value or null
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value) {
+		assert key != FREE;
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while(keys[i] != FREE) {
+			if(keys[i] == key) {
+				V old = (V) values[i];
+				values[i] = value;
+				return old;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = value;
+		// load factor 0.75
+		if(++size * 4 > keys.length * 3) {
+			resize();
+		}
+		return null;
+	}
+
+	private void resize() {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new long[oldKeys.length * 2];
+		Arrays.fill(keys, FREE);
+		values = new Object[oldValues.length * 2];
+		int mask = keys.length - 1;
+		for(int j = 0; j < oldKeys.length; j++) {
+			if(oldKeys[j] != FREE) {
+				int i = hash(oldKeys[j]) & mask;
+				while(keys[i] != FREE) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Number of slots, for iterating with {@link #keyAt(int)} and {@link #valueAt(int)}.
+	 */
+	public int capacity() {
+		return keys.length;
+	}
+
+	/**
+	 * Returns the key in the given slot or -1 if the slot is free.
+	 */
+	public long keyAt(int slot) {
+		return keys[slot];
+	}
+
+	@SuppressWarnings("unchecked")
+	public V valueAt(int slot) {
+		return (V) values[slot];
+	}
+}
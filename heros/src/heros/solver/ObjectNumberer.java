@@ -0,0 +1,55 @@
+package heros.solver;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns dense int numbers to objects, equal objects get the same number.
+ * The first object added for a number is returned by {@link #get(int)}.
+ */
+public class ObjectNumberer<T> {
+
+	private final Map<T,Integer> numbers = new ConcurrentHashMap<T,Integer>();
+	private volatile Object[] objects = new Object[1024];
+	private int size = 0;
+
+	/**
+	 * Returns the number of the given object, adding it if necessary.
+	 */
+	public int add(T o) {
+		Integer number = numbers.get(o);
+		if(number != null) {
+			return number;
+		}
+		synchronized (this) {
+			number = numbers.get(o);
+			if(number == null) {
+				number = size++;
+				if(number == objects.length) {
+					objects = Arrays.copyOf(objects, objects.length * 2);
+				}
+				objects[number] = o;
+				numbers.put(o, number);
+			}
+			return number;
+		}
+	}
+
+	/**
+	 * Returns the number of the given object or -1 if it was not added.
+	 */
+	public int numberOf(T o) {
+		Integer number = numbers.get(o);
+		return number == null ? -1 : number;
+	}
+
+	@SuppressWarnings("unchecked")
+	public T get(int number) {
+		return (T) objects[number];
+	}
+
+	public int size() {
+		return numbers.size();
+	}
+}
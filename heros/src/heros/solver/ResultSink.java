@@ -0,0 +1,26 @@
+package heros.solver;
+
+import java.util.Map;
+
+/**
+ * Receives the values computed by an {@link IDESolver} while phase II is still running,
+ * see {@link IDESolver#setResultSink(ResultSink)}.
+ *
+ * @param <N> The type of nodes in the interprocedural control-flow graph.
+ * @param <D> The type of data-flow facts to be computed by the tabulation problem.
+ * @param <V> The type of values to be computed along flow edges.
+ */
+public interface ResultSink<N,D,V> extends AutoCloseable {
+
+	/**
+	 * Called exactly once for each node with at least one value, as soon as its values are final.
+	 * Called by multiple threads concurrently. The map must not be kept after the call returns.
+	 */
+	void accept(N n, Map<D,V> values);
+
+	/**
+	 * Writes all pending results. Not called by the solver, the sink is closed by its owner.
+	 */
+	@Override
+	void close();
+}
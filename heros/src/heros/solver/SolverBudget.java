@@ -0,0 +1,102 @@
+package heros.solver;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Resource limits of an {@link IDESolver}. Each limit has a {@link DegradationPolicy} which
+ * defines how the solver continues once the limit is exceeded. The statements at which results
+ * were degraded are available from {@link IDESolver#getApproximatedStatements()}.
+ */
+public class SolverBudget {
+
+	public enum Resource {
+		/** Milliseconds since the solver was started */
+		WALL_CLOCK_MILLIS,
+		/** Number of processed path edge tasks, see {@link IDESolver#propagationCount} */
+		PROPAGATIONS,
+		/** Used heap in bytes */
+		USED_HEAP_BYTES,
+		/** Number of jump functions with the same target */
+		FAN_OUT
+	}
+
+	public enum DegradationPolicy {
+		/**
+		 * New jump functions are replaced by the least precise function, see
+		 * {@link IDESolver#approximateFunction(Object, heros.EdgeFunction)}. Results stay sound.
+		 */
+		WIDEN,
+		/**
+		 * No further jump functions are stored at the affected statement, other statements are
+		 * not affected. Only applies to {@link Resource#FAN_OUT}.
+		 */
+		SKIP_TARGET,
+		/** No further edges are propagated within the method of the affected statement */
+		SKIP_METHOD,
+		/** No further edges are propagated at all */
+		ABORT
+	}
+
+	private final Map<Resource, Long> limits = new EnumMap<Resource, Long>(Resource.class);
+	private final Map<Resource, DegradationPolicy> policies = new EnumMap<Resource, DegradationPolicy>(Resource.class);
+
+	/**
+	 * Returns a budget without any limit.
+	 */
+	public static SolverBudget unlimited() {
+		return new SolverBudget();
+	}
+
+	/**
+	 * Limits the given resource.
+	 * @return This budget
+	 */
+	public SolverBudget limit(Resource resource, long limit, DegradationPolicy policy) {
+		if(limit < 0) {
+			throw new IllegalArgumentException("Limit must not be negative: " + limit);
+		}
+		if(policy == DegradationPolicy.SKIP_TARGET && resource != Resource.FAN_OUT) {
+			throw new IllegalArgumentException(policy + " only applies to " + Resource.FAN_OUT + ", not to " + resource);
+		}
+		limits.put(resource, limit);
+		policies.put(resource, policy);
+		return this;
+	}
+
+	public boolean isLimited(Resource resource) {
+		return limits.containsKey(resource);
+	}
+
+	/**
+	 * Returns the limit of the given resource, Long.MAX_VALUE if it is not limited.
+	 */
+	public long getLimit(Resource resource) {
+		Long limit = limits.get(resource);
+		return limit == null ? Long.MAX_VALUE : limit;
+	}
+
+	/**
+	 * Returns the policy of the given resource, null if it is not limited.
+	 */
+	public DegradationPolicy getPolicy(Resource resource) {
+		return policies.get(resource);
+	}
+
+	public Map<Resource, Long> getLimits() {
+		return Collections.unmodifiableMap(limits);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("SolverBudget[");
+		for(Map.Entry<Resource, Long> limit : limits.entrySet()) {
+			if(builder.length() > 13) {
+				builder.append(", ");
+			}
+			builder.append(limit.getKey()).append('=').append(limit.getValue()).append(' ').append(policies.get(limit.getKey()));
+		}
+		return builder.append(']').toString();
+	}
+}
@@ -0,0 +1,42 @@
+package heros.solver;
+
+import heros.EdgeFunction;
+
+import com.google.common.collect.Table;
+
+/**
+ * Persists end summaries of methods across solver runs, see {@link IDESolver#setSummaryStore(SummaryStore)}.
+ * The exploded super graph of a summarized method is only built if the store has no summary for
+ * the fact at its start point. Summaries computed instead are handed back to the store once the
+ * exploded super graph is complete.
+ *
+ * Summaries of methods handled by a store must not depend on the calling context, the solver
+ * therefore starts them with {@link IDESolver#summaryEntryFunction()} instead of the jump function
+ * of the caller. Implementations are responsible for detecting changed methods, e.g. by a hash of
+ * the method body and its callees.
+ *
+ * @param <N> The type of nodes in the interprocedural control-flow graph.
+ * @param <D> The type of data-flow facts to be computed by the tabulation problem.
+ * @param <M> The type of objects used to represent methods.
+ * @param <V> The type of values to be computed along flow edges.
+ */
+public interface SummaryStore<N,D,M,V> {
+
+	/**
+	 * Whether the summaries of the given method are loaded from and written to this store.
+	 */
+	boolean isSummarized(M method);
+
+	/**
+	 * Returns the end summary of the given method for the fact d3 at its start point sP, a table from
+	 * the exit statement and the fact at the exit statement to the summary function. An empty table
+	 * is a summary without any flows out of the method. Returns null if the summary is unknown.
+	 */
+	Table<N,D,EdgeFunction<V>> load(M method, N sP, D d3);
+
+	/**
+	 * Stores the complete end summary of the given method for the fact d3 at its start point sP.
+	 * Implementations may skip summaries they cannot represent.
+	 */
+	void store(M method, N sP, D d3, Table<N,D,EdgeFunction<V>> summary);
+}
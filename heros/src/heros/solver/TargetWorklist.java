@@ -0,0 +1,131 @@
+package heros.solver;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Worklist of tasks indexed by their target statement. There is at most one task per target,
+ * adding a task for a target which is already queued merges it into the queued task.
+ * Tasks are polled in the order of the positions of their targets (e.g. reverse postorder),
+ * tasks with the same position in LIFO order.
+ * Not thread safe, each worklist is owned by a single task.
+ *
+ * @param <N> The type of nodes in the interprocedural control-flow graph.
+ * @param <T> The type of tasks.
+ */
+class TargetWorklist<N,T> {
+
+	private final Function<T,N> targetOf;
+	private final BiConsumer<T,T> merger;
+	private final ToIntFunction<N> positionOf;
+
+	private final Map<N,Entry> index = new HashMap<N,Entry>();
+	private final TreeSet<Entry> order = new TreeSet<Entry>();
+	private long sequence = 0;
+
+	private int merges = 0;
+	private int maxSize = 0;
+
+	/**
+	 * @param targetOf Returns the target of a task
+	 * @param merger Merges the second task into the first one, both have the same target
+	 * @param positionOf Returns the priority of a target, lower positions are polled first
+	 */
+	public TargetWorklist(Function<T,N> targetOf, BiConsumer<T,T> merger, ToIntFunction<N> positionOf) {
+		this.targetOf = targetOf;
+		this.merger = merger;
+		this.positionOf = positionOf;
+	}
+
+	private class Entry implements Comparable<Entry> {
+		private final T task;
+		private final int position;
+		private final long sequence;
+
+		private Entry(T task, int position, long sequence) {
+			this.task = task;
+			this.position = position;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(Entry o) {
+			if(position != o.position) {
+				return position < o.position ? -1 : 1;
+			}
+			// newest first
+			return Long.compare(o.sequence, sequence);
+		}
+	}
+
+	/**
+	 * Adds the task or merges it into the queued task with the same target.
+	 */
+	public void add(T task) {
+		N target = targetOf.apply(task);
+		Entry existing = index.get(target);
+		if(existing != null) {
+			merger.accept(existing.task, task);
+			merges++;
+			return;
+		}
+		Entry entry = new Entry(task, positionOf.applyAsInt(target), sequence++);
+		index.put(target, entry);
+		order.add(entry);
+		if(index.size() > maxSize) {
+			maxSize = index.size();
+		}
+	}
+
+	public boolean contains(N target) {
+		return index.containsKey(target);
+	}
+
+	/**
+	 * Removes and returns the task with the lowest position, null if empty.
+	 */
+	public T poll() {
+		return remove(order.pollFirst());
+	}
+
+	/**
+	 * Removes and returns the task with the highest position, null if empty.
+	 */
+	public T pollLast() {
+		return remove(order.pollLast());
+	}
+
+	private T remove(Entry entry) {
+		if(entry == null) {
+			return null;
+		}
+		index.remove(targetOf.apply(entry.task));
+		return entry.task;
+	}
+
+	public boolean isEmpty() {
+		return index.isEmpty();
+	}
+
+	public int size() {
+		return index.size();
+	}
+
+	/**
+	 * Number of tasks merged into queued tasks.
+	 */
+	public int getMerges() {
+		return merges;
+	}
+
+	/**
+	 * Largest number of tasks queued at the same time.
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+}
@@ -0,0 +1,13 @@
+package heros;
+
+import heros.edgefunc.AllTop;
+import heros.solver.CompactJumpFunctions;
+import heros.solver.JumpFunctions;
+
+public class CompactJumpFunctionsTest extends JumpFunctionsTest {
+
+	@Override
+	protected JumpFunctions<Integer, Integer, String> create() {
+		return new CompactJumpFunctions<Integer, Integer, String>(new AllTop<String>("top"));
+	}
+}
@@ -0,0 +1,137 @@
+package heros;
+
+import heros.edgefunc.AllTop;
+import heros.edgefunc.EdgeIdentity;
+import heros.solver.CompactJumpFunctions;
+import heros.solver.JumpFunctions;
+import heros.solver.PathEdge;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * Throughput of {@link JumpFunctions} under 1 to 64 threads. Each thread adds jump functions
+ * for random targets, looks up targets and queries single edges in a 1:1:2 mix.
+ * Afterwards, the heap used per jump function is compared with {@link CompactJumpFunctions}.
+ * Usage: JumpFunctionsBenchmark [seconds per run] [number of targets] [compact]
+ */
+public class JumpFunctionsBenchmark {
+
+	private static final int FACTS = 64;
+
+	public static void main(String[] args) throws Exception {
+		long seconds = args.length > 0 ? Long.parseLong(args[0]) : 2;
+		int targets = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+		boolean compact = args.length > 2 && args[2].equals("compact");
+
+		System.out.println("threads\tops/s\tfunctions");
+		for(int threads = 1; threads <= 64; threads *= 2) {
+			// warm-up
+			run(threads, targets, seconds * 250, compact);
+			Result result = run(threads, targets, seconds * 1000, compact);
+			System.out.println(threads + "\t" + (long) (result.ops * 1000.0 / (seconds * 1000)) + "\t" + result.count);
+		}
+
+		System.out.println("implementation\tfunctions\tbytes/function");
+		footprint(false);
+		footprint(true);
+	}
+
+	private static JumpFunctions<Integer, Integer, String> create(boolean compact) {
+		AllTop<String> allTop = new AllTop<String>("top");
+		return compact ? new CompactJumpFunctions<Integer, Integer, String>(allTop) : new JumpFunctions<Integer, Integer, String>(allTop);
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for(int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	// 1000 targets with 1000 jump functions each over a shared pool of facts
+	private static void footprint(boolean compact) {
+		Integer[] facts = new Integer[1000];
+		for(int i = 0; i < facts.length; i++) {
+			facts[i] = Integer.valueOf(100000 + i);
+		}
+		EdgeFunction<String> function = EdgeIdentity.<String>v();
+		long before = usedHeap();
+		JumpFunctions<Integer, Integer, String> jumpFn = create(compact);
+		for(int target = 0; target < 1000; target++) {
+			Integer n = Integer.valueOf(1000000 + target);
+			for(int i = 0; i < 1000; i++) {
+				jumpFn.addFunction(facts[i % 100], n, facts[(i * 7 + target) % facts.length], function);
+			}
+		}
+		long after = usedHeap();
+		System.out.println(jumpFn.getClass().getSimpleName() + "\t" + jumpFn.getCount() + "\t" + (after - before) / jumpFn.getCount());
+	}
+
+	private static class Result {
+		long ops;
+		int count;
+	}
+
+	private static Result run(final int threads, final int targets, final long millis, boolean compact) throws Exception {
+		final JumpFunctions<Integer, Integer, String> jumpFn = create(compact);
+		final EdgeFunction<String> function = EdgeIdentity.<String>v();
+		final CyclicBarrier barrier = new CyclicBarrier(threads + 1);
+		final long[] ops = new long[threads];
+		final long[] deadline = new long[1];
+		List<Thread> workers = new ArrayList<Thread>();
+
+		for(int t = 0; t < threads; t++) {
+			final int id = t;
+			Thread worker = new Thread() {
+				@Override
+				public void run() {
+					long seed = 0x9E3779B97F4A7C15L * (id + 1);
+					long count = 0;
+					try {
+						barrier.await();
+					} catch (Exception e) {
+						return;
+					}
+					while(System.currentTimeMillis() < deadline[0]) {
+						for(int i = 0; i < 256; i++) {
+							seed ^= seed << 13; seed ^= seed >>> 7; seed ^= seed << 17;
+							Integer target = (int) ((seed >>> 1) % targets);
+							Integer source = (int) ((seed >>> 32) & (FACTS - 1));
+							Integer fact = (int) ((seed >>> 40) & (FACTS - 1));
+							switch((int) (seed & 3)) {
+							case 0:
+								jumpFn.addFunction(source, target, fact, function);
+								break;
+							case 1:
+								jumpFn.lookupByTarget(target).size();
+								break;
+							default:
+								jumpFn.getFunction(new PathEdge<Integer, Integer>(source, target, fact));
+							}
+						}
+						count += 256;
+					}
+					ops[id] = count;
+				}
+			};
+			worker.start();
+			workers.add(worker);
+		}
+
+		deadline[0] = System.currentTimeMillis() + millis;
+		barrier.await();
+		for(Thread worker : workers) {
+			worker.join();
+		}
+
+		Result result = new Result();
+		for(long count : ops) {
+			result.ops += count;
+		}
+		result.count = jumpFn.getCount();
+		return result;
+	}
+}
@@ -0,0 +1,91 @@
+package heros;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import heros.edgefunc.AllTop;
+import heros.edgefunc.EdgeIdentity;
+import heros.solver.JumpFunctions;
+import heros.solver.PathEdge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class JumpFunctionsTest {
+
+	private final EdgeFunction<String> identity = EdgeIdentity.<String>v();
+
+	protected JumpFunctions<Integer, Integer, String> create() {
+		return new JumpFunctions<Integer, Integer, String>(new AllTop<String>("top"));
+	}
+
+	@Test
+	public void concurrentAdds() throws InterruptedException {
+		final JumpFunctions<Integer, Integer, String> jumpFn = create();
+		List<Thread> threads = new ArrayList<Thread>();
+		for(int t = 0; t < 8; t++) {
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					for(int target = 0; target < 100; target++)
+						for(int fact = 0; fact < 10; fact++)
+							jumpFn.addFunction(0, target, fact, identity);
+				}
+			};
+			thread.start();
+			threads.add(thread);
+		}
+		for(Thread thread : threads)
+			thread.join();
+
+		assertEquals(1000, jumpFn.getCount());
+		assertEquals(100, jumpFn.getTargetCount());
+		assertEquals(10, jumpFn.lookupByTarget(42).size());
+		assertEquals(identity, jumpFn.getFunction(new PathEdge<Integer, Integer>(0, 42, 3)));
+	}
+
+	@Test
+	public void removeTarget() {
+		JumpFunctions<Integer, Integer, String> jumpFn = create();
+		jumpFn.addFunction(0, 1, 1, identity);
+		jumpFn.addFunction(0, 1, 2, identity);
+		jumpFn.addFunction(0, 2, 1, identity);
+		jumpFn.addFunction(0, 3, 1, identity);
+
+		assertEquals(2, jumpFn.getFunctionCount(1));
+		assertEquals(1, jumpFn.reverseLookup(1, 2).size());
+		assertEquals(2, jumpFn.forwardLookup(0, 1).size());
+		assertEquals(2, jumpFn.removeTarget(1));
+		assertEquals(0, jumpFn.removeTarget(1));
+		assertTrue(jumpFn.lookupByTarget(1).isEmpty());
+		assertTrue(jumpFn.reverseLookup(1, 1).isEmpty());
+		assertNull(jumpFn.getFunction(new PathEdge<Integer, Integer>(0, 1, 1)));
+		assertEquals(2, jumpFn.removeTargets(Arrays.asList(2, 3)));
+		assertEquals(0, jumpFn.getTargetCount());
+	}
+
+	@Test
+	public void allTopIsNotStored() {
+		JumpFunctions<Integer, Integer, String> jumpFn = create();
+		jumpFn.addFunction(0, 1, 1, new AllTop<String>("top"));
+		assertEquals(0, jumpFn.getCount());
+		assertTrue(jumpFn.lookupByTarget(1).isEmpty());
+	}
+
+	@Test
+	public void replaceOnlyExpectedFunction() {
+		JumpFunctions<Integer, Integer, String> jumpFn = create();
+		PathEdge<Integer, Integer> edge = new PathEdge<Integer, Integer>(0, 1, 1);
+		EdgeFunction<String> other = new AllTop<String>("other");
+		assertTrue(jumpFn.replaceFunction(edge, null, identity));
+		assertFalse(jumpFn.replaceFunction(edge, null, other));
+		assertFalse(jumpFn.replaceFunction(edge, other, other));
+		assertTrue(jumpFn.replaceFunction(edge, identity, other));
+		assertEquals(other, jumpFn.getFunction(edge));
+		assertEquals(1, jumpFn.getCount());
+	}
+}
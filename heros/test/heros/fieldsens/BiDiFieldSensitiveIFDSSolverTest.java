@@ -40,10 +40,14 @@ public class BiDiFieldSensitiveIFDSSolverTest {
 	private TestDebugger<String, TestFact, Statement, TestMethod, InterproceduralCFG<Statement, TestMethod>> debugger;
 	
 	public BiDiFieldSensitiveIFDSSolverTest(TabulationProblemExchange exchange) {
+		this(exchange, 0);
+	}
+
+	protected BiDiFieldSensitiveIFDSSolverTest(TabulationProblemExchange exchange, int parallelism) {
 		this.exchange = exchange;
 		debugger = new TestDebugger<String, TestFact, Statement, TestMethod, InterproceduralCFG<Statement, TestMethod>>();
-		forwardHelper = new FieldSensitiveTestHelper(debugger);
-		backwardHelper = new FieldSensitiveTestHelper(debugger);
+		forwardHelper = new FieldSensitiveTestHelper(debugger, parallelism);
+		backwardHelper = new FieldSensitiveTestHelper(debugger, parallelism);
 	}
 
 	@Parameters(name="{0}")
@@ -36,7 +36,11 @@ public class FieldSensitiveIFDSSolverTest {
 	public void before() {
 		System.err.println("-----");
 		debugger = new TestDebugger<String, TestFact, Statement, TestMethod, InterproceduralCFG<Statement, TestMethod>>();
-		helper = new FieldSensitiveTestHelper(debugger);
+		helper = createHelper(debugger);
+	}
+
+	protected FieldSensitiveTestHelper createHelper(TestDebugger<String, TestFact, Statement, TestMethod, InterproceduralCFG<Statement, TestMethod>> debugger) {
+		return new FieldSensitiveTestHelper(debugger);
 	}
 	
 	@Rule
@@ -0,0 +1,13 @@
+package heros.fieldsens;
+
+import heros.utilities.FieldSensitiveTestHelper.TabulationProblemExchange;
+
+/**
+ * Runs all {@link BiDiFieldSensitiveIFDSSolverTest}s with a {@link ParallelScheduler}.
+ */
+public class ParallelBiDiFieldSensitiveIFDSSolverTest extends BiDiFieldSensitiveIFDSSolverTest {
+
+	public ParallelBiDiFieldSensitiveIFDSSolverTest(TabulationProblemExchange exchange) {
+		super(exchange, 4);
+	}
+}
@@ -0,0 +1,19 @@
+package heros.fieldsens;
+
+import heros.InterproceduralCFG;
+import heros.utilities.FieldSensitiveTestHelper;
+import heros.utilities.Statement;
+import heros.utilities.TestDebugger;
+import heros.utilities.TestFact;
+import heros.utilities.TestMethod;
+
+/**
+ * Runs all {@link FieldSensitiveIFDSSolverTest}s with a {@link ParallelScheduler}.
+ */
+public class ParallelFieldSensitiveIFDSSolverTest extends FieldSensitiveIFDSSolverTest {
+
+	@Override
+	protected FieldSensitiveTestHelper createHelper(TestDebugger<String, TestFact, Statement, TestMethod, InterproceduralCFG<Statement, TestMethod>> debugger) {
+		return new FieldSensitiveTestHelper(debugger, 4);
+	}
+}
@@ -0,0 +1,292 @@
+package heros.fieldsens;
+
+import heros.InterproceduralCFG;
+import heros.fieldsens.FlowFunction.ConstrainedFact;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Throughput of the {@link FieldSensitiveIFDSSolver} with the sequential {@link Scheduler} and a
+ * {@link ParallelScheduler} with 1 to 2 * #cores threads. The synthetic program consists of a main
+ * method calling each of the other methods once, all facts are seeded in main and flow through every method.
+ * Each flow function burns a configurable amount of CPU to simulate the cost of a client analysis.
+ * Usage: SchedulerBenchmark [methods] [facts] [statements per method] [work per flow function]
+ */
+public class SchedulerBenchmark {
+
+	private static final String ZERO = "0";
+
+	public static void main(String[] args) {
+		int methods = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int facts = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+		int statements = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+		int work = args.length > 3 ? Integer.parseInt(args[3]) : 5000;
+		SyntheticProgram program = new SyntheticProgram(methods, facts, statements, work);
+
+		// warm-up, also counts the jobs, which is the same for all schedulers
+		run(program, new Scheduler());
+		ParallelScheduler counter = new ParallelScheduler();
+		run(program, counter);
+		long jobs = counter.getExecutedJobCount();
+
+		System.out.println("scheduler\tthreads\tms\tjobs/s\tspeedup");
+		long sequential = run(program, new Scheduler());
+		print("sequential", 1, sequential, jobs, sequential);
+		int maxThreads = 2 * Runtime.getRuntime().availableProcessors();
+		for(int threads = 1; threads <= maxThreads; threads *= 2) {
+			print("parallel", threads, run(program, new ParallelScheduler(threads)), jobs, sequential);
+		}
+	}
+
+	private static void print(String name, int threads, long nanos, long jobs, long sequential) {
+		System.out.println(name + "\t" + threads + "\t" + nanos / 1000000 + "\t" + (long) (jobs * 1e9 / nanos) + "\t"
+				+ String.format("%.2f", (double) sequential / nanos));
+	}
+
+	private static long run(SyntheticProgram program, Scheduler scheduler) {
+		long start = System.nanoTime();
+		new FieldSensitiveIFDSSolver<String, String, String, String, InterproceduralCFG<String, String>>(program, new FactMergeHandler<String>() {
+			@Override
+			public void merge(String previousFact, String currentFact) {
+			}
+
+			@Override
+			public void restoreCallingContext(String factAtReturnSite, String factAtCallSite) {
+			}
+		}, null, scheduler);
+		scheduler.runAndAwaitCompletion();
+		return System.nanoTime() - start;
+	}
+
+	private static class SyntheticProgram implements IFDSTabulationProblem<String, String, String, String, InterproceduralCFG<String, String>>,
+			InterproceduralCFG<String, String>, FlowFunctions<String, String, String, String> {
+
+		private final int methods;
+		private final int facts;
+		private final int statements;
+		private final int work;
+
+		private SyntheticProgram(int methods, int facts, int statements, int work) {
+			this.methods = methods;
+			this.facts = facts;
+			this.statements = statements;
+			this.work = work;
+		}
+
+		private static boolean isMain(String method) {
+			return method.equals("main");
+		}
+
+		private static String methodOf(String stmt) {
+			return stmt.substring(0, stmt.indexOf(':'));
+		}
+
+		private static int indexOf(String stmt) {
+			return Integer.parseInt(stmt.substring(stmt.indexOf(':') + 1));
+		}
+
+		private int lastIndex(String method) {
+			return isMain(method) ? methods : statements - 1;
+		}
+
+		// main:0..main:methods-1 call m0..m(methods-1), main:methods is the exit
+		private static String stmt(String method, int index) {
+			return method + ":" + index;
+		}
+
+		private int burn(String fact, String stmt) {
+			int hash = fact.hashCode() * 31 + stmt.hashCode();
+			for(int i = 0; i < work; i++) {
+				hash ^= hash << 13;
+				hash ^= hash >>> 17;
+				hash ^= hash << 5;
+			}
+			return hash;
+		}
+
+		private FlowFunction<String, String, String, String> identity(final String stmt, final boolean onlyZero) {
+			return new FlowFunction<String, String, String, String>() {
+				@Override
+				public Set<ConstrainedFact<String, String, String, String>> computeTargets(String source,
+						AccessPathHandler<String, String, String, String> accPathHandler) {
+					// the comparison keeps the work from being optimized away
+					if(burn(source, stmt) == 42 || (onlyZero && !source.equals(ZERO)))
+						return Collections.emptySet();
+					return Collections.singleton(accPathHandler.generate(source));
+				}
+			};
+		}
+
+		@Override
+		public FlowFunction<String, String, String, String> getNormalFlowFunction(String curr) {
+			return identity(curr, false);
+		}
+
+		@Override
+		public FlowFunction<String, String, String, String> getCallFlowFunction(String callStmt, String destinationMethod) {
+			return identity(callStmt, false);
+		}
+
+		@Override
+		public FlowFunction<String, String, String, String> getReturnFlowFunction(String callSite, String calleeMethod, String exitStmt, String returnSite) {
+			return identity(exitStmt, false);
+		}
+
+		@Override
+		public FlowFunction<String, String, String, String> getCallToReturnFlowFunction(String callSite, String returnSite) {
+			return identity(callSite, true);
+		}
+
+		@Override
+		public String getMethodOf(String n) {
+			return methodOf(n);
+		}
+
+		@Override
+		public List<String> getPredsOf(String u) {
+			int index = indexOf(u);
+			return index == 0 ? Collections.<String>emptyList() : Collections.singletonList(stmt(methodOf(u), index - 1));
+		}
+
+		@Override
+		public List<String> getSuccsOf(String n) {
+			if(isExitStmt(n))
+				return Collections.emptyList();
+			return Collections.singletonList(stmt(methodOf(n), indexOf(n) + 1));
+		}
+
+		@Override
+		public Collection<String> getCalleesOfCallAt(String n) {
+			return Collections.singleton("m" + indexOf(n));
+		}
+
+		@Override
+		public Collection<String> getCallersOf(String m) {
+			if(isMain(m))
+				return Collections.emptySet();
+			return Collections.singleton(stmt("main", Integer.parseInt(m.substring(1))));
+		}
+
+		@Override
+		public Set<String> getCallsFromWithin(String m) {
+			Set<String> result = Sets.newHashSet();
+			if(isMain(m)) {
+				for(int i = 0; i < methods; i++)
+					result.add(stmt(m, i));
+			}
+			return result;
+		}
+
+		@Override
+		public Collection<String> getStartPointsOf(String m) {
+			return Collections.singleton(stmt(m, 0));
+		}
+
+		@Override
+		public Collection<String> getReturnSitesOfCallAt(String n) {
+			return getSuccsOf(n);
+		}
+
+		@Override
+		public boolean isCallStmt(String stmt) {
+			return isMain(methodOf(stmt)) && !isExitStmt(stmt);
+		}
+
+		@Override
+		public boolean isExitStmt(String stmt) {
+			return indexOf(stmt) == lastIndex(methodOf(stmt));
+		}
+
+		@Override
+		public boolean isStartPoint(String stmt) {
+			return indexOf(stmt) == 0;
+		}
+
+		@Override
+		public Set<String> allNonCallStartNodes() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean isFallThroughSuccessor(String stmt, String succ) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean isBranchTarget(String stmt, String succ) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public String getPostDominator(String stmt) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean isSpecialStatementType(String stmt) {
+			return false;
+		}
+
+		@Override
+		public boolean followReturnsPastSeeds() {
+			return false;
+		}
+
+		@Override
+		public boolean autoAddZero() {
+			return false;
+		}
+
+		@Override
+		public int numThreads() {
+			return 1;
+		}
+
+		@Override
+		public boolean computeValues() {
+			return false;
+		}
+
+		@Override
+		public FlowFunctions<String, String, String, String> flowFunctions() {
+			return this;
+		}
+
+		@Override
+		public InterproceduralCFG<String, String> interproceduralCFG() {
+			return this;
+		}
+
+		@Override
+		public Map<String, Set<String>> initialSeeds() {
+			Set<String> seeds = Sets.newHashSet(ZERO);
+			for(int i = 0; i < facts; i++)
+				seeds.add("f" + i);
+			Map<String, Set<String>> result = Maps.newHashMap();
+			result.put(stmt("main", 0), seeds);
+			return result;
+		}
+
+		@Override
+		public String zeroValue() {
+			return ZERO;
+		}
+
+		@Override
+		public ZeroHandler<String> zeroHandler() {
+			return new ZeroHandler<String>() {
+				@Override
+				public boolean shouldGenerateAccessPath(AccessPath<String> accPath) {
+					return true;
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package heros.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class BatchingResultSinkTest {
+
+	private static class RecordingSink extends BatchingResultSink<String, String, Integer, String> {
+		private final List<List<String>> batches = Collections.synchronizedList(new ArrayList<List<String>>());
+		private final CountDownLatch release;
+
+		private RecordingSink(int bufferSize, int batchSize, CountDownLatch release) {
+			super(bufferSize, batchSize);
+			this.release = release;
+		}
+
+		@Override
+		protected String convert(String n, Map<String, Integer> values) {
+			return values.isEmpty() ? null : n + "=" + values.get("d");
+		}
+
+		@Override
+		protected void writeBatch(List<String> batch) throws Exception {
+			release.await();
+			if(batch.contains("fail=0")) {
+				throw new IllegalStateException("write failed");
+			}
+			batches.add(new ArrayList<String>(batch));
+		}
+
+		private List<String> written() {
+			List<String> all = new ArrayList<String>();
+			for(List<String> batch : batches) {
+				all.addAll(batch);
+			}
+			return all;
+		}
+	}
+
+	@Test
+	public void writesAllRecordsInOrder() {
+		RecordingSink sink = new RecordingSink(4, 3, new CountDownLatch(0));
+		List<String> expected = new ArrayList<String>();
+		for(int i = 0; i < 20; i++) {
+			sink.accept("n" + i, Collections.singletonMap("d", i));
+			expected.add("n" + i + "=" + i);
+		}
+		sink.accept("skipped", Collections.<String, Integer>emptyMap());
+		sink.close();
+		assertEquals(expected, sink.written());
+		assertEquals(20, sink.getWrittenCount());
+		for(List<String> batch : sink.batches) {
+			assertTrue(batch.size() <= 3);
+		}
+	}
+
+	@Test
+	public void blocksWhileBufferIsFull() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		final RecordingSink sink = new RecordingSink(2, 1, release);
+		final CountDownLatch done = new CountDownLatch(1);
+		Thread producer = new Thread(() -> {
+			for(int i = 0; i < 10; i++) {
+				sink.accept("n" + i, Collections.singletonMap("d", i));
+			}
+			done.countDown();
+		});
+		producer.start();
+		// one record in the writer, two in the buffer
+		assertFalse(done.await(300, TimeUnit.MILLISECONDS));
+		release.countDown();
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		sink.close();
+		assertEquals(10, sink.written().size());
+	}
+
+	@Test
+	public void rethrowsWriterFailure() {
+		RecordingSink sink = new RecordingSink(4, 1, new CountDownLatch(0));
+		sink.accept("fail", Collections.singletonMap("d", 0));
+		try {
+			sink.close();
+			fail();
+		} catch (RuntimeException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsResultsAfterClose() {
+		RecordingSink sink = new RecordingSink(4, 1, new CountDownLatch(0));
+		sink.close();
+		sink.accept("n", Collections.singletonMap("d", 1));
+	}
+}
@@ -0,0 +1,383 @@
+package heros.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import heros.EdgeFunction;
+import heros.EdgeFunctions;
+import heros.FlowFunction;
+import heros.FlowFunctions;
+import heros.InterproceduralCFG;
+import heros.JoinLattice;
+import heros.edgefunc.AllTop;
+import heros.edgefunc.EdgeIdentity;
+import heros.flowfunc.Identity;
+import heros.template.DefaultIDETabulationProblem;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+/**
+ * Runs a problem with many seeds sharing callees once on a single thread and several times on
+ * multiple threads. Lost joins on a path edge show up as missing bits in the results.
+ */
+public class ParallelSeedsTest {
+
+	private static final int METHODS = 24;
+	private static final int STATEMENTS = 20;
+	private static final int FACTS = 6;
+	private static final int THREADS = 8;
+	private static final int RUNS = 20;
+
+	/**
+	 * Methods m0 to m23 with statements s0 to s19. Every third statement branches over its
+	 * successor, statements 4, 10 and 16 call one of the following methods.
+	 */
+	private static class TestICFG implements InterproceduralCFG<String,String> {
+
+		// the solver compares statements by identity
+		private static String stmt(int method, int index) {
+			return ("m" + method + ":s" + index).intern();
+		}
+
+		private static int method(String n) {
+			return Integer.parseInt(n.substring(1, n.indexOf(':')));
+		}
+
+		private static int index(String n) {
+			return Integer.parseInt(n.substring(n.indexOf(":s") + 2));
+		}
+
+		private static String callee(String n) {
+			int method = method(n);
+			int index = index(n);
+			if(index % 6 != 4 || method + 1 >= METHODS) {
+				return null;
+			}
+			return ("m" + (method + 1 + (method + index) % Math.min(3, METHODS - method - 1))).intern();
+		}
+
+		@Override
+		public String getMethodOf(String n) {
+			return ("m" + method(n)).intern();
+		}
+
+		@Override
+		public List<String> getPredsOf(String u) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public List<String> getSuccsOf(String n) {
+			int method = method(n);
+			int index = index(n);
+			List<String> succs = new ArrayList<String>();
+			if(index + 1 < STATEMENTS) {
+				succs.add(stmt(method, index + 1));
+			}
+			if(index % 3 == 0 && index + 2 < STATEMENTS) {
+				succs.add(stmt(method, index + 2));
+			}
+			return succs;
+		}
+
+		@Override
+		public Collection<String> getCalleesOfCallAt(String n) {
+			String callee = callee(n);
+			return callee == null ? Collections.<String>emptySet() : Collections.singleton(callee);
+		}
+
+		@Override
+		public Collection<String> getCallersOf(String m) {
+			List<String> callers = new ArrayList<String>();
+			for(int method = 0; method < METHODS; method++) {
+				for(String call : getCallsFromWithin("m" + method)) {
+					if(m.equals(callee(call))) {
+						callers.add(call);
+					}
+				}
+			}
+			return callers;
+		}
+
+		@Override
+		public Set<String> getCallsFromWithin(String m) {
+			int method = Integer.parseInt(m.substring(1));
+			Set<String> calls = new LinkedHashSet<String>();
+			for(int index = 0; index < STATEMENTS; index++) {
+				if(isCallStmt(stmt(method, index))) {
+					calls.add(stmt(method, index));
+				}
+			}
+			return calls;
+		}
+
+		@Override
+		public Collection<String> getStartPointsOf(String m) {
+			return Collections.singleton(stmt(Integer.parseInt(m.substring(1)), 0));
+		}
+
+		@Override
+		public Collection<String> getReturnSitesOfCallAt(String n) {
+			return Collections.singleton(stmt(method(n), index(n) + 1));
+		}
+
+		@Override
+		public boolean isCallStmt(String stmt) {
+			return callee(stmt) != null;
+		}
+
+		@Override
+		public boolean isExitStmt(String stmt) {
+			return index(stmt) == STATEMENTS - 1;
+		}
+
+		@Override
+		public boolean isStartPoint(String stmt) {
+			return index(stmt) == 0;
+		}
+
+		@Override
+		public Set<String> allNonCallStartNodes() {
+			Set<String> nodes = new LinkedHashSet<String>();
+			for(int method = 0; method < METHODS; method++) {
+				for(int index = 1; index < STATEMENTS; index++) {
+					if(!isCallStmt(stmt(method, index))) {
+						nodes.add(stmt(method, index));
+					}
+				}
+			}
+			return nodes;
+		}
+
+		@Override
+		public boolean isFallThroughSuccessor(String stmt, String succ) {
+			return index(succ) == index(stmt) + 1;
+		}
+
+		@Override
+		public boolean isBranchTarget(String stmt, String succ) {
+			return index(succ) == index(stmt) + 2;
+		}
+
+		@Override
+		public String getPostDominator(String stmt) {
+			return index(stmt) % 3 == 0 && index(stmt) + 2 < STATEMENTS ? stmt(method(stmt), index(stmt) + 2) : null;
+		}
+
+		@Override
+		public boolean isSpecialStatementType(String stmt) {
+			return false;
+		}
+	}
+
+	/**
+	 * Keeps some bits of a bit set and adds others, the join of two functions keeps and adds the
+	 * bits of both.
+	 */
+	private static class MaskBits implements EdgeFunction<Integer> {
+
+		private final int keep;
+		private final int add;
+
+		private MaskBits(int keep, int add) {
+			this.keep = keep & ~add;
+			this.add = add;
+		}
+
+		@Override
+		public Integer computeTarget(Integer source) {
+			return (source & keep) | add;
+		}
+
+		@Override
+		public EdgeFunction<Integer> composeWith(EdgeFunction<Integer> secondFunction) {
+			if(secondFunction instanceof MaskBits) {
+				MaskBits second = (MaskBits) secondFunction;
+				return new MaskBits(keep & second.keep, (add & second.keep) | second.add);
+			}
+			if(secondFunction instanceof EdgeIdentity) {
+				return this;
+			}
+			return secondFunction;
+		}
+
+		@Override
+		public EdgeFunction<Integer> joinWith(EdgeFunction<Integer> otherFunction) {
+			if(otherFunction instanceof MaskBits) {
+				MaskBits other = (MaskBits) otherFunction;
+				return new MaskBits(keep | other.keep, add | other.add);
+			}
+			if(otherFunction instanceof EdgeIdentity) {
+				return new MaskBits(-1, add);
+			}
+			if(otherFunction instanceof AllTop) {
+				return this;
+			}
+			return otherFunction;
+		}
+
+		@Override
+		public boolean equalTo(EdgeFunction<Integer> other) {
+			return other instanceof MaskBits && ((MaskBits) other).keep == keep && ((MaskBits) other).add == add;
+		}
+
+		@Override
+		public String toString() {
+			return "keep " + Integer.toBinaryString(keep) + " add " + Integer.toBinaryString(add);
+		}
+	}
+
+	private static class BitsProblem extends DefaultIDETabulationProblem<String,Integer,String,Integer,TestICFG> {
+
+		private BitsProblem() {
+			super(new TestICFG());
+		}
+
+		@Override
+		protected EdgeFunction<Integer> createAllTopFunction() {
+			return new AllTop<Integer>(0);
+		}
+
+		@Override
+		protected JoinLattice<Integer> createJoinLattice() {
+			return new JoinLattice<Integer>() {
+				@Override
+				public Integer topElement() {
+					return 0;
+				}
+
+				@Override
+				public Integer bottomElement() {
+					return -1;
+				}
+
+				@Override
+				public Integer join(Integer left, Integer right) {
+					return left | right;
+				}
+			};
+		}
+
+		@Override
+		protected EdgeFunctions<String,Integer,String,Integer> createEdgeFunctionsFactory() {
+			return new EdgeFunctions<String,Integer,String,Integer>() {
+				@Override
+				public EdgeFunction<Integer> getNormalEdgeFunction(String curr, Integer currNode, String succ, Integer succNode,
+						Collection<Entry<PathEdge<String,Integer>, EdgeFunction<Integer>>> matchingAbstractions) {
+					int hash = (curr + succ + succNode).hashCode();
+					return new MaskBits(~(1 << Math.floorMod(hash, 31)), 1 << Math.floorMod(hash >> 5, 31));
+				}
+
+				@Override
+				public EdgeFunction<Integer> getCallEdgeFunction(String callStmt, Integer srcNode, String destinationMethod, Integer destNode) {
+					return EdgeIdentity.v();
+				}
+
+				@Override
+				public EdgeFunction<Integer> getReturnEdgeFunction(String callSite, String calleeMethod, String exitStmt, Integer exitNode, String returnSite, Integer retNode) {
+					return EdgeIdentity.v();
+				}
+
+				@Override
+				public EdgeFunction<Integer> getCallToReturnEdgeFunction(String callSite, Integer callNode, String returnSite, Integer returnSideNode) {
+					return EdgeIdentity.v();
+				}
+			};
+		}
+
+		@Override
+		protected FlowFunctions<String,Integer,String> createFlowFunctionsFactory() {
+			return new FlowFunctions<String,Integer,String>() {
+				@Override
+				public FlowFunction<Integer> getNormalFlowFunction(final String curr, String succ) {
+					final int gen = Math.floorMod(curr.hashCode(), 2 * FACTS);
+					return new FlowFunction<Integer>() {
+						@Override
+						public Set<Integer> computeTargets(Integer source) {
+							Set<Integer> targets = new HashSet<Integer>();
+							targets.add(source);
+							if(source == 0 && gen < FACTS) {
+								targets.add(gen + 1);
+							}
+							return targets;
+						}
+					};
+				}
+
+				@Override
+				public FlowFunction<Integer> getCallFlowFunction(String callStmt, String destinationMethod) {
+					return Identity.v();
+				}
+
+				@Override
+				public FlowFunction<Integer> getReturnFlowFunction(String callSite, String calleeMethod, String exitStmt, String returnSite) {
+					return Identity.v();
+				}
+
+				@Override
+				public FlowFunction<Integer> getCallToReturnFlowFunction(String callSite, String returnSite) {
+					return Identity.v();
+				}
+			};
+		}
+
+		@Override
+		protected Integer createZeroValue() {
+			return 0;
+		}
+
+		@Override
+		public Map<String,Set<Integer>> initialSeeds() {
+			Map<String,Set<Integer>> seeds = new LinkedHashMap<String,Set<Integer>>();
+			for(int method = 0; method < METHODS; method += 2) {
+				seeds.put(TestICFG.stmt(method, 0), Collections.singleton(0));
+			}
+			return seeds;
+		}
+
+		@Override
+		public int numThreads() {
+			return THREADS;
+		}
+
+		@Override
+		public boolean computeValues() {
+			return true;
+		}
+	}
+
+	private static Map<String,Map<Integer,Integer>> solve(int parallelism) {
+		IDESolver<String,Integer,String,Integer,TestICFG> solver = new IDESolver<String,Integer,String,Integer,TestICFG>(new BitsProblem());
+		solver.setParallelism(parallelism);
+		solver.solve();
+		Map<String,Map<Integer,Integer>> results = new TreeMap<String,Map<Integer,Integer>>();
+		for(int method = 0; method < METHODS; method++) {
+			for(int index = 0; index < STATEMENTS; index++) {
+				String stmt = TestICFG.stmt(method, index);
+				results.put(stmt, new TreeMap<Integer,Integer>(solver.resultsAt(stmt)));
+			}
+		}
+		return results;
+	}
+
+	@Test
+	public void parallelRunsMatchSingleThread() {
+		Map<String,Map<Integer,Integer>> expected = solve(1);
+		assertFalse(expected.get("m3:s19").isEmpty());
+		for(int run = 0; run < RUNS; run++) {
+			assertEquals(expected, solve(THREADS));
+		}
+	}
+
+}
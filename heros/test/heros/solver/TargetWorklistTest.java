@@ -0,0 +1,72 @@
+package heros.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TargetWorklistTest {
+
+	private static class Task {
+		private final String target;
+		private final List<String> edges = new ArrayList<String>();
+
+		private Task(String target, String... edges) {
+			this.target = target;
+			this.edges.addAll(Arrays.asList(edges));
+		}
+	}
+
+	private TargetWorklist<String, Task> worklist(final List<String> order) {
+		return new TargetWorklist<String, Task>(t -> t.target, (t, o) -> t.edges.addAll(o.edges),
+				n -> order.contains(n) ? order.indexOf(n) : Integer.MAX_VALUE);
+	}
+
+	@Test
+	public void lifoWithoutPositions() {
+		TargetWorklist<String, Task> worklist = worklist(new ArrayList<String>());
+		worklist.add(new Task("a"));
+		worklist.add(new Task("b"));
+		worklist.add(new Task("c"));
+		assertEquals("c", worklist.poll().target);
+		assertEquals("a", worklist.pollLast().target);
+		assertEquals("b", worklist.poll().target);
+		assertNull(worklist.poll());
+	}
+
+	@Test
+	public void orderedByPosition() {
+		TargetWorklist<String, Task> worklist = worklist(Arrays.asList("a", "b", "c"));
+		worklist.add(new Task("x"));
+		worklist.add(new Task("c"));
+		worklist.add(new Task("a"));
+		worklist.add(new Task("b"));
+		assertEquals("a", worklist.poll().target);
+		assertEquals("b", worklist.poll().target);
+		assertEquals("c", worklist.poll().target);
+		assertEquals("x", worklist.poll().target);
+		assertTrue(worklist.isEmpty());
+	}
+
+	@Test
+	public void mergesSameTarget() {
+		TargetWorklist<String, Task> worklist = worklist(new ArrayList<String>());
+		worklist.add(new Task("a", "e1"));
+		worklist.add(new Task("b", "e2"));
+		worklist.add(new Task("a", "e3"));
+		assertEquals(2, worklist.size());
+		assertEquals(1, worklist.getMerges());
+		assertEquals(2, worklist.getMaxSize());
+		assertTrue(worklist.contains("a"));
+
+		Task a = worklist.pollLast();
+		assertEquals(Arrays.asList("e1", "e3"), a.edges);
+		assertFalse(worklist.contains("a"));
+	}
+}
@@ -28,6 +28,7 @@ import heros.fieldsens.FieldSensitiveIFDSSolver;
 import heros.fieldsens.FlowFunction;
 import heros.fieldsens.FlowFunctions;
 import heros.fieldsens.IFDSTabulationProblem;
+import heros.fieldsens.ParallelScheduler;
 import heros.fieldsens.Scheduler;
 import heros.fieldsens.ZeroHandler;
 import heros.fieldsens.FlowFunction.ConstrainedFact;
@@ -40,8 +41,8 @@ import java.util.Set;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Predicate;
+import com.google.common.collect.ConcurrentHashMultiset;
 import com.google.common.collect.HashMultimap;
-import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -57,11 +58,24 @@ public class FieldSensitiveTestHelper {
 	private List<Call2ReturnEdge> call2retEdges = Lists.newLinkedList();
 	private List<ReturnEdge> returnEdges = Lists.newLinkedList();
 	private Map<Statement, TestMethod> stmt2method = Maps.newHashMap();
-	private Multiset<ExpectedFlowFunction> remainingFlowFunctions = HashMultiset.create();
+	private Multiset<ExpectedFlowFunction> remainingFlowFunctions = ConcurrentHashMultiset.create();
 	private TestDebugger<String, TestFact, Statement, TestMethod, InterproceduralCFG<Statement, TestMethod>> debugger;
+	private int parallelism;
 
 	public FieldSensitiveTestHelper(TestDebugger<String, TestFact, Statement, TestMethod, InterproceduralCFG<Statement, TestMethod>> debugger) {
+		this(debugger, 0);
+	}
+
+	/**
+	 * @param parallelism Number of threads of a {@link ParallelScheduler}, 0 to use the sequential {@link Scheduler}
+	 */
+	public FieldSensitiveTestHelper(TestDebugger<String, TestFact, Statement, TestMethod, InterproceduralCFG<Statement, TestMethod>> debugger, int parallelism) {
 		this.debugger = debugger;
+		this.parallelism = parallelism;
+	}
+
+	private Scheduler createScheduler() {
+		return parallelism > 0 ? new ParallelScheduler(parallelism) : new Scheduler();
 	}
 
 	public MethodHelper method(String methodName, Statement[] startingPoints, EdgeBuilder... edgeBuilders) {
@@ -332,6 +346,16 @@ public class FieldSensitiveTestHelper {
 			public Set<Statement> allNonCallStartNodes() {
 				throw new IllegalStateException();
 			}
+
+			@Override
+			public Statement getPostDominator(Statement stmt) {
+				throw new IllegalStateException();
+			}
+
+			@Override
+			public boolean isSpecialStatementType(Statement stmt) {
+				return false;
+			}
 		};
 	}
 
@@ -492,7 +516,7 @@ public class FieldSensitiveTestHelper {
 	}
 
 	public void runSolver(final boolean followReturnsPastSeeds, final String...initialSeeds) {
-		Scheduler scheduler = new Scheduler();
+		Scheduler scheduler = createScheduler();
 		FieldSensitiveIFDSSolver<String, TestFact, Statement, TestMethod, InterproceduralCFG<Statement,TestMethod>> solver = new FieldSensitiveIFDSSolver<String ,TestFact, Statement, TestMethod, InterproceduralCFG<Statement,TestMethod>>(
 				createTabulationProblem(followReturnsPastSeeds, initialSeeds), new FactMergeHandler<TestFact>() {
 					@Override
@@ -599,7 +623,7 @@ public class FieldSensitiveTestHelper {
 			}
 			
 		};
-		Scheduler scheduler = new Scheduler();
+		Scheduler scheduler = createScheduler();
 		BiDiFieldSensitiveIFDSSolver<String, TestFact, Statement, TestMethod, InterproceduralCFG<Statement, TestMethod>> solver =
 				direction == TabulationProblemExchange.AsSpecified ? 
 				new BiDiFieldSensitiveIFDSSolver<String, TestFact, Statement, TestMethod, InterproceduralCFG<Statement, TestMethod>>(
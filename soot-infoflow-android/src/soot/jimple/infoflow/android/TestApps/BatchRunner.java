@@ -0,0 +1,320 @@
+package soot.jimple.infoflow.android.TestApps;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import soot.jimple.infoflow.loadtime.ResultStores;
+
+/**
+ * Analyzes the apps of a batch config of application.conf concurrently, each in one of N forked
+ * {@link BatchWorker} JVMs. A worker analyzes several apps in a row, so the JIT stays warm, and is
+ * replaced after a timeout, a crash, e.g. by exceeding its heap, or a configured number of apps.
+ * The timings are written to a report in the format of Evaluation/performance.xml.
+ *
+ * <pre>
+ * batch : {
+ *   apps : [ "org_adaway_48", "com_jlyr_41" ]   // Configs with an apk and an optional srcPath
+ *   workers : 2
+ *   timeout : 900                               // Seconds per app, an app config may override it
+ *   workerHeap : "8g"
+ *   appsPerWorker : 10
+ *   report : "batch-performance.xml"
+ *   logDir : "batch-logs"                        // Output of the workers
+ * }
+ * </pre>
+ *
+ * Usage: BatchRunner [batch config name, default "batch"]. ANDROID_JARS and DROIDBENCH are
+ * passed to the workers, the result store is selected by {@link ResultStores#PROPERTY}.
+ */
+public class BatchRunner {
+
+	private static final Logger logger = LoggerFactory.getLogger(BatchRunner.class);
+
+	private static final String EOF = "\u0000eof";
+
+	private final List<String> apps;
+	// Seconds per app
+	private final Map<String, Long> timeouts = new HashMap<String, Long>();
+	private final int workers;
+	private final String workerHeap;
+	private final int appsPerWorker;
+	private final String report;
+	private final File logDir;
+
+	static class Result {
+		final String app;
+		final String status;
+		final long millis;
+		final long gcCount;
+		final long gcMillis;
+		final int worker;
+		final String message;
+
+		Result(String app, String status, long millis, long gcCount, long gcMillis, int worker, String message) {
+			this.app = app;
+			this.status = status;
+			this.millis = millis;
+			this.gcCount = gcCount;
+			this.gcMillis = gcMillis;
+			this.worker = worker;
+			this.message = message;
+		}
+	}
+
+	/**
+	 * @throws com.typesafe.config.ConfigException If the config of an app is missing, before any worker is started
+	 */
+	public BatchRunner(Config conf, Config batch) {
+		this.apps = batch.getStringList("apps");
+		this.workers = batch.hasPath("workers") ? batch.getInt("workers") : 1;
+		long timeout = batch.hasPath("timeout") ? batch.getLong("timeout") : 900;
+		for(String app : apps) {
+			Config appConf = conf.getConfig(app);
+			timeouts.put(app, appConf.hasPath("timeout") ? appConf.getLong("timeout") : timeout);
+		}
+		this.workerHeap = batch.hasPath("workerHeap") ? batch.getString("workerHeap") : null;
+		this.appsPerWorker = batch.hasPath("appsPerWorker") ? batch.getInt("appsPerWorker") : Integer.MAX_VALUE;
+		this.report = batch.hasPath("report") ? batch.getString("report") : "batch-performance.xml";
+		this.logDir = new File(batch.hasPath("logDir") ? batch.getString("logDir") : "batch-logs");
+	}
+
+	public static void main(String[] args) throws Exception {
+		Config conf = ConfigFactory.load();
+		BatchRunner runner = new BatchRunner(conf, conf.getConfig(args.length > 0 ? args[0] : "batch"));
+		List<Result> results = runner.run();
+		runner.writeReport(results);
+		if(results.size() != runner.apps.size()) {
+			// A worker thread died without reporting its apps
+			System.exit(1);
+		}
+		for(Result result : results) {
+			if(!result.status.equals("ok")) {
+				System.exit(1);
+			}
+		}
+	}
+
+	public List<Result> run() throws IOException, InterruptedException {
+		Files.createDirectories(logDir.toPath());
+		ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<String>(apps);
+		List<Result> results = Collections.synchronizedList(new ArrayList<Result>());
+
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		for(int i = 0; i < workers; i++) {
+			int id = i;
+			executor.execute(() -> {
+				try (Worker worker = new Worker(id)) {
+					String app;
+					while((app = pending.poll()) != null) {
+						Result result = worker.analyze(app);
+						logger.info("{}: {} in {} s", app, result.status, result.millis / 1000.0);
+						results.add(result);
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+
+		// Report in the order of the config
+		List<Result> ordered = new ArrayList<Result>(results);
+		ordered.sort(Comparator.comparingInt(result -> apps.indexOf(result.app)));
+		return ordered;
+	}
+
+	/**
+	 * Forked worker JVM, started on demand.
+	 */
+	private class Worker implements AutoCloseable {
+
+		private final int id;
+		private Process process = null;
+		private Writer commands;
+		private BlockingQueue<String> replies;
+		private int analyzed = 0;
+
+		Worker(int id) {
+			this.id = id;
+		}
+
+		private void start() throws IOException {
+			List<String> command = new ArrayList<String>();
+			command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+			if(workerHeap != null) {
+				command.add("-Xmx" + workerHeap);
+			}
+			// A worker exceeding its heap is replaced instead of continuing in a broken state
+			command.add("-XX:+ExitOnOutOfMemoryError");
+			for(String property : new String[] { ResultStores.PROPERTY, "DROIDBENCH", "config.file", "config.resource" }) {
+				if(System.getProperty(property) != null) {
+					command.add("-D" + property + "=" + System.getProperty(property));
+				}
+			}
+			command.add("-cp");
+			command.add(System.getProperty("java.class.path"));
+			command.add(BatchWorker.class.getName());
+
+			process = new ProcessBuilder(command).redirectErrorStream(true).start();
+			commands = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+			analyzed = 0;
+
+			BlockingQueue<String> replies = new LinkedBlockingQueue<String>();
+			this.replies = replies;
+			BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+			PrintWriter log = new PrintWriter(new OutputStreamWriter(
+					new FileOutputStream(new File(logDir, "worker-" + id + ".log"), true), StandardCharsets.UTF_8));
+			Thread reader = new Thread(() -> {
+				try {
+					String line;
+					while((line = output.readLine()) != null) {
+						if(line.startsWith(BatchWorker.PREFIX)) {
+							replies.add(line.substring(BatchWorker.PREFIX.length()));
+						} else {
+							log.println(line);
+						}
+					}
+				} catch (IOException e) {
+					// The worker was destroyed
+				} finally {
+					log.close();
+					replies.add(EOF);
+				}
+			}, "Batch worker " + id + " output");
+			reader.setDaemon(true);
+			reader.start();
+		}
+
+		Result analyze(String app) {
+			long start = System.nanoTime();
+			try {
+				if(process == null || !process.isAlive() || analyzed >= appsPerWorker) {
+					stop();
+					start();
+				}
+				analyzed++;
+				commands.write(app + "\n");
+				commands.flush();
+
+				long appTimeout = timeouts.get(app);
+				String reply = replies.poll(appTimeout, TimeUnit.SECONDS);
+				long millis = (System.nanoTime() - start) / 1000000;
+				if(reply == null) {
+					stop();
+					return new Result(app, "timeout", millis, 0, 0, id, "Exceeded " + appTimeout + " s");
+				}
+				if(reply.equals(EOF)) {
+					stop();
+					return new Result(app, "crashed", millis, 0, 0, id, "Worker exited, see worker-" + id + ".log");
+				}
+				String[] fields = reply.split("\t", -1);
+				if(fields[0].equals("done")) {
+					return new Result(app, "ok", Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+							Long.parseLong(fields[4]), id, null);
+				}
+				return new Result(app, "failed", millis, 0, 0, id, fields.length > 2 ? fields[2] : null);
+			} catch (IOException e) {
+				stop();
+				return new Result(app, "crashed", (System.nanoTime() - start) / 1000000, 0, 0, id, e.toString());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				stop();
+				return new Result(app, "timeout", (System.nanoTime() - start) / 1000000, 0, 0, id, "Interrupted");
+			} catch (RuntimeException e) {
+				// E.g. a malformed reply, the worker continues with the next app
+				logger.error("Could not analyze {}", app, e);
+				return new Result(app, "failed", (System.nanoTime() - start) / 1000000, 0, 0, id, e.toString());
+			}
+		}
+
+		private void stop() {
+			if(process != null) {
+				process.destroyForcibly();
+				process = null;
+			}
+		}
+
+		/**
+		 * Closing stdin ends the worker after its current app.
+		 */
+		@Override
+		public void close() {
+			if(process != null) {
+				try {
+					commands.close();
+					if(!process.waitFor(60, TimeUnit.SECONDS)) {
+						stop();
+					}
+				} catch (IOException e) {
+					stop();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					stop();
+				}
+				process = null;
+			}
+		}
+	}
+
+	/**
+	 * Writes the results in the format of the junitbenchmarks XML reports, with one round per app.
+	 * The status and message of each app are additional attributes.
+	 */
+	public void writeReport(List<Result> results) throws IOException {
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(report), StandardCharsets.UTF_8))) {
+			out.println("<benchmark-results tstamp=\"" + new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").format(new Date()) + "\">");
+			for(Result result : results) {
+				out.println();
+				out.println("\t<testname classname=\"" + BatchRunner.class.getName() + "\" name=\"" + escape(result.app) + "\"");
+				out.println("\t\t benchmark-rounds=\"1\" warmup-rounds=\"0\"");
+				out.println("\t\t round-avg=\"" + seconds(result.millis) + "\" round-stddev=\"0\"");
+				out.println("\t\t gc-avg=\"0\" gc-stddev=\"0\"");
+				out.println("\t\t gc-invocations=\"" + result.gcCount + "\" gc-time=\"" + seconds(result.gcMillis) + "\"");
+				out.println("\t\t benchmark-time-total=\"" + seconds(result.millis) + "\" warmup-time-total=\"0\"");
+				out.println("\t\t threads=\"1\" worker=\"" + result.worker + "\" status=\"" + result.status + "\""
+						+ (result.message != null ? " message=\"" + escape(result.message) + "\"" : "") + "/>");
+			}
+			out.println();
+			out.println("</benchmark-results>");
+		}
+		logger.info("Wrote report of {} apps to {}", results.size(), report);
+	}
+
+	private static String seconds(long millis) {
+		return String.format(Locale.ROOT, "%.3f", millis / 1000.0);
+	}
+
+	private static String escape(String s) {
+		return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+	}
+}
@@ -0,0 +1,99 @@
+package soot.jimple.infoflow.android.TestApps;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import soot.jimple.infoflow.LoadTimeInfoflow;
+import soot.jimple.infoflow.android.MaxSetupApplication;
+import soot.jimple.infoflow.loadtime.ResultStore;
+import soot.jimple.infoflow.loadtime.ResultStores;
+import soot.spl.ifds.CachedZ3Solver;
+
+/**
+ * Worker process of {@link BatchRunner}. Reads config names from stdin, one per line, analyzes the
+ * APK of each config and saves its results like the Evaluation tests. Each app is answered by one
+ * line starting with {@link #PREFIX}, all other output belongs to the analysis. Soot is reset by
+ * every analysis and the Z3 cache after it, so the JVM is reused for the next app.
+ */
+public class BatchWorker {
+
+	static final String PREFIX = "@@batch\t";
+
+	public static void main(String[] args) throws Exception {
+		// Replies are written to the original stdout, the analysis prints to it as well
+		PrintStream replies = System.out;
+		BufferedReader commands = new BufferedReader(new InputStreamReader(System.in));
+		Config conf = ConfigFactory.load();
+
+		String configName;
+		while((configName = commands.readLine()) != null) {
+			if(configName.isEmpty()) {
+				continue;
+			}
+			long gcCount = gcCount();
+			long gcTime = gcTime();
+			long start = System.nanoTime();
+			try {
+				analyze(conf, configName);
+				replies.println(PREFIX + "done\t" + configName + "\t" + (System.nanoTime() - start) / 1000000
+						+ "\t" + (gcCount() - gcCount) + "\t" + (gcTime() - gcTime));
+			} catch (Exception e) {
+				replies.println(PREFIX + "failed\t" + configName + "\t" + e.toString().replace('\n', ' '));
+			} finally {
+				CachedZ3Solver.clearCache();
+			}
+			replies.flush();
+		}
+	}
+
+	private static void analyze(Config conf, String configName) throws Exception {
+		Config appConf = conf.getConfig(configName);
+
+		String androidJars = System.getenv("ANDROID_JARS");
+		if (androidJars == null)
+			throw new RuntimeException("Android JAR dir not set");
+		String droidBenchDir = System.getenv("DROIDBENCH");
+		if (droidBenchDir == null)
+			droidBenchDir = System.getProperty("DROIDBENCH");
+		if (droidBenchDir == null)
+			throw new RuntimeException("DroidBench dir not set");
+
+		try (ResultStore store = ResultStores.open()) {
+			store.logStart(configName);
+
+			MaxSetupApplication setupApplication = new MaxSetupApplication(androidJars,
+					droidBenchDir + File.separator + appConf.getString("apk"));
+			setupApplication.setTaintWrapperFile("EasyTaintWrapperSource.txt");
+			setupApplication.calculateSourcesSinksEntrypoints("SourcesAndSinks.txt");
+			setupApplication.setEnableImplicitFlows(true);
+			LoadTimeInfoflow infoflow = setupApplication.runInfoflow(configName);
+
+			String basePath = appConf.hasPath("srcPath") ? appConf.getString("srcPath") : null;
+			store.saveResults(infoflow, configName, basePath);
+			store.logEnd(configName);
+		}
+	}
+
+	private static long gcCount() {
+		long count = 0;
+		for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, gc.getCollectionCount());
+		}
+		return count;
+	}
+
+	private static long gcTime() {
+		long time = 0;
+		for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			time += Math.max(0, gc.getCollectionTime());
+		}
+		return time;
+	}
+}
@@ -0,0 +1,110 @@
+package soot.jimple.infoflow.android.test.loadtime;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import heros.solver.JumpFnSingleton;
+import heros.solver.JumpFunctions;
+import soot.jimple.infoflow.LoadTimeInfoflow;
+import soot.jimple.infoflow.android.MaxSetupApplication;
+import soot.spl.ifds.CachedZ3Solver;
+
+/**
+ * Compares the heap used by the jump functions of the SPL solver with and without
+ * compactJumpFunctions on one of the RealApps. For both runs, the retained size (used heap
+ * before and after clearing the jump functions) and the top of the class histogram are logged.
+ * The app is selected with -Dbenchmark.app=..., default is Orbot.
+ */
+public class JumpFunctionsHeapBenchmark {
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private static final int HISTOGRAM_LINES = 25;
+
+	private LoadTimeInfoflow analyzeAPKFile(String fileName, String configName) throws IOException {
+		String androidJars = System.getenv("ANDROID_JARS");
+		if (androidJars == null)
+			throw new RuntimeException("Android JAR dir not set");
+
+		String droidBenchDir = System.getenv("DROIDBENCH");
+		if (droidBenchDir == null)
+			droidBenchDir = System.getProperty("DROIDBENCH");
+		if (droidBenchDir == null)
+			throw new RuntimeException("DroidBench dir not set");
+
+		MaxSetupApplication setupApplication = new MaxSetupApplication(androidJars,
+				droidBenchDir + File.separator + fileName);
+		setupApplication.setTaintWrapperFile("EasyTaintWrapperSource.txt");
+		setupApplication.calculateSourcesSinksEntrypoints("SourcesAndSinks.txt");
+		setupApplication.setEnableImplicitFlows(true);
+		return setupApplication.runInfoflow(configName);
+	}
+
+	private static long usedHeap()
+	{
+		Runtime runtime = Runtime.getRuntime();
+		for(int i = 0; i < 3; i++)
+		{
+			System.gc();
+			System.runFinalization();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	// Same output as jmap -histo:live
+	private static String classHistogram() {
+		try {
+			return (String) ManagementFactory.getPlatformMBeanServer().invoke(
+					new ObjectName("com.sun.management:type=DiagnosticCommand"), "gcClassHistogram",
+					new Object[] { null }, new String[] { String[].class.getName() });
+		} catch (Exception e) {
+			return "Class histogram not available: " + e.getMessage();
+		}
+	}
+
+	private void measure(String collectionName, boolean compact) throws IOException {
+		System.setProperty(collectionName + ".compactJumpFunctions", Boolean.toString(compact));
+		ConfigFactory.invalidateCaches();
+		Config conf = ConfigFactory.load().getConfig(collectionName);
+		CachedZ3Solver.clearCache();
+
+		LoadTimeInfoflow infoflow = analyzeAPKFile(conf.getString("apk"), collectionName);
+		Assert.assertNotNull(infoflow.getSplResults());
+
+		JumpFunctions<?, ?, ?> jumpFn = JumpFnSingleton.getInstance().getJumpFn();
+		int functions = jumpFn.getCount();
+
+		String[] histogram = classHistogram().split("\n");
+		StringBuilder top = new StringBuilder();
+		for(int i = 0; i < Math.min(HISTOGRAM_LINES, histogram.length); i++) {
+			top.append('\n').append(histogram[i]);
+		}
+
+		long before = usedHeap();
+		jumpFn.clear();
+		long after = usedHeap();
+
+		logger.info("{} ({}): {} jump functions retain {} KB, {} bytes per function{}", collectionName,
+				jumpFn.getClass().getSimpleName(), functions, (before - after) >> 10,
+				functions == 0 ? 0 : (before - after) / functions, top);
+	}
+
+	@Test
+	public void jumpFunctionsHeap() throws IOException {
+		String collectionName = System.getProperty("benchmark.app", "Orbot");
+		measure(collectionName, false);
+		measure(collectionName, true);
+		System.clearProperty(collectionName + ".compactJumpFunctions");
+		ConfigFactory.invalidateCaches();
+	}
+}
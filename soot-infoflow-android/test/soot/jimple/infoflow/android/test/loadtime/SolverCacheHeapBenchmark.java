@@ -0,0 +1,117 @@
+package soot.jimple.infoflow.android.test.loadtime;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import soot.jimple.infoflow.LoadTimeInfoflow;
+import soot.jimple.infoflow.android.MaxSetupApplication;
+import soot.spl.ifds.CachedZ3Solver;
+import soot.spl.ifds.SolverOperation;
+
+/**
+ * Measures the heap retained by the solver cache of CachedZ3Solver after analyzing one of
+ * the RealApps, once with the interned constraints and once with the same entries copied into
+ * the string keyed maps used before, see {@link #copyStringKeyed}. The retained
+ * sizes are differences of the used heap. The app is selected with -Dbenchmark.app=...,
+ * default is Orbot.
+ */
+public class SolverCacheHeapBenchmark {
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private LoadTimeInfoflow analyzeAPKFile(String fileName, String configName) throws IOException {
+		String androidJars = System.getenv("ANDROID_JARS");
+		if (androidJars == null)
+			throw new RuntimeException("Android JAR dir not set");
+
+		String droidBenchDir = System.getenv("DROIDBENCH");
+		if (droidBenchDir == null)
+			droidBenchDir = System.getProperty("DROIDBENCH");
+		if (droidBenchDir == null)
+			throw new RuntimeException("DroidBench dir not set");
+
+		MaxSetupApplication setupApplication = new MaxSetupApplication(androidJars,
+				droidBenchDir + File.separator + fileName);
+		setupApplication.setTaintWrapperFile("EasyTaintWrapperSource.txt");
+		setupApplication.calculateSourcesSinksEntrypoints("SourcesAndSinks.txt");
+		setupApplication.setEnableImplicitFlows(true);
+		return setupApplication.runInfoflow(configName);
+	}
+
+	/**
+	 * Copies the cached results into the layout used before constraints were interned: results
+	 * keyed by the operation on the formula texts, pretty printed forms keyed by the formula.
+	 * The copy shares the formula strings, so its retained size is a lower bound for that layout.
+	 */
+	private static void copyStringKeyed(Map<SolverOperation, String> results, Map<String, Future<String>> prettyprinted)
+	{
+		CachedZ3Solver.forEachCachedResult((operator, formula1, formula2, result, pretty) -> {
+			results.put(formula2 == null ? new SolverOperation(formula1, operator)
+					: new SolverOperation(formula1, formula2, operator), result);
+			if(pretty != null)
+			{
+				prettyprinted.put(result, pretty);
+			}
+		});
+	}
+
+	private static long usedHeap()
+	{
+		Runtime runtime = Runtime.getRuntime();
+		for(int i = 0; i < 3; i++)
+		{
+			System.gc();
+			System.runFinalization();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	@Test
+	public void solverCacheHeap() throws IOException {
+		String collectionName = System.getProperty("benchmark.app", "Orbot");
+		Config conf = ConfigFactory.load().getConfig(collectionName);
+
+		CachedZ3Solver.clearCache();
+		long before = usedHeap();
+
+		long start = System.currentTimeMillis();
+		LoadTimeInfoflow infoflow = analyzeAPKFile(conf.getString("apk"), collectionName);
+		long duration = System.currentTimeMillis() - start;
+		Assert.assertNotNull(infoflow.getSplResults());
+
+		long afterAnalysis = usedHeap();
+		int interned = CachedZ3Solver.getInternedCount();
+		long cacheEntries = CachedZ3Solver.getCacheSize();
+
+		// Results refer to the cache, drop them first
+		infoflow = null;
+		long withoutResults = usedHeap();
+
+		// The copy keeps the formulas alive once the interned cache is cleared
+		Map<SolverOperation, String> stringKeyed = new ConcurrentHashMap<SolverOperation, String>();
+		Map<String, Future<String>> prettyprinted = new ConcurrentHashMap<String, Future<String>>();
+		copyStringKeyed(stringKeyed, prettyprinted);
+		int stringKeyedEntries = stringKeyed.size();
+		CachedZ3Solver.clearCache();
+		long onlyStringKeyed = usedHeap();
+		stringKeyed = null;
+		prettyprinted = null;
+		long withoutCache = usedHeap();
+
+		logger.info("{}: analysis {} ms, heap before {} MB, after analysis {} MB", collectionName, duration, before >> 20, afterAnalysis >> 20);
+		logger.info("{}: interned solver cache retains {} KB ({} constraints, {} cached operations)",
+				collectionName, (withoutResults - withoutCache) >> 10, interned, cacheEntries);
+		logger.info("{}: string keyed solver cache retains {} KB ({} cached operations)",
+				collectionName, (onlyStringKeyed - withoutCache) >> 10, stringKeyedEntries);
+	}
+}
@@ -0,0 +1,71 @@
+package soot.jimple.infoflow.android.test.loadtime;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import soot.jimple.infoflow.LoadTimeInfoflow;
+import soot.jimple.infoflow.android.MaxSetupApplication;
+import soot.spl.ifds.CachedZ3Solver;
+
+/**
+ * Measures how the SPL solver scales with the number of threads (1, 2, 4, 8, 16) on one app.
+ * The thread count is passed as solverThreads through a system property override of the
+ * app config. The solver cache is cleared before each run so all runs do the same work.
+ * The app is selected with -Dbenchmark.app=..., default is Orbot.
+ */
+public class SolverScalingBenchmark {
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private LoadTimeInfoflow analyzeAPKFile(String fileName, String configName) throws IOException {
+		String androidJars = System.getenv("ANDROID_JARS");
+		if (androidJars == null)
+			throw new RuntimeException("Android JAR dir not set");
+
+		String droidBenchDir = System.getenv("DROIDBENCH");
+		if (droidBenchDir == null)
+			droidBenchDir = System.getProperty("DROIDBENCH");
+		if (droidBenchDir == null)
+			throw new RuntimeException("DroidBench dir not set");
+
+		MaxSetupApplication setupApplication = new MaxSetupApplication(androidJars,
+				droidBenchDir + File.separator + fileName);
+		setupApplication.setTaintWrapperFile("EasyTaintWrapperSource.txt");
+		setupApplication.calculateSourcesSinksEntrypoints("SourcesAndSinks.txt");
+		setupApplication.setEnableImplicitFlows(true);
+		return setupApplication.runInfoflow(configName);
+	}
+
+	@Test
+	public void solverScaling() throws IOException {
+		String collectionName = System.getProperty("benchmark.app", "Orbot");
+
+		long single = 0;
+		for(int threads = 1; threads <= 16; threads *= 2) {
+			System.setProperty(collectionName + ".solverThreads", Integer.toString(threads));
+			ConfigFactory.invalidateCaches();
+			Config conf = ConfigFactory.load().getConfig(collectionName);
+			CachedZ3Solver.clearCache();
+
+			long start = System.currentTimeMillis();
+			LoadTimeInfoflow infoflow = analyzeAPKFile(conf.getString("apk"), collectionName);
+			long duration = System.currentTimeMillis() - start;
+			Assert.assertNotNull(infoflow.getSplResults());
+
+			if(threads == 1) {
+				single = duration;
+			}
+			logger.info("{}: {} threads, {} ms, speedup {}", collectionName, threads, duration,
+					String.format("%.2f", single / (double) Math.max(duration, 1)));
+		}
+		System.clearProperty(collectionName + ".solverThreads");
+		ConfigFactory.invalidateCaches();
+	}
+}
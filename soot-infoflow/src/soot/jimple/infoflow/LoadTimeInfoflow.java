@@ -1,12 +1,17 @@
 package soot.jimple.infoflow;
 
 import heros.solver.CountingThreadPoolExecutor;
+import heros.solver.ResultSink;
 import heros.solver.TopologicalSorter;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -14,11 +19,17 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
@@ -54,9 +65,16 @@ import soot.jimple.infoflow.entryPointCreators.IEntryPointCreator;
 import soot.jimple.infoflow.handlers.ResultsAvailableHandler;
 import soot.jimple.infoflow.handlers.TaintPropagationHandler;
 import soot.jimple.infoflow.ipc.IIPCManager;
+import soot.jimple.infoflow.loadtime.AnalysisSnapshot;
+import soot.jimple.infoflow.loadtime.IncrementalSummaryStore;
+import soot.jimple.infoflow.loadtime.JimpleLineIndex;
+import soot.jimple.infoflow.loadtime.LibrarySummaryStore;
 import soot.jimple.infoflow.loadtime.LoadTimeHelperImpl;
+import soot.jimple.infoflow.loadtime.LoadTimeQueryEngine;
 import soot.jimple.infoflow.loadtime.LoadTimeSourceSinkManager;
 import soot.jimple.infoflow.loadtime.MongoLoader;
+import soot.jimple.infoflow.loadtime.ResultStore;
+import soot.jimple.infoflow.loadtime.ResultStores;
 import soot.jimple.infoflow.loadtime.SootTopologicalSorter;
 import soot.jimple.infoflow.problems.BackwardsInfoflowProblem;
 import soot.jimple.infoflow.problems.InfoflowProblem;
@@ -69,9 +87,11 @@ import soot.jimple.infoflow.source.SourceInfo;
 import soot.jimple.infoflow.util.SootMethodRepresentationParser;
 import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
 import soot.options.Options;
+import soot.spl.ifds.CachedZ3Solver;
 import soot.spl.ifds.Constraint;
 import soot.spl.ifds.IConstraint;
 import soot.spl.ifds.SPLIFDSSolver;
+import soot.util.EscapedWriter;
 
 
 
@@ -83,6 +103,13 @@ public class LoadTimeInfoflow extends Infoflow {
 	public Table<Unit, Abstraction, IConstraint> splResults;
 	public SPLIFDSSolver<Abstraction,AccessPath> splSolver;
 	private LoadTimeInfoflowProblem forwardProblem;
+	private ResultSink<Unit, Abstraction, IConstraint> resultSink = null;
+	private AnalysisSnapshot analysisSnapshot = null;
+	private boolean demandDriven = false;
+	private LoadTimeQueryEngine queryEngine = null;
+	private JimpleLineIndex jimpleLineIndex = new JimpleLineIndex();
+	private boolean jimpleFilesInBackground = false;
+	private volatile Future<?> pendingJimpleFiles = null;
 
 	/**
 	 * Creates a new instance of the InfoFlow class for analyzing plain Java code without any references to APKs or the Android SDK.
@@ -413,10 +440,14 @@ public class LoadTimeInfoflow extends Infoflow {
 
 		// In Debug mode, we collect the Jimple bodies for
 		// writing them to disk later       
+        getJimpleLineIndex();
+        jimpleLineIndex = new JimpleLineIndex();
+        pendingJimpleFiles = null;
         if (debug) {
         	System.out.println("Start saving Jimple files.");
             saveJimpleFiles(appPath, methods);
-            System.out.println("Finished saving Jimple files.");
+            if (!jimpleFilesInBackground)
+            	System.out.println("Finished saving Jimple files.");
         }
         
 		for (SootMethod m : methods) {
@@ -499,13 +530,102 @@ public class LoadTimeInfoflow extends Infoflow {
 		
 		logger.info("Creating SPL solver...");
 		
-		LoadTimeHelperImpl helper = new LoadTimeHelperImpl(sourcesSinks.getFeatureConfig(), new Aliasing(aliasingStrategy), getiCfg());
+		if(sourcesSinks instanceof LoadTimeSourceSinkManager) {
+			LoadTimeSourceSinkManager loadTimeSourcesSinks = (LoadTimeSourceSinkManager) sourcesSinks;
+			Constraint.setBackend(loadTimeSourcesSinks.getConstraintBackend());
+			CachedZ3Solver.setStructuralCache(loadTimeSourcesSinks.isStructuralSolverCache());
+			if(loadTimeSourcesSinks.getSolverCacheFile() != null) {
+				try {
+					CachedZ3Solver.usePersistentStore(new File(loadTimeSourcesSinks.getSolverCacheFile()));
+				} catch (IOException e) {
+					logger.error("Could not open solver cache " + loadTimeSourcesSinks.getSolverCacheFile(), e);
+				}
+			}
+		}
+		logger.info("Using {} constraints", Constraint.getBackend());
+		
+		Aliasing aliasing = new Aliasing(aliasingStrategy);
+		
+		if(demandDriven) {
+			// Each query solves its own slice, see LoadTimeQueryEngine. The helper reads the jump functions
+			// of its solver, so every query gets its own.
+			queryEngine = new LoadTimeQueryEngine(getiCfg(), forwardProblem.zeroValue(),
+					() -> createSPLSolver(sourcesSinks, createLoadTimeHelper(sourcesSinks, aliasing), null));
+			splSolver = null;
+			splResults = null;
+			logger.info("Demand-driven mode, the SPL solver runs on queries");
+			return;
+		}
 		
-		splSolver = new SPLIFDSSolver<Abstraction, AccessPath>(forwardProblem, helper);	
+		LibrarySummaryStore summaryStore = null;
+		analysisSnapshot = null;
+		if(sourcesSinks instanceof LoadTimeSourceSinkManager
+				&& ((LoadTimeSourceSinkManager) sourcesSinks).getIncrementalStateDir() != null) {
+			File stateDir = new File(((LoadTimeSourceSinkManager) sourcesSinks).getIncrementalStateDir());
+			try {
+				analysisSnapshot = new AnalysisSnapshot(new File(stateDir, "snapshot.bin"), getiCfg());
+				summaryStore = new IncrementalSummaryStore(new File(stateDir, "summaries.bin"), getiCfg(),
+						forwardProblem.zeroValue(), ((LoadTimeSourceSinkManager) sourcesSinks).getConfigurationKey(), analysisSnapshot);
+			} catch (IOException e) {
+				logger.error("Could not open the incremental state in " + stateDir + ", analyzing all methods", e);
+				analysisSnapshot = null;
+			}
+			if(analysisSnapshot != null && resultSink != null) {
+				logger.warn("The result sink is not used in incremental mode");
+			}
+		}
+		else if(sourcesSinks instanceof LoadTimeSourceSinkManager
+				&& ((LoadTimeSourceSinkManager) sourcesSinks).getSummaryStoreFile() != null) {
+			String summaryStoreFile = ((LoadTimeSourceSinkManager) sourcesSinks).getSummaryStoreFile();
+			try {
+				summaryStore = new LibrarySummaryStore(new File(summaryStoreFile), getiCfg(), forwardProblem.zeroValue(),
+						((LoadTimeSourceSinkManager) sourcesSinks).getConfigurationKey());
+			} catch (IOException e) {
+				logger.error("Could not open summary store " + summaryStoreFile, e);
+			}
+		}
 		
-		logger.info("Starting SPL solver...");
+		while(true) {
+			// A new solver is created for each round, the helper of the previous one must not be reused
+			LoadTimeHelperImpl helper = createLoadTimeHelper(sourcesSinks, aliasing);
+			// Library code is only analyzed if its summaries are persisted
+			helper.setAnalyzeLibraries(summaryStore != null);
+			splSolver = createSPLSolver(sourcesSinks, helper, summaryStore);
+			
+			logger.info("Starting SPL solver...");
+			
+			splSolver.solve();
+			
+			if(analysisSnapshot == null) {
+				break;
+			}
+			// Unchanged methods reached in new contexts must be analyzed again, together with the callers reaching them
+			Set<SootMethod> grown = analysisSnapshot.checkEntryValues(splSolver.val);
+			if(grown.isEmpty()) {
+				break;
+			}
+			logger.info("{} unchanged methods are reached in new contexts, solving again", grown.size());
+			analysisSnapshot.invalidate(grown);
+		}
+		if(analysisSnapshot != null) {
+			analysisSnapshot.update(splSolver.val);
+			logger.info("Re-analyzed {} methods", analysisSnapshot.getInvalidatedMethods().size());
+		}
 		
-		splSolver.solve();
+		if(summaryStore != null) {
+			logger.info("Library summaries: {} loaded, {} stored, {} skipped", summaryStore.getLoadedCount(),
+					summaryStore.getStoredCount(), summaryStore.getSkippedCount());
+			summaryStore.close();
+		}
+		if(splSolver.getWideningCount() > 0) {
+			logger.info("Widened {} constraints at {} statements", splSolver.getWideningCount(),
+					splSolver.getWidenedStatementCount());
+		}
+		if(splSolver.getReleasedMethodCount() > 0) {
+			logger.info("Released the jump functions of {} methods", splSolver.getReleasedMethodCount());
+		}
+		logger.info("Solver cache: {}, {} constraints", CachedZ3Solver.getStatistics(), CachedZ3Solver.getInternedCount());
+		logger.info("Structural solver cache hit rate: {}", CachedZ3Solver.getStatistics().getStructuralHitRate());
 		
 		// Not really nice, but sometimes Heros returns before all
 		// executor tasks are actually done. This way, we give it a
@@ -536,6 +656,36 @@ public class LoadTimeInfoflow extends Infoflow {
 		splResults = splSolver.val;
 	}
 
+	private LoadTimeHelperImpl createLoadTimeHelper(ISourceSinkManager sourcesSinks, Aliasing aliasing) {
+		return new LoadTimeHelperImpl(sourcesSinks.getFeatureConfig(), aliasing, getiCfg());
+	}
+	
+	private SPLIFDSSolver<Abstraction, AccessPath> createSPLSolver(ISourceSinkManager sourcesSinks, LoadTimeHelperImpl helper,
+			LibrarySummaryStore summaryStore) {
+		boolean compactJumpFunctions = sourcesSinks instanceof LoadTimeSourceSinkManager
+				&& ((LoadTimeSourceSinkManager) sourcesSinks).isCompactJumpFunctions();
+		SPLIFDSSolver<Abstraction, AccessPath> solver = new SPLIFDSSolver<Abstraction, AccessPath>(forwardProblem, helper,
+				compactJumpFunctions);
+		solver.setTopologicalSorter(new SootTopologicalSorter(getiCfg()));
+		if(sourcesSinks instanceof LoadTimeSourceSinkManager) {
+			LoadTimeSourceSinkManager loadTimeSourcesSinks = (LoadTimeSourceSinkManager) sourcesSinks;
+			solver.setBudget(loadTimeSourcesSinks.getSolverBudget());
+			solver.setReleaseSolverState(loadTimeSourcesSinks.isReleaseSolverState());
+			solver.setWideningBudget(loadTimeSourcesSinks.getWideningBudget());
+			if(loadTimeSourcesSinks.getSolverThreads() > 0) {
+				solver.setParallelism(loadTimeSourcesSinks.getSolverThreads());
+			}
+		}
+		// Rows of the incremental mode are only written once the final solver is known
+		if(analysisSnapshot == null) {
+			solver.setResultSink(resultSink);
+		}
+		if(summaryStore != null) {
+			solver.setSummaryStore(summaryStore);
+		}
+		return solver;
+	}
+
 	public List<Integer> collectSources(String appPath, List<SootMethod> methods, ISourceSinkManager sourceSinkManager)
 	{
 		
@@ -562,7 +712,7 @@ public class LoadTimeInfoflow extends Infoflow {
 	}
 	
 	
-	// Collects all jimple files and saves them using MongoLoader
+	// Collects all jimple files and saves them in the configured ResultStore
 	private void saveJimpleFiles(String appPath, List<SootMethod> methods) {
 		// Sort jimple methods, to get fixed line numbers
 		Collections.sort(methods, new Comparator<SootMethod>() {
@@ -572,34 +722,103 @@ public class LoadTimeInfoflow extends Infoflow {
 			}
 		});
 		
-		Map<String, StringBuilder> classes = new HashMap<String, StringBuilder>();
-		HashMap<SootClass, Integer> currentJimpleLn = new HashMap<SootClass, Integer>();
-		
+		// Lines are numbered per class, so the classes are printed independently
+		Map<SootClass, List<SootMethod>> methodsByClass = new LinkedHashMap<SootClass, List<SootMethod>>();
 		for (SootMethod m : methods) {
 			if (m.hasActiveBody()) {
-
-				//Printer.v().setJimpleLnNum(1);
-				if (classes.containsKey(m.getDeclaringClass().getName())) {
-					Printer.v().setJimpleLnNum(currentJimpleLn.get(m.getDeclaringClass()));
-					classes.put(m.getDeclaringClass().getName(), classes.get(m.getDeclaringClass().getName()).append(
-							m.getActiveBody().toString()));
-					currentJimpleLn.put(m.getDeclaringClass(), Printer.v().getJimpleLnNum());
-				} else {
-					currentJimpleLn.put(m.getDeclaringClass(), 1);
-					Printer.v().setJimpleLnNum(currentJimpleLn.get(m.getDeclaringClass()));
-					classes.put(m.getDeclaringClass().getName(), new StringBuilder(m.getActiveBody().toString()));
-				}
-				
-				currentJimpleLn.put(m.getDeclaringClass(), Printer.v().getJimpleLnNum());
+				methodsByClass.computeIfAbsent(m.getDeclaringClass(), c -> new ArrayList<SootMethod>()).add(m);
+			}
+		}
+		
+		JimpleLineIndex lineIndex = jimpleLineIndex;
+		if (jimpleFilesInBackground) {
+			ExecutorService executor = Executors.newSingleThreadExecutor();
+			pendingJimpleFiles = executor.submit(() -> printJimpleFiles(appPath, methodsByClass, lineIndex, true));
+			executor.shutdown();
+		} else {
+			printJimpleFiles(appPath, methodsByClass, lineIndex, false);
+		}
+	}
+	
+	/**
+	 * Printing normally adds JimpleLineNumberTags to the statements and methods, which the solver
+	 * reads concurrently. In the background, the lines are only recorded in the line index.
+	 */
+	private void printJimpleFiles(String appPath, Map<SootClass, List<SootMethod>> methodsByClass,
+			JimpleLineIndex lineIndex, boolean withoutTags) {
+		Map<String, StringBuilder> classes = new ConcurrentHashMap<String, StringBuilder>();
+		Path dir = Paths.get("JimpleFiles");
+		
+		Printer.v().setOption(Printer.PER_THREAD_JIMPLE_LN);
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		try {
+			Files.createDirectories(dir);
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (Entry<SootClass, List<SootMethod>> entry : methodsByClass.entrySet()) {
+				futures.add(executor.submit(() -> {
+					String className = entry.getKey().getName();
+					StringBuilder jimple = new StringBuilder();
+					Printer.v().setJimpleLnNum(1);
+					for (SootMethod m : entry.getValue()) {
+						if (withoutTags) {
+							Map<Unit, Integer> unitLines = new HashMap<Unit, Integer>();
+							StringWriter body = new StringWriter();
+							PrintWriter out = new PrintWriter(new EscapedWriter(body));
+							Printer.v().printTo(m.getActiveBody(), out, unitLines);
+							out.flush();
+							jimple.append(body);
+							lineIndex.addBody(m, body.toString(), unitLines);
+						} else {
+							String body = m.getActiveBody().toString();
+							jimple.append(body);
+							lineIndex.addBody(m, body);
+						}
+					}
+					classes.put(className, jimple);
+					try {
+						Files.write(dir.resolve(className + ".jimple"), jimple.toString().getBytes(StandardCharsets.UTF_8));
+					} catch (IOException e) {
+						logger.error("Could not write jimple file: {}", className + ".jimple", e);
+					}
+				}));
 			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (IOException | ExecutionException e) {
+			logger.error("Could not print jimple files", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+			Printer.v().clearOption(Printer.PER_THREAD_JIMPLE_LN);
 		}
+		
 		// In Debug mode, we write the Jimple files to the database
-		try (MongoLoader mongoLoder = new MongoLoader()) {	
-			mongoLoder.saveJimpleFiles(classes, appPath);
-			writeJimpleFiles(classes);
+		try (ResultStore resultStore = ResultStores.open()) {
+			resultStore.saveJimpleFiles(classes, appPath);
 		}
 	}
 	
+	/**
+	 * If enabled, the Jimple files of debug mode are printed while the solver is running, without
+	 * tagging the statements. {@link #getJimpleLineIndex()} waits until they are printed.
+	 * Disabled by default.
+	 */
+	public void setJimpleFilesInBackground(boolean jimpleFilesInBackground)
+	{
+		this.jimpleFilesInBackground = jimpleFilesInBackground;
+	}
+	
+	/**
+	 * Streams the results into the given sink while the solver is running, e.g.
+	 * {@link MongoLoader#createResultSink(LoadTimeInfoflow, String, String)}. The sink is not closed.
+	 */
+	public void setResultSink(ResultSink<Unit, Abstraction, IConstraint> resultSink)
+	{
+		this.resultSink = resultSink;
+	}
+	
 	public Table<Unit, Abstraction, IConstraint> getSplResults()
 	{
 		return splResults;
@@ -610,6 +829,50 @@ public class LoadTimeInfoflow extends Infoflow {
 		return splSolver;
 	}
 	
+	/**
+	 * If enabled, {@link #computeInfoflow} prepares the analysis without solving it. Constraints
+	 * are computed on demand by {@link #getQueryEngine()}. Disabled by default.
+	 */
+	public void setDemandDriven(boolean demandDriven)
+	{
+		this.demandDriven = demandDriven;
+	}
+	
+	/**
+	 * Null unless the analysis ran in demand-driven mode.
+	 */
+	public LoadTimeQueryEngine getQueryEngine()
+	{
+		return queryEngine;
+	}
+	
+	/**
+	 * State of the incremental mode, null if the app was analyzed from scratch.
+	 * The results only cover the invalidated methods, see {@link AnalysisSnapshot}.
+	 */
+	public AnalysisSnapshot getAnalysisSnapshot()
+	{
+		return analysisSnapshot;
+	}
+	
+	/**
+	 * Lines of the statements in the Jimple sources, indexed while they are printed in debug mode.
+	 */
+	public JimpleLineIndex getJimpleLineIndex()
+	{
+		Future<?> pending = pendingJimpleFiles;
+		if (pending != null) {
+			try {
+				pending.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				logger.error("Could not save jimple files", e);
+			}
+		}
+		return jimpleLineIndex;
+	}
+	
 	public void setSootConfig(IInfoflowConfig config){
 		sootConfig = config;
 	}
@@ -626,34 +889,6 @@ public class LoadTimeInfoflow extends Infoflow {
 		PackManager.v().getPack("wjtp").add(transform);
 	}
 	*/
-	private void writeJimpleFiles(Map<String, StringBuilder> classes) {
-		File dir = new File("JimpleFiles");
-		if(!dir.exists()){
-			dir.mkdir();
-		}
-		for (Entry<String, StringBuilder> entry : classes.entrySet()) {
-			try {
-				stringToTextFile(new File(".").getAbsolutePath() + System.getProperty("file.separator") +"JimpleFiles"+ System.getProperty("file.separator") + entry.getKey() + ".jimple", entry.getValue().toString());
-			} catch (IOException e) {
-				logger.error("Could not write jimple file: {}", entry.getKey() + ".jimple", e);
-			}
-		
-		}
-	}
-	
-	private void stringToTextFile(String fileName, String contents) throws IOException {
-		BufferedWriter wr = null;
-		try {
-			wr = new BufferedWriter(new FileWriter(fileName));
-			wr.write(contents);
-			wr.flush();
-		}
-		finally {
-			if (wr != null)
-				wr.close();
-		}
-	}
-	
 	public LoadTimeInfoflowProblem getLoadtimeInfoflowProblem()
 	{
 		return forwardProblem;
@@ -0,0 +1,274 @@
+package soot.jimple.infoflow.loadtime;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Table;
+
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
+import soot.spl.ifds.IConstraint;
+
+/**
+ * State of an analysis run which allows to re-analyze a new version of the app incrementally.
+ * Each reachable method is keyed by a hash of its body and of the bodies of all methods it
+ * transitively calls, methods whose key changed since the previous run are invalidated.
+ * Methods which are not invalidated keep their results of the previous run, as long as the
+ * values at their start points did not grow, see {@link #checkEntryValues(Table)}.
+ *
+ * Methods are identified like the rows of the results collection, see
+ * {@link TestHelper#getMethodByteCodeJoanaStyle(SootMethod)}.
+ *
+ * Record layout: method id, method key, number of entry values as int, followed by fact and
+ * constraint for each entry value. Strings are stored as length and UTF-8 bytes.
+ */
+public class AnalysisSnapshot {
+
+	private static final Logger logger = LoggerFactory.getLogger(AnalysisSnapshot.class);
+
+	private final File file;
+	private final BiDiInterproceduralCFG<Unit, SootMethod> icfg;
+
+	// Reachable methods with a body and their transitive keys
+	private final Map<SootMethod, String> keys;
+	// Method id -> state of the previous run, null on the first run
+	private final Map<String, MethodState> previous;
+	private final Set<SootMethod> invalidated = new HashSet<>();
+	private final Set<String> removed = new HashSet<>();
+	private Map<String, MethodState> next = null;
+
+	private static class MethodState {
+		private final String key;
+		// Fact -> encoded constraint at the start points
+		private final Map<String, String> entryValues;
+
+		private MethodState(String key, Map<String, String> entryValues) {
+			this.key = key;
+			this.entryValues = entryValues;
+		}
+	}
+
+	public AnalysisSnapshot(File file, BiDiInterproceduralCFG<Unit, SootMethod> icfg) throws IOException {
+		this.file = file;
+		this.icfg = icfg;
+		if(file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		keys = new TransitiveMethodKeys(icfg).getKeys();
+		previous = load();
+		for(Map.Entry<SootMethod, String> method : keys.entrySet()) {
+			MethodState state = previous == null ? null : previous.get(methodId(method.getKey()));
+			if(state == null || !state.key.equals(method.getValue())) {
+				invalidated.add(method.getKey());
+			}
+		}
+		if(previous != null) {
+			removed.addAll(previous.keySet());
+			for(SootMethod method : keys.keySet()) {
+				removed.remove(methodId(method));
+			}
+		}
+		logger.info("{} of {} methods changed since the previous run, {} removed", invalidated.size(), keys.size(), removed.size());
+	}
+
+	public static String methodId(SootMethod method) {
+		return TestHelper.getMethodByteCodeJoanaStyle(method);
+	}
+
+	/**
+	 * Key of the method and all methods it transitively calls, null if the method is not reachable.
+	 */
+	public String getKey(SootMethod method) {
+		return keys.get(method);
+	}
+
+	/**
+	 * True if there is no state of a previous run, i.e. all methods are analyzed.
+	 */
+	public boolean isFirstRun() {
+		return previous == null;
+	}
+
+	/**
+	 * True if the results of the method must be recomputed.
+	 */
+	public boolean isInvalidated(SootMethod method) {
+		return invalidated.contains(method) || !keys.containsKey(method);
+	}
+
+	public Set<SootMethod> getInvalidatedMethods() {
+		return Collections.unmodifiableSet(invalidated);
+	}
+
+	/**
+	 * Ids of the methods analyzed in the previous run, which are no longer reachable.
+	 */
+	public Set<String> getRemovedMethodIds() {
+		return Collections.unmodifiableSet(removed);
+	}
+
+	/**
+	 * Returns the methods which were not re-analyzed, but are reached with more facts or weaker
+	 * constraints than in the previous run. Their results of the previous run are incomplete.
+	 */
+	public Set<SootMethod> checkEntryValues(Table<Unit, Abstraction, IConstraint> val) {
+		Set<SootMethod> grown = new HashSet<>();
+		if(previous == null) {
+			return grown;
+		}
+		for(SootMethod method : keys.keySet()) {
+			if(invalidated.contains(method)) {
+				continue;
+			}
+			Map<String, String> before = previous.get(methodId(method)).entryValues;
+			for(Map.Entry<String, IConstraint> value : entryValues(method, val).entrySet()) {
+				String constraint = before.get(value.getKey());
+				if(constraint == null || LibrarySummaryStore.encodeConstraint(value.getValue()) == null) {
+					grown.add(method);
+					break;
+				}
+				IConstraint old = LibrarySummaryStore.decodeConstraint(constraint);
+				if(!old.or(value.getValue()).equals(old)) {
+					grown.add(method);
+					break;
+				}
+			}
+		}
+		return grown;
+	}
+
+	/**
+	 * Invalidates the given methods and their transitive callers, which must be analyzed again
+	 * to reach them.
+	 */
+	public void invalidate(Collection<SootMethod> methods) {
+		Deque<SootMethod> worklist = new ArrayDeque<>();
+		for(SootMethod method : methods) {
+			if(invalidated.add(method)) {
+				worklist.add(method);
+			}
+		}
+		while(!worklist.isEmpty()) {
+			for(Unit callSite : icfg.getCallersOf(worklist.poll())) {
+				SootMethod caller = icfg.getMethodOf(callSite);
+				if(keys.containsKey(caller) && invalidated.add(caller)) {
+					worklist.add(caller);
+				}
+			}
+		}
+	}
+
+	// Fact -> joined constraint at the start points of the method
+	private Map<String, IConstraint> entryValues(SootMethod method, Table<Unit, Abstraction, IConstraint> val) {
+		Map<String, IConstraint> values = new HashMap<>();
+		for(Unit sP : icfg.getStartPointsOf(method)) {
+			for(Map.Entry<Abstraction, IConstraint> value : val.row(sP).entrySet()) {
+				String fact = value.getKey().toString();
+				IConstraint joined = values.get(fact);
+				values.put(fact, joined == null ? value.getValue() : joined.or(value.getValue()));
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Takes the entry values of the invalidated methods from the final results, all other methods
+	 * keep the state of the previous run. Written by {@link #commit()}.
+	 */
+	public void update(Table<Unit, Abstraction, IConstraint> val) {
+		next = new HashMap<>();
+		for(Map.Entry<SootMethod, String> method : keys.entrySet()) {
+			String id = methodId(method.getKey());
+			if(!invalidated.contains(method.getKey())) {
+				next.put(id, new MethodState(method.getValue(), previous.get(id).entryValues));
+				continue;
+			}
+			Map<String, String> entryValues = new HashMap<>();
+			for(Map.Entry<String, IConstraint> value : entryValues(method.getKey(), val).entrySet()) {
+				// Facts which cannot be stored let the method grow in the next run
+				String constraint = LibrarySummaryStore.encodeConstraint(value.getValue());
+				if(constraint != null) {
+					entryValues.put(value.getKey(), constraint);
+				}
+			}
+			next.put(id, new MethodState(method.getValue(), entryValues));
+		}
+	}
+
+	/**
+	 * Writes the state passed to {@link #update(Table)}. Call once the results are saved,
+	 * otherwise the next run would skip methods whose results are missing.
+	 */
+	public void commit() throws IOException {
+		if(next == null) {
+			throw new IllegalStateException("No results to commit");
+		}
+		File temp = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+			for(Map.Entry<String, MethodState> method : next.entrySet()) {
+				writeString(out, method.getKey());
+				writeString(out, method.getValue().key);
+				out.writeInt(method.getValue().entryValues.size());
+				for(Map.Entry<String, String> value : method.getValue().entryValues.entrySet()) {
+					writeString(out, value.getKey());
+					writeString(out, value.getValue());
+				}
+			}
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		logger.info("Saved the state of {} methods to {}", next.size(), file);
+	}
+
+	private Map<String, MethodState> load() throws IOException {
+		if(!file.exists()) {
+			return null;
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+		Map<String, MethodState> states = new HashMap<>();
+		try {
+			while(buffer.hasRemaining()) {
+				String id = LibrarySummaryStore.readString(buffer);
+				String key = LibrarySummaryStore.readString(buffer);
+				int count = buffer.getInt();
+				Map<String, String> entryValues = new HashMap<>();
+				for(int i = 0; i < count; i++) {
+					entryValues.put(LibrarySummaryStore.readString(buffer), LibrarySummaryStore.readString(buffer));
+				}
+				states.put(id, new MethodState(key, entryValues));
+			}
+		} catch(BufferUnderflowException | IllegalArgumentException e) {
+			// The file is replaced atomically, so this is not an interrupted write
+			logger.warn("Ignoring corrupt analysis state {}, analyzing all methods", file);
+			return null;
+		}
+		logger.info("Loaded the state of {} methods from {}", states.size(), file);
+		return states;
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+}
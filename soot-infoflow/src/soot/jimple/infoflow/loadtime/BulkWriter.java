@@ -0,0 +1,205 @@
+package soot.jimple.infoflow.loadtime;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+
+/**
+ * Writes rows into a collection with unordered bulk operations of a fixed size. The batches of all
+ * writers are executed on one background thread, so rows are built while the previous batch is
+ * written. At most {@link #MAX_PENDING_BATCHES} batches per writer are queued, adding rows blocks
+ * once they are exceeded. Thread safe.
+ */
+public class BulkWriter implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(BulkWriter.class);
+
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	public static final int MAX_PENDING_BATCHES = 4;
+
+	private static final ExecutorService writerThread = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "MongoDB bulk writer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	// Rows and nanoseconds spent writing, of all writers
+	private static final AtomicLong totalRows = new AtomicLong();
+	private static final AtomicLong totalNanos = new AtomicLong();
+
+	private final DBCollection collection;
+	private final int batchSize;
+	private final Semaphore pendingBatches = new Semaphore(MAX_PENDING_BATCHES);
+	private final AtomicLong rows = new AtomicLong();
+	private final AtomicLong nanos = new AtomicLong();
+	// First failed batch, reported by flush()
+	private volatile RuntimeException failure = null;
+
+	private List<Consumer<BulkWriteOperation>> batch;
+
+	public BulkWriter(DBCollection collection) {
+		this(collection, DEFAULT_BATCH_SIZE);
+	}
+
+	public BulkWriter(DBCollection collection, int batchSize) {
+		this.collection = collection;
+		this.batchSize = batchSize;
+		this.batch = new ArrayList<>(batchSize);
+	}
+
+	public void insert(DBObject row) {
+		add(operation -> operation.insert(row));
+	}
+
+	public void insertAll(Collection<? extends DBObject> rows) {
+		for(DBObject row : rows) {
+			insert(row);
+		}
+	}
+
+	/**
+	 * Replaces the first document matching the query, inserts the document if there is none.
+	 */
+	public void upsert(DBObject query, DBObject document) {
+		add(operation -> operation.find(query).upsert().replaceOne(document));
+	}
+
+	private synchronized void add(Consumer<BulkWriteOperation> request) {
+		batch.add(request);
+		if(batch.size() >= batchSize) {
+			submit();
+		}
+	}
+
+	private synchronized void submit() {
+		if(batch.isEmpty()) {
+			return;
+		}
+		List<Consumer<BulkWriteOperation>> requests = batch;
+		batch = new ArrayList<>(batchSize);
+		try {
+			pendingBatches.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for pending batches", e);
+		}
+		writerThread.execute(() -> {
+			try {
+				execute(requests);
+			} catch (RuntimeException e) {
+				if(failure == null) {
+					failure = e;
+				}
+			} finally {
+				pendingBatches.release();
+			}
+		});
+	}
+
+	private void execute(List<Consumer<BulkWriteOperation>> requests) {
+		long start = System.nanoTime();
+		BulkWriteOperation operation = collection.initializeUnorderedBulkOperation();
+		for(Consumer<BulkWriteOperation> request : requests) {
+			request.accept(operation);
+		}
+		operation.execute();
+		long duration = System.nanoTime() - start;
+		rows.addAndGet(requests.size());
+		nanos.addAndGet(duration);
+		totalRows.addAndGet(requests.size());
+		totalNanos.addAndGet(duration);
+	}
+
+	/**
+	 * Writes all rows added so far and waits until they are written.
+	 * @throws com.mongodb.MongoException If a batch could not be written
+	 */
+	public void flush() {
+		submit();
+		// All permits are available once no batch is pending
+		try {
+			pendingBatches.acquire(MAX_PENDING_BATCHES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while writing to " + collection.getName(), e);
+		}
+		pendingBatches.release(MAX_PENDING_BATCHES);
+		RuntimeException e = failure;
+		if(e != null) {
+			failure = null;
+			throw e;
+		}
+	}
+
+	/**
+	 * Flushes the writer and logs its throughput.
+	 */
+	@Override
+	public void close() {
+		flush();
+		if(rows.get() > 0) {
+			logger.info("Wrote {} rows to {} in {} ms, {} rows/s", rows.get(), collection.getName(), nanos.get() / 1000000,
+					getThroughput());
+		}
+	}
+
+	public long getWrittenCount() {
+		return rows.get();
+	}
+
+	/**
+	 * Rows per second of the time spent in bulk operations of this writer.
+	 */
+	public long getThroughput() {
+		return throughput(rows.get(), nanos.get());
+	}
+
+	/**
+	 * Rows written by all writers.
+	 */
+	public static long getTotalWrittenCount() {
+		return totalRows.get();
+	}
+
+	/**
+	 * Rows per second of the time spent in bulk operations of all writers.
+	 */
+	public static long getTotalThroughput() {
+		return throughput(totalRows.get(), totalNanos.get());
+	}
+
+	private static long throughput(long rows, long nanos) {
+		return nanos == 0 ? 0 : (long) (rows * 1e9 / nanos);
+	}
+
+	/**
+	 * Writes the rows with one unordered bulk operation on the calling thread, e.g. for callers
+	 * which already batch on a background thread.
+	 */
+	public static void insertNow(DBCollection collection, List<? extends DBObject> rows) {
+		if(rows.isEmpty()) {
+			// An empty bulk operation is rejected
+			return;
+		}
+		long start = System.nanoTime();
+		BulkWriteOperation operation = collection.initializeUnorderedBulkOperation();
+		for(DBObject row : rows) {
+			operation.insert(row);
+		}
+		operation.execute();
+		totalRows.addAndGet(rows.size());
+		totalNanos.addAndGet(System.nanoTime() - start);
+	}
+}
@@ -0,0 +1,482 @@
+package soot.jimple.infoflow.loadtime;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Result store in a local directory, e.g. for tests without a MongoDB server. Each collection is
+ * an append-only segment file of length-prefixed rows with an index of the row offsets per class,
+ * so the rows of a class are read without scanning the segment. Removing rows rewrites the segment.
+ *
+ * The index is written when the store is flushed, together with the segment length it covers. An
+ * index which does not match its segment, e.g. after a crash, is rebuilt by scanning the segment.
+ */
+public class FileResultStore implements ResultStore {
+
+	private final File directory;
+	private final Map<String, Segment> results = new ConcurrentHashMap<String, Segment>();
+	private final Segment jimpleFiles;
+	private final Segment progress;
+	private final Segment detailedLog;
+
+	public FileResultStore(File directory) throws IOException {
+		this.directory = directory;
+		Files.createDirectories(new File(directory, "results").toPath());
+		jimpleFiles = new Segment(new File(directory, "JimpleFiles.seg"), row -> (String) row.get("Name"));
+		progress = new Segment(new File(directory, "progress.seg"), row -> (String) row.get("collectionName"));
+		detailedLog = new Segment(new File(directory, "detailedLog.seg"), row -> detailedLogKey(row.get("app"), row.get("className")));
+	}
+
+	private Segment results(String collectionName) {
+		return results.computeIfAbsent(collectionName, name -> {
+			try {
+				return new Segment(new File(directory, "results/" + name.replaceAll("[^\\w.-]", "_") + ".seg"),
+						row -> (String) row.get("Class"));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	private static String detailedLogKey(Object app, Object className) {
+		return app + "/" + className;
+	}
+
+	@Override
+	public void clearResults(String collectionName) {
+		results(collectionName).clear();
+	}
+
+	@Override
+	public void removeResults(String collectionName, Collection<String> methodIds) {
+		Set<String> ids = new HashSet<String>(methodIds);
+		results(collectionName).removeIf(row -> ids.contains(row.get("methodBytecodeSignatureJoanaStyle")));
+	}
+
+	@Override
+	public void addResult(String collectionName, Map<String, Object> row) {
+		results(collectionName).append(row);
+	}
+
+	@Override
+	public List<Map<String, Object>> getResults(String collectionName, String className) {
+		return results(collectionName).find(className);
+	}
+
+	@Override
+	public void saveJimpleFiles(Map<String, StringBuilder> classes, String appPath) {
+		if(jimpleFiles.containsAny(classes.keySet())) {
+			jimpleFiles.removeIf(row -> classes.containsKey(row.get("Name")));
+		}
+		for(Entry<String, StringBuilder> jimpleFile : classes.entrySet()) {
+			Map<String, Object> row = new LinkedHashMap<String, Object>();
+			row.put("Name", jimpleFile.getKey());
+			row.put("Content", jimpleFile.getValue().toString());
+			row.put("appPath", appPath);
+			jimpleFiles.append(row);
+		}
+		jimpleFiles.flush();
+	}
+
+	@Override
+	public String getJimpleSource(String className) {
+		List<Map<String, Object>> rows = jimpleFiles.find(className);
+		return rows.isEmpty() ? null : (String) rows.get(rows.size() - 1).get("Content");
+	}
+
+	@Override
+	public void logProgress(String collectionName, String action) {
+		Map<String, Object> row = new LinkedHashMap<String, Object>();
+		row.put("collectionName", collectionName);
+		row.put("action", action);
+		row.put("time", new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()));
+		progress.append(row);
+		progress.flush();
+	}
+
+	@Override
+	public void clearDetailedLog(String app) {
+		detailedLog.removeIf(row -> app.equals(row.get("app")));
+	}
+
+	@Override
+	public void addDetailedLog(Map<String, Object> row) {
+		detailedLog.append(row);
+	}
+
+	@Override
+	public List<Map<String, Object>> getDetailedLog(String app, String className) {
+		return detailedLog.find(detailedLogKey(app, className));
+	}
+
+	@Override
+	public void flush() {
+		for(Segment segment : results.values()) {
+			segment.flush();
+		}
+		jimpleFiles.flush();
+		progress.flush();
+		detailedLog.flush();
+	}
+
+	@Override
+	public void close() {
+		for(Segment segment : results.values()) {
+			segment.close();
+		}
+		results.clear();
+		jimpleFiles.close();
+		progress.close();
+		detailedLog.close();
+	}
+
+	/**
+	 * Append-only file of rows, indexed by a key of the rows.
+	 */
+	private static class Segment {
+
+		private final File file;
+		private final File indexFile;
+		private final Function<Map<String, Object>, String> keyOf;
+		private final Map<String, List<Long>> index = new HashMap<String, List<Long>>();
+		private DataOutputStream out;
+		private long length;
+		private boolean indexChanged = false;
+
+		Segment(File file, Function<Map<String, Object>, String> keyOf) throws IOException {
+			this.file = file;
+			this.indexFile = new File(file.getPath() + ".idx");
+			this.keyOf = keyOf;
+			file.createNewFile();
+			if(!readIndex()) {
+				rebuildIndex();
+			}
+			open();
+		}
+
+		private void open() throws IOException {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+		}
+
+		private boolean readIndex() {
+			if(!indexFile.exists()) {
+				return false;
+			}
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+				length = in.readLong();
+				if(length != file.length()) {
+					return false;
+				}
+				int keys = in.readInt();
+				for(int i = 0; i < keys; i++) {
+					String key = in.readUTF();
+					int count = in.readInt();
+					List<Long> offsets = new ArrayList<Long>(count);
+					for(int j = 0; j < count; j++) {
+						offsets.add(in.readLong());
+					}
+					index.put(key, offsets);
+				}
+				return true;
+			} catch (IOException e) {
+				index.clear();
+				return false;
+			}
+		}
+
+		private void rebuildIndex() throws IOException {
+			index.clear();
+			long fileLength = file.length();
+			long offset = 0;
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+				while(offset + 4 <= fileLength) {
+					int size = in.readInt();
+					if(offset + 4 + size > fileLength) {
+						break;
+					}
+					byte[] record = new byte[size];
+					in.readFully(record);
+					addToIndex(keyOf.apply(decode(record)), offset);
+					offset += 4 + size;
+				}
+			}
+			if(offset < fileLength) {
+				// Partially written row of an interrupted run
+				try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+					raf.setLength(offset);
+				}
+			}
+			length = offset;
+			indexChanged = true;
+		}
+
+		private void addToIndex(String key, long offset) {
+			index.computeIfAbsent(key == null ? "" : key, k -> new ArrayList<Long>()).add(offset);
+		}
+
+		synchronized void append(Map<String, Object> row) {
+			try {
+				byte[] record = encode(row);
+				out.writeInt(record.length);
+				out.write(record);
+				addToIndex(keyOf.apply(row), length);
+				length += 4 + record.length;
+				indexChanged = true;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		synchronized boolean containsAny(Collection<String> keys) {
+			for(String key : keys) {
+				if(index.containsKey(key)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		synchronized List<Map<String, Object>> find(String key) {
+			List<Long> offsets = index.get(key);
+			if(offsets == null) {
+				return Collections.emptyList();
+			}
+			List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>(offsets.size());
+			try {
+				out.flush();
+				try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+					for(long offset : offsets) {
+						raf.seek(offset);
+						byte[] record = new byte[raf.readInt()];
+						raf.readFully(record);
+						rows.add(decode(record));
+					}
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return rows;
+		}
+
+		/**
+		 * Rewrites the segment without the matching rows.
+		 */
+		synchronized void removeIf(Predicate<Map<String, Object>> filter) {
+			File rewritten = new File(file.getPath() + ".tmp");
+			try {
+				out.close();
+				index.clear();
+				long offset = 0;
+				long newLength = 0;
+				try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+						DataOutputStream copy = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(rewritten)))) {
+					while(offset < length) {
+						int size = in.readInt();
+						byte[] record = new byte[size];
+						in.readFully(record);
+						offset += 4 + size;
+						Map<String, Object> row = decode(record);
+						if(!filter.test(row)) {
+							copy.writeInt(size);
+							copy.write(record);
+							addToIndex(keyOf.apply(row), newLength);
+							newLength += 4 + size;
+						}
+					}
+				}
+				Files.move(rewritten.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				length = newLength;
+				indexChanged = true;
+				writeIndex();
+				open();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		synchronized void clear() {
+			try {
+				out.close();
+				new FileOutputStream(file).close();
+				index.clear();
+				length = 0;
+				indexChanged = true;
+				writeIndex();
+				open();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		synchronized void flush() {
+			try {
+				out.flush();
+				if(indexChanged) {
+					writeIndex();
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private void writeIndex() throws IOException {
+			File tmp = new File(indexFile.getPath() + ".tmp");
+			try (DataOutputStream indexOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+				indexOut.writeLong(length);
+				indexOut.writeInt(index.size());
+				for(Entry<String, List<Long>> entry : index.entrySet()) {
+					indexOut.writeUTF(entry.getKey());
+					indexOut.writeInt(entry.getValue().size());
+					for(long offset : entry.getValue()) {
+						indexOut.writeLong(offset);
+					}
+				}
+			}
+			Files.move(tmp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			indexChanged = false;
+		}
+
+		synchronized void close() {
+			flush();
+			try {
+				out.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	private static final byte NULL = 0, STRING = 1, INTEGER = 2, LONG = 3, BOOLEAN = 4, DOUBLE = 5, LIST = 6, MAP = 7;
+
+	static byte[] encode(Map<String, Object> row) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		writeMap(out, row);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	static Map<String, Object> decode(byte[] record) throws IOException {
+		return readMap(new DataInputStream(new ByteArrayInputStream(record)));
+	}
+
+	private static void writeMap(DataOutputStream out, Map<?, ?> map) throws IOException {
+		out.writeInt(map.size());
+		for(Entry<?, ?> entry : map.entrySet()) {
+			writeString(out, String.valueOf(entry.getKey()));
+			writeValue(out, entry.getValue());
+		}
+	}
+
+	private static Map<String, Object> readMap(DataInputStream in) throws IOException {
+		int size = in.readInt();
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		for(int i = 0; i < size; i++) {
+			map.put(readString(in), readValue(in));
+		}
+		return map;
+	}
+
+	/**
+	 * Values of other types, e.g. ObjectIds, are stored as strings.
+	 */
+	private static void writeValue(DataOutputStream out, Object value) throws IOException {
+		if(value == null) {
+			out.writeByte(NULL);
+		} else if(value instanceof Integer) {
+			out.writeByte(INTEGER);
+			out.writeInt((Integer) value);
+		} else if(value instanceof Long) {
+			out.writeByte(LONG);
+			out.writeLong((Long) value);
+		} else if(value instanceof Boolean) {
+			out.writeByte(BOOLEAN);
+			out.writeBoolean((Boolean) value);
+		} else if(value instanceof Double) {
+			out.writeByte(DOUBLE);
+			out.writeDouble((Double) value);
+		} else if(value instanceof Collection) {
+			out.writeByte(LIST);
+			out.writeInt(((Collection<?>) value).size());
+			for(Object element : (Collection<?>) value) {
+				writeValue(out, element);
+			}
+		} else if(value instanceof Map) {
+			out.writeByte(MAP);
+			writeMap(out, (Map<?, ?>) value);
+		} else {
+			out.writeByte(STRING);
+			writeString(out, value.toString());
+		}
+	}
+
+	private static Object readValue(DataInputStream in) throws IOException {
+		byte type = in.readByte();
+		switch(type) {
+		case NULL:
+			return null;
+		case STRING:
+			return readString(in);
+		case INTEGER:
+			return in.readInt();
+		case LONG:
+			return in.readLong();
+		case BOOLEAN:
+			return in.readBoolean();
+		case DOUBLE:
+			return in.readDouble();
+		case LIST:
+			int size = in.readInt();
+			List<Object> list = new ArrayList<Object>(size);
+			for(int i = 0; i < size; i++) {
+				list.add(readValue(in));
+			}
+			return list;
+		case MAP:
+			return readMap(in);
+		default:
+			throw new IOException("Unknown value type " + type);
+		}
+	}
+
+	// Jimple sources exceed the 64k limit of writeUTF
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
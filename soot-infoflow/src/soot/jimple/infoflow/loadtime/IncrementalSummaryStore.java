@@ -0,0 +1,48 @@
+package soot.jimple.infoflow.loadtime;
+
+import heros.EdgeFunction;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.google.common.collect.Table;
+
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
+import soot.spl.ifds.IConstraint;
+
+/**
+ * Summary store of the incremental mode: summaries of all methods are persisted, keyed by the
+ * transitive key of the {@link AnalysisSnapshot}. Invalidated methods are always analyzed, so
+ * their statements are part of the results.
+ */
+public class IncrementalSummaryStore extends LibrarySummaryStore {
+
+	private final AnalysisSnapshot snapshot;
+
+	public IncrementalSummaryStore(File file, BiDiInterproceduralCFG<Unit, SootMethod> icfg, Abstraction zeroValue,
+			String configurationKey, AnalysisSnapshot snapshot) throws IOException {
+		super(file, icfg, zeroValue, configurationKey);
+		this.snapshot = snapshot;
+	}
+
+	@Override
+	public boolean isSummarized(SootMethod method) {
+		return method.hasActiveBody();
+	}
+
+	@Override
+	public Table<Unit, Abstraction, EdgeFunction<IConstraint>> load(SootMethod method, Unit sP, Abstraction d3) {
+		if(snapshot.isInvalidated(method)) {
+			return null;
+		}
+		return super.load(method, sP, d3);
+	}
+
+	@Override
+	protected String methodKey(SootMethod method) {
+		return snapshot.getKey(method);
+	}
+}
@@ -0,0 +1,168 @@
+package soot.jimple.infoflow.loadtime;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import com.google.common.base.Splitter;
+
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.infoflow.LoadTimeInfoflow;
+import soot.tagkit.JimpleLineNumberTag;
+import soot.tagkit.Tag;
+
+/**
+ * Jimple and Java lines of the statements per class, built once while the Jimple sources are
+ * printed, see {@link LoadTimeInfoflow#getJimpleLineIndex()}. Classes which were printed in an
+ * earlier run are indexed from their saved Jimple source when they are first looked up.
+ *
+ * Statements without a {@link JimpleLineNumberTag} are on the first line of their class which
+ * consists of the statement.
+ */
+public class JimpleLineIndex {
+
+	private static class UnitLines {
+		private final int jimpleLine;
+		private final int javaLine;
+		private final Collection<Integer> bytecodeIndexes;
+
+		private UnitLines(int jimpleLine, int javaLine, Collection<Integer> bytecodeIndexes) {
+			this.jimpleLine = jimpleLine;
+			this.javaLine = javaLine;
+			this.bytecodeIndexes = bytecodeIndexes;
+		}
+	}
+
+	private static class ClassLines {
+		// First line of each statement text in the Jimple source
+		private final Map<String, Integer> statementLines = new HashMap<String, Integer>();
+		private final Map<Integer, Integer> javaLines = new HashMap<Integer, Integer>();
+		private final Map<Unit, UnitLines> units = new HashMap<Unit, UnitLines>();
+		private int lineCount = 0;
+
+		/**
+		 * Adds the lines of Jimple text which is appended to the source of the class.
+		 */
+		private void addText(String text) {
+			int line = lineCount + 1;
+			for(String statement : Splitter.on("\n").split(text)) {
+				statementLines.putIfAbsent(normalize(statement), line);
+				line++;
+			}
+			lineCount = line - 2;
+		}
+	}
+
+	private final Map<String, ClassLines> classes = new ConcurrentHashMap<String, ClassLines>();
+
+	/**
+	 * Adds the printed body of the method, which is appended to the Jimple source of its class.
+	 * Must be called after the body was printed, which tags its statements.
+	 */
+	public void addBody(SootMethod method, String printedBody) {
+		addBody(method, printedBody, null);
+	}
+
+	/**
+	 * Adds a body printed without tags, see {@link soot.Printer#printTo(soot.Body, java.io.PrintWriter, Map)}.
+	 * @param unitLines Jimple lines of the statements, null if they were tagged
+	 */
+	public void addBody(SootMethod method, String printedBody, Map<Unit, Integer> unitLines) {
+		ClassLines lines = classes.computeIfAbsent(method.getDeclaringClass().getName(), name -> new ClassLines());
+		lines.addText(printedBody);
+		for(Unit unit : method.getActiveBody().getUnits()) {
+			Integer printedLine = unitLines == null ? null : unitLines.get(unit);
+			int jimpleLine = printedLine != null ? printedLine : taggedLine(unit);
+			if(jimpleLine == -1) {
+				Integer line = lines.statementLines.get(normalize(unit.toString()));
+				jimpleLine = line == null ? -1 : line;
+			}
+			int javaLine = unit.getJavaSourceStartLineNumber();
+			lines.units.put(unit, new UnitLines(jimpleLine, javaLine, TestHelper.getBytecodeIndex(unit)));
+			if(jimpleLine != -1) {
+				lines.javaLines.putIfAbsent(jimpleLine, javaLine);
+			}
+		}
+	}
+
+	/**
+	 * Indexes the class from its saved Jimple source on the first lookup.
+	 * @param sources Jimple source of a class name, null if it was not saved
+	 */
+	private ClassLines lines(String className, Function<String, String> sources) {
+		return classes.computeIfAbsent(className, name -> {
+			ClassLines lines = new ClassLines();
+			String source = sources.apply(name);
+			if(source != null) {
+				lines.addText(source);
+			}
+			return lines;
+		});
+	}
+
+	/**
+	 * Jimple line of the statement, -1 if it is unknown.
+	 */
+	public int getJimpleLine(Unit unit, String className, Function<String, String> sources) {
+		ClassLines lines = lines(className, sources);
+		UnitLines unitLines = lines.units.get(unit);
+		if(unitLines != null) {
+			return unitLines.jimpleLine;
+		}
+		int jimpleLine = taggedLine(unit);
+		if(jimpleLine == -1) {
+			Integer line = lines.statementLines.get(normalize(unit.toString()));
+			jimpleLine = line == null ? -1 : line;
+		}
+		return jimpleLine;
+	}
+
+	/**
+	 * Java line of the statement at the given Jimple line, -1 if it is unknown.
+	 */
+	public int getJavaLine(String className, int jimpleLine) {
+		ClassLines lines = classes.get(className);
+		Integer javaLine = lines == null ? null : lines.javaLines.get(jimpleLine);
+		return javaLine == null ? -1 : javaLine;
+	}
+
+	public int getJavaLine(Unit unit, String className) {
+		ClassLines lines = classes.get(className);
+		UnitLines unitLines = lines == null ? null : lines.units.get(unit);
+		return unitLines == null ? unit.getJavaSourceStartLineNumber() : unitLines.javaLine;
+	}
+
+	/**
+	 * See {@link TestHelper#getBytecodeIndex(Unit)}.
+	 */
+	public Collection<Integer> getBytecodeIndexes(Unit unit, String className) {
+		ClassLines lines = classes.get(className);
+		UnitLines unitLines = lines == null ? null : lines.units.get(unit);
+		return unitLines == null ? TestHelper.getBytecodeIndex(unit) : unitLines.bytecodeIndexes;
+	}
+
+	/**
+	 * Last positive line of the JimpleLineNumberTags added by printing the statement, -1 if there is none.
+	 */
+	static int taggedLine(Unit unit) {
+		int lineNumber = -1;
+		for(Tag tag : unit.getTags()) {
+			if(tag instanceof JimpleLineNumberTag) {
+				int line = ((JimpleLineNumberTag) tag).getLineNumber();
+				if(line > 0) {
+					lineNumber = line;
+				}
+			}
+		}
+		return lineNumber;
+	}
+
+	// Statements are printed indented and terminated by a semicolon
+	private static String normalize(String statement) {
+		String s = statement.trim();
+		return s.endsWith(";") ? s.substring(0, s.length() - 1) : s;
+	}
+}
@@ -0,0 +1,481 @@
+package soot.jimple.infoflow.loadtime;
+
+import heros.EdgeFunction;
+import heros.edgefunc.EdgeIdentity;
+import heros.solver.SummaryStore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.Body;
+import soot.Local;
+import soot.Scene;
+import soot.SootField;
+import soot.SootMethod;
+import soot.Type;
+import soot.Unit;
+import soot.Value;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
+import soot.spl.ifds.Constraint;
+import soot.spl.ifds.IConstraint;
+import soot.spl.ifds.SPLFeatureFunction;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
+import com.google.common.collect.Table.Cell;
+
+/**
+ * Persists the end summaries of library methods (see {@link LoadTimeHelperImpl#isLibraryMethod(SootMethod)})
+ * across analysis runs. Summaries are keyed by the transitive key of the method (see
+ * {@link TransitiveMethodKeys}), which also covers application callbacks reached from library code,
+ * by a key of the feature configuration and by the access path of the fact at the start point.
+ * The facts at the exit statements are stored relative to that fact: only summaries whose exit
+ * facts are derived from the start fact, i.e. have the same source context, are persisted.
+ *
+ * Constraints refer to features by their index, summaries of another feature configuration are
+ * not loaded.
+ *
+ * Record layout: method key, start fact, number of exits as int, followed by statement index
+ * as int, exit fact and function for each exit. Strings are stored as length and UTF-8 bytes.
+ *
+ * The file may be shared by concurrent processes, e.g. the workers of a batch run. Each record is
+ * appended at the current end of the file while holding an exclusive lock on it.
+ */
+public class LibrarySummaryStore implements SummaryStore<Unit, Abstraction, SootMethod, IConstraint>, AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(LibrarySummaryStore.class);
+
+	private static final String ZERO = "0";
+	private static final String EMPTY = "E";
+
+	private final File file;
+	private final Abstraction zeroValue;
+	private final String configurationKey;
+	private final Supplier<TransitiveMethodKeys> methodKeys;
+
+	// Method key -> start fact -> exits
+	private final Map<String, Map<String, List<Exit>>> summaries = new ConcurrentHashMap<>();
+	private final Map<SootMethod, MethodInfo> methods = new ConcurrentHashMap<>();
+	private final FileChannel channel;
+
+	private final AtomicInteger loaded = new AtomicInteger();
+	private int stored = 0;
+	private int skipped = 0;
+
+	private static class Exit {
+		private final int unit;
+		private final String fact;
+		private final String function;
+
+		private Exit(int unit, String fact, String function) {
+			this.unit = unit;
+			this.fact = fact;
+			this.function = function;
+		}
+	}
+
+	private static class MethodInfo {
+		private final String key;
+		private final List<Unit> units;
+		private final Map<Unit, Integer> indices = new HashMap<>();
+		private final Map<String, Local> locals = new HashMap<>();
+
+		private MethodInfo(String key, Body body) {
+			this.key = key;
+			this.units = new ArrayList<>(body.getUnits());
+			for(int i = 0; i < units.size(); i++) {
+				indices.put(units.get(i), i);
+			}
+			for(Local local : body.getLocals()) {
+				locals.put(local.getName(), local);
+			}
+		}
+	}
+
+	/**
+	 * @param configurationKey Identifies the feature configuration, see {@link LoadTimeSourceSinkManager#getConfigurationKey()}
+	 */
+	public LibrarySummaryStore(File file, BiDiInterproceduralCFG<Unit, SootMethod> icfg, Abstraction zeroValue,
+			String configurationKey) throws IOException {
+		this.file = file;
+		this.zeroValue = zeroValue;
+		this.configurationKey = configurationKey;
+		this.methodKeys = Suppliers.memoize(() -> new TransitiveMethodKeys(icfg));
+		if(file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		@SuppressWarnings("resource")
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		channel = raf.getChannel();
+		try (FileLock lock = channel.lock()) {
+			load();
+		}
+	}
+
+	// Must hold the lock, otherwise the record another process is appending looks incomplete
+	private void load() throws IOException {
+		if(channel.size() > Integer.MAX_VALUE) {
+			throw new IOException(file + " is too large");
+		}
+		ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+		while(buffer.hasRemaining()) {
+			if(channel.read(buffer, buffer.position()) < 0) {
+				break;
+			}
+		}
+		buffer.flip();
+		int valid = 0;
+		int count = 0;
+		try {
+			while(buffer.hasRemaining()) {
+				String key = readString(buffer);
+				String entry = readString(buffer);
+				int exitCount = buffer.getInt();
+				List<Exit> exits = new ArrayList<>(exitCount);
+				for(int i = 0; i < exitCount; i++) {
+					exits.add(new Exit(buffer.getInt(), readString(buffer), readString(buffer)));
+				}
+				summaries.computeIfAbsent(key, k -> new ConcurrentHashMap<>()).put(entry, exits);
+				valid = buffer.position();
+				count++;
+			}
+		} catch(BufferUnderflowException | IllegalArgumentException e) {
+			// incomplete last record
+		}
+		if(valid < buffer.limit()) {
+			logger.warn("Dropping incomplete summary at the end of {}", file);
+			channel.truncate(valid);
+		}
+		logger.info("Loaded {} library summaries from {}", count, file);
+	}
+
+	static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if(length < 0 || length > buffer.remaining()) {
+			throw new IllegalArgumentException("Invalid string length " + length);
+		}
+		String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+		buffer.position(buffer.position() + length);
+		return value;
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	// Appends the record after those written by other processes
+	private void append(byte[] record) throws IOException {
+		try (FileLock lock = channel.lock()) {
+			ByteBuffer buffer = ByteBuffer.wrap(record);
+			long end = channel.size();
+			while(buffer.hasRemaining()) {
+				end += channel.write(buffer, end);
+			}
+		}
+	}
+
+	@Override
+	public boolean isSummarized(SootMethod method) {
+		return LoadTimeHelperImpl.isLibraryMethod(method) && method.hasActiveBody();
+	}
+
+	@Override
+	public Table<Unit, Abstraction, EdgeFunction<IConstraint>> load(SootMethod method, Unit sP, Abstraction d3) {
+		MethodInfo info = methodInfo(method);
+		String entry = info.key == null ? null : encodeEntry(d3, info);
+		if(entry == null) {
+			return null;
+		}
+		Map<String, List<Exit>> entries = summaries.get(info.key);
+		List<Exit> exits = entries == null ? null : entries.get(entry);
+		if(exits == null) {
+			return null;
+		}
+		Table<Unit, Abstraction, EdgeFunction<IConstraint>> summary = HashBasedTable.create();
+		for(Exit exit : exits) {
+			if(exit.unit < 0 || exit.unit >= info.units.size()) {
+				return null;
+			}
+			Unit eP = info.units.get(exit.unit);
+			Abstraction d4 = decodeFact(exit.fact, d3, (Stmt) eP, info);
+			EdgeFunction<IConstraint> function = decodeFunction(exit.function);
+			if(d4 == null) {
+				return null;
+			}
+			summary.put(eP, d4, function);
+		}
+		loaded.incrementAndGet();
+		return summary;
+	}
+
+	@Override
+	public synchronized void store(SootMethod method, Unit sP, Abstraction d3,
+			Table<Unit, Abstraction, EdgeFunction<IConstraint>> summary) {
+		MethodInfo info = methodInfo(method);
+		String entry = info.key == null ? null : encodeEntry(d3, info);
+		if(entry == null) {
+			skipped++;
+			return;
+		}
+		Map<String, List<Exit>> entries = summaries.computeIfAbsent(info.key, k -> new ConcurrentHashMap<>());
+		if(entries.containsKey(entry)) {
+			skipped++;
+			return;
+		}
+		List<Exit> exits = new ArrayList<>(summary.size());
+		for(Cell<Unit, Abstraction, EdgeFunction<IConstraint>> cell : summary.cellSet()) {
+			Integer unit = info.indices.get(cell.getRowKey());
+			String fact = unit == null ? null : encodeFact(cell.getColumnKey(), info);
+			String function = encodeFunction(cell.getValue());
+			// The fact must be restored exactly, otherwise it is not derived from d3
+			if(fact == null || function == null
+					|| !cell.getColumnKey().equals(decodeFact(fact, d3, (Stmt) cell.getRowKey(), info))) {
+				skipped++;
+				return;
+			}
+			exits.add(new Exit(unit, fact, function));
+		}
+		try {
+			ByteArrayOutputStream record = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(record);
+			writeString(out, info.key);
+			writeString(out, entry);
+			out.writeInt(exits.size());
+			for(Exit exit : exits) {
+				out.writeInt(exit.unit);
+				writeString(out, exit.fact);
+				writeString(out, exit.function);
+			}
+			append(record.toByteArray());
+		} catch (IOException e) {
+			logger.error("Could not write library summary to " + file, e);
+			return;
+		}
+		entries.put(entry, exits);
+		stored++;
+	}
+
+	// The key is null if the method is not reachable
+	private MethodInfo methodInfo(SootMethod method) {
+		return methods.computeIfAbsent(method, m -> {
+			String key = methodKey(m);
+			return new MethodInfo(key == null ? null : key + "@" + configurationKey, m.getActiveBody());
+		});
+	}
+
+	// Signature and hash of the bodies of the method and all methods it transitively calls, null if not reachable
+	protected String methodKey(SootMethod method) {
+		return methodKeys.get().getKey(method);
+	}
+
+	static MessageDigest sha1() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	static void digestBody(MessageDigest digest, SootMethod method, BiDiInterproceduralCFG<Unit, SootMethod> icfg) {
+		Body body = method.getActiveBody();
+		for(Local local : body.getLocals()) {
+			digest.update((local.getName() + ":" + local.getType() + "\n").getBytes(StandardCharsets.UTF_8));
+		}
+		for(Unit unit : body.getUnits()) {
+			digest.update((unit.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+			if(icfg.isCallStmt(unit)) {
+				TreeSet<String> callees = new TreeSet<>();
+				for(SootMethod callee : icfg.getCalleesOfCallAt(unit)) {
+					callees.add(callee.getSignature());
+				}
+				digest.update(callees.toString().getBytes(StandardCharsets.UTF_8));
+			}
+		}
+	}
+
+	static String hex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder();
+		for(byte b : bytes) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+	// The start fact, null if its summary must not be shared
+	private String encodeEntry(Abstraction d3, MethodInfo info) {
+		if(d3 == zeroValue) {
+			return ZERO;
+		}
+		if(!d3.isAbstractionActive() || d3.getExceptionThrown() || d3.getTopPostdominator() != null) {
+			return null;
+		}
+		String fact = encodeFact(d3, info);
+		return fact == null ? null : fact + "|" + d3.dependsOnCutAP();
+	}
+
+	// Base local, base type, fields, field types, sub fields and implicit flag separated by |
+	private String encodeFact(Abstraction abstraction, MethodInfo info) {
+		if(abstraction == zeroValue) {
+			return ZERO;
+		}
+		AccessPath accessPath = abstraction.getAccessPath();
+		if(accessPath.isEmpty()) {
+			return EMPTY + "|" + abstraction.isImplicit();
+		}
+		Value value = accessPath.getPlainValue();
+		if(value != null && !(value instanceof Local && info.locals.get(((Local) value).getName()) == value)) {
+			return null;
+		}
+		StringBuilder fact = new StringBuilder();
+		fact.append(value == null ? "" : ((Local) value).getName()).append('|');
+		fact.append(accessPath.getBaseType() == null ? "" : accessPath.getBaseType().toString()).append('|');
+		SootField[] fields = accessPath.getFields();
+		Type[] fieldTypes = accessPath.getFieldTypes();
+		for(int i = 0; fields != null && i < fields.length; i++) {
+			fact.append(i > 0 ? ";" : "").append(fields[i].getSignature());
+		}
+		fact.append('|');
+		for(int i = 0; fieldTypes != null && i < fieldTypes.length; i++) {
+			fact.append(i > 0 ? ";" : "").append(fieldTypes[i]);
+		}
+		fact.append('|').append(accessPath.getTaintSubFields());
+		fact.append('|').append(abstraction.isImplicit());
+		return fact.toString();
+	}
+
+	private Abstraction decodeFact(String fact, Abstraction d3, Stmt stmt, MethodInfo info) {
+		if(fact.equals(ZERO)) {
+			return zeroValue;
+		}
+		String[] parts = fact.split("\\|", -1);
+		if(parts[0].equals(EMPTY)) {
+			return d3.deriveNewAbstraction(AccessPath.getEmptyAccessPath(), stmt, Boolean.parseBoolean(parts[1]));
+		}
+		try {
+			Local local = parts[0].isEmpty() ? null : info.locals.get(parts[0]);
+			if(local == null && !parts[0].isEmpty()) {
+				return null;
+			}
+			Type baseType = parts[1].isEmpty() ? null : Scene.v().getType(parts[1]);
+			SootField[] fields = null;
+			if(!parts[2].isEmpty()) {
+				String[] signatures = parts[2].split(";");
+				fields = new SootField[signatures.length];
+				for(int i = 0; i < signatures.length; i++) {
+					fields[i] = Scene.v().grabField(signatures[i]);
+					if(fields[i] == null) {
+						return null;
+					}
+				}
+			}
+			Type[] fieldTypes = null;
+			if(!parts[3].isEmpty()) {
+				String[] types = parts[3].split(";");
+				fieldTypes = new Type[types.length];
+				for(int i = 0; i < types.length; i++) {
+					fieldTypes[i] = Scene.v().getType(types[i]);
+				}
+			}
+			AccessPath accessPath = new AccessPath(local, fields, baseType, fieldTypes,
+					Boolean.parseBoolean(parts[4]), false, false);
+			return d3.deriveNewAbstraction(accessPath, stmt, Boolean.parseBoolean(parts[5]));
+		} catch (RuntimeException e) {
+			// Types or fields of another version
+			return null;
+		}
+	}
+
+	private static String encodeFunction(EdgeFunction<IConstraint> function) {
+		if(function instanceof EdgeIdentity) {
+			return "id";
+		}
+		if(!(function instanceof SPLFeatureFunction)) {
+			return null;
+		}
+		return encodeConstraint(((SPLFeatureFunction) function).getFeatures());
+	}
+
+	private static EdgeFunction<IConstraint> decodeFunction(String function) {
+		if(function.equals("id")) {
+			return EdgeIdentity.v();
+		}
+		return new SPLFeatureFunction(decodeConstraint(function));
+	}
+
+	/**
+	 * Returns true, false or the Z3 formula prefixed with =, null for BDD constraints.
+	 */
+	static String encodeConstraint(IConstraint constraint) {
+		if(constraint == Constraint.trueValue()) {
+			return "true";
+		}
+		if(constraint == Constraint.falseValue()) {
+			return "false";
+		}
+		if(constraint instanceof Constraint) {
+			return "=" + constraint.getZ3Constraint();
+		}
+		// BDD constraints are not stored
+		return null;
+	}
+
+	static IConstraint decodeConstraint(String constraint) {
+		switch(constraint) {
+		case "true": return Constraint.trueValue();
+		case "false": return Constraint.falseValue();
+		default: return new Constraint(constraint.substring(1));
+		}
+	}
+
+	public int getLoadedCount() {
+		return loaded.get();
+	}
+
+	public synchronized int getStoredCount() {
+		return stored;
+	}
+
+	/**
+	 * Number of summaries which could not be represented or were stored before.
+	 */
+	public synchronized int getSkippedCount() {
+		return skipped;
+	}
+
+	@Override
+	public synchronized void close() {
+		try {
+			channel.force(false);
+			channel.close();
+		} catch (IOException e) {
+			logger.error("Could not close " + file, e);
+		}
+	}
+}
@@ -1,7 +1,6 @@
 package soot.jimple.infoflow.loadtime;
 
 import heros.EdgeFunction;
-import heros.solver.JumpFnSingleton;
 import heros.solver.JumpFunctions;
 import heros.solver.Pair;
 import heros.solver.PathEdge;
@@ -93,6 +92,9 @@ public class LoadTimeHelperImpl implements LoadTimeHelper<Abstraction> {
 	// Not working yet, check unit tests first
 	private boolean vetoTaintsBasedOnConstraintOrder = false;
 	
+	// Library code is only analyzed if its summaries are persisted, see LibrarySummaryStore
+	private boolean analyzeLibraries = false;
+	
 	public LoadTimeHelperImpl(Config featureConfig, Aliasing aliasing, BiDiInterproceduralCFG<Unit, SootMethod> icfg)
 	{
 		this.aliasing = aliasing;
@@ -313,11 +315,6 @@ public class LoadTimeHelperImpl implements LoadTimeHelper<Abstraction> {
 			return null;
 		}
 		
-		if(jumpFn == null) {
-			JumpFnSingleton jumpFnSingleton = JumpFnSingleton.getInstance();
-        	jumpFn = jumpFnSingleton.getJumpFn();
-		}
-		
 		if(src instanceof IfStmt) {
 			
 			// if the if statement is empty, i.e. branch and fall-through edges are the same, we will not create a constraint
@@ -1060,11 +1057,6 @@ public class LoadTimeHelperImpl implements LoadTimeHelper<Abstraction> {
 		
 		IfStmt ifStmt = (IfStmt) src;
 		
-		if(jumpFn == null) {
-			JumpFnSingleton jumpFnSingleton = JumpFnSingleton.getInstance();
-        	jumpFn = jumpFnSingleton.getJumpFn();
-		}
-		
 		Map<PathEdge<Unit, Abstraction>, EdgeFunction<IConstraint>> incoming = jumpFn.lookupByTarget(ifStmt);
 		
 		Value condition = ifStmt.getCondition();
@@ -1145,22 +1137,39 @@ public class LoadTimeHelperImpl implements LoadTimeHelper<Abstraction> {
 //		}
 //	}
 
+	/**
+	 * Framework and common library code, which is too costly to analyze for every app.
+	 */
+	public static boolean isLibraryMethod(SootMethod method)
+	{
+		String className = method.getDeclaringClass().getName();
+		return className.startsWith("org.joda.") 
+				|| className.startsWith("android.") 
+				|| className.startsWith("java.")
+				|| className.startsWith("com.google.")
+				|| className.startsWith("org.apache.");
+	}
+	
+	/**
+	 * Analyzes library methods instead of dropping all flows into them. Should only be enabled
+	 * together with a {@link LibrarySummaryStore}.
+	 */
+	public void setAnalyzeLibraries(boolean analyzeLibraries)
+	{
+		this.analyzeLibraries = analyzeLibraries;
+	}
+	
+	@Override
+	public void setJumpFunctions(JumpFunctions<Unit, Abstraction, IConstraint> jumpFn) {
+		this.jumpFn = jumpFn;
+	}
+	
 	@Override
 	public boolean vetoNewFunction(Abstraction sourceVal, Unit target,	Abstraction targetVal, EdgeFunction<IConstraint> f, Abstraction zeroValue) {
 		boolean result = true;
 		
-		if(jumpFn == null) {
-			JumpFnSingleton jumpFnSingleton = JumpFnSingleton.getInstance();
-        	jumpFn = jumpFnSingleton.getJumpFn();
-		}
-		
 		// Exclude list defined in options is no effective. We enforce exclusion here
-		String className = icfg.getMethodOf(target).getDeclaringClass().getName();
-		if(className.startsWith("org.joda.") 
-				|| className.startsWith("android.") 
-				|| className.startsWith("java.")
-				|| className.startsWith("com.google.")
-				|| className.startsWith("org.apache."))
+		if(!analyzeLibraries && isLibraryMethod(icfg.getMethodOf(target)))
 		{
 			result = false;
 		}
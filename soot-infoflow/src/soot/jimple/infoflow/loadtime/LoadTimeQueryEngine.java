@@ -0,0 +1,246 @@
+package soot.jimple.infoflow.loadtime;
+
+import heros.EdgeFunction;
+import heros.solver.Pair;
+import heros.solver.SummaryStore;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Table;
+
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
+import soot.spl.ifds.IConstraint;
+import soot.spl.ifds.SPLIFDSSolver;
+
+/**
+ * Computes the constraints of single statements on demand instead of solving the whole program.
+ * Each query solves the backward slice of the queried statements: the statements on valid paths
+ * from the entry point to them, including the callees invoked on these paths. Callers are only
+ * added for the methods of the queried statements and their transitive callers, not for callees.
+ *
+ * Results are memoized: the constraints of all statements which are exact in a slice, and the
+ * end summaries of methods which were completely analyzed. Later slices apply these summaries
+ * instead of analyzing the callees again.
+ *
+ * The constraints are the same as {@link SPLIFDSSolver#orResult(Unit)} of a whole-program run.
+ */
+public class LoadTimeQueryEngine {
+
+	private static final Logger logger = LoggerFactory.getLogger(LoadTimeQueryEngine.class);
+
+	private final BiDiInterproceduralCFG<Unit, SootMethod> icfg;
+	private final Abstraction zeroValue;
+	private final Supplier<SPLIFDSSolver<Abstraction, AccessPath>> solverFactory;
+
+	private final Map<Unit, IConstraint> constraints = new ConcurrentHashMap<>();
+	private final MemoizedSummaries summaries = new MemoizedSummaries();
+
+	private int solveCount = 0;
+	private int sliceSize = 0;
+
+	/**
+	 * Statements reached in a backward slice. Ascending statements are in the methods of the queried
+	 * statements or their transitive callers, descending ones in callees entered through their exits.
+	 */
+	private static class Slice {
+		private final Set<Unit> ascending = new HashSet<>();
+		private final Set<Unit> descending = new HashSet<>();
+		private final Set<Unit> nodes = new HashSet<>();
+		private final Set<SootMethod> ascendingMethods = new HashSet<>();
+	}
+
+	/**
+	 * @param solverFactory Creates a configured solver, which is not started yet
+	 */
+	public LoadTimeQueryEngine(BiDiInterproceduralCFG<Unit, SootMethod> icfg, Abstraction zeroValue,
+			Supplier<SPLIFDSSolver<Abstraction, AccessPath>> solverFactory) {
+		this.icfg = icfg;
+		this.zeroValue = zeroValue;
+		this.solverFactory = solverFactory;
+	}
+
+	public IConstraint constraintAt(Unit unit) {
+		return constraintsAt(Collections.singleton(unit)).get(unit);
+	}
+
+	/**
+	 * Constraints of all statements of the methods of the given class.
+	 */
+	public Map<Unit, IConstraint> constraintsForClass(SootClass sootClass) {
+		List<Unit> units = new ArrayList<>();
+		for(SootMethod method : sootClass.getMethods()) {
+			if(method.hasActiveBody()) {
+				units.addAll(method.getActiveBody().getUnits());
+			}
+		}
+		return constraintsAt(units);
+	}
+
+	/**
+	 * Constraints of the given statements, all statements which are not memoized yet are solved together.
+	 */
+	public synchronized Map<Unit, IConstraint> constraintsAt(Collection<Unit> units) {
+		List<Unit> missing = new ArrayList<>();
+		for(Unit unit : units) {
+			if(!constraints.containsKey(unit)) {
+				missing.add(unit);
+			}
+		}
+		Map<Unit, IConstraint> solved = missing.isEmpty() ? Collections.<Unit, IConstraint>emptyMap() : solve(missing);
+		Map<Unit, IConstraint> result = new LinkedHashMap<>();
+		for(Unit unit : units) {
+			IConstraint constraint = constraints.get(unit);
+			result.put(unit, constraint == null ? solved.get(unit) : constraint);
+		}
+		return result;
+	}
+
+	private Map<Unit, IConstraint> solve(List<Unit> units) {
+		long start = System.currentTimeMillis();
+		Slice slice = computeSlice(units);
+		SPLIFDSSolver<Abstraction, AccessPath> solver = solverFactory.get();
+		solver.setRelevantNodes(slice.nodes);
+		solver.setResultSink(null);
+		summaries.slice = slice;
+		solver.setSummaryStore(summaries);
+		solver.solve();
+		summaries.slice = null;
+
+		// Statements reached while ascending have all their predecessors in the slice
+		for(Unit unit : slice.ascending) {
+			if(!solver.isApproximated(unit)) {
+				constraints.put(unit, solver.orResult(unit));
+			}
+		}
+		// Approximated results are returned, but not memoized
+		Map<Unit, IConstraint> solved = new HashMap<>();
+		for(Unit unit : units) {
+			solved.put(unit, solver.orResult(unit));
+			if(!constraints.containsKey(unit)) {
+				logger.warn("Result at {} is approximated, the solver budget was exceeded", unit);
+			}
+		}
+		solveCount++;
+		sliceSize += slice.nodes.size();
+		logger.info("Solved {} statements in a slice of {} statements in {} ms, {} summaries reused",
+				units.size(), slice.nodes.size(), System.currentTimeMillis() - start, solver.getLoadedSummaryCount());
+		return solved;
+	}
+
+	private Slice computeSlice(Collection<Unit> units) {
+		Slice slice = new Slice();
+		Deque<Unit> ascending = new ArrayDeque<>();
+		Deque<Unit> descending = new ArrayDeque<>();
+		for(Unit unit : units) {
+			if(slice.ascending.add(unit)) {
+				ascending.add(unit);
+			}
+		}
+		while(!ascending.isEmpty() || !descending.isEmpty()) {
+			boolean ascend = !ascending.isEmpty();
+			Unit unit = ascend ? ascending.poll() : descending.poll();
+			if(ascend) {
+				slice.ascendingMethods.add(icfg.getMethodOf(unit));
+				if(icfg.isStartPoint(unit)) {
+					for(Unit callSite : icfg.getCallersOf(icfg.getMethodOf(unit))) {
+						if(slice.ascending.add(callSite)) {
+							ascending.add(callSite);
+						}
+					}
+				}
+			}
+			for(Unit pred : icfg.getPredsOf(unit)) {
+				if(ascend ? slice.ascending.add(pred) : slice.descending.add(pred)) {
+					(ascend ? ascending : descending).add(pred);
+				}
+				// The unit is a return site, the callees are entered through their exits
+				if(icfg.isCallStmt(pred)) {
+					for(SootMethod callee : icfg.getCalleesOfCallAt(pred)) {
+						for(Unit eP : icfg.getEndPointsOf(callee)) {
+							if(slice.descending.add(eP)) {
+								descending.add(eP);
+							}
+						}
+					}
+				}
+			}
+		}
+		slice.nodes.addAll(slice.ascending);
+		slice.nodes.addAll(slice.descending);
+		return slice;
+	}
+
+	/**
+	 * Number of slices solved so far.
+	 */
+	public int getSolveCount() {
+		return solveCount;
+	}
+
+	/**
+	 * Total number of statements of all solved slices.
+	 */
+	public int getSolvedStatementCount() {
+		return sliceSize;
+	}
+
+	public int getMemoizedConstraintCount() {
+		return constraints.size();
+	}
+
+	public int getMemoizedSummaryCount() {
+		return summaries.summaries.size();
+	}
+
+	/**
+	 * End summaries of the previous slices. A summary is only complete if all exits of its method
+	 * were in the slice. Methods of the current queries and their callers are analyzed as in a
+	 * whole-program run, otherwise their statements would have no values.
+	 */
+	private class MemoizedSummaries implements SummaryStore<Unit, Abstraction, SootMethod, IConstraint> {
+
+		private final Map<Pair<Unit, Abstraction>, Table<Unit, Abstraction, EdgeFunction<IConstraint>>> summaries = new ConcurrentHashMap<>();
+		private volatile Slice slice;
+
+		@Override
+		public boolean isSummarized(SootMethod method) {
+			return method.hasActiveBody() && !slice.ascendingMethods.contains(method);
+		}
+
+		@Override
+		public Table<Unit, Abstraction, EdgeFunction<IConstraint>> load(SootMethod method, Unit sP, Abstraction d3) {
+			return summaries.get(new Pair<Unit, Abstraction>(sP, d3));
+		}
+
+		@Override
+		public void store(SootMethod method, Unit sP, Abstraction d3, Table<Unit, Abstraction, EdgeFunction<IConstraint>> summary) {
+			if(d3 != zeroValue && (!d3.isAbstractionActive() || d3.getTopPostdominator() != null)) {
+				return;
+			}
+			if(!slice.nodes.containsAll(icfg.getEndPointsOf(method))) {
+				return;
+			}
+			summaries.putIfAbsent(new Pair<Unit, Abstraction>(sP, d3), summary);
+		}
+	}
+}
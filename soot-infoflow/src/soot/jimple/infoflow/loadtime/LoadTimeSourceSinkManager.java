@@ -12,7 +12,12 @@ package soot.jimple.infoflow.loadtime;
 
 import heros.InterproceduralCFG;
 import heros.solver.IDESolver;
+import heros.solver.SolverBudget;
+import heros.solver.SolverBudget.DegradationPolicy;
+import heros.solver.SolverBudget.Resource;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -28,6 +33,7 @@ import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigRenderOptions;
 
 import soot.Scene;
 import soot.SootField;
@@ -42,6 +48,8 @@ import soot.jimple.InvokeExpr;
 import soot.jimple.Stmt;
 import soot.jimple.infoflow.source.MethodBasedSourceSinkManager;
 import soot.jimple.infoflow.source.SourceInfo;
+import soot.spl.ifds.Constraint;
+import soot.spl.ifds.SPLIFDSSolver;
 
 /**
  * A {@link ISourceSinkManager} working on lists of source and sink methods
@@ -56,6 +64,20 @@ public class LoadTimeSourceSinkManager extends MethodBasedSourceSinkManager {
 	private Set<Integer> preciseFeatures = new HashSet<Integer>();
 	
 	private Config featureConfig;
+	private String configurationKey;
+	private Constraint.Backend constraintBackend = Constraint.Backend.Z3;
+	private String solverCacheFile = null;
+	private String summaryStoreFile = null;
+	private String incrementalStateDir = null;
+	private boolean structuralSolverCache = false;
+	private int wideningBudget = SPLIFDSSolver.DEFAULT_WIDENING_BUDGET;
+	private int solverThreads = -1;
+	private boolean compactJumpFunctions = false;
+	private boolean releaseSolverState = false;
+	// Replaces the former hard-coded limits of the solver
+	private SolverBudget solverBudget = SolverBudget.unlimited()
+			.limit(Resource.PROPAGATIONS, 150000, DegradationPolicy.ABORT)
+			.limit(Resource.FAN_OUT, 1000, DegradationPolicy.SKIP_TARGET);
 	
 	private LoadingCache<InvokeExpr, String> methodSignatureCache;
 
@@ -66,6 +88,49 @@ public class LoadTimeSourceSinkManager extends MethodBasedSourceSinkManager {
 		List<? extends Config> fieldRefs = conf.getConfigList("fieldRefs");
 		List<? extends Config> methods = conf.getConfigList("methods");
 		featureConfig = conf.getConfig("features");
+		// Features, their indices and the sources of each feature, keys are rendered in sorted order
+		MessageDigest digest = LibrarySummaryStore.sha1();
+		for(String path : new String[] { "features", "fieldRefs", "methods" }) {
+			digest.update(conf.getValue(path).render(ConfigRenderOptions.concise()).getBytes(StandardCharsets.UTF_8));
+		}
+		configurationKey = LibrarySummaryStore.hex(digest.digest());
+		if(conf.hasPath("constraintBackend")) {
+			constraintBackend = Constraint.Backend.valueOf(conf.getString("constraintBackend"));
+		}
+		if(conf.hasPath("solverCacheFile")) {
+			solverCacheFile = conf.getString("solverCacheFile");
+		}
+		if(conf.hasPath("summaryStoreFile")) {
+			summaryStoreFile = conf.getString("summaryStoreFile");
+		}
+		if(conf.hasPath("incrementalStateDir")) {
+			incrementalStateDir = conf.getString("incrementalStateDir");
+		}
+		if(conf.hasPath("structuralSolverCache")) {
+			structuralSolverCache = conf.getBoolean("structuralSolverCache");
+		}
+		if(conf.hasPath("wideningBudget")) {
+			wideningBudget = conf.getInt("wideningBudget");
+		}
+		if(conf.hasPath("solverThreads")) {
+			solverThreads = conf.getInt("solverThreads");
+		}
+		if(conf.hasPath("compactJumpFunctions")) {
+			compactJumpFunctions = conf.getBoolean("compactJumpFunctions");
+		}
+		if(conf.hasPath("releaseSolverState")) {
+			releaseSolverState = conf.getBoolean("releaseSolverState");
+		}
+		if(conf.hasPath("solverBudget")) {
+			solverBudget = SolverBudget.unlimited();
+			Config budget = conf.getConfig("solverBudget");
+			for(Resource resource : Resource.values()) {
+				if(budget.hasPath(resource.name())) {
+					solverBudget.limit(resource, budget.getLong(resource.name() + ".limit"),
+							DegradationPolicy.valueOf(budget.getString(resource.name() + ".policy")));
+				}
+			}
+		}
 		
 		configs = new HashMap<String, LoadTimeConfig>();
 		configPatterns = new HashMap<Pattern, LoadTimeConfig>();
@@ -120,6 +185,57 @@ public class LoadTimeSourceSinkManager extends MethodBasedSourceSinkManager {
 		return featureConfig;
 	}
 	
+	/**
+	 * Hash of the features and their sources. Persisted summaries are only valid for the same key.
+	 */
+	public String getConfigurationKey() {
+		return configurationKey;
+	}
+	
+	public Constraint.Backend getConstraintBackend() {
+		return constraintBackend;
+	}
+	
+	// Null if no persistent solver cache is configured
+	public String getSolverCacheFile() {
+		return solverCacheFile;
+	}
+	
+	public String getSummaryStoreFile() {
+		return summaryStoreFile;
+	}
+	
+	// Null if the app is always analyzed from scratch
+	public String getIncrementalStateDir() {
+		return incrementalStateDir;
+	}
+	
+	public boolean isStructuralSolverCache() {
+		return structuralSolverCache;
+	}
+	
+	// Negative if widening is disabled
+	public int getWideningBudget() {
+		return wideningBudget;
+	}
+	
+	// -1 if not configured
+	public int getSolverThreads() {
+		return solverThreads;
+	}
+	
+	public boolean isCompactJumpFunctions() {
+		return compactJumpFunctions;
+	}
+	
+	public boolean isReleaseSolverState() {
+		return releaseSolverState;
+	}
+	
+	public SolverBudget getSolverBudget() {
+		return solverBudget;
+	}
+	
 
 	
 	@Override
@@ -5,19 +5,16 @@ import heros.EdgeFunction;
 import java.net.UnknownHostException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
@@ -29,18 +26,15 @@ import org.bson.types.ObjectId;
 
 import net.sf.javabdd.BDD;
 
-import com.google.common.collect.Table;
 import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
 import com.mongodb.Block;
-import com.mongodb.BulkWriteOperation;
 import com.mongodb.CommandResult;
 import com.mongodb.DB;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
 import com.mongodb.MongoClient;
-import com.mongodb.WriteConcern;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
@@ -54,12 +48,13 @@ import soot.SootClass;
 import soot.Unit;
 import soot.jimple.infoflow.LoadTimeInfoflow;
 import soot.jimple.infoflow.data.Abstraction;
-import soot.jimple.infoflow.data.AccessPath;
 import soot.spl.ifds.Constraint;
 import soot.spl.ifds.IConstraint;
-import soot.spl.ifds.SPLIFDSSolver;
 
-public class MongoLoader implements AutoCloseable {
+public class MongoLoader implements ResultStore {
+
+	// Shared by all loaders, the client is a thread safe connection pool
+	private static MongoClient sharedClient = null;
 
 	MongoClient mongoClient;
 	DB db;
@@ -70,80 +65,116 @@ public class MongoLoader implements AutoCloseable {
 	FeatureNames featureNames;
 
 	DBCollection jimpleCollection;
+
+	// Writers of addResult(), per collection
+	private final Map<String, BulkWriter> resultWriters = new ConcurrentHashMap<String, BulkWriter>();
 	
-	Pattern imprecise = Pattern.compile("(\\w+)_(\\w+)");
-	Pattern precise = Pattern.compile("(?<![a-zA-Z_])[a-zA-Z]+(?![a-zA-Z_])");
+	static final Pattern imprecise = Pattern.compile("(\\w+)_(\\w+)");
+	static final Pattern precise = Pattern.compile("(?<![a-zA-Z_])[a-zA-Z]+(?![a-zA-Z_])");
 
 	public MongoLoader() {
 		
-		mongoClient = new MongoClient();
+		mongoClient = sharedClient();
 		db = mongoClient.getDB("loadtime");
 		jimpleCollection = db.getCollection("JimpleFiles");
 		
 	}
 
+	private static synchronized MongoClient sharedClient() {
+		if(sharedClient == null) {
+			sharedClient = new MongoClient();
+			Runtime.getRuntime().addShutdownHook(new Thread(MongoLoader::closeSharedClient));
+		}
+		return sharedClient;
+	}
+
+	/**
+	 * Closes the connections of all loaders, a new client is created by the next loader.
+	 * Called on shutdown.
+	 */
+	public static synchronized void closeSharedClient() {
+		if(sharedClient != null) {
+			sharedClient.close();
+			sharedClient = null;
+		}
+	}
+
+	@Override
 	public void saveResults(LoadTimeInfoflow infoflow, String collectionName,
 			String basePath) {
 		featureNames = new FeatureNames(collectionName);
+		ResultStores.saveResults(this, infoflow, collectionName, basePath, featureNames, prettyConstraints);
+	}
 
-		DBCollection collection = db.getCollection(collectionName);
-		DBCollection log = db.getCollection("log");
-		// clear collection
-		collection.remove(new BasicDBObject());
-
-		Table<Unit, Abstraction, IConstraint> res = infoflow.getSplResults();
+	@Override
+	public void clearResults(String collectionName) {
+		db.getCollection(collectionName).remove(new BasicDBObject());
+	}
 
-		if(res == null) {
-			throw new RuntimeException("Missing results.");
+	@Override
+	public void removeResults(String collectionName, Collection<String> methodIds) {
+		List<String> ids = new ArrayList<String>(methodIds);
+		DBCollection collection = db.getCollection(collectionName);
+		for(int i = 0; i < ids.size(); i += 1000) {
+			collection.remove(new BasicDBObject("methodBytecodeSignatureJoanaStyle",
+					new BasicDBObject("$in", ids.subList(i, Math.min(i + 1000, ids.size())))));
 		}
-		
-		SPLIFDSSolver<Abstraction, AccessPath> splSolver = infoflow.getSPLSolver();
-
-		List<DBObject> objects = Collections.synchronizedList(new LinkedList<DBObject>());
-		List<DBObject> logObjects = Collections.synchronizedList(new LinkedList<DBObject>());
-
-		LoadTimeSourceSinkManager sourceSinkManager = new LoadTimeSourceSinkManager(collectionName);
-		
-		ThreadPoolExecutor executor = new ThreadPoolExecutor(4, 4, 60,
-				TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
-				new ThreadPoolExecutor.CallerRunsPolicy());
-
-		
-		Map<String, String> jimpleSources = new ConcurrentHashMap<String, String>();
-		for (Unit unit : res.rowKeySet()) {
-
-			SaveToMongoTask task = new SaveToMongoTask(infoflow, basePath,
-					splSolver, prettyConstraints,
-					featureNames, unit, this, logObjects, objects, jimpleSources,
-					sourceSinkManager);
+	}
 
-			executor.execute(task);
-		}
+	@Override
+	public void addResult(String collectionName, Map<String, Object> row) {
+		resultWriters.computeIfAbsent(collectionName, name -> new BulkWriter(db.getCollection(name)))
+				.insert(row instanceof DBObject ? (DBObject) row : new BasicDBObject(row));
+	}
 
-		executor.shutdown();
+	@Override
+	public List<Map<String, Object>> getResults(String collectionName, String className) {
+		return find(db.getCollection(collectionName), new BasicDBObject("Class", className));
+	}
 
+	@SuppressWarnings("unchecked")
+	private List<Map<String, Object>> find(DBCollection collection, DBObject query) {
+		List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+		DBCursor cursor = collection.find(query);
 		try {
-			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-		} catch (InterruptedException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			while (cursor.hasNext()) {
+				rows.add(cursor.next().toMap());
+			}
+		} finally {
+			cursor.close();
 		}
+		return rows;
+	}
 
-		if(!objects.isEmpty())
-		{
-			collection.insert(objects);
+	@Override
+	public void flush() {
+		for(BulkWriter writer : resultWriters.values()) {
+			writer.flush();
 		}
-		if(!logObjects.isEmpty())
-		{
-			log.insert(logObjects);
+		if(bulkInserter != null) {
+			bulkInserter.flush();
 		}
 	}
 
-	public void logStart(String collectionName) {
-		logProgress(collectionName, "start");
+	/**
+	 * Creates a sink which writes the results into the given collection while the solver is
+	 * still running, see {@link LoadTimeInfoflow#setResultSink(heros.solver.ResultSink)}.
+	 * Replaces {@link #saveResults(LoadTimeInfoflow, String, String)}. The collection is cleared.
+	 */
+	public MongoResultSink createResultSink(LoadTimeInfoflow infoflow, String collectionName,
+			String basePath) {
+		featureNames = new FeatureNames(collectionName);
+
+		DBCollection collection = db.getCollection(collectionName);
+		// clear collection
+		collection.remove(new BasicDBObject());
+
+		return new MongoResultSink(infoflow, collection, basePath, this, prettyConstraints,
+				featureNames, new LoadTimeSourceSinkManager(collectionName));
 	}
 
-	private void logProgress(String collectionName, String action) {
+	@Override
+	public void logProgress(String collectionName, String action) {
 		DBCollection progress = db.getCollection("progress");
 
 		BasicDBObject row = new BasicDBObject();
@@ -157,10 +188,6 @@ public class MongoLoader implements AutoCloseable {
 		progress.insert(row);
 	}
 
-	public void logEnd(String collectionName) {
-		logProgress(collectionName, "end");
-	}
-	
 	public long getRuntime(String collectionName) throws ParseException
 	{
 		SimpleDateFormat dateformat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");		
@@ -193,6 +220,7 @@ public class MongoLoader implements AutoCloseable {
 		return seconds;
 	}
 
+	@Override
 	public String getConstraint(String collectionName, String className,
 			int jimpleLine) {
 		DBCollection collection = db.getCollection(collectionName);
@@ -214,6 +242,7 @@ public class MongoLoader implements AutoCloseable {
 		return constraint;
 	}
 	
+	@Override
 	public void clearDetailedLog(String app)
 	{
 		DBCollection collection = db.getCollection("detailedLog");
@@ -221,13 +250,14 @@ public class MongoLoader implements AutoCloseable {
 		collection.remove(new BasicDBObject("app", app));
 	}
 	
-	private BulkWriteOperation bulkInserter = null;
-	private long bulkInserterCounter = 0;
+	private BulkWriter bulkInserter = null;
 	
-	public void startBulkDetailedLog()
+	public synchronized void startBulkDetailedLog()
 	{
-		DBCollection collection = db.getCollection("detailedLog");
-		bulkInserter = collection.initializeUnorderedBulkOperation();
+		if(bulkInserter == null)
+		{
+			bulkInserter = new BulkWriter(db.getCollection("detailedLog"));
+		}
 	}
 	
 	public void executeBulkDetailedLog()
@@ -237,12 +267,7 @@ public class MongoLoader implements AutoCloseable {
 			throw new IllegalArgumentException("No bulk insert is active."); 
 		}
 		// Execute with default write concern
-		// Must not commit empty batch, this would cause an exception
-		if(bulkInserterCounter > 0)
-		{
-			bulkInserter.execute();
-			bulkInserterCounter = 0;
-		}
+		bulkInserter.flush();
 	}
 	
 	public void saveDetailedLog(String app, 
@@ -264,38 +289,22 @@ public class MongoLoader implements AutoCloseable {
 			throw new IllegalArgumentException("startBulkDetailedLog() must be called before."); 
 		}
 		
-		BasicDBObject rowLog = new BasicDBObject();
-		rowLog.append("app", app);
+		addDetailedLog(ResultStores.detailedLogRow(app, row, column, value, className, line, javaLine,
+				slicingInfo, bytecodeIndexes, method, methodBytecodeSignature, isSource));
+	}
 
-		rowLog.append("row", row);
-		rowLog.append("column", column);
-		rowLog.append("value", value);
-		rowLog.append("className", className);
-		rowLog.append("line", line);
-		rowLog.append("javaLine", javaLine);
-		rowLog.append("slicingInfo", slicingInfo);
-		
-		BasicDBList indexList = new BasicDBList();
-		indexList.addAll(bytecodeIndexes);
-		rowLog.append("bytecodeIndexes", indexList);
-		
-		rowLog.append("method", method);
-		rowLog.append("methodBytecodeSignatureJoanaStyle", methodBytecodeSignature);
-		rowLog.append("isSource", isSource);
-		
-		bulkInserter.insert(rowLog);
-		bulkInserterCounter++;
-		
-		if(bulkInserterCounter > 1000)
-		{
-			// Execute first batch and recreate bulk inserter
-			executeBulkDetailedLog();
-			startBulkDetailedLog();
-		}
-		
-		
+	@Override
+	public void addDetailedLog(Map<String, Object> row) {
+		startBulkDetailedLog();
+		bulkInserter.insert(new BasicDBObject(row));
+	}
+
+	@Override
+	public List<Map<String, Object>> getDetailedLog(String app, String className) {
+		return find(db.getCollection("detailedLog"), new BasicDBObject("app", app).append("className", className));
 	}
 
+	@Override
 	public int getJavaLine(String collectionName, String className, String unit) {
 		DBCollection collection = db.getCollection(collectionName);
 
@@ -316,6 +325,7 @@ public class MongoLoader implements AutoCloseable {
 		return javaLine;
 	}
 
+	@Override
 	public int getJimpleLine(String collectionName, String className,
 			String unit) {
 		DBCollection collection = db.getCollection(collectionName);
@@ -364,18 +374,22 @@ public class MongoLoader implements AutoCloseable {
 		return prettyConstraints.get(constraint);
 	}
 
+	@Override
 	public void saveJimpleFiles(Map<String, StringBuilder> classes, String appPath) {
-		for (Entry<String, StringBuilder> jimpleFile : classes.entrySet()) {
-			BasicDBObject query = new BasicDBObject("Name", jimpleFile.getKey());
-			
-			BasicDBObject doc = new BasicDBObject("Name", jimpleFile.getKey())
-					.append("Content", jimpleFile.getValue().toString())
-					.append("appPath", appPath);
-			jimpleCollection.update(query, doc, true, false,
-					WriteConcern.NORMAL);
+		// Jimple files are large, a few per batch
+		try (BulkWriter writer = new BulkWriter(jimpleCollection, 50)) {
+			for (Entry<String, StringBuilder> jimpleFile : classes.entrySet()) {
+				BasicDBObject query = new BasicDBObject("Name", jimpleFile.getKey());
+				
+				BasicDBObject doc = new BasicDBObject("Name", jimpleFile.getKey())
+						.append("Content", jimpleFile.getValue().toString())
+						.append("appPath", appPath);
+				writer.upsert(query, doc);
+			}
 		}
 	}
 
+	@Override
 	public String getJimpleSource(String className) {
 		BasicDBObject query = new BasicDBObject("Name", className);
 		DBObject document = jimpleCollection.findOne(query);
@@ -387,8 +401,19 @@ public class MongoLoader implements AutoCloseable {
 		return content;
 	}
 
+	/**
+	 * Writes pending rows, the connections are kept for other loaders.
+	 */
+	@Override
 	public void close() {
-		mongoClient.close();
+		for(BulkWriter writer : resultWriters.values()) {
+			writer.close();
+		}
+		resultWriters.clear();
+		if(bulkInserter != null) {
+			bulkInserter.close();
+			bulkInserter = null;
+		}
 		mongoClient = null;
 	}
 
@@ -566,6 +591,14 @@ public class MongoLoader implements AutoCloseable {
 	}
 	
 	public Set<String> getTerms(String constraint)
+	{
+		return termsOf(constraint);
+	}
+
+	/**
+	 * Options of the precise and imprecise terms of a pretty printed constraint.
+	 */
+	public static Set<String> termsOf(String constraint)
 	{
 		Set<String> optionsUsed = new HashSet<>();
 
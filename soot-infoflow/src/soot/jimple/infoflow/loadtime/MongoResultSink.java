@@ -0,0 +1,62 @@
+package soot.jimple.infoflow.loadtime;
+
+import heros.solver.BatchingResultSink;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import soot.Unit;
+import soot.jimple.infoflow.LoadTimeInfoflow;
+import soot.jimple.infoflow.data.Abstraction;
+import soot.spl.ifds.IConstraint;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+
+/**
+ * Writes the results of the SPL solver into a collection while the solver is still running.
+ * The rows are the same as written by {@link MongoLoader#saveResults(LoadTimeInfoflow, String, String)}.
+ */
+public class MongoResultSink extends BatchingResultSink<Unit, Abstraction, IConstraint, DBObject> {
+
+	private static final int BUFFER_SIZE = 10000;
+	private static final int BATCH_SIZE = 1000;
+
+	private final LoadTimeInfoflow infoflow;
+	private final DBCollection collection;
+	private final String basePath;
+	private final MongoLoader mongoLoader;
+	private final Map<IConstraint, String> prettyConstraints;
+	private final FeatureNames featureNames;
+	private final LoadTimeSourceSinkManager sourceSinkManager;
+
+	MongoResultSink(LoadTimeInfoflow infoflow, DBCollection collection, String basePath,
+			MongoLoader mongoLoader, Map<IConstraint, String> prettyConstraints,
+			FeatureNames featureNames, LoadTimeSourceSinkManager sourceSinkManager) {
+		super(BUFFER_SIZE, BATCH_SIZE);
+		this.infoflow = infoflow;
+		this.collection = collection;
+		this.basePath = basePath;
+		this.mongoLoader = mongoLoader;
+		this.prettyConstraints = prettyConstraints;
+		this.featureNames = featureNames;
+		this.sourceSinkManager = sourceSinkManager;
+	}
+
+	@Override
+	protected DBObject convert(Unit unit, Map<Abstraction, IConstraint> values) {
+		// The row is created from the values still stored in the solver
+		DBObject[] row = new DBObject[1];
+		new SaveToMongoTask(infoflow, basePath, infoflow.getSPLSolver(), prettyConstraints,
+				featureNames, unit, mongoLoader, Collections.<DBObject>emptyList(), r -> row[0] = r,
+				sourceSinkManager).run();
+		return row[0];
+	}
+
+	@Override
+	protected void writeBatch(List<DBObject> batch) {
+		// Already called on the background thread of the sink
+		BulkWriter.insertNow(collection, batch);
+	}
+}
@@ -0,0 +1,122 @@
+package soot.jimple.infoflow.loadtime;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import soot.jimple.infoflow.LoadTimeInfoflow;
+
+/**
+ * Persistence of the analysis results: the constraints per line, the Jimple sources, the progress
+ * log and the detailed log. Rows are maps of field names to strings, numbers, booleans and lists,
+ * with the fields written by {@link SaveToMongoTask}. Implementations are thread safe.
+ *
+ * @see ResultStores#open()
+ */
+public interface ResultStore extends AutoCloseable {
+
+	/**
+	 * Removes all rows of the collection.
+	 */
+	void clearResults(String collectionName);
+
+	/**
+	 * Removes the rows of the given methods, see {@link AnalysisSnapshot#methodId(soot.SootMethod)}.
+	 */
+	void removeResults(String collectionName, Collection<String> methodIds);
+
+	/**
+	 * Adds a row, which is visible once the store is flushed.
+	 */
+	void addResult(String collectionName, Map<String, Object> row);
+
+	/**
+	 * Rows of the given class in the order they were added.
+	 */
+	List<Map<String, Object>> getResults(String collectionName, String className);
+
+	/**
+	 * Pretty printed constraint at the given line, null if there is none.
+	 */
+	default String getConstraint(String collectionName, String className, int jimpleLine) {
+		String constraint = null;
+		for(Map<String, Object> row : getResults(collectionName, className)) {
+			if(row.get("JimpleLineNo") instanceof Number && ((Number) row.get("JimpleLineNo")).intValue() == jimpleLine) {
+				constraint = (String) row.get("ConstraintPretty");
+			}
+		}
+		return constraint;
+	}
+
+	/**
+	 * Java line of the given unit, 0 if it is unknown.
+	 */
+	default int getJavaLine(String collectionName, String className, String unit) {
+		return lineOf(collectionName, className, unit, "JavaLineNo");
+	}
+
+	/**
+	 * Jimple line of the given unit, 0 if it is unknown.
+	 */
+	default int getJimpleLine(String collectionName, String className, String unit) {
+		return lineOf(collectionName, className, unit, "JimpleLineNo");
+	}
+
+	default int lineOf(String collectionName, String className, String unit, String field) {
+		int line = 0;
+		for(Map<String, Object> row : getResults(collectionName, className)) {
+			if(unit.equals(row.get("Unit")) && row.get(field) instanceof Number) {
+				line = ((Number) row.get(field)).intValue();
+			}
+		}
+		return line;
+	}
+
+	/**
+	 * Replaces the Jimple sources of the given classes.
+	 */
+	void saveJimpleFiles(Map<String, StringBuilder> classes, String appPath);
+
+	/**
+	 * Null if the source of the class was not saved.
+	 */
+	String getJimpleSource(String className);
+
+	void logProgress(String collectionName, String action);
+
+	default void logStart(String collectionName) {
+		logProgress(collectionName, "start");
+	}
+
+	default void logEnd(String collectionName) {
+		logProgress(collectionName, "end");
+	}
+
+	void clearDetailedLog(String app);
+
+	/**
+	 * Adds a row of the detailed log, see {@link ResultStores#detailedLogRow}.
+	 */
+	void addDetailedLog(Map<String, Object> row);
+
+	List<Map<String, Object>> getDetailedLog(String app, String className);
+
+	/**
+	 * Writes all added rows.
+	 */
+	void flush();
+
+	/**
+	 * Replaces the results of the collection with the results of the analysis, see
+	 * {@link ResultStores#saveResults(ResultStore, LoadTimeInfoflow, String, String)}.
+	 */
+	default void saveResults(LoadTimeInfoflow infoflow, String collectionName, String basePath) {
+		ResultStores.saveResults(this, infoflow, collectionName, basePath);
+	}
+
+	/**
+	 * Flushes the store and releases its resources.
+	 */
+	@Override
+	void close();
+}
@@ -0,0 +1,173 @@
+package soot.jimple.infoflow.loadtime;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Table;
+import com.mongodb.DBObject;
+
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.infoflow.LoadTimeInfoflow;
+import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.data.AccessPath;
+import soot.spl.ifds.IConstraint;
+import soot.spl.ifds.SPLIFDSSolver;
+
+/**
+ * Creates the configured {@link ResultStore} and contains the logic shared by all stores.
+ */
+public class ResultStores {
+
+	/**
+	 * System property selecting the store: "mongo" (default) or "file:&lt;directory&gt;".
+	 */
+	public static final String PROPERTY = "loadtime.resultStore";
+
+	private ResultStores() {
+	}
+
+	/**
+	 * Opens the store selected by the system property {@link #PROPERTY}.
+	 */
+	public static ResultStore open() {
+		return open(System.getProperty(PROPERTY, "mongo"));
+	}
+
+	public static ResultStore open(String spec) {
+		if(spec.equals("mongo")) {
+			return new MongoLoader();
+		}
+		if(spec.startsWith("file:")) {
+			try {
+				return new FileResultStore(new File(spec.substring("file:".length())));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		throw new IllegalArgumentException("Unknown result store " + spec);
+	}
+
+	static void saveResults(ResultStore store, LoadTimeInfoflow infoflow, String collectionName, String basePath) {
+		saveResults(store, infoflow, collectionName, basePath, new FeatureNames(collectionName),
+				new ConcurrentHashMap<IConstraint, String>());
+	}
+
+	static void saveResults(ResultStore store, LoadTimeInfoflow infoflow, String collectionName, String basePath,
+			FeatureNames featureNames, Map<IConstraint, String> prettyConstraints) {
+		Table<Unit, Abstraction, IConstraint> res = infoflow.getSplResults();
+
+		if(res == null) {
+			throw new RuntimeException("Missing results.");
+		}
+
+		// In incremental mode only the rows of re-analyzed and removed methods are replaced
+		AnalysisSnapshot snapshot = infoflow.getAnalysisSnapshot();
+		Set<SootMethod> invalidated = null;
+		if(snapshot != null && !snapshot.isFirstRun()) {
+			invalidated = snapshot.getInvalidatedMethods();
+			List<String> ids = new ArrayList<String>(snapshot.getRemovedMethodIds());
+			for(SootMethod method : invalidated) {
+				ids.add(AnalysisSnapshot.methodId(method));
+			}
+			store.removeResults(collectionName, ids);
+		} else {
+			store.clearResults(collectionName);
+		}
+
+		SPLIFDSSolver<Abstraction, AccessPath> splSolver = infoflow.getSPLSolver();
+
+		List<DBObject> logObjects = Collections.synchronizedList(new LinkedList<DBObject>());
+
+		LoadTimeSourceSinkManager sourceSinkManager = new LoadTimeSourceSinkManager(collectionName);
+
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(4, 4, 60,
+				TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+
+		for (Unit unit : res.rowKeySet()) {
+			if(invalidated != null && !invalidated.contains(infoflow.getiCfg().getMethodOf(unit))) {
+				continue;
+			}
+
+			SaveToMongoTask task = new SaveToMongoTask(infoflow, basePath,
+					splSolver, prettyConstraints,
+					featureNames, unit, store, logObjects,
+					row -> store.addResult(collectionName, toMap(row)), sourceSinkManager);
+
+			executor.execute(task);
+		}
+
+		executor.shutdown();
+
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			// TODO Auto-generated catch block
+			e.printStackTrace();
+		}
+
+		for(DBObject row : logObjects) {
+			store.addResult("log", toMap(row));
+		}
+		store.flush();
+		if(snapshot != null) {
+			try {
+				snapshot.commit();
+			} catch (IOException e) {
+				// The next run compares against the previous state again
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> toMap(DBObject row) {
+		// Rows are built as BasicDBObjects, which are maps already
+		return row instanceof Map ? (Map<String, Object>) row : row.toMap();
+	}
+
+	/**
+	 * Row of the detailed log, see {@link ResultStore#addDetailedLog(Map)}.
+	 */
+	public static Map<String, Object> detailedLogRow(String app,
+								String row,
+								String column,
+								String value,
+								String className,
+								int line,
+								int javaLine,
+								String slicingInfo,
+								Collection<Integer> bytecodeIndexes,
+								String method,
+								String methodBytecodeSignature,
+								boolean isSource) {
+		Map<String, Object> rowLog = new LinkedHashMap<String, Object>();
+		rowLog.put("app", app);
+		rowLog.put("row", row);
+		rowLog.put("column", column);
+		rowLog.put("value", value);
+		rowLog.put("className", className);
+		rowLog.put("line", line);
+		rowLog.put("javaLine", javaLine);
+		rowLog.put("slicingInfo", slicingInfo);
+		rowLog.put("bytecodeIndexes", new ArrayList<Integer>(bytecodeIndexes));
+		rowLog.put("method", method);
+		rowLog.put("methodBytecodeSignatureJoanaStyle", methodBytecodeSignature);
+		rowLog.put("isSource", isSource);
+		return rowLog;
+	}
+}
@@ -5,6 +5,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.Consumer;
 
 import net.sf.javabdd.BDD;
 
@@ -21,11 +22,8 @@ import soot.spl.ifds.CachedZ3Solver;
 import soot.spl.ifds.Constraint;
 import soot.spl.ifds.IConstraint;
 import soot.spl.ifds.SPLIFDSSolver;
-import soot.tagkit.JimpleLineNumberTag;
 import soot.tagkit.SourceFileTag;
-import soot.tagkit.Tag;
 
-import com.google.common.base.Splitter;
 import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
@@ -40,10 +38,9 @@ public class SaveToMongoTask implements Runnable {
 	private SPLIFDSSolver<Abstraction,AccessPath> splSolver;
 	private Map<IConstraint, String> prettyConstraints;
 	private FeatureNames featureNames;
-	private MongoLoader mongoLoader;
+	private ResultStore resultStore;
 	private List<DBObject> logObjects;
-	private List<DBObject> objects;
-	private Map<String, String> jimpleSources;
+	private Consumer<DBObject> objects;
 	private LoadTimeSourceSinkManager sourceSinkManager;
 	
 	public SaveToMongoTask(LoadTimeInfoflow infoflow, 
@@ -52,15 +49,14 @@ public class SaveToMongoTask implements Runnable {
 						   Map<IConstraint, String> prettyConstraints,
 						   FeatureNames featureNames, 
 						   Unit unit,
-						   MongoLoader mongoLoader,
+						   ResultStore resultStore,
 						   List<DBObject> logObjects,
-						   List<DBObject> objects,
-						   Map<String, String> jimpleSources,
+						   Consumer<DBObject> objects,
 						   LoadTimeSourceSinkManager sourceSinkManager) {
 		
-		if(mongoLoader == null)
+		if(resultStore == null)
 		{
-			throw new IllegalArgumentException("Parameter mongoLoader must not be null.");
+			throw new IllegalArgumentException("Parameter resultStore must not be null.");
 		}
 		
 		this.infoflow = infoflow;
@@ -69,10 +65,9 @@ public class SaveToMongoTask implements Runnable {
 		this.splSolver = splSolver;
 		this.prettyConstraints = prettyConstraints;
 		this.featureNames = featureNames;
-		this.mongoLoader = mongoLoader;
+		this.resultStore = resultStore;
 		this.logObjects = logObjects;
 		this.objects = objects;
-		this.jimpleSources = jimpleSources;
 		this.sourceSinkManager = sourceSinkManager;
 	}
 	
@@ -106,48 +101,11 @@ public class SaveToMongoTask implements Runnable {
 	
 	public int getJimpleLineNumber(final Unit unit, String className)
 	{
-		int lineNumber = -1;
-		List<Tag> tags = unit.getTags();
-		for(Tag tag : tags) {
-			if(tag instanceof JimpleLineNumberTag) {
-				int line = ((JimpleLineNumberTag) tag).getLineNumber();
-				if(line > 0) {
-					lineNumber = line;
-				}
-			}
-		}
-		
-		
-		if(lineNumber == -1 && className != null) {
-			
-			if(!jimpleSources.containsKey(className))
-			{
-				String jimpleSource = mongoLoader.getJimpleSource(className);
-				if(jimpleSource != null)
-				{
-					jimpleSources.put(className, jimpleSource);
-				}
-				
-			}
-			String jimpleSource = jimpleSources.get(className);
-			
-			if(jimpleSource != null) {
-				// Fallback - Search in source
-				Iterable<String> lines = Splitter.on("\n").split(jimpleSource);
-				
-				int i = 1;
-				for(String line : lines)
-				{
-					if(line.contains(unit.toString())) {
-						lineNumber = i;
-						break;
-					}
-					i++;
-				}
-			}
+		if(className == null) {
+			return JimpleLineIndex.taggedLine(unit);
 		}
-		
-		return lineNumber;
+		// Falls back to the Jimple source saved by an earlier run
+		return infoflow.getJimpleLineIndex().getJimpleLine(unit, className, resultStore::getJimpleSource);
 	}
 	
 	public int getJavaLineNumer(final Unit unit)
@@ -220,7 +178,7 @@ public class SaveToMongoTask implements Runnable {
 //			}
 			
 			int jimpleLineNumber = getJimpleLineNumber(unit, sootMethod.getDeclaringClass().getName());
-			int javaLineNumber = getJavaLineNumer(unit);
+			int javaLineNumber = infoflow.getJimpleLineIndex().getJavaLine(unit, sootClass.getName());
 			
 			BasicDBObject row = new BasicDBObject();
 			row.append("Package", sootClass.getJavaPackageName());
@@ -241,24 +199,25 @@ public class SaveToMongoTask implements Runnable {
 			row.append("Unit", unit.toString());
 			
 			BasicDBList indexList = new BasicDBList();
-			indexList.addAll(TestHelper.getBytecodeIndex(unit));
+			indexList.addAll(infoflow.getJimpleLineIndex().getBytecodeIndexes(unit, sootClass.getName()));
 			
 			row.append("bytecodeIndexes", indexList);
 			row.append("methodBytecodeSignatureJoanaStyle", TestHelper.getMethodByteCodeJoanaStyle(sootMethod));
 			
 			String sourceInfo = TestHelper.getSourceInfo(unit, sourceSinkManager, infoflow, featureNames);
 			row.append("isSource", sourceInfo != null);
+			row.append("isApproximated", splSolver.isApproximated(unit));
 			if(sourceInfo != null)
 			{
 				row.append("Option", sourceInfo);
 			}
 			
 			
-			row.append("usedTerms", mongoLoader.getTerms(orResultString));
+			row.append("usedTerms", MongoLoader.termsOf(orResultString));
 			
 			row.append("version", 2);
 			
-			objects.add(row);
+			objects.accept(row);
 
 //			if(sootMethod.getName().contains("pickFileSimple")) {
 //				createLogObject(sootClass);
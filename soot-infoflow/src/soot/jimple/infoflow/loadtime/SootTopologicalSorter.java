@@ -5,10 +5,12 @@ import java.util.List;
 import soot.SootMethod;
 import soot.Unit;
 import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
-import soot.toolkits.graph.DirectedGraph;
 import soot.toolkits.graph.PseudoTopologicalOrderer;
 import heros.solver.TopologicalSorter;
 
+/**
+ * Orders the units of a method in reverse postorder of its unit graph.
+ */
 public class SootTopologicalSorter implements TopologicalSorter<Unit, SootMethod> {
 
 	private BiDiInterproceduralCFG<Unit, SootMethod> icfg;
@@ -19,16 +21,10 @@ public class SootTopologicalSorter implements TopologicalSorter<Unit, SootMethod
 	
 	@Override
 	public List<Unit> getPseudoTopologicalOrder(SootMethod method) {
+		if(!method.hasActiveBody()) {
+			return null;
+		}
 		PseudoTopologicalOrderer<Unit> pseudoTopologicalOrderer = new PseudoTopologicalOrderer<Unit>();
-		
-//		DirectedGraph<Unit> unitGraph = icfg.getOrCreateUnitGraph(method);^qyed
-		
-		// assume single start unit
-		Unit start = icfg.getStartPointsOf(method).iterator().next();
-		CompleteICFG completeICFG = new CompleteICFG(icfg, start);
-		
-		List<Unit> order = pseudoTopologicalOrderer.newList(completeICFG, false);
-		
-		return null;
+		return pseudoTopologicalOrderer.newList(icfg.getOrCreateUnitGraph(method), false);
 	}
 }
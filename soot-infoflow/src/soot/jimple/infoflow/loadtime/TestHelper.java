@@ -31,10 +31,14 @@ import com.typesafe.config.ConfigValue;
 
 public class TestHelper implements AutoCloseable {
 	
+	private ResultStore store;
 	private MongoLoader mongo;
 	
+	/**
+	 * Checks the results in the store selected by {@link ResultStores#PROPERTY}.
+	 */
 	public TestHelper() throws UnknownHostException {
-		mongo = new MongoLoader();
+		store = ResultStores.open();
 	}
 	
 	public int getFeatureOffset(Config conf)
@@ -67,7 +71,7 @@ public class TestHelper implements AutoCloseable {
 				int jimpleLine = constraintElement.getInt("jimpleLine");
 				String expectedConstraint = constraintElement.getString("constraint");
 				
-				String constraint = mongo.getConstraint(collectionName, className, jimpleLine);
+				String constraint = store.getConstraint(collectionName, className, jimpleLine);
 				Assert.assertEquals("Line " + jimpleLine, expectedConstraint, constraint);
 				
 				checkedResults++;
@@ -120,69 +124,66 @@ public class TestHelper implements AutoCloseable {
 		
 		LoadTimeSourceSinkManager sourceSinkManager = new LoadTimeSourceSinkManager(configName);
 		
-		try(MongoLoader loader = new MongoLoader()) {
-			loader.clearDetailedLog(configName);
+		store.clearDetailedLog(configName);
+		
+		for(Cell<Unit, Abstraction, IConstraint> cell : results.cellSet())
+		{
+			Unit unit = cell.getRowKey();
 			
-			loader.startBulkDetailedLog();
-			for(Cell<Unit, Abstraction, IConstraint> cell : results.cellSet())
+			SootMethod sootMethod = infoflow.getiCfg().getMethodOf(unit);
+			String methodName = sootMethod.toString();
+			SootClass sootClass = sootMethod.getDeclaringClass();
+			
+			String slicingInfo = "";
+			// Check for data flow dependency
+			for(ValueBox use : unit.getUseBoxes())
 			{
-				Unit unit = cell.getRowKey();
-				
-				SootMethod sootMethod = infoflow.getiCfg().getMethodOf(unit);
-				String methodName = sootMethod.toString();
-				SootClass sootClass = sootMethod.getDeclaringClass();
-				
-				String slicingInfo = "";
-				// Check for data flow dependency
-				for(ValueBox use : unit.getUseBoxes())
-				{
-					if(aliasing.mayAlias(use.getValue(), cell.getColumnKey().getAccessPath().getPlainValue())) {
-						SourceContext sourceContext = cell.getColumnKey().getSourceContext();
-						if(sourceContext != null && sourceContext.getUserData() != null)
-						{
-							FeatureInfo featureInfo = (FeatureInfo) sourceContext.getUserData();
-							slicingInfo = "In Slice of feature " + featureInfo.getIndex() + " Data-Dep";
-						}
+				if(aliasing.mayAlias(use.getValue(), cell.getColumnKey().getAccessPath().getPlainValue())) {
+					SourceContext sourceContext = cell.getColumnKey().getSourceContext();
+					if(sourceContext != null && sourceContext.getUserData() != null)
+					{
+						FeatureInfo featureInfo = (FeatureInfo) sourceContext.getUserData();
+						slicingInfo = "In Slice of feature " + featureInfo.getIndex() + " Data-Dep";
 					}
 				}
-				
-				// No data dependency check for control flow dependency
-				if(slicingInfo.equals(""))
+			}
+			
+			// No data dependency check for control flow dependency
+			if(slicingInfo.equals(""))
+			{
+				if(cell.getColumnKey().toString().startsWith("zero"))
 				{
-					if(cell.getColumnKey().toString().startsWith("zero"))
+					if(!cell.getValue().toString().equals("true"))
 					{
-						if(!cell.getValue().toString().equals("true"))
-						{
-							slicingInfo = "In Slice of feature " + cell.getValue().toString() + " CFlow-Dep";
-						}
+						slicingInfo = "In Slice of feature " + cell.getValue().toString() + " CFlow-Dep";
 					}
 				}
-				
-				Collection<Integer> bytecodeIndexes = getBytecodeIndex(unit);
-				
-				// Check if unit is source i.e. slice criteria
-				String sourceInfo = getSourceInfo(unit, sourceSinkManager, infoflow, null);
-				boolean isSource = sourceInfo != null;
-				
-				String methodByteCodeJoanaStyle = getMethodByteCodeJoanaStyle(sootMethod);
-				
-				int jimpleLineNumber = getJimpleLineNumber(cell.getRowKey());
-
-				loader.saveDetailedLog(configName, cell.getRowKey().toString(), 
-											   cell.getColumnKey().toString(), 
-											   cell.getValue().toString(), 
-											   sootClass.getName(),
-											   jimpleLineNumber,
-											   unit.getJavaSourceStartLineNumber(),
-											   slicingInfo,
-											   bytecodeIndexes,
-											   methodName,
-											   methodByteCodeJoanaStyle,
-											   isSource);			
 			}
 			
-			loader.executeBulkDetailedLog();
+			Collection<Integer> bytecodeIndexes = getBytecodeIndex(unit);
+			
+			// Check if unit is source i.e. slice criteria
+			String sourceInfo = getSourceInfo(unit, sourceSinkManager, infoflow, null);
+			boolean isSource = sourceInfo != null;
+			
+			String methodByteCodeJoanaStyle = getMethodByteCodeJoanaStyle(sootMethod);
+			
+			int jimpleLineNumber = getJimpleLineNumber(cell.getRowKey());
+
+			store.addDetailedLog(ResultStores.detailedLogRow(configName, cell.getRowKey().toString(), 
+										   cell.getColumnKey().toString(), 
+										   cell.getValue().toString(), 
+										   sootClass.getName(),
+										   jimpleLineNumber,
+										   unit.getJavaSourceStartLineNumber(),
+										   slicingInfo,
+										   bytecodeIndexes,
+										   methodName,
+										   methodByteCodeJoanaStyle,
+										   isSource));
 		}
+		
+		store.flush();
 		System.out.println("detailedDBLog done");
 	}
 
@@ -217,13 +218,27 @@ public class TestHelper implements AutoCloseable {
 	}
 	
 	
+	public ResultStore getResultStore() {
+		return store;
+	}
+	
+	/**
+	 * For the queries which are only supported by MongoDB.
+	 */
 	public MongoLoader getMongoLoader() {
+		if(mongo == null) {
+			mongo = store instanceof MongoLoader ? (MongoLoader) store : new MongoLoader();
+		}
 		return mongo;
 	}
 
 	public void close()
 	{
-		mongo.close();
+		store.close();
+		if(mongo != null && mongo != store) {
+			mongo.close();
+		}
+		store = null;
 		mongo = null;
 	}
 	
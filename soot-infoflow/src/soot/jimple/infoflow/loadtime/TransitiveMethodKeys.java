@@ -0,0 +1,167 @@
+package soot.jimple.infoflow.loadtime;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import soot.MethodOrMethodContext;
+import soot.Scene;
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
+import soot.util.queue.QueueReader;
+
+/**
+ * Keys each reachable method with a body by a hash of its body and of the bodies of all methods
+ * it transitively calls, including application methods called back from library code. All
+ * methods of a strongly connected component of the call graph share one key.
+ */
+public class TransitiveMethodKeys {
+
+	private final BiDiInterproceduralCFG<Unit, SootMethod> icfg;
+
+	// Reachable methods with a body and their transitive keys
+	private final Map<SootMethod, String> keys = new HashMap<>();
+	private final Map<SootMethod, Set<SootMethod>> callees = new HashMap<>();
+
+	public TransitiveMethodKeys(BiDiInterproceduralCFG<Unit, SootMethod> icfg) {
+		this.icfg = icfg;
+		computeKeys();
+	}
+
+	private void computeKeys() {
+		QueueReader<MethodOrMethodContext> reachable = Scene.v().getReachableMethods().listener();
+		List<SootMethod> methods = new ArrayList<>();
+		while(reachable.hasNext()) {
+			SootMethod method = reachable.next().method();
+			if(method.hasActiveBody()) {
+				methods.add(method);
+			}
+		}
+		for(SootMethod method : methods) {
+			Set<SootMethod> targets = new LinkedHashSet<>();
+			for(Unit unit : method.getActiveBody().getUnits()) {
+				if(icfg.isCallStmt(unit)) {
+					for(SootMethod callee : icfg.getCalleesOfCallAt(unit)) {
+						if(callee.hasActiveBody()) {
+							targets.add(callee);
+						}
+					}
+				}
+			}
+			callees.put(method, targets);
+		}
+
+		// Tarjan's algorithm without recursion, components are completed after their callees
+		Map<SootMethod, Integer> index = new HashMap<>();
+		Map<SootMethod, Integer> lowlink = new HashMap<>();
+		Deque<SootMethod> stack = new ArrayDeque<>();
+		Set<SootMethod> onStack = new HashSet<>();
+		Deque<Frame> frames = new ArrayDeque<>();
+		for(SootMethod root : methods) {
+			if(index.containsKey(root)) {
+				continue;
+			}
+			frames.push(enter(root, index, lowlink, stack, onStack));
+			while(!frames.isEmpty()) {
+				Frame frame = frames.peek();
+				if(frame.callees.hasNext()) {
+					SootMethod callee = frame.callees.next();
+					if(!index.containsKey(callee)) {
+						frames.push(enter(callee, index, lowlink, stack, onStack));
+					} else if(onStack.contains(callee)) {
+						lowlink.put(frame.method, Math.min(lowlink.get(frame.method), index.get(callee)));
+					}
+					continue;
+				}
+				frames.pop();
+				if(lowlink.get(frame.method).equals(index.get(frame.method))) {
+					List<SootMethod> component = new ArrayList<>();
+					SootMethod member;
+					do {
+						member = stack.pop();
+						onStack.remove(member);
+						component.add(member);
+					} while(member != frame.method);
+					computeComponentKey(component);
+				}
+				if(!frames.isEmpty()) {
+					SootMethod caller = frames.peek().method;
+					lowlink.put(caller, Math.min(lowlink.get(caller), lowlink.get(frame.method)));
+				}
+			}
+		}
+	}
+
+	private static class Frame {
+		private final SootMethod method;
+		private final Iterator<SootMethod> callees;
+
+		private Frame(SootMethod method, Iterator<SootMethod> callees) {
+			this.method = method;
+			this.callees = callees;
+		}
+	}
+
+	private Frame enter(SootMethod method, Map<SootMethod, Integer> index, Map<SootMethod, Integer> lowlink,
+			Deque<SootMethod> stack, Set<SootMethod> onStack) {
+		index.put(method, index.size());
+		lowlink.put(method, index.get(method));
+		stack.push(method);
+		onStack.add(method);
+		Set<SootMethod> targets = callees.get(method);
+		return new Frame(method, targets == null ? Collections.<SootMethod>emptyIterator() : targets.iterator());
+	}
+
+	// Bodies of all members and the keys of all components called by them
+	private void computeComponentKey(List<SootMethod> component) {
+		MessageDigest digest = LibrarySummaryStore.sha1();
+		TreeMap<String, SootMethod> members = new TreeMap<>();
+		for(SootMethod member : component) {
+			members.put(member.getSignature(), member);
+		}
+		Set<SootMethod> memberSet = new HashSet<>(component);
+		TreeSet<String> calledKeys = new TreeSet<>();
+		for(SootMethod member : members.values()) {
+			digest.update((member.getSignature() + "\n").getBytes(StandardCharsets.UTF_8));
+			LibrarySummaryStore.digestBody(digest, member, icfg);
+			Set<SootMethod> targets = callees.get(member);
+			for(SootMethod callee : targets == null ? Collections.<SootMethod>emptySet() : targets) {
+				if(!memberSet.contains(callee) && keys.containsKey(callee)) {
+					calledKeys.add(keys.get(callee));
+				}
+			}
+		}
+		digest.update(calledKeys.toString().getBytes(StandardCharsets.UTF_8));
+		String hash = LibrarySummaryStore.hex(digest.digest());
+		for(SootMethod member : component) {
+			keys.put(member, member.getSignature() + "#" + hash);
+		}
+	}
+
+	/**
+	 * Key of the method and all methods it transitively calls, null if the method is not reachable.
+	 */
+	public String getKey(SootMethod method) {
+		return keys.get(method);
+	}
+
+	/**
+	 * Reachable methods with a body and their keys.
+	 */
+	public Map<SootMethod, String> getKeys() {
+		return Collections.unmodifiableMap(keys);
+	}
+}
@@ -0,0 +1,95 @@
+package soot.jimple.infoflow.test.loadtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import soot.jimple.infoflow.loadtime.FileResultStore;
+import soot.jimple.infoflow.loadtime.ResultStore;
+
+public class FileResultStoreTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static Map<String, Object> row(String className, String method, String unit, int jimpleLine, String constraint) {
+		Map<String, Object> row = new LinkedHashMap<String, Object>();
+		row.put("Class", className);
+		row.put("methodBytecodeSignatureJoanaStyle", method);
+		row.put("Unit", unit);
+		row.put("JimpleLineNo", jimpleLine);
+		row.put("JavaLineNo", jimpleLine + 10);
+		row.put("ConstraintPretty", constraint);
+		row.put("usedTerms", Arrays.asList("A", "B"));
+		return row;
+	}
+
+	@Test
+	public void resultsAreReadAfterReopening() throws IOException {
+		try(ResultStore store = new FileResultStore(folder.getRoot())) {
+			store.addResult("Tests", row("a.A", "a.A.m()V", "x = 1", 3, "A"));
+			store.addResult("Tests", row("a.B", "a.B.m()V", "y = 2", 4, "B"));
+			store.addResult("Tests", row("a.A", "a.A.n()V", "z = 3", 5, "A && B"));
+		}
+		try(ResultStore store = new FileResultStore(folder.getRoot())) {
+			assertEquals(2, store.getResults("Tests", "a.A").size());
+			assertEquals("A && B", store.getConstraint("Tests", "a.A", 5));
+			assertNull(store.getConstraint("Tests", "a.A", 4));
+			assertEquals(14, store.getJavaLine("Tests", "a.B", "y = 2"));
+			assertEquals(Arrays.asList("A", "B"), store.getResults("Tests", "a.B").get(0).get("usedTerms"));
+		}
+	}
+
+	@Test
+	public void removedMethodsAreRewritten() throws IOException {
+		try(ResultStore store = new FileResultStore(folder.getRoot())) {
+			store.addResult("Tests", row("a.A", "a.A.m()V", "x = 1", 3, "A"));
+			store.addResult("Tests", row("a.A", "a.A.n()V", "z = 3", 5, "B"));
+			store.removeResults("Tests", Collections.singleton("a.A.m()V"));
+			store.addResult("Tests", row("a.A", "a.A.m()V", "x = 1", 3, "!A"));
+			assertEquals("!A", store.getConstraint("Tests", "a.A", 3));
+			assertEquals("B", store.getConstraint("Tests", "a.A", 5));
+
+			store.clearResults("Tests");
+			assertTrue(store.getResults("Tests", "a.A").isEmpty());
+		}
+	}
+
+	@Test
+	public void partialRowIsDropped() throws IOException {
+		try(ResultStore store = new FileResultStore(folder.getRoot())) {
+			store.addResult("Tests", row("a.A", "a.A.m()V", "x = 1", 3, "A"));
+		}
+		// Row of an interrupted write, the index no longer matches the segment
+		try(FileOutputStream out = new FileOutputStream(new File(folder.getRoot(), "results/Tests.seg"), true)) {
+			out.write(new byte[] { 0, 0, 1, 0, 42 });
+		}
+		try(ResultStore store = new FileResultStore(folder.getRoot())) {
+			store.addResult("Tests", row("a.A", "a.A.n()V", "z = 3", 5, "B"));
+			assertEquals("A", store.getConstraint("Tests", "a.A", 3));
+			assertEquals("B", store.getConstraint("Tests", "a.A", 5));
+		}
+	}
+
+	@Test
+	public void jimpleSourcesAreReplaced() throws IOException {
+		try(ResultStore store = new FileResultStore(folder.getRoot())) {
+			store.saveJimpleFiles(Collections.singletonMap("a.A", new StringBuilder("old")), "app");
+			store.saveJimpleFiles(Collections.singletonMap("a.A", new StringBuilder("new")), "app");
+			assertEquals("new", store.getJimpleSource("a.A"));
+			assertNull(store.getJimpleSource("a.B"));
+		}
+	}
+}
@@ -87,6 +87,8 @@ import soot.jimple.infoflow.entryPointCreators.DefaultEntryPointCreator;
 import soot.jimple.infoflow.loadtime.FeatureInfo;
 import soot.jimple.infoflow.loadtime.LoadTimeSourceSinkManager;
 import soot.jimple.infoflow.loadtime.MongoLoader;
+import soot.jimple.infoflow.loadtime.ResultStore;
+import soot.jimple.infoflow.loadtime.ResultStores;
 import soot.jimple.infoflow.loadtime.TestHelper;
 import soot.jimple.infoflow.problems.LoadTimeInfoflowProblem;
 import soot.jimple.infoflow.taintWrappers.EasyTaintWrapper;
@@ -425,7 +427,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 0);
 
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 
@@ -529,7 +531,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		}
 		
 		System.out.println("saveResults()");
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 		
@@ -639,7 +641,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 	}
@@ -652,7 +654,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked == 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 
@@ -666,7 +668,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 
@@ -680,7 +682,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 	}	
@@ -696,7 +698,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		assertTrue(constraintsChecked == 0);
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 	}		
@@ -709,7 +711,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 	}		
@@ -722,7 +724,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 	}		
@@ -736,7 +738,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 //		assertTrue(constraintsChecked > 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 	}	
@@ -749,7 +751,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 2);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 	}
@@ -762,7 +764,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 	}
@@ -775,7 +777,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 	}
@@ -788,7 +790,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 	}
@@ -801,7 +803,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 	}
@@ -815,7 +817,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 		
@@ -832,7 +834,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 		
@@ -849,7 +851,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 	}
@@ -862,7 +864,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 	}
@@ -875,7 +877,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 	}
@@ -888,7 +890,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 	}
@@ -901,7 +903,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 	}
@@ -914,7 +916,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 	}
@@ -927,7 +929,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 	}
@@ -940,7 +942,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 	}
@@ -953,7 +955,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 	}
@@ -966,7 +968,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 	}
@@ -979,7 +981,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 	}
@@ -992,7 +994,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 	}
@@ -1005,7 +1007,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		int constraintsChecked = checkConstraints(infoflow, epoints);
 		assertTrue(constraintsChecked > 0);
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 		}
 	}
@@ -1089,7 +1091,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		Config conf = ConfigFactory.load().getConfig("Tests");
 		Config features = conf.getConfig("features");
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Tests", "C:\\Users\\Max\\workspace\\soot-infoflow\\test\\");
 			
 			printResults(infoflow.getSplResults());
@@ -1239,7 +1241,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		LoadTimeSourceSinkManager sourceSinkManager = new LoadTimeSourceSinkManager("FreePastry");
 		infoflow.computeInfoflow(appPath, libPath, new DefaultEntryPointCreator(), epoints, sourceSinkManager);	
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "FreePastry", "C:\\Users\\Max\\workspace\\pastry\\src\\");
 		}
 		
@@ -1281,7 +1283,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		LoadTimeSourceSinkManager sourceSinkManager = new LoadTimeSourceSinkManager("FreePastry");
 		infoflow.computeInfoflow(appPath, libPath, new DefaultEntryPointCreator(), epoints, sourceSinkManager);	
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "FreePastry", "C:\\Users\\Max\\workspace\\pastry\\src\\");
 		}
 		
@@ -1317,7 +1319,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, "Captchalize");
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Captchalize", "C:\\Users\\Max\\workspace\\Captchalize\\src\\");
 		}
 		
@@ -1355,7 +1357,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, "ivy");
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "ivy", "C:\\Users\\Max\\workspace\\ant-ivy\\src\\java\\");
 		}
 		
@@ -1429,7 +1431,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, "findbugs");
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "findbugs", "C:\\Users\\Max\\workspace\\findbugs-3.0.0\\src\\java\\");
 		}
 		
@@ -1466,7 +1468,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, "ElevatorChanged");
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "ElevatorChanged", "C:\\Users\\Max\\workspace\\ElevatorChanged\\src\\");
 		}
 		
@@ -1506,7 +1508,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, "ZipMeChanged");
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "ZipMeChanged", "C:\\Users\\Max\\workspace\\ZipMeChanged\\src\\");
 		}
 		
@@ -1557,7 +1559,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 //		dumpJumpFn(infoflow.splSolver.getJumpFn());
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "ZipMeChangedSimplified", "C:\\Users\\Max\\workspace\\ZipMeChangedSimplified\\src\\");
 		}
 		
@@ -1596,7 +1598,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, "Rhino");
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Rhino", "C:\\Users\\Max\\workspace\\rhino\\src\\");
 		}
 		
@@ -1636,7 +1638,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, project);
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, project, "C:\\Users\\Max\\workspace\\processing\\java\\src\\");
 		}
 		
@@ -1676,7 +1678,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, project);
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, project, "C:\\Users\\Max\\workspace\\languagetool-master\\languagetool-commandline\\src\\main\\java\\");
 		}
 		
@@ -1715,7 +1717,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, "Validator");
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Validator", "C:\\Users\\Max\\workspace\\validator-master\\src\\");
 		}
 		
@@ -1755,7 +1757,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, "Selenese");
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Selenese", "C:\\Users\\Max\\workspace\\selenese-runner-java-master\\src\\main\\java\\");
 		}
 		
@@ -1794,7 +1796,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, "Picard");
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Picard", "C:\\Users\\Max\\workspace\\picard\\src\\java\\");
 		}
 		
@@ -1831,7 +1833,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, "epubcheck");
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "epubcheck", "C:\\Users\\Max\\workspace\\epubcheck\\src\\main\\java\\");
 		}
 		
@@ -1869,7 +1871,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, "batman");
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "batman", "C:\\Users\\Max\\workspace\\batman\\src\\");
 		}
 		
@@ -1910,7 +1912,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, "opentsdb");
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "opentsdb", "C:\\Users\\Max\\workspace\\opentsdb\\src\\");
 		}
 		
@@ -1950,7 +1952,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, "Swagger");
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "Swagger", "C:\\Users\\Max\\workspace\\swagger-codegen\\modules\\swagger-codegen\\src\\main\\java\\");
 		}
 		
@@ -1991,7 +1993,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, "trackanalyzer");
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "trackanalyzer", "C:\\Users\\Max\\workspace\\trackanalyzer\\src\\");
 		}
 		
@@ -2030,7 +2032,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, "OpenGrok");
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "OpenGrok", "C:\\Users\\Max\\workspace\\OpenGrok\\src\\");
 		}
 		
@@ -2069,7 +2071,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, "platypus");
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, "platypus", "C:\\Users\\Max\\workspace\\LotrackEvaluationJava\\platypus\\src\\main\\java\\");
 		}
 		
@@ -2149,7 +2151,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, name);
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, name, "C:\\Users\\Max\\workspace\\LotrackEvaluationJava\\programming-language-barriers-analysis-prototype\\java\\data_consumer\\src\\");
 		}
 		
@@ -2195,7 +2197,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, name);
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, name, "C:\\Users\\Max\\workspace\\LotrackEvaluationJava\\andsync-server\\src\\");
 		}
 		
@@ -2240,7 +2242,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, name);
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, name, "C:\\Users\\Max\\workspace\\LotrackEvaluationJava\\proteaj\\src\\");
 		}
 		
@@ -2281,7 +2283,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, name);
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, name, "C:\\Users\\Max\\workspace\\LotrackEvaluationJava\\fabricate.adligo.org\\src\\");
 		}
 		
@@ -2320,7 +2322,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, name);
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, name, "C:\\Users\\Max\\workspace\\LotrackEvaluationJava\\remoterengine\\pkg\\RemoteREngine\\inst\\java_src\\src\\server\\");
 		}
 		
@@ -2360,7 +2362,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, name);
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, name, "C:\\Users\\Max\\workspace\\LotrackEvaluationJava\\MGrid\\src\\");
 		}
 		
@@ -2399,7 +2401,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, name);
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, name, "C:\\Users\\Max\\workspace\\LotrackEvaluationJava\\jmxetric\\src\\main\\java\\");
 		}
 		
@@ -2486,7 +2488,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		
 		checkConstraints(infoflow, epoints, name);
 		
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			loader.saveResults(infoflow, name, "C:\\Users\\Max\\workspace\\LotrackEvaluationJava\\war-game-of-thrones\\projeto\\War Game of Thrones\\src\\");
 		}
 		
@@ -2503,7 +2505,7 @@ public class LoadTimeTests extends AbstractBenchmark {
 		List<String> epoints = new ArrayList<String>();
 		epoints.add("<soot.jimple.infoflow.test.loadtime.LoadTimeTestCode: void sample01()>");
 
-		try(MongoLoader loader = new MongoLoader()) {
+		try(ResultStore loader = ResultStores.open()) {
 			int javaLine = loader.getJavaLine("Tests", "soot.jimple.infoflow.test.loadtime.LoadTimeTestCode", "$z1 = staticinvoke <soot.jimple.infoflow.test.loadtime.FeatureBase: boolean featureB()>()");
 			assertEquals(12, javaLine);
 		}
@@ -23,6 +23,8 @@ import soot.tagkit.*;
 
 /**
  * Adds PositionTags to ValueBoxes to identify their position in the output.
+ * If a map of unit lines is given, the lines which would be tagged are put into it instead and
+ * no tags are added.
  */
 public class AttributesUnitPrinter {
 
@@ -33,16 +35,25 @@ public class AttributesUnitPrinter {
 	private int currentLn;
     private int lastNewline;
     private UnitPrinter printer;
+    private Map<Unit, Integer> unitLines;
     
 	public AttributesUnitPrinter( int currentLnNum ) {
 		this.currentLn = currentLnNum;
 	}
+	public AttributesUnitPrinter( int currentLnNum, Map<Unit, Integer> unitLines ) {
+		this.currentLn = currentLnNum;
+		this.unitLines = unitLines;
+	}
 	public void startUnit( Unit u ) {
 		startLn = currentLn;
 		startStmtOffset = output().length() - lastNewline;
 	}
 	public void endUnit( Unit u ) {
 		int endStmtOffset = output().length() - lastNewline;
+		if (unitLines != null) {
+			if (hasTag(u)) unitLines.put(u, startLn);
+			return;
+		}
         //G.v().out.println("u: "+u.toString());
 		if (hasTag(u)){
             //G.v().out.println("u: "+u.toString()+" has tag");
@@ -60,7 +71,7 @@ public class AttributesUnitPrinter {
     }
     public void endValueBox( ValueBox u ) {
         endOffset = output().length() - lastNewline;
-        if (hasColorTag(u)) {
+        if (unitLines == null && hasColorTag(u)) {
 			u.addTag(new PositionTag(startOffsets.pop().intValue(), endOffset));
 		}
     }
@@ -46,6 +46,8 @@ public class Printer {
         System.getProperty("file.separator").charAt(0);
 
     public static final int USE_ABBREVIATIONS = 0x0001, ADD_JIMPLE_LN = 0x0010;
+    /** Each thread has its own Jimple line number, so classes can be printed in parallel. */
+    public static final int PER_THREAD_JIMPLE_LN = 0x0020;
 
     public boolean useAbbreviations() {
         return (options & USE_ABBREVIATIONS) != 0;
@@ -55,6 +57,10 @@ public class Printer {
         return (options & ADD_JIMPLE_LN) != 0;
     }
 
+    public boolean perThreadJimpleLn() {
+        return (options & PER_THREAD_JIMPLE_LN) != 0;
+    }
+
     int options = 0;
     public void setOption(int opt) {
         options |= opt;
@@ -64,15 +70,27 @@ public class Printer {
     }
 
     int jimpleLnNum = 0; // actual line number
+    // line numbers of the printing threads, see PER_THREAD_JIMPLE_LN
+    private final ThreadLocal<int[]> threadJimpleLnNum = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
 
     public int getJimpleLnNum() {
+        if (perThreadJimpleLn())
+            return threadJimpleLnNum.get()[0];
         return jimpleLnNum;
     }
     public void setJimpleLnNum(int newVal) {
-        jimpleLnNum = newVal;
+        if (perThreadJimpleLn())
+            threadJimpleLnNum.get()[0] = newVal;
+        else
+            jimpleLnNum = newVal;
     }
     public void incJimpleLnNum() {
-        jimpleLnNum++;
+        setJimpleLnNum(getJimpleLnNum() + 1);
 	//G.v().out.println("jimple Ln Num: "+jimpleLnNum);
     }
 
@@ -259,9 +277,21 @@ public class Printer {
      *   @param out a PrintWriter instance to print to.
      */
     public void printTo(Body b, PrintWriter out) {
+        printTo(b, out, null);
+    }
+
+    /**
+     *   Prints the body like {@link #printTo(Body, PrintWriter)} with ADD_JIMPLE_LN, but puts the
+     *   Jimple line of each statement which would be tagged into <code>unitLines</code> instead of
+     *   adding tags. The body is not modified, so other threads may read its tags meanwhile.
+     *
+     *   @param unitLines receives the lines, null to print as configured by the options
+     */
+    public void printTo(Body b, PrintWriter out, Map<Unit, Integer> unitLines) {
 //        b.validate();
 
         boolean isPrecise = !useAbbreviations();
+        boolean countLines = addJimpleLn() || unitLines != null;
 
         String decl = b.getMethod().getDeclaration();
 
@@ -269,7 +299,7 @@ public class Printer {
         //incJimpleLnNum();
     
         // only print tags if not printing attributes in a file 
-        if (!addJimpleLn()) {
+        if (!countLines) {
             /*for( Iterator tIt = b.getMethod().getTags().iterator(); tIt.hasNext(); ) {    final Tag t = (Tag) tIt.next();
                 out.println(t);
                 incJimpleLnNum();
@@ -277,7 +307,9 @@ public class Printer {
             }*/
         }
        
-        if (addJimpleLn()) {
+        if (unitLines != null) {
+            incJimpleLnNum();
+        } else if (addJimpleLn()) {
             setJimpleLnNum(addJimpleLnTags(getJimpleLnNum(), b.getMethod()));		
             //G.v().out.println("added jimple ln tag for method: "+b.getMethod().toString()+" "+b.getMethod().getDeclaringClass().getName());
         }
@@ -291,13 +323,13 @@ public class Printer {
         if( isPrecise ) up = new NormalUnitPrinter(b);
         else up = new BriefUnitPrinter(b);
 
-        if (addJimpleLn()) {
-            up.setPositionTagger( new AttributesUnitPrinter(getJimpleLnNum()) );
+        if (countLines) {
+            up.setPositionTagger( new AttributesUnitPrinter(getJimpleLnNum(), unitLines) );
         }
 	
         printLocalsInBody(b, up);
 
-        printStatementsInBody(b, out, up, unitGraph);
+        printStatementsInBody(b, out, up, unitGraph, countLines);
 
         out.println("    }");
         incJimpleLnNum();
@@ -305,7 +337,7 @@ public class Printer {
     }
 
     /** Prints the given <code>JimpleBody</code> to the specified <code>PrintWriter</code>. */
-    private void printStatementsInBody(Body body, java.io.PrintWriter out, LabeledUnitPrinter up, UnitGraph unitGraph ) {
+    private void printStatementsInBody(Body body, java.io.PrintWriter out, LabeledUnitPrinter up, UnitGraph unitGraph, boolean countLines ) {
     	Chain<Unit> units = body.getUnits();
         Unit previousStmt;
 
@@ -380,7 +412,7 @@ public class Printer {
         }
 
         out.print(up.toString());
-		if (addJimpleLn()){
+		if (countLines){
 			setJimpleLnNum(up.getPositionTagger().getEndLn());
 		}
 
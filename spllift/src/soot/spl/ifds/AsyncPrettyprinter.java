@@ -24,7 +24,7 @@ public class AsyncPrettyprinter  {
 		solver = ctx.mkSolver();
 	}
 	
-	public Future<String> add(Expr expression)
+	public synchronized Future<String> add(Expr expression)
 	{
 		solver.reset();
 		Expr expr = expression.translate(ctx);
@@ -0,0 +1,396 @@
+package soot.spl.ifds;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import net.sf.javabdd.BDD;
+import net.sf.javabdd.BDDFactory;
+import net.sf.javabdd.JFactory;
+
+import soot.spl.ifds.SolverOperation.Operator;
+
+/**
+ * Constraint backed by a BDD of the in-process JavaBDD factory. Each atom (an imprecise
+ * feature symbol like Foo_Alpha or a comparison on an imprecise feature) is mapped to one
+ * BDD variable, so and/or/negate are plain BDD operations without a round trip through Z3.
+ *
+ * Instances are interned by BDD node, equal constraints are the same object and equals() is
+ * a pointer comparison. A BDD constraint never equals a Z3 based {@link Constraint} of the same
+ * formula, as the hash codes of both differ. The SMT-LIB representation is only built on demand, i.e., for pretty
+ * printing and when combined with a Z3 based {@link Constraint} (precise features).
+ *
+ * Comparisons of an imprecise feature with a constant, e.g. (= |3| -1) and (> |3| -1), are
+ * variables as well. Assignments under which they contradict each other are excluded by an
+ * invariant, the disjunction of the assignments at one value of each region between the
+ * constants of the feature. Every constraint is conjoined with the invariant, constraints
+ * created before a comparison was added are conjoined again when they are next combined.
+ * Comparisons of two features are left to Z3, see {@link Constraint#intConstraint(String, String, String)}.
+ *
+ * All operations lock the one factory, JavaBDD factories are not thread safe and BDDs of
+ * different factories cannot be combined. Parallel solver threads therefore serialize on
+ * constraint operations; with many threads, the Z3 backend may be faster.
+ */
+public class BDDConstraint implements IConstraint {
+
+	private static final BDDFactory FACTORY = JFactory.init(100000, 10000);
+	private static final int VAR_INCREMENT = 64;
+
+	// All fields below are guarded by FACTORY
+	private static final Map<String, Integer> atomToVar = new HashMap<>();
+	private static final List<String> varToAtom = new ArrayList<>();
+	private static final Map<Integer, BDDConstraint> canonical = new HashMap<>();
+	// Comparisons with constants per feature and the invariant excluding contradicting ones
+	private static final Map<String, List<Comparison>> comparisons = new HashMap<>();
+	private static BDD invariant = FACTORY.one();
+	private static int invariantVersion = 0;
+	// Incremented by reset, constraints of an earlier generation must not be used
+	private static int generation = 0;
+
+	static {
+		FACTORY.setVarNum(VAR_INCREMENT);
+		CachedZ3Solver.addResetHook(BDDConstraint::reset);
+	}
+
+	private final BDD bdd;
+	private final int bddGeneration;
+	// Version of the invariant this constraint is conjoined with, -1 if it is not
+	private int version;
+	private volatile String z3Constraint;
+
+	private static class Comparison {
+		private final String operator;
+		private final int constant;
+		private final int var;
+
+		private Comparison(String operator, int constant, int var) {
+			this.operator = operator;
+			this.constant = constant;
+			this.var = var;
+		}
+
+		private boolean holds(long value) {
+			switch(operator) {
+			case "=": return value == constant;
+			case ">=": return value >= constant;
+			case ">": return value > constant;
+			case "<=": return value <= constant;
+			case "<": return value < constant;
+			default: throw new IllegalArgumentException("Unknown comparison " + operator);
+			}
+		}
+	}
+
+	private BDDConstraint(BDD bdd) {
+		this.bdd = bdd;
+		this.bddGeneration = generation;
+	}
+
+	/**
+	 * Drops all atoms and constraints and releases their BDD nodes, e.g. before the next app is
+	 * analyzed in the same JVM. Called by {@link CachedZ3Solver#clearCache()} once this class is loaded.
+	 */
+	public static void reset()
+	{
+		synchronized (FACTORY) {
+			canonical.clear();
+			atomToVar.clear();
+			varToAtom.clear();
+			comparisons.clear();
+			FACTORY.reset();
+			FACTORY.setVarNum(VAR_INCREMENT);
+			invariant = FACTORY.one();
+			invariantVersion++;
+			generation++;
+		}
+	}
+
+	// Caller must hold FACTORY. Node ids are reused after a reset, so stale constraints would silently mix.
+	private BDD bdd()
+	{
+		if(bddGeneration != generation) {
+			throw new IllegalStateException("Constraint was created before BDDConstraint.reset()");
+		}
+		return bdd;
+	}
+
+	/**
+	 * Returns the constraint for the given atom. The atom must be a valid SMT-LIB Bool term.
+	 */
+	public static IConstraint atom(String atom)
+	{
+		synchronized (FACTORY) {
+			return make(FACTORY.ithVar(var(atom)).andWith(invariant.id()), true);
+		}
+	}
+
+	/**
+	 * Returns the constraint for the comparison of the given feature with a constant, e.g.,
+	 * (&gt;= |3| 1) for feature |3|, operator &gt;= and constant 1.
+	 */
+	public static IConstraint comparison(String feature, String operator, int constant)
+	{
+		synchronized (FACTORY) {
+			String atom = "(" + operator + " " + feature + " " + constant + ")";
+			boolean added = !atomToVar.containsKey(atom);
+			int var = var(atom);
+			if(added) {
+				List<Comparison> featureComparisons = comparisons.get(feature);
+				if(featureComparisons == null) {
+					featureComparisons = new ArrayList<>();
+					comparisons.put(feature, featureComparisons);
+				}
+				featureComparisons.add(new Comparison(operator, constant, var));
+				// The new invariant implies the old one, constraints conjoined with the old one stay sound
+				invariant.andWith(featureInvariant(featureComparisons));
+				invariantVersion++;
+			}
+			return make(FACTORY.ithVar(var).andWith(invariant.id()), true);
+		}
+	}
+
+	// Caller must hold FACTORY
+	private static int var(String atom)
+	{
+		Integer var = atomToVar.get(atom);
+		if(var == null) {
+			var = varToAtom.size();
+			if(var >= FACTORY.varNum()) {
+				FACTORY.extVarNum(VAR_INCREMENT);
+			}
+			atomToVar.put(atom, var);
+			varToAtom.add(atom);
+		}
+		return var;
+	}
+
+	// Caller must hold FACTORY. Values in a region between two constants satisfy the same comparisons.
+	private static BDD featureInvariant(List<Comparison> featureComparisons)
+	{
+		TreeSet<Long> values = new TreeSet<>();
+		for(Comparison comparison : featureComparisons) {
+			values.add(comparison.constant - 1L);
+			values.add((long) comparison.constant);
+			values.add(comparison.constant + 1L);
+		}
+		BDD result = FACTORY.zero();
+		for(long value : values) {
+			BDD cube = FACTORY.one();
+			for(Comparison comparison : featureComparisons) {
+				cube.andWith(comparison.holds(value) ? FACTORY.ithVar(comparison.var) : FACTORY.nithVar(comparison.var));
+			}
+			result.orWith(cube);
+		}
+		return result;
+	}
+
+	// Caller must hold FACTORY. Conjoins the result with the invariant if an operand is not conjoined with its current version.
+	private static IConstraint combine(BDD bdd, BDDConstraint... operands)
+	{
+		for(BDDConstraint operand : operands) {
+			if(operand.version != invariantVersion) {
+				return make(bdd.andWith(invariant.id()), true);
+			}
+		}
+		return make(bdd, true);
+	}
+
+	// Caller must hold FACTORY
+	private static IConstraint make(BDD bdd, boolean conjoined)
+	{
+		if(bdd.isOne() || bdd.equals(invariant)) {
+			bdd.free();
+			return Constraint.trueValue();
+		}
+		if(bdd.isZero()) {
+			bdd.free();
+			return Constraint.falseValue();
+		}
+
+		BDDConstraint existing = canonical.get(bdd.hashCode());
+		if(existing != null) {
+			bdd.free();
+			if(conjoined) {
+				existing.version = invariantVersion;
+			}
+			return existing;
+		}
+
+		BDDConstraint result = new BDDConstraint(bdd);
+		result.version = conjoined ? invariantVersion : -1;
+		canonical.put(bdd.hashCode(), result);
+		return result;
+	}
+
+	public IConstraint not()
+	{
+		synchronized (FACTORY) {
+			return make(bdd().not().andWith(invariant.id()), true);
+		}
+	}
+
+	@Override
+	public IConstraint or(IConstraint other) {
+		if(other == this) return this;
+		if(other.isConstTrue()) return other;
+		if(other.isConstFalse()) return this;
+		if(other instanceof BDDConstraint) {
+			synchronized (FACTORY) {
+				return combine(bdd().or(((BDDConstraint) other).bdd()), this, (BDDConstraint) other);
+			}
+		}
+		return toZ3().or(other);
+	}
+
+	@Override
+	public IConstraint and(IConstraint other) {
+		if(other == this) return this;
+		if(other.isConstTrue()) return this;
+		if(other.isConstFalse()) return other;
+		if(other instanceof BDDConstraint) {
+			synchronized (FACTORY) {
+				return combine(bdd().and(((BDDConstraint) other).bdd()), this, (BDDConstraint) other);
+			}
+		}
+		return toZ3().and(other);
+	}
+
+	private Constraint toZ3()
+	{
+		return new Constraint(getZ3Constraint());
+	}
+
+	/**
+	 * Number of BDD nodes of this constraint.
+	 */
+	public int size()
+	{
+		synchronized (FACTORY) {
+			return bdd().nodeCount();
+		}
+	}
+
+	/**
+	 * Projects out the atoms with the fewest nodes until at most budget nodes are left. The
+	 * result is conjoined with the invariant again if it still fits the budget.
+	 */
+	@Override
+	public IConstraint widen(int budget) {
+		if(budget < 0) {
+			return this;
+		}
+		synchronized (FACTORY) {
+			if(bdd().nodeCount() <= budget) {
+				return this;
+			}
+			BDD widened = bdd.id();
+			while(widened.nodeCount() > budget) {
+				int[] profile = widened.varProfile();
+				int least = -1;
+				for(int var = 0; var < profile.length; var++) {
+					if(profile[var] > 0 && (least < 0 || profile[var] < profile[least])) {
+						least = var;
+					}
+				}
+				BDD var = FACTORY.ithVar(least);
+				BDD projected = widened.exist(var);
+				var.free();
+				widened.free();
+				widened = projected;
+			}
+			BDD conjoined = widened.and(invariant);
+			if(conjoined.nodeCount() <= budget) {
+				widened.free();
+				return make(conjoined, true);
+			}
+			conjoined.free();
+			return make(widened, false);
+		}
+	}
+
+	/**
+	 * Number of BDD variables (atoms) created so far.
+	 */
+	public static int getAtomCount()
+	{
+		synchronized (FACTORY) {
+			return varToAtom.size();
+		}
+	}
+
+	@Override
+	public String toString() {
+		// Z3 is only used for simplification of the printed form
+		String simplified = CachedZ3Solver.solve(new SolverOperation(getZ3Constraint(), Operator.DUMMY));
+		return CachedZ3Solver.getPrettyprinted(simplified);
+	}
+
+	@Override
+	public int hashCode() {
+		return bdd.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		// Interned, see class comment
+		return this == obj;
+	}
+
+	@Override
+	public String prettyString(Map<Integer, String> bddToString) {
+		return toString();
+	}
+
+	@Override
+	public boolean isConstFalse() {
+		return false;
+	}
+
+	@Override
+	public boolean isConstTrue() {
+		return false;
+	}
+
+	/**
+	 * SMT-LIB representation as disjunction of the satisfying paths of the BDD.
+	 */
+	@Override
+	public String getZ3Constraint() {
+		String result = z3Constraint;
+		if(result == null) {
+			synchronized (FACTORY) {
+				List<String> cubes = new ArrayList<>();
+				for(Object sat : bdd().allsat()) {
+					byte[] assignment = (byte[]) sat;
+					List<String> literals = new ArrayList<>();
+					for(int var = 0; var < assignment.length && var < varToAtom.size(); var++) {
+						if(assignment[var] == 1) {
+							literals.add(varToAtom.get(var));
+						} else if(assignment[var] == 0) {
+							literals.add("(not " + varToAtom.get(var) + ")");
+						}
+					}
+					cubes.add(join("and", literals));
+				}
+				result = join("or", cubes);
+			}
+			z3Constraint = result;
+		}
+		return result;
+	}
+
+	private static String join(String operator, List<String> parts)
+	{
+		if(parts.size() == 1) {
+			return parts.get(0);
+		}
+		StringBuilder sb = new StringBuilder("(").append(operator);
+		for(String part : parts) {
+			sb.append(' ').append(part);
+		}
+		return sb.append(')').toString();
+	}
+
+}
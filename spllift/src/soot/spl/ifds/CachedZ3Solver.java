@@ -1,26 +1,38 @@
 package soot.spl.ifds;
 
-import java.text.NumberFormat;
-import java.time.LocalTime;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
 import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import javax.management.NotificationEmitter;
 import javax.print.attribute.standard.DateTimeAtCompleted;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.concurrent.ConcurrentUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import soot.spl.ifds.MongoLoader.CacheResult;
 import soot.spl.ifds.SolverOperation.Operator;
@@ -38,214 +50,648 @@ import com.microsoft.z3.Tactic;
 import com.microsoft.z3.Z3Exception;
 public class CachedZ3Solver {
 	
-	private static Map<SolverOperation, String> cache = new ConcurrentHashMap<SolverOperation, String>();
+	// Each distinct constraint is stored once and identified by its id
+	private static ConstraintInterner constraints = new ConstraintInterner();
+	// Memo table (operator, id1, id2) -> id of the result
+	private static LongIntMap cache = new LongIntMap();
 	private static int maxFeatureIndex = 0;
 	
+	// Placeholder for the second operand of unary operations
+	public static final int NO_OPERAND = -1;
+	private static final int MAX_ID = (1 << 30) - 1;
+	
 //	private static long counter = 0;
 //	private static long hit = 0;
 //	private static long miss = 0;
 	
 	
-	// @ TODO remove duplicate cache
-	private static Map<String, Future<String>> prettyprinted = new ConcurrentHashMap<>();
 	private static IZ3Prettyprinting prettyprinting = new MyZ3Prettyprinting();
 	
 	// @ TODO -> find better solution than outside static initialization
 	public static Map<Integer, String> featureNames = null;
 	
-	private static long counter = 0;
-	private static long miss = 0;
-	private static long hit = 0;
-	private static long limitHit = 0;
+	private static SolverCacheStatistics statistics = new SolverCacheStatistics();
 	
-	private static AsyncPrettyprinter asyncPrettyprinter = new AsyncPrettyprinter();
+	// Upper bound for the total length of all cached formulas, by default about an eighth of the heap
+	private static long maxCacheWeight = Runtime.getRuntime().maxMemory() / 16;
+	private static final ReentrantLock evictionLock = new ReentrantLock();
+	// Set if a collection left the old generation above this fraction of its maximum size
+	private static final double memoryPressureThreshold = 0.85;
+	private static volatile boolean memoryPressure = false;
+	
+	// Evicted results are written back to the MongoDB tier by a single background thread
+	private static final ExecutorService spillExecutor = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "solver-cache-spill");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private static final AtomicInteger spilling = new AtomicInteger();
+	private static final int maxPendingSpills = 16;
 	
-	private static Pattern p = Pattern.compile("\\w+_\\w+");
+	private static final Logger logger = LoggerFactory.getLogger(CachedZ3Solver.class);
+	
+	static {
+		registerMemoryPressureListener();
+	}
+	
+	// Z3 contexts are not thread-safe, each simplification leases its own context from the pool
+	private static Z3ContextPool contextPool = new Z3ContextPool(Runtime.getRuntime().availableProcessors());
+	
+	// Operations currently simplified by some thread. Other threads missing on the same operation wait for that result.
+	private static Map<SolverOperation, FutureTask<Result>> inFlight = new ConcurrentHashMap<>();
+	
+	private static AsyncPrettyprinter asyncPrettyprinter = new AsyncPrettyprinter();
 	
-//	private static MongoLoader mongoLoader = new MongoLoader();
-	private static boolean disableNewCacheEntries = true;
 	private static boolean useStructuralCache = false;
-	private static MongoLoader mongoLoader = null;
+	// MongoDB solverCache or local SolverResultStore, null if disabled
+	private static SolverResultTier persistentTier = null;
+	// Opened by usePersistentStore and kept open for all following analyses
+	private static SolverResultStore persistentStore = null;
+	// Run by clearCache, registered by constraint representations with state of their own
+	private static final List<Runnable> resetHooks = new CopyOnWriteArrayList<>();
 	
+	/**
+	 * Clears all cached results and interned constraints.
+	 * Constraints created before are interned again on their next use, except for
+	 * {@link BDDConstraint}s, whose atoms and nodes are dropped by their reset hook.
+	 */
 	public static void clearCache()
 	{
 		cache.clear();
-		prettyprinted.clear();
-		counter = 0;
-		miss = 0;
-		hit = 0;
-		limitHit = 0;
+		constraints.clear();
+		for(Runnable hook : resetHooks)
+		{
+			hook.run();
+		}
+		statistics.reset();
+		contextPool.resetStatistics();
 	}
 	
-	private static void structuralcache_getUsedSymbols(String operand, Map<String, String> usedSymbols)
+	static void addResetHook(Runnable hook)
 	{
-		Matcher m = p.matcher(operand);
-		while(m.find())
-		{
-			if(!usedSymbols.containsKey(m.group(0)))
+		resetHooks.add(hook);
+	}
+	
+	/**
+	 * Sets the number of Z3 contexts which may be used concurrently.
+	 * Should be called before the analysis starts, contexts of the previous pool are not reused.
+	 */
+	public static void setContextPoolSize(int size)
+	{
+		contextPool = new Z3ContextPool(size);
+	}
+	
+	public static Z3ContextPool.Statistics getContextPoolStatistics()
+	{
+		return contextPool.getStatistics();
+	}
+	
+	public static long getInFlightHits()
+	{
+		return statistics.getInFlightHits();
+	}
+	
+	public static int intern(String constraint)
+	{
+		return constraints.intern(constraint);
+	}
+	
+	/**
+	 * Returns the formula of an interned constraint or null if it has been evicted.
+	 */
+	public static String getFormula(int id)
+	{
+		return constraints.getFormula(id);
+	}
+	
+	public static int getInternedCount()
+	{
+		return constraints.size();
+	}
+	
+	public static long getCacheSize()
+	{
+		return cache.size();
+	}
+	
+	public interface CachedResultVisitor
+	{
+		/**
+		 * @param formula2 Null for unary operators
+		 * @param pretty Pretty printed form of the result, null if it is not known
+		 */
+		void visit(Operator operator, String formula1, String formula2, String result, Future<String> pretty);
+	}
+	
+	/**
+	 * Visits the cached results whose constraints are all still interned.
+	 */
+	public static void forEachCachedResult(CachedResultVisitor visitor)
+	{
+		cache.forEach((key, value) -> {
+			int id1 = (int) (key >>> 30) & MAX_ID;
+			int id2 = (int) key & MAX_ID;
+			String formula1 = constraints.getFormula(id1);
+			String formula2 = id2 == MAX_ID ? null : constraints.getFormula(id2);
+			String result = constraints.getFormula(value);
+			if(formula1 != null && (id2 == MAX_ID || formula2 != null) && result != null)
 			{
-				// Use of sync block to handle to size operation
-				usedSymbols.put(m.group(0), "Symbol_" + usedSymbols.size());
+				Operator operator = Operator.values()[(int) (key >>> 60) - 1];
+				visitor.visit(operator, formula1, formula2, result, constraints.getPretty(value, result));
 			}
-		}
+		});
+	}
+	
+	/**
+	 * Bounds the total length of all cached formulas. Constraints not used recently
+	 * are evicted together with all cached results referring to them.
+	 */
+	public static void setMaxCacheWeight(long chars)
+	{
+		maxCacheWeight = chars;
+	}
+	
+	/**
+	 * If set, pretty printed forms may be collected under memory pressure and are recomputed on demand.
+	 */
+	public static void setSoftPrettyprinted(boolean soft)
+	{
+		constraints.setSoftPretty(soft);
+	}
+	
+	/**
+	 * Uses the MongoDB solverCache collection as second tier: results missing in memory are looked up
+	 * there and evicted results are written back asynchronously. Pass null to disable.
+	 */
+	public static void setMongoLoader(MongoLoader loader)
+	{
+		setPersistentTier(loader);
 	}
 	
-	private static SolverOperation structuralcache_replaceNames(SolverOperation operation, Map<String, String> usedSymbols)
+	/**
+	 * Sets the tier looked up for results missing in memory. Pass null to disable.
+	 */
+	public static void setPersistentTier(SolverResultTier tier)
 	{
-		String op1replaced = operation.getOperand1();
-		String op2replaced = operation.getOperand2();
-		for(Entry<String,String> entry : usedSymbols.entrySet())
+		persistentTier = tier;
+	}
+	
+	/**
+	 * Uses a local {@link SolverResultStore} in the given file as second tier. The store is opened
+	 * once and shared by all following analyses in this JVM, {@link #clearCache()} keeps it.
+	 */
+	public static synchronized void usePersistentStore(File file) throws IOException
+	{
+		if(persistentStore == null || !persistentStore.getFile().equals(file))
 		{
-			op1replaced = op1replaced.replaceAll(entry.getKey() + "(?=\\D|$)", entry.getValue());
-			if(op2replaced != null)
+			if(persistentStore != null)
 			{
-				op2replaced = op2replaced.replaceAll(entry.getKey() + "(?=\\D|$)", entry.getValue());
+				persistentStore.close();
 			}
+			persistentStore = new SolverResultStore(file);
 		}
-		SolverOperation operationReplaced;
-		if(op2replaced != null) {
-			operationReplaced = new SolverOperation(op1replaced, op2replaced, operation.getOperator()); 
-		} else {
-			operationReplaced = new SolverOperation(op1replaced, operation.getOperator()); 
+		setPersistentTier(persistentStore);
+	}
+	
+	/**
+	 * If set, operations which only differ in the names of the features share one result.
+	 */
+	public static void setStructuralCache(boolean enabled)
+	{
+		useStructuralCache = enabled;
+	}
+	
+	/**
+	 * Returns the id of a constraint implied by the interned one with at most budget literals.
+	 * The widening is computed once per constraint and budget.
+	 * @see ConstraintWidening
+	 */
+	public static int widen(int id, String formula, int budget)
+	{
+		return widenInterned(id, formula, budget).id;
+	}
+	
+	// Widening together with its formula, the id might be reused as soon as it is returned
+	static Result widenInterned(int id, String formula, int budget)
+	{
+		if(formula.length() <= budget)
+		{
+			// Fits without being parsed, see ConstraintWidening#widen
+			return new Result(id, formula);
+		}
+		long releases = constraints.getReleaseCount();
+		int widened = constraints.getWidening(id, formula, budget);
+		String result = widened < 0 ? null : constraints.getFormula(widened);
+		if(result == null || constraints.getReleaseCount() != releases)
+		{
+			result = ConstraintWidening.widen(formula, budget);
+			widened = result == formula ? id : constraints.intern(result);
+			constraints.setWidening(id, formula, budget, widened, result);
+		}
+		if(widened != id)
+		{
+			statistics.widened.incrementAndGet();
+		}
+		return new Result(widened, result);
+	}
+	
+	/**
+	 * Returns a formula implied by the given one with at most budget literals.
+	 * @see ConstraintWidening
+	 */
+	public static String widen(String formula, int budget)
+	{
+		String widened = ConstraintWidening.widen(formula, budget);
+		if(widened != formula)
+		{
+			statistics.widened.incrementAndGet();
+		}
+		return widened;
+	}
+	
+	/**
+	 * Sets the number of clauses up to which joins are simplified in the JVM instead of by Z3.
+	 */
+	public static void setPresimplifierMaxClauses(int clauses)
+	{
+		ConstraintSimplifier.setMaxClauses(clauses);
+	}
+	
+	public static SolverCacheStatistics getStatistics()
+	{
+		return statistics;
+	}
+	
+	private static long memoKey(Operator operator, int id1, int id2)
+	{
+		if(id1 >= MAX_ID || id2 >= MAX_ID)
+		{
+			throw new IllegalStateException("Too many interned constraints");
 		}
-		return operationReplaced;
+		// id2 == NO_OPERAND is mapped to MAX_ID
+		return ((long) (operator.ordinal() + 1) << 60) | ((long) id1 << 30) | (id2 & MAX_ID);
+	}
+	
+	private static SolverOperation toOperation(Operator operator, String formula1, String formula2)
+	{
+		if(formula2 == null) {
+			return new SolverOperation(formula1, operator);
+		}
+		return new SolverOperation(formula1, formula2, operator);
 	}
 	
 	public static String solve(SolverOperation operation)
-	{		
-		Map<String, String> usedSymbols = new ConcurrentHashMap<>();
-		
-		SolverOperation operationReplaced = null;
+	{
+		int id1 = constraints.intern(operation.getOperand1());
+		int id2 = operation.getOperand2() == null ? NO_OPERAND : constraints.intern(operation.getOperand2());
+		return solveInterned(operation.getOperator(), id1, operation.getOperand1(), id2, operation.getOperand2()).formula;
+	}
+	
+	/**
+	 * Applies the operator to the interned constraints and returns the id of the result.
+	 * For unary operators, id2 must be {@link #NO_OPERAND}.
+	 */
+	public static int solve(Operator operator, int id1, int id2)
+	{
+		return solve(operator, id1, constraints.getFormula(id1), id2, id2 == NO_OPERAND ? null : constraints.getFormula(id2));
+	}
+	
+	/**
+	 * Like {@link #solve(Operator, int, int)}, the formulas are passed along in case the ids
+	 * have been evicted meanwhile.
+	 */
+	public static int solve(Operator operator, int id1, String formula1, int id2, String formula2)
+	{
+		if(formula1 == null || (id2 != NO_OPERAND && formula2 == null))
+		{
+			throw new IllegalArgumentException("Operand of " + operator + " has been evicted");
+		}
+		return solveInterned(operator, id1, formula1, id2, formula2).id;
+	}
+	
+	// Result id together with its formula, the id might be reused as soon as it is returned
+	static class Result
+	{
+		final int id;
+		final String formula;
 		
-		boolean enableQuerySizeLimit = true;
-		int querySizeLimit = 5000;
+		Result(int id, String formula) {
+			this.id = id;
+			this.formula = formula;
+		}
+	}
+	
+	static Result solveInterned(Operator operator, int id1, String formula1, int id2, String formula2)
+	{
+		statistics.operations.incrementAndGet();
 		
-		if(useStructuralCache)
+		long key = memoKey(operator, id1, id2);
+		Result result = getCached(key, id1, formula1, id2, formula2);
+		if(result == null)
 		{
-			structuralcache_getUsedSymbols(operation.getOperand1(), usedSymbols);
-			if(operation.getOperand2() != null)
-			{
-				structuralcache_getUsedSymbols(operation.getOperand2(), usedSymbols);
-			}
+			result = useStructuralCache
+					? solveStructural(operator, key, id1, formula1, id2, formula2)
+					: solveMissing(operator, key, id1, formula1, id2, formula2);
 			
-			// replace symbols with simple enumerated names
-			operationReplaced = structuralcache_replaceNames(operation, usedSymbols);		
+			evictIfNeeded();
 		} else {
-			operationReplaced = operation;
+			statistics.hits.incrementAndGet();
 		}
 		
-		String result = null;
-		if(!cache.containsKey(operationReplaced))
+		if(result.formula.startsWith("(null"))
+		{
+			throw new IllegalStateException("result " + result.formula + " is not valid");
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Returns the cached result of the operation or null. Ids are reused after they have been
+	 * evicted, so the operands must still belong to their formulas after the lookup and no id
+	 * may have been released meanwhile.
+	 */
+	private static Result getCached(long key, int id1, String formula1, int id2, String formula2)
+	{
+		long releases = constraints.getReleaseCount();
+		int result = cache.get(key);
+		String resultFormula = result == LongIntMap.NO_VALUE ? null : constraints.getFormula(result);
+		if(resultFormula == null || !constraints.isCurrent(id1, formula1)
+				|| (id2 != NO_OPERAND && !constraints.isCurrent(id2, formula2))
+				|| constraints.getReleaseCount() != releases)
 		{
-			// Try MongoLoader cache
-			if(mongoLoader != null)
+			return null;
+		}
+		return new Result(result, resultFormula);
+	}
+	
+	/**
+	 * Caches the result unless one of the ids has been evicted meanwhile. The check happens under
+	 * the lock of the cache segment, so the eviction either removes the entry or sees it fail.
+	 */
+	private static void putCached(long key, int id1, String formula1, int id2, String formula2, Result result)
+	{
+		cache.putIf(key, result.id, () -> constraints.isCurrent(id1, formula1)
+				&& (id2 == NO_OPERAND || constraints.isCurrent(id2, formula2))
+				&& constraints.isCurrent(result.id, result.formula));
+	}
+	
+	// Result of an operation missing in the in-memory cache
+	private static Result solveMissing(Operator operator, long key, int id1, String formula1, int id2, String formula2)
+	{
+		if(ConstraintSimplifier.handles(operator))
+		{
+			String simplified = ConstraintSimplifier.simplify(operator, formula1, formula2);
+			if(simplified != null)
 			{
-				CacheResult cacheResult = mongoLoader.get(operationReplaced.toString());
-				
-				if(cacheResult != null)
-				{
-					result = cacheResult.getResult();
-					cache.put(operationReplaced, result);
-					String pretty = cacheResult.getPretty();
-					prettyprinted.put(result, ConcurrentUtils.constantFuture(pretty));
-					hit++;
+				statistics.presimplified.incrementAndGet();
+				Result result;
+				if(simplified.equals(formula1)) {
+					result = new Result(id1, formula1);
+				} else if(simplified.equals(formula2)) {
+					result = new Result(id2, formula2);
+				} else {
+					result = new Result(constraints.intern(simplified), simplified);
 				}
+				putCached(key, id1, formula1, id2, formula2, result);
+				return result;
 			}
+			statistics.escalated.incrementAndGet();
+		}
+		
+		// Try persistent cache
+		SolverResultTier tier = persistentTier;
+		if(tier != null)
+		{
+			CacheResult cacheResult = tier.get(toOperation(operator, formula1, formula2).toString());
 			
-			if(result == null 
-					&& enableQuerySizeLimit 
-					&& operation.getOperator() == Operator.OR
-					&& (operation.getOperand1().length() > querySizeLimit || operation.getOperand2().length() > querySizeLimit))
-			{
-				 result = operation.getOperand1();
-				 cache.put(operationReplaced, result);
-				 limitHit++;
-			}
-			
-			if(result == null)
+			if(cacheResult != null)
 			{
-				miss++;
-	//			System.out.println(operationReplaced);
-				solveUsingZ3(operationReplaced);
+				Result result = new Result(constraints.intern(cacheResult.getResult()), cacheResult.getResult());
+				if(cacheResult.getPretty() != null) {
+					constraints.setPretty(result.id, result.formula, ConcurrentUtils.constantFuture(cacheResult.getPretty()));
+				}
+				putCached(key, id1, formula1, id2, formula2, result);
+				statistics.spillHits.incrementAndGet();
+				return result;
 			}
+		}
+		
+		statistics.misses.incrementAndGet();
+		return solveDeduplicated(key, id1, id2, toOperation(operator, formula1, formula2));
+	}
+	
+	/**
+	 * Solves the operation on the shapes of its operands, so all operations which only differ in
+	 * the names of the features share one result. The result is renamed back and cached for the
+	 * original operation as well.
+	 */
+	private static Result solveStructural(Operator operator, long key, int id1, String formula1, int id2, String formula2)
+	{
+		ConstraintShape shape1 = constraints.getShape(id1, formula1);
+		ConstraintShape shape2 = id2 == NO_OPERAND ? null : constraints.getShape(id2, formula2);
+		int[] symbols = shape2 == null ? shape1.symbols : ConstraintShape.join(shape1.symbols, shape2.symbols);
+		String canonical1 = shape1.formula;
+		String canonical2 = shape2 == null ? null : shape2.renameTo(symbols);
+		int canonicalId1 = constraints.intern(canonical1);
+		int canonicalId2 = shape2 == null ? NO_OPERAND : constraints.intern(canonical2);
+		
+		long canonicalKey = memoKey(operator, canonicalId1, canonicalId2);
+		if(canonicalKey == key)
+		{
+			// Already canonical
+			return solveMissing(operator, key, id1, formula1, id2, formula2);
+		}
+		
+		Result canonicalResult = getCached(canonicalKey, canonicalId1, canonical1, canonicalId2, canonical2);
+		if(canonicalResult == null)
+		{
+			canonicalResult = solveMissing(operator, canonicalKey, canonicalId1, canonical1, canonicalId2, canonical2);
 		} else {
-			hit++;
+			statistics.structuralHits.incrementAndGet();
 		}
 		
-		result = cache.get(operationReplaced);
+		String resultFormula = ConstraintShape.restore(canonicalResult.formula, symbols);
+		Result result = new Result(constraints.intern(resultFormula), resultFormula);
+		putCached(key, id1, formula1, id2, formula2, result);
 		
-		if(enableQuerySizeLimit && operation.getOperator() == Operator.AND && result.length() > querySizeLimit)
+		// Rename the pretty printed form if it is already there, otherwise it is computed on demand
+		Future<String> pretty = constraints.getPretty(canonicalResult.id, canonicalResult.formula);
+		if(pretty != null && pretty.isDone() && !constraints.hasPretty(result.id, result.formula))
 		{
-			if(operation.getOperand1().length() > querySizeLimit) {
-				result = operation.getOperand1();
-				cache.put(operationReplaced, result);
-				limitHit++;
+			try {
+				constraints.setPretty(result.id, result.formula, ConcurrentUtils.constantFuture(ConstraintShape.restore(pretty.get(), symbols)));
+			} catch (InterruptedException | ExecutionException e) {
+				// Leave it to getPrettyprinted
 			}
 		}
+		return result;
+	}
+	
+	/**
+	 * Simplifies the given operation using Z3 unless another thread is already simplifying
+	 * the same operation. In this case, we wait for the other thread and reuse its result.
+	 */
+	private static Result solveDeduplicated(final long key, final int id1, final int id2, final SolverOperation operation)
+	{
+		FutureTask<Result> task = new FutureTask<Result>(() -> {
+			String formula = solveUsingZ3(operation);
+			Result result = new Result(constraints.intern(formula), formula);
+			putCached(key, id1, operation.getOperand1(), id2, operation.getOperand2(), result);
+			return result;
+		});
 		
+		// Keyed by the formulas, the ids of an operation might be reused while it is solved
+		FutureTask<Result> running = inFlight.putIfAbsent(operation, task);
+		if(running == null) {
+			try {
+				task.run();
+			} finally {
+				inFlight.remove(operation);
+			}
+			running = task;
+		} else {
+			statistics.inFlightHits.incrementAndGet();
+		}
 		
-		// reverse
-		String resultReplaced = result;
-		Future<String> pretty = prettyprinted.get(result);
-		
-		if(useStructuralCache)
+		try {
+			return running.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+	}
+	
+	/**
+	 * Evicts constraints if the cache is above its weight or the heap is running full.
+	 * Cached results referring to evicted constraints are removed as well and, if a MongoDB
+	 * tier is configured, written back to it in the background.
+	 */
+	private static void evictIfNeeded()
+	{
+		boolean pressure = memoryPressure;
+		long maxWeight = pressure ? constraints.getChars() / 2 : maxCacheWeight;
+		if(constraints.getChars() <= maxWeight || !evictionLock.tryLock())
 		{
-			for(Entry<String,String> entry : usedSymbols.entrySet())
+			return;
+		}
+		try {
+			memoryPressure = false;
+			// Evict down to 90% to not run the sweep on each new constraint
+			final Map<Integer, String> evicted = constraints.evict(maxWeight / 10 * 9);
+			if(evicted.isEmpty())
 			{
-				resultReplaced = resultReplaced.replaceAll(entry.getValue() + "(?=\\D|$)", entry.getKey());
-				try {
-					String prettyReplaced = pretty.get().replaceAll(entry.getValue() + "(?=\\D|$)", entry.getKey());
-					pretty = ConcurrentUtils.constantFuture(prettyReplaced);
-				} catch(InterruptedException | ExecutionException e)
+				return;
+			}
+			statistics.evictedConstraints.addAndGet(evicted.size());
+			
+			final Map<String, CacheResult> spill = new HashMap<>();
+			final SolverResultTier tier = persistentTier;
+			// A write-through tier already has all results
+			final boolean spillEnabled = tier != null && !tier.isWriteThrough();
+			long removed = cache.removeIf((key, value) -> {
+				int id1 = (int) (key >>> 30) & MAX_ID;
+				int id2 = (int) key & MAX_ID;
+				if(!evicted.containsKey(id1) && !evicted.containsKey(id2) && !evicted.containsKey(value))
+				{
+					return false;
+				}
+				if(spillEnabled)
 				{
-					throw new RuntimeException(e);
+					String formula1 = formulaOf(id1, evicted);
+					String formula2 = id2 == MAX_ID ? null : formulaOf(id2, evicted);
+					String result = formulaOf(value, evicted);
+					if(formula1 != null && (id2 == MAX_ID || formula2 != null) && result != null)
+					{
+						Operator operator = Operator.values()[(int) (key >>> 60) - 1];
+						spill.put(toOperation(operator, formula1, formula2).toString(), new CacheResult(result, null));
+					}
 				}
+				return true;
+			});
+			statistics.evictedResults.addAndGet(removed);
+			// Nothing in the cache refers to the evicted ids anymore, entries put concurrently were rejected
+			constraints.release(evicted.keySet());
+			
+			if(!spill.isEmpty())
+			{
+				spill(tier, spill);
 			}
-	
-			result = resultReplaced;
-		}
-		
-		// Update prettyprinted
-		prettyprinted.put(result, pretty);
-		
-		// counter also used for explicit GC/Finalizer below
-		counter++;
-		if(counter % 50000 == 0) {			
-			System.out.format("%s Counter %s (Hit %d, Miss: %d, LimitHit: %d) \n",
-					LocalTime.now().toString(),
-					NumberFormat.getNumberInstance(Locale.US).format(counter), 
-					hit, 
-					miss,
-					limitHit);
+		} finally {
+			evictionLock.unlock();
 		}
-		
-//		System.out.println("solve("+ operation + ") = " + result);
-		
-		if(result.startsWith("(null"))
+	}
+	
+	private static String formulaOf(int id, Map<Integer, String> evicted)
+	{
+		String formula = evicted.get(id);
+		return formula != null ? formula : constraints.getFormula(id);
+	}
+	
+	private static void spill(final SolverResultTier tier, final Map<String, CacheResult> entries)
+	{
+		if(spilling.get() > maxPendingSpills)
 		{
-			throw new IllegalStateException("result " + result + " is not valid");
+			statistics.spillDropped.addAndGet(entries.size());
+			return;
 		}
-		
-		return result;
+		spilling.incrementAndGet();
+		spillExecutor.execute(() -> {
+			try {
+				tier.addAll(entries);
+				statistics.spilled.addAndGet(entries.size());
+			} catch(RuntimeException e) {
+				logger.error("Could not write evicted solver results", e);
+				statistics.spillDropped.addAndGet(entries.size());
+			} finally {
+				spilling.decrementAndGet();
+			}
+		});
 	}
 	
-	private static Context ctx;
-	private static Solver solver;
+	// Adds the result once it is pretty printed, without blocking the solving thread
+	private static void persist(final SolverResultTier tier, final String key, final String result, final Future<String> pretty)
+	{
+		spillExecutor.execute(() -> {
+			try {
+				tier.add(key, result, pretty.get());
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch(ExecutionException | RuntimeException e) {
+				logger.error("Could not store solver result", e);
+			}
+		});
+	}
 	
-	private static void initContext()
+	private static void registerMemoryPressureListener()
 	{
-		if(ctx == null)
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
 		{
-			ctx = new Context();				
-			solver = ctx.mkSolver();
-		} else {
-			solver.reset();
+			// Old generation, notification after a collection left it above the threshold
+			if(pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported() && pool.getUsage().getMax() > 0)
+			{
+				pool.setCollectionUsageThreshold((long) (pool.getUsage().getMax() * memoryPressureThreshold));
+			}
 		}
-		
+		NotificationEmitter emitter = (NotificationEmitter) ManagementFactory.getMemoryMXBean();
+		emitter.addNotificationListener((notification, handback) -> {
+			if(MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType()))
+			{
+				memoryPressure = true;
+			}
+		}, null, null);
 	}
+	
 	private static Pattern pattern = Pattern.compile("(\\w+)_(\\w+)");
-	private static synchronized void solveUsingZ3(SolverOperation operation)
+	private static String solveUsingZ3(SolverOperation operation)
 	{
+		String result = null;
+		
 		// create context and solver
 		
 		// add consts
@@ -259,9 +705,10 @@ public class CachedZ3Solver {
 //		Context ctx = null;
 //		Solver solver = null;
 		
-		try {
+		try (Z3ContextPool.Lease lease = contextPool.lease()) {
 			
-			initContext();
+			Context ctx = lease.getContext();
+			Solver solver = lease.getSolver();
 			
 			FuncDecl[] decls = {};
 			Symbol[] names = {};
@@ -271,36 +718,8 @@ public class CachedZ3Solver {
 			
 			
 			
-			StringBuilder input = new StringBuilder();
-			for(int i = 0; i <= maxFeatureIndex ; i++) {
-				input.append("(declare-const |" + i + "| Int)\n");
-			}
-			
 			String operationText = operation.toString();
-			
-			// For imprecise features FOO_Alpha, we add (declare-const Foo_Alpha Bool) 
-			
-			Matcher matcher = pattern.matcher(operationText);
-			
-			Set<String> added = new HashSet<>();
-			while(matcher.find()) {
-				String def = "(declare-const " + matcher.group(1) + "_" + matcher.group(2) + " Bool)\n";
-				if(added.add(def))
-				{
-					input.append(def);		
-				}
-			}
-			
-			Pattern z3tempVars = Pattern.compile("\\w\\!\\d+");
-			Matcher z3tempVarMatch = z3tempVars.matcher(operationText);
-			while(z3tempVarMatch.find())
-			{
-				String def = "(declare-const " + z3tempVarMatch.group(0) + " Bool)\n";
-				if(added.add(def))
-				{
-					input.append(def);		
-				}
-			}
+			StringBuilder input = declarations(operationText);
 			
 			BoolExpr op1 = null;
 			BoolExpr op2 = null;
@@ -333,7 +752,6 @@ public class CachedZ3Solver {
 				}
 			}
 			
-			String result = null;
 			BoolExpr expr = null;
 			if(operation.getOperator() == Operator.AND) {
 				expr = ctx.mkAnd(op1, op2);
@@ -368,14 +786,13 @@ public class CachedZ3Solver {
 					result = "false";
 				}
 				
-				cache.put(operation, result);
-				if(mongoLoader != null && !disableNewCacheEntries)
+				SolverResultTier tier = persistentTier;
+				if(tier != null && tier.isWriteThrough())
 				{
-					mongoLoader.add(operation.toString(), result, result);
+					tier.add(operation.toString(), result, result);
 				}
 				
-				prettyprinted.put(result, ConcurrentUtils.constantFuture(result));
-				return;
+				return result;
 			}
 			
 			if(operation.getOperator() == Operator.CNF)
@@ -445,16 +862,13 @@ public class CachedZ3Solver {
 			
 			result = combined.toString();
 			
-			cache.put(operation, result);
-			if(mongoLoader != null && !disableNewCacheEntries)
+			int resultId = constraints.intern(result);
+			Future<String> pretty = asyncPrettyprinter.add(combined);
+			constraints.setPretty(resultId, result, pretty);
+			SolverResultTier tier = persistentTier;
+			if(tier != null && tier.isWriteThrough())
 			{
-				// break async pretty printing
-				String pretty = asyncPrettyprinter.add(combined).get();
-				prettyprinted.put(result, ConcurrentUtils.constantFuture(pretty));
-				mongoLoader.add(operationText, result, pretty);
-			} else {
-				Future<String> pretty = asyncPrettyprinter.add(combined);
-				prettyprinted.put(result, pretty);
+				persist(tier, operationText, result, pretty);
 			}
 		
 
@@ -463,12 +877,6 @@ public class CachedZ3Solver {
 			e.printStackTrace();
 			System.err.println(operation);
 			throw new RuntimeException("Error in Z3");
-		} catch (InterruptedException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (ExecutionException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
 		} finally {
 //			try {
 //				if(solver != null) {
@@ -485,11 +893,6 @@ public class CachedZ3Solver {
 		}
 		
 //		ctx = null;
-		if(counter % 10000 == 0) {
-//			System.gc();
-//			System.runFinalization();
-//			System.out.println("GC / Finalizer");
-		}
 		
 //		try {
 //			Thread.sleep(5000);
@@ -497,16 +900,63 @@ public class CachedZ3Solver {
 //			// TODO Auto-generated catch block
 //			e.printStackTrace();
 //		}
+		return result;
+	}
+	
+	// Declarations of all features and symbols used in the given text
+	private static StringBuilder declarations(String text)
+	{
+		StringBuilder input = new StringBuilder();
+		for(int i = 0; i <= maxFeatureIndex ; i++) {
+			input.append("(declare-const |" + i + "| Int)\n");
+		}
+		
+		// For imprecise features FOO_Alpha, we add (declare-const Foo_Alpha Bool) 
+		
+		Matcher matcher = pattern.matcher(text);
+		
+		Set<String> added = new HashSet<>();
+		while(matcher.find()) {
+			String def = "(declare-const " + matcher.group(1) + "_" + matcher.group(2) + " Bool)\n";
+			if(added.add(def))
+			{
+				input.append(def);		
+			}
+		}
+		
+		Pattern z3tempVars = Pattern.compile("\\w\\!\\d+");
+		Matcher z3tempVarMatch = z3tempVars.matcher(text);
+		while(z3tempVarMatch.find())
+		{
+			String def = "(declare-const " + z3tempVarMatch.group(0) + " Bool)\n";
+			if(added.add(def))
+			{
+				input.append(def);		
+			}
+		}
+		return input;
+	}
+	
+	// Pretty prints a formula whose pretty printed form has been dropped
+	private static String prettyprint(String formula)
+	{
+		if(formula.equals("true") || formula.equals("false"))
+		{
+			return formula;
+		}
+		try (Z3ContextPool.Lease lease = contextPool.lease()) {
+			BoolExpr expr = lease.getContext().parseSMTLIB2String(declarations(formula).toString() + "(assert " + formula + ")", null, null, new Symbol[0], new FuncDecl[0]);
+			return prettyprinting.prettyprintZ3(expr);
+		} catch (Z3Exception e) {
+			throw new RuntimeException("Error in Z3", e);
+		}
 	}
 
 	public static synchronized String initializeConstraint(BitSet elems, Integer value, Set<Integer> trackPrecise)
 	{
-		Context ctx = null;
-		Solver solver = null;
-		
-		try {
-			ctx = new Context();
-			solver = ctx.mkSolver();
+		try (Z3ContextPool.Lease lease = contextPool.lease()) {
+			Context ctx = lease.getContext();
+			Solver solver = lease.getSolver();
 			
 			maxFeatureIndex = Math.max(maxFeatureIndex, elems.length());
 			
@@ -529,12 +979,13 @@ public class CachedZ3Solver {
 			{
 				String result = solver.getAssertions()[0].toString();
 				
-				if(!prettyprinted.containsKey(result)) {
+				int resultId = constraints.intern(result);
+				if(!constraints.hasPretty(resultId, result)) {
 //					String pretty = prettyprinting.prettyprintZ3(solver.getAssertions()[0]);
 					Future<String> pretty = asyncPrettyprinter.add(solver.getAssertions()[0]);
 //					System.out.println(result + " => " + pretty);
 					
-					prettyprinted.put(result, pretty);
+					constraints.setPretty(resultId, result, pretty);
 				}
 				
 				return result;
@@ -546,27 +997,7 @@ public class CachedZ3Solver {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
 			throw new RuntimeException("Error in Z3");
-		} finally {
-			try {
-				if(solver != null) {
-					solver.dispose();
-					solver = null;
-				}
-			} catch (Z3Exception e) {
-				e.printStackTrace();
-			} 
-			
-			if(ctx != null) {
-				ctx.dispose();
-				ctx = null;
-			}
-			if(counter++ % 10000 == 0) {
-				System.gc();
-				System.runFinalization();
-			}
 		}
-		
-
 	}
 	
 	public static boolean constraintEquals(String c1, String c2)
@@ -575,14 +1006,21 @@ public class CachedZ3Solver {
 		return solve(op).equals("true");
 	}
 	
+	public static boolean constraintEquals(int id1, String formula1, int id2, String formula2)
+	{
+		// Ids are reused after eviction, equal ids only imply equal formulas while both are current
+		return (id1 == id2 && formula1.equals(formula2))
+				|| solve(Operator.EQUIVALENCE, id1, formula1, id2, formula2) == ConstraintInterner.TRUE;
+	}
+	
 	public static String getPrettyprinted(String expression)
 	{
-		String pretty;
-		try {
-			pretty = prettyprinted.get(expression).get();
-		} catch (InterruptedException | ExecutionException e) {
-			throw new RuntimeException(e);
-		}
+		return getPrettyprinted(constraints.intern(expression), expression);
+	}
+	
+	public static String getPrettyprinted(int id, String formula)
+	{
+		String pretty = getPrettyprintedRaw(id, formula);
 		
 		for(Entry<Integer, String> featureEntry : featureNames.entrySet())
 		{
@@ -599,6 +1037,21 @@ public class CachedZ3Solver {
 		return pretty;
 	}
 
+	// Pretty printed form without feature names, recomputed if it has been dropped
+	private static String getPrettyprintedRaw(int id, String formula)
+	{
+		Future<String> pretty = constraints.getPretty(id, formula);
+		if(pretty == null) {
+			pretty = ConcurrentUtils.constantFuture(prettyprint(formula));
+			constraints.setPretty(id, formula, pretty);
+		}
+		try {
+			return pretty.get();
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
 	public static void setMaxFeatureIndex(int maxFeatureIndex) {
 		CachedZ3Solver.maxFeatureIndex = maxFeatureIndex;
 	}
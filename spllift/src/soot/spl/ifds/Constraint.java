@@ -20,12 +20,24 @@ public class Constraint implements Cloneable, IConstraint {
 	
 	public static Set<Integer> trackPrecise;
 	
+	/**
+	 * Representation used for new constraints. With BDD, constraints over imprecise features
+	 * are kept as {@link BDDConstraint}, only precise features are encoded for Z3.
+	 */
+	public enum Backend {
+		Z3, BDD
+	}
+	
+	private static Backend backend = Backend.Z3;
+	
 	private final Logger logger = LoggerFactory.getLogger(getClass());
 	
 	private final static IConstraint FALSE = new ConstraintFalse();
 	private final static IConstraint TRUE = new ConstraintTrue();
 	
 	private String Z3Constraint;
+	// Id of Z3Constraint in CachedZ3Solver, interned again if it has been evicted
+	private int id;
 	
 	private Constraint(BitSet elems, int value) {
 //		synchronized (FACTORY) {
@@ -48,6 +60,12 @@ public class Constraint implements Cloneable, IConstraint {
 //		
 
 		Z3Constraint = CachedZ3Solver.initializeConstraint(elems, value, trackPrecise);		
+		id = CachedZ3Solver.intern(Z3Constraint);
+	}
+	
+	private Constraint(int id, String Z3Constraint) {
+		this.id = id;
+		this.Z3Constraint = Z3Constraint;
 	}
 //	
 //	private Constraint(BitSet elems, Set<NumberedString> featureDomain) {
@@ -112,7 +130,8 @@ public class Constraint implements Cloneable, IConstraint {
 			{
 				throw new IllegalArgumentException("Invalid constraint " + Z3Constraint);
 			}
-			this.Z3Constraint = Z3Constraint;
+			this.id = CachedZ3Solver.intern(Z3Constraint);
+			this.Z3Constraint = canonical(id, Z3Constraint);
 //		}
 			
 	}
@@ -183,13 +202,15 @@ public class Constraint implements Cloneable, IConstraint {
 //			e.printStackTrace();
 //		}
 		
-		String z3Constraint = null;
+		int currentId = currentId();
+		int otherId = idOf(other);
+		Constraint result;
 		// Optimization: A || A <=> A
-		if(Z3Constraint.equals(other.getZ3Constraint()))
+		if(currentId == otherId && Z3Constraint.equals(other.getZ3Constraint()))
 		{
-			z3Constraint = Z3Constraint;
+			result = this;
 		} else {
-			z3Constraint = CachedZ3Solver.solve(new SolverOperation(Z3Constraint, other.getZ3Constraint(), Operator.OR));
+			result = apply(Operator.OR, currentId, Z3Constraint, otherId, other.getZ3Constraint());
 		}
 //		synchronized (FACTORY) {
 //			if(other==trueValue()) return other;
@@ -201,7 +222,7 @@ public class Constraint implements Cloneable, IConstraint {
 //			}
 //			else {
 //				return new Constraint(disjunction, z3Constraint);
-		return new Constraint(z3Constraint);
+		return result;
 //			}
 //		}
 		
@@ -218,6 +239,7 @@ public class Constraint implements Cloneable, IConstraint {
 //		synchronized (FACTORY) {
 			if(other==trueValue()) return falseValue();
 			if(other==falseValue()) return trueValue();
+			if(other instanceof BDDConstraint) return ((BDDConstraint) other).not();
 //			
 //			BDD negation = other.getBDD().not();
 //			if(negation.isOne()) 
@@ -227,10 +249,10 @@ public class Constraint implements Cloneable, IConstraint {
 //			else {
 
 				
-				String z3Constraint = CachedZ3Solver.solve(new SolverOperation(other.getZ3Constraint(), Operator.NEGATE));
+				Constraint result = apply(Operator.NEGATE, idOf(other), other.getZ3Constraint(), CachedZ3Solver.NO_OPERAND, null);
 				
 //				return new Constraint(negation, z3Constraint);
-				return new Constraint(z3Constraint);
+				return result;
 //			}
 //		}
 	}
@@ -282,15 +304,15 @@ public class Constraint implements Cloneable, IConstraint {
 //				return falseValue();
 //			} else {
 //	
-				String z3Constraint = CachedZ3Solver.solve(new SolverOperation(Z3Constraint, other.getZ3Constraint(), Operator.AND));
+				Constraint z3Constraint = apply(Operator.AND, currentId(), Z3Constraint, idOf(other), other.getZ3Constraint());
 				
 				IConstraint result = null;
-				if(z3Constraint.equals("false")) {
+				if(z3Constraint.id == ConstraintInterner.FALSE) {
 					result = falseValue();
-				} else if (z3Constraint.equals("true")) {
+				} else if (z3Constraint.id == ConstraintInterner.TRUE) {
 					result = trueValue();
 				} else {
-					result = new Constraint(z3Constraint);
+					result = z3Constraint;
 				}
 				
 				return result;
@@ -307,7 +329,7 @@ public class Constraint implements Cloneable, IConstraint {
 //			result =  bdd.toString();
 //		}
 //		
-		String resultZ3 = CachedZ3Solver.getPrettyprinted(Z3Constraint);
+		String resultZ3 = CachedZ3Solver.getPrettyprinted(currentId(), Z3Constraint);
 		
 //		if(!result.equals(resultZ3))
 //		{
@@ -386,11 +408,45 @@ public class Constraint implements Cloneable, IConstraint {
 
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result
-				+ ((Z3Constraint == null) ? 0 : Z3Constraint.hashCode());
-		return result;
+		// Not the id, it changes if the constraint is interned again
+		return Z3Constraint.hashCode();
+	}
+	
+	// Result of applying the operator, formula2 is null for unary operators
+	private static Constraint apply(Operator operator, int id1, String formula1, int id2, String formula2) {
+		CachedZ3Solver.Result result = CachedZ3Solver.solveInterned(operator, id1, formula1, id2, formula2);
+		// The id is checked against the formula on each use, it might have been evicted meanwhile
+		return new Constraint(result.id, canonical(result.id, result.formula));
+	}
+	
+	private int currentId() {
+		int current = id;
+		String formula = Z3Constraint;
+		if(CachedZ3Solver.getFormula(current) != formula) {
+			current = CachedZ3Solver.intern(formula);
+			Z3Constraint = canonical(current, formula);
+			id = current;
+		}
+		return current;
+	}
+	
+	// The instance held by CachedZ3Solver, validity of the id is checked by reference
+	private static String canonical(int id, String formula) {
+		String interned = CachedZ3Solver.getFormula(id);
+		return formula.equals(interned) ? interned : formula;
+	}
+	
+	private static int idOf(IConstraint constraint) {
+		if(constraint instanceof Constraint) {
+			return ((Constraint) constraint).currentId();
+		}
+		if(constraint.isConstTrue()) {
+			return ConstraintInterner.TRUE;
+		}
+		if(constraint.isConstFalse()) {
+			return ConstraintInterner.FALSE;
+		}
+		return CachedZ3Solver.intern(constraint.getZ3Constraint());
 	}
 
 //	@Override
@@ -454,21 +510,15 @@ public class Constraint implements Cloneable, IConstraint {
 			return true;
 		if (obj == null)
 			return false;
-		if(obj instanceof ConstraintTrue) {
-			return Z3Constraint.equals("true") || CachedZ3Solver.constraintEquals(Z3Constraint, "true");
-		}
-		if(obj instanceof ConstraintFalse) {
-			return Z3Constraint.equals("false") || CachedZ3Solver.constraintEquals(Z3Constraint, "false");
-		}
-		if (getClass() != obj.getClass())
-			return false;
-		Constraint other = (Constraint) obj;
-		if (Z3Constraint == null) {
-			if (other.Z3Constraint != null)
-				return false;
-		} else if (!Z3Constraint.equals(other.Z3Constraint) && !CachedZ3Solver.constraintEquals(Z3Constraint, other.Z3Constraint))
+		// Hashed differently, see BDDConstraint
+		if (obj instanceof BDDConstraint)
 			return false;
-		return true;
+		if(obj instanceof IConstraint) {
+			// Equal ids are equal formulas, otherwise Z3 checks (and caches) equivalence
+			IConstraint other = (IConstraint) obj;
+			return CachedZ3Solver.constraintEquals(currentId(), Z3Constraint, idOf(other), other.getZ3Constraint());
+		}
+		return false;
 	}
 
 
@@ -490,22 +540,81 @@ public class Constraint implements Cloneable, IConstraint {
 	public String getZ3Constraint() {
 		return Z3Constraint;
 	}
+	
+	public int getId() {
+		return currentId();
+	}
+	
+	@Override
+	public IConstraint widen(int budget) {
+		if(budget < 0) {
+			return this;
+		}
+		CachedZ3Solver.Result widened = CachedZ3Solver.widenInterned(currentId(), Z3Constraint, budget);
+		if(widened.formula.equals(Z3Constraint)) {
+			return this;
+		}
+		if(widened.id == ConstraintInterner.TRUE) {
+			return trueValue();
+		}
+		return new Constraint(widened.id, canonical(widened.id, widened.formula));
+	}
 
+	// Comparisons of two features are left to Z3 in both backends, BDD variables for them could contradict each other
 	public static IConstraint intConstraint(String op1, String op2, String operator) {
 		return new Constraint("(" + operator + " " + op1 + " " + op2 + ")");
 	}
 
 	public static IConstraint intConstraint(String op1, int op2, String operator) {
 		assert !operator.equals("|-1|");
+		if(backend == Backend.BDD && isImpreciseFeature(op1)) {
+			return BDDConstraint.comparison(op1, operator, op2);
+		}
 		return new Constraint("(" + operator + " " + op1 + " " + op2 + ")");
 	}
 
 	public static IConstraint intConstraint(int op1, int op2, String operator) {
+		if(backend == Backend.BDD) {
+			switch(operator) {
+			case "=": return op1 == op2 ? trueValue() : falseValue();
+			case ">=": return op1 >= op2 ? trueValue() : falseValue();
+			case ">": return op1 > op2 ? trueValue() : falseValue();
+			case "<=": return op1 <= op2 ? trueValue() : falseValue();
+			case "<": return op1 < op2 ? trueValue() : falseValue();
+			}
+		}
 		return new Constraint("(" + operator + " " + op1 + " " + op2 + ")");
 	}	
 	
 	public static IConstraint impreciseConstraint(String opName) {
+		if(backend == Backend.BDD) {
+			return BDDConstraint.atom(opName);
+		}
 		return new Constraint(opName);
 	}
+	
+	// Features are named |index|, see CachedZ3Solver.initializeConstraint()
+	private static boolean isImpreciseFeature(String op) {
+		if(trackPrecise == null || op.length() < 3 || !op.startsWith("|") || !op.endsWith("|")) {
+			return false;
+		}
+		try {
+			return !trackPrecise.contains(Integer.parseInt(op.substring(1, op.length() - 1)));
+		} catch(NumberFormatException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Selects the representation of constraints created afterwards.
+	 * Should be called before the analysis starts.
+	 */
+	public static void setBackend(Backend backend) {
+		Constraint.backend = backend;
+	}
+	
+	public static Backend getBackend() {
+		return backend;
+	}
 
 }
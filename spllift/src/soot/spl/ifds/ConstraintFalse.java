@@ -71,5 +71,10 @@ public class ConstraintFalse implements IConstraint {
 	public String getZ3Constraint() {
 		return "false";
 	}
+	
+	@Override
+	public IConstraint widen(int budget) {
+		return this;
+	}
 
 }
@@ -0,0 +1,357 @@
+package soot.spl.ifds;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang3.concurrent.ConcurrentUtils;
+
+/**
+ * Assigns each distinct constraint (SMT-LIB text) a compact integer id. The text and its
+ * pretty printed form are stored once and can be looked up by id.
+ * False and true have the fixed ids {@link #FALSE} and {@link #TRUE}.
+ *
+ * The total weight (length of all formulas) can be bounded by {@link #evict(long)}, which
+ * removes entries not used recently (CLOCK). Evicted ids are invalid, {@link #getFormula(int)}
+ * returns null for them, until they are handed back by {@link #release(Collection)} and reused
+ * for new constraints. An id held across an eviction therefore has to be checked against its
+ * formula, see {@link #isCurrent(int, String)}.
+ */
+public class ConstraintInterner {
+
+	public static final int FALSE = 0;
+	public static final int TRUE = 1;
+
+	private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+	// Written while holding this, read without lock. An id is published via ids only after its entry is set.
+	private volatile String[] formulas;
+	// Set on each use, cleared by the clock hand
+	private volatile boolean[] referenced;
+	// Future<String> or, if softPretty is set, SoftReference<Future<String>>
+	private Object[] pretty;
+	// Computed on demand by the structural cache
+	private ConstraintShape[] shapes;
+	// Widening of each id, (budget + 1) << 32 | id of the result, 0 if not computed yet
+	private long[] widenings;
+	// Evicted and released ids, reused before new ones
+	private int[] freeIds;
+	private int freeCount;
+	private final BitSet free = new BitSet();
+	// Incremented by each release, readers compare it before and after a lookup
+	private volatile long releases = 0;
+	private int size;
+	private long chars;
+	private int live;
+	private int clockHand;
+	private boolean softPretty = false;
+
+	public ConstraintInterner()
+	{
+		clear();
+	}
+
+	public synchronized void clear()
+	{
+		ids.clear();
+		formulas = new String[1024];
+		referenced = new boolean[1024];
+		pretty = new Object[1024];
+		shapes = new ConstraintShape[1024];
+		widenings = new long[1024];
+		freeIds = new int[16];
+		freeCount = 0;
+		free.clear();
+		releases++;
+		size = 0;
+		chars = 0;
+		live = 0;
+		clockHand = 2;
+		add("false");
+		add("true");
+		pretty[FALSE] = ConcurrentUtils.constantFuture("false");
+		pretty[TRUE] = ConcurrentUtils.constantFuture("true");
+	}
+
+	public int intern(String formula)
+	{
+		Integer id = ids.get(formula);
+		if(id != null)
+		{
+			referenced[id] = true;
+			return id;
+		}
+		synchronized (this) {
+			id = ids.get(formula);
+			if(id == null)
+			{
+				id = add(formula);
+			}
+			return id;
+		}
+	}
+
+	private int add(String formula)
+	{
+		if(freeCount > 0)
+		{
+			int id = freeIds[--freeCount];
+			free.clear(id);
+			formulas[id] = formula;
+			referenced[id] = true;
+			live++;
+			chars += formula.length();
+			ids.put(formula, id);
+			return id;
+		}
+		int id = size;
+		if(id == formulas.length)
+		{
+			pretty = Arrays.copyOf(pretty, id * 2);
+			shapes = Arrays.copyOf(shapes, id * 2);
+			widenings = Arrays.copyOf(widenings, id * 2);
+			referenced = Arrays.copyOf(referenced, id * 2);
+			String[] grown = Arrays.copyOf(formulas, id * 2);
+			grown[id] = formula;
+			formulas = grown;
+		} else {
+			formulas[id] = formula;
+		}
+		referenced[id] = true;
+		size++;
+		live++;
+		chars += formula.length();
+		ids.put(formula, id);
+		return id;
+	}
+
+	/**
+	 * Returns the formula of the given id or null if it has been evicted.
+	 */
+	public String getFormula(int id)
+	{
+		String[] formulas = this.formulas;
+		if(id < 0 || id >= formulas.length)
+		{
+			return null;
+		}
+		String formula = formulas[id];
+		if(formula != null)
+		{
+			referenced[id] = true;
+		}
+		return formula;
+	}
+
+	/**
+	 * Returns true if the id currently belongs to the given formula.
+	 */
+	public boolean isCurrent(int id, String formula)
+	{
+		String[] formulas = this.formulas;
+		if(id < 0 || id >= formulas.length)
+		{
+			return false;
+		}
+		String current = formulas[id];
+		return current == formula || formula.equals(current);
+	}
+
+	/**
+	 * Number of calls to {@link #release(Collection)}. If it did not change during a lookup,
+	 * no id has been reused meanwhile.
+	 */
+	public long getReleaseCount()
+	{
+		return releases;
+	}
+
+	/**
+	 * Returns the pretty printed form or null if it is not known (anymore).
+	 */
+	public synchronized Future<String> getPretty(int id, String formula)
+	{
+		if(!isCurrent(id, formula))
+		{
+			return null;
+		}
+		return getPretty(id);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Future<String> getPretty(int id)
+	{
+		Object value = pretty[id];
+		if(value instanceof SoftReference)
+		{
+			return ((SoftReference<Future<String>>) value).get();
+		}
+		return (Future<String>) value;
+	}
+
+	public synchronized boolean hasPretty(int id, String formula)
+	{
+		return getPretty(id, formula) != null;
+	}
+
+	public synchronized void setPretty(int id, String formula, Future<String> prettyprinted)
+	{
+		if(!isCurrent(id, formula))
+		{
+			return;
+		}
+		if(softPretty && id > TRUE)
+		{
+			pretty[id] = new SoftReference<Future<String>>(prettyprinted);
+		} else {
+			pretty[id] = prettyprinted;
+		}
+	}
+
+	/**
+	 * Returns the shape of the given constraint, computed once per id.
+	 */
+	ConstraintShape getShape(int id, String formula)
+	{
+		ConstraintShape shape = null;
+		synchronized (this) {
+			if(id < shapes.length && formula.equals(formulas[id]))
+			{
+				shape = shapes[id];
+			}
+		}
+		if(shape == null)
+		{
+			shape = ConstraintShape.of(formula);
+			synchronized (this) {
+				if(id < shapes.length && formula.equals(formulas[id]))
+				{
+					shapes[id] = shape;
+				}
+			}
+		}
+		return shape;
+	}
+	
+	/**
+	 * Returns the id of the widening of the given constraint to the budget, or -1 if it has not
+	 * been computed or its result has been evicted. Widenings of and to evicted ids are dropped
+	 * before the ids are released.
+	 */
+	synchronized int getWidening(int id, String formula, int budget)
+	{
+		long widening = isCurrent(id, formula) ? widenings[id] : 0;
+		if(widening >>> 32 != budget + 1L)
+		{
+			return -1;
+		}
+		int result = (int) widening;
+		return formulas[result] != null ? result : -1;
+	}
+
+	synchronized void setWidening(int id, String formula, int budget, int result, String resultFormula)
+	{
+		if(isCurrent(id, formula) && isCurrent(result, resultFormula))
+		{
+			widenings[id] = (budget + 1L) << 32 | result;
+		}
+	}
+	
+	/**
+	 * If set, pretty printed forms are only softly reachable and may be collected under
+	 * memory pressure. They are recomputed on demand.
+	 */
+	public synchronized void setSoftPretty(boolean softPretty)
+	{
+		this.softPretty = softPretty;
+	}
+
+	/**
+	 * Evicts entries not used since the last pass of the clock hand until the total weight is at
+	 * most maxChars. False and true are never evicted.
+	 * @return The evicted ids and their formulas
+	 */
+	public synchronized Map<Integer, String> evict(long maxChars)
+	{
+		Map<Integer, String> evicted = new HashMap<>();
+		if(chars <= maxChars || live <= 2)
+		{
+			return evicted;
+		}
+
+		String[] formulas = this.formulas;
+		boolean[] referenced = this.referenced;
+		// Two rounds are enough to see every entry without reference bit
+		for(long steps = 2L * size; chars > maxChars && steps > 0; steps--)
+		{
+			int id = clockHand;
+			clockHand = clockHand + 1 < size ? clockHand + 1 : 2;
+			if(id < 2 || formulas[id] == null)
+			{
+				continue;
+			}
+			if(referenced[id])
+			{
+				referenced[id] = false;
+				continue;
+			}
+			ids.remove(formulas[id]);
+			chars -= formulas[id].length();
+			evicted.put(id, formulas[id]);
+			formulas[id] = null;
+			pretty[id] = null;
+			shapes[id] = null;
+			widenings[id] = 0;
+			live--;
+		}
+		if(!evicted.isEmpty())
+		{
+			for(int id = 2; id < size; id++)
+			{
+				if(widenings[id] != 0 && formulas[(int) widenings[id]] == null)
+				{
+					widenings[id] = 0;
+				}
+			}
+		}
+		return evicted;
+	}
+
+	/**
+	 * Makes evicted ids available for new constraints. Must only be called once nothing which
+	 * is looked up by id, e.g. a cached result, refers to them anymore.
+	 */
+	public synchronized void release(Collection<Integer> evicted)
+	{
+		for(int id : evicted)
+		{
+			if(id < 2 || id >= size || formulas[id] != null || free.get(id))
+			{
+				continue;
+			}
+			if(freeCount == freeIds.length)
+			{
+				freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+			}
+			freeIds[freeCount++] = id;
+			free.set(id);
+		}
+		releases++;
+	}
+
+	public synchronized int size()
+	{
+		return live;
+	}
+
+	// Total length of all interned formulas
+	public synchronized long getChars()
+	{
+		return chars;
+	}
+}
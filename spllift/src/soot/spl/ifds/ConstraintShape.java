@@ -0,0 +1,249 @@
+package soot.spl.ifds;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shape of a constraint for the structural cache of {@link CachedZ3Solver}: the formula with
+ * its feature symbols renamed in the order of their first occurrence. Structurally identical
+ * constraints over different features, e.g. (and A (not B)) and (and C (not D)), have the same shape.
+ *
+ * Integer features |i| are renamed to |0|, |1|, ..., Boolean features X_Y to Symbol_0, Symbol_1, ...
+ * (the same symbols {@link CachedZ3Solver} declares). Everything else, including Z3 temporaries
+ * like k!1, is part of the shape.
+ */
+class ConstraintShape {
+
+	private static final String BOOL_PREFIX = "Symbol_";
+
+	// All symbols seen so far, never cleared
+	private static final Map<String, Integer> symbolIds = new ConcurrentHashMap<>();
+	private static final List<String> symbolNames = new ArrayList<>();
+
+	// The renamed formula
+	final String formula;
+	// Symbol ids in the order of their first occurrence
+	final int[] symbols;
+
+	private ConstraintShape(String formula, int[] symbols)
+	{
+		this.formula = formula;
+		this.symbols = symbols;
+	}
+
+	static ConstraintShape of(String formula)
+	{
+		Builder builder = new Builder();
+		String renamed = rewrite(formula, builder);
+		return new ConstraintShape(renamed, Arrays.copyOf(builder.symbols, builder.size));
+	}
+
+	// Assigns canonical names in the order of first occurrence
+	private static class Builder implements Renaming
+	{
+		private int[] symbols = new int[8];
+		private String[] names = new String[8];
+		private int size;
+		private int ints;
+		private int bools;
+
+		@Override
+		public String rename(String token)
+		{
+			int symbol = symbolId(token);
+			int position = indexOf(symbols, size, symbol);
+			if(position >= 0)
+			{
+				return names[position];
+			}
+			if(size == symbols.length)
+			{
+				symbols = Arrays.copyOf(symbols, size * 2);
+				names = Arrays.copyOf(names, size * 2);
+			}
+			symbols[size] = symbol;
+			names[size] = isInt(symbol) ? "|" + ints++ + "|" : BOOL_PREFIX + bools++;
+			return names[size++];
+		}
+	}
+
+	/**
+	 * Returns the symbols of both shapes, the ones of first followed by the ones only used in second.
+	 */
+	static int[] join(int[] first, int[] second)
+	{
+		int[] joined = Arrays.copyOf(first, first.length + second.length);
+		int size = first.length;
+		for(int symbol : second)
+		{
+			if(indexOf(first, first.length, symbol) < 0)
+			{
+				joined[size++] = symbol;
+			}
+		}
+		return size == joined.length ? joined : Arrays.copyOf(joined, size);
+	}
+
+	/**
+	 * Renames the formula of this shape to the names its symbols have within the given symbols,
+	 * which must contain all symbols of this shape.
+	 */
+	String renameTo(int[] target)
+	{
+		String[] from = canonicalNames(symbols);
+		String[] to = canonicalNames(target);
+		Map<String, String> names = new HashMap<>();
+		boolean identity = true;
+		for(int i = 0; i < symbols.length; i++)
+		{
+			String name = to[indexOf(target, target.length, symbols[i])];
+			names.put(from[i], name);
+			identity &= from[i].equals(name);
+		}
+		return identity ? formula : rewrite(formula, names::get);
+	}
+
+	/**
+	 * Replaces the canonical names of the given symbols in a formula or pretty printed text
+	 * by the original symbols.
+	 */
+	static String restore(String text, int[] symbols)
+	{
+		String[] from = canonicalNames(symbols);
+		Map<String, String> names = new HashMap<>();
+		boolean identity = true;
+		synchronized (symbolNames) {
+			for(int i = 0; i < symbols.length; i++)
+			{
+				String name = symbolNames.get(symbols[i] >>> 1);
+				names.put(from[i], name);
+				identity &= from[i].equals(name);
+			}
+		}
+		return identity ? text : rewrite(text, names::get);
+	}
+
+	private interface Renaming
+	{
+		// Returns the new name or null to keep the symbol
+		String rename(String symbol);
+	}
+
+	/**
+	 * Copies the text, passing all feature symbols through the renaming. Works on SMT-LIB formulas
+	 * as well as on pretty printed text.
+	 */
+	private static String rewrite(String text, Renaming renaming)
+	{
+		StringBuilder result = new StringBuilder(text.length() + 16);
+		int length = text.length();
+		int i = 0;
+		while(i < length)
+		{
+			char c = text.charAt(i);
+			int end;
+			boolean symbol = false;
+			if(c == '|')
+			{
+				int close = text.indexOf('|', i + 1);
+				end = close < 0 ? length : close + 1;
+				symbol = close > i + 1 && isDigits(text, i + 1, close);
+			} else if(isWordChar(c)) {
+				end = i + 1;
+				int underscore = -1;
+				while(end < length && (isWordChar(text.charAt(end))
+						|| (text.charAt(end) == '!' && end + 1 < length && Character.isDigit(text.charAt(end + 1)))))
+				{
+					if(text.charAt(end) == '_' && underscore < 0)
+					{
+						underscore = end;
+					}
+					end++;
+				}
+				// \w+_\w+ as declared by CachedZ3Solver, but not temporaries like a!1
+				symbol = !Character.isDigit(c) && underscore > i && underscore < end - 1
+						&& text.lastIndexOf('!', end - 1) < i;
+			} else {
+				result.append(c);
+				i++;
+				continue;
+			}
+
+			String token = text.substring(i, end);
+			String renamed = symbol ? renaming.rename(token) : null;
+			result.append(renamed != null ? renamed : token);
+			i = end;
+		}
+		return result.toString();
+	}
+
+	private static boolean isWordChar(char c)
+	{
+		return Character.isLetterOrDigit(c) || c == '_';
+	}
+
+	private static boolean isDigits(String text, int start, int end)
+	{
+		for(int i = start; i < end; i++)
+		{
+			if(!Character.isDigit(text.charAt(i)))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// The lowest bit of a symbol id is set for integer features
+	private static boolean isInt(int symbol)
+	{
+		return (symbol & 1) == 1;
+	}
+
+	private static int symbolId(String symbol)
+	{
+		Integer id = symbolIds.get(symbol);
+		if(id != null)
+		{
+			return id;
+		}
+		synchronized (symbolNames) {
+			id = symbolIds.get(symbol);
+			if(id == null)
+			{
+				id = symbolNames.size() << 1 | (symbol.charAt(0) == '|' ? 1 : 0);
+				symbolNames.add(symbol);
+				symbolIds.put(symbol, id);
+			}
+			return id;
+		}
+	}
+
+	private static String[] canonicalNames(int[] symbols)
+	{
+		String[] names = new String[symbols.length];
+		int ints = 0;
+		int bools = 0;
+		for(int i = 0; i < symbols.length; i++)
+		{
+			names[i] = isInt(symbols[i]) ? "|" + ints++ + "|" : BOOL_PREFIX + bools++;
+		}
+		return names;
+	}
+
+	private static int indexOf(int[] symbols, int size, int symbol)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			if(symbols[i] == symbol)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,571 @@
+package soot.spl.ifds;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import soot.spl.ifds.SolverOperation.Operator;
+
+/**
+ * Syntactic simplification of joins in the JVM, used by {@link CachedZ3Solver} before
+ * running the Z3 tactics. Both operands are brought into disjunctive normal form over their
+ * atoms. Duplicate, absorbed and subsumed clauses are removed and clauses which only differ in
+ * the sign of one literal are merged. This resolves trivial cases like X or false, X and true,
+ * X or X or X and (X or Y) exactly.
+ *
+ * Every subformula which is not and, or, not, true or false is an atom, e.g. (= |3| 1). The only
+ * theory knowledge is that equalities of one feature with different constants exclude each other.
+ * If a normal form would have more than {@link #setMaxClauses(int) maxClauses} clauses or the
+ * formula uses let, the operation is left to Z3.
+ */
+class ConstraintSimplifier {
+
+	private static volatile int maxClauses = 16;
+
+	// Atoms in the order of their first occurrence, a literal is 2 * atom for the atom, 2 * atom + 1 for its negation
+	private final Map<String, Integer> atomIds = new HashMap<>();
+	private final List<String> atoms = new ArrayList<>();
+	// Feature and constant of atoms (= |i| c), null for other atoms
+	private final List<long[]> equalities = new ArrayList<>();
+
+	private ConstraintSimplifier()
+	{
+	}
+
+	/**
+	 * Sets the number of clauses up to which operations are simplified without Z3.
+	 */
+	static void setMaxClauses(int clauses)
+	{
+		maxClauses = clauses;
+	}
+
+	static boolean handles(Operator operator)
+	{
+		return operator == Operator.AND || operator == Operator.OR || operator == Operator.NEGATE || operator == Operator.EQUIVALENCE;
+	}
+
+	/**
+	 * Returns the simplified result of the operation or null if it has to be simplified by Z3.
+	 */
+	static String simplify(Operator operator, String formula1, String formula2)
+	{
+		ConstraintSimplifier simplifier = new ConstraintSimplifier();
+		try {
+			switch(operator) {
+			case AND:
+				return simplifier.print(simplifier.and(simplifier.parse(formula1), simplifier.parse(formula2)));
+			case OR:
+				return simplifier.print(simplifier.or(simplifier.parse(formula1), simplifier.parse(formula2)));
+			case NEGATE:
+				return simplifier.print(simplifier.not(simplifier.parse(formula1)));
+			case EQUIVALENCE:
+				// Normal forms are not unique, so only equal ones are conclusive
+				String normal1 = simplifier.print(simplifier.parse(formula1));
+				String normal2 = simplifier.print(simplifier.parse(formula2));
+				return normal1.equals(normal2) ? "true" : null;
+			default:
+				return null;
+			}
+		} catch(Escalate e) {
+			return null;
+		}
+	}
+
+	// Thrown to give up, without stack trace as it is part of the normal control flow
+	private static class Escalate extends RuntimeException
+	{
+		private static final long serialVersionUID = 1L;
+
+		Escalate()
+		{
+			super(null, null, false, false);
+		}
+	}
+
+	private static final int[] EMPTY = {};
+	private static final List<int[]> TRUE = Arrays.asList(EMPTY);
+	private static final List<int[]> FALSE = Collections.emptyList();
+
+	private int position;
+	private String text;
+
+	private List<int[]> parse(String formula)
+	{
+		text = formula;
+		position = 0;
+		List<int[]> result = parseExpression();
+		skipWhitespace();
+		if(position != text.length())
+		{
+			throw new Escalate();
+		}
+		return result;
+	}
+
+	private List<int[]> parseExpression()
+	{
+		skipWhitespace();
+		if(position >= text.length())
+		{
+			throw new Escalate();
+		}
+		if(text.charAt(position) != '(')
+		{
+			String token = readToken();
+			if(token.equals("true"))
+			{
+				return TRUE;
+			}
+			if(token.equals("false"))
+			{
+				return FALSE;
+			}
+			return literal(atom(token), false);
+		}
+
+		int start = position;
+		position++;
+		skipWhitespace();
+		String head = readToken();
+		switch(head) {
+		case "and":
+		{
+			List<int[]> result = TRUE;
+			while(!closing())
+			{
+				result = and(result, parseExpression());
+			}
+			return result;
+		}
+		case "or":
+		{
+			List<int[]> result = FALSE;
+			while(!closing())
+			{
+				result = or(result, parseExpression());
+			}
+			return result;
+		}
+		case "not":
+		{
+			List<int[]> result = not(parseExpression());
+			if(!closing())
+			{
+				throw new Escalate();
+			}
+			return result;
+		}
+		case "let":
+			// Bound names would become atoms
+			throw new Escalate();
+		default:
+			// Anything else is an atom
+			position = start;
+			skipExpression();
+			return literal(atom(text.substring(start, position)), false);
+		}
+	}
+
+	private boolean closing()
+	{
+		skipWhitespace();
+		if(position >= text.length())
+		{
+			throw new Escalate();
+		}
+		if(text.charAt(position) == ')')
+		{
+			position++;
+			return true;
+		}
+		return false;
+	}
+
+	private void skipWhitespace()
+	{
+		while(position < text.length() && Character.isWhitespace(text.charAt(position)))
+		{
+			position++;
+		}
+	}
+
+	private String readToken()
+	{
+		int start = position;
+		if(position < text.length() && text.charAt(position) == '|')
+		{
+			int close = text.indexOf('|', position + 1);
+			if(close < 0)
+			{
+				throw new Escalate();
+			}
+			position = close + 1;
+			return text.substring(start, position);
+		}
+		while(position < text.length())
+		{
+			char c = text.charAt(position);
+			if(Character.isWhitespace(c) || c == '(' || c == ')')
+			{
+				break;
+			}
+			position++;
+		}
+		if(position == start)
+		{
+			throw new Escalate();
+		}
+		return text.substring(start, position);
+	}
+
+	private void skipExpression()
+	{
+		int depth = 0;
+		do {
+			skipWhitespace();
+			if(position >= text.length())
+			{
+				throw new Escalate();
+			}
+			char c = text.charAt(position);
+			if(c == '(')
+			{
+				depth++;
+				position++;
+			} else if(c == ')') {
+				depth--;
+				position++;
+			} else {
+				readToken();
+			}
+		} while(depth > 0);
+	}
+
+	private int atom(String atom)
+	{
+		// Same atom with different whitespace
+		if(atom.indexOf('\n') >= 0 || atom.indexOf("  ") >= 0)
+		{
+			atom = atom.replaceAll("\\s+", " ");
+		}
+		Integer id = atomIds.get(atom);
+		if(id == null)
+		{
+			id = atoms.size();
+			atoms.add(atom);
+			atomIds.put(atom, id);
+			equalities.add(parseEquality(atom));
+		}
+		return id;
+	}
+
+	// (= |i| c) as {i, c}
+	private static long[] parseEquality(String atom)
+	{
+		if(!atom.startsWith("(= |") || !atom.endsWith(")"))
+		{
+			return null;
+		}
+		String[] parts = atom.substring(1, atom.length() - 1).split(" ");
+		if(parts.length != 3 || !parts[1].endsWith("|"))
+		{
+			return null;
+		}
+		try {
+			return new long[] { Long.parseLong(parts[1].substring(1, parts[1].length() - 1)), Long.parseLong(parts[2]) };
+		} catch(NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static List<int[]> literal(int atom, boolean negated)
+	{
+		List<int[]> result = new ArrayList<>(1);
+		result.add(new int[] { atom * 2 + (negated ? 1 : 0) });
+		return result;
+	}
+
+	private List<int[]> or(List<int[]> first, List<int[]> second)
+	{
+		if(first.isEmpty())
+		{
+			return second;
+		}
+		if(second.isEmpty())
+		{
+			return first;
+		}
+		List<int[]> result = new ArrayList<>(first.size() + second.size());
+		result.addAll(first);
+		result.addAll(second);
+		return reduce(result);
+	}
+
+	private List<int[]> and(List<int[]> first, List<int[]> second)
+	{
+		if(first == TRUE)
+		{
+			return second;
+		}
+		if(second == TRUE)
+		{
+			return first;
+		}
+		if((long) first.size() * second.size() > (long) maxClauses * maxClauses)
+		{
+			throw new Escalate();
+		}
+		List<int[]> result = new ArrayList<>(first.size() * second.size());
+		for(int[] clause1 : first)
+		{
+			for(int[] clause2 : second)
+			{
+				int[] clause = conjoin(clause1, clause2);
+				if(clause != null)
+				{
+					result.add(clause);
+				}
+			}
+		}
+		return reduce(result);
+	}
+
+	private List<int[]> not(List<int[]> formula)
+	{
+		// De Morgan: conjunction of the negated clauses
+		List<int[]> result = TRUE;
+		for(int[] clause : formula)
+		{
+			List<int[]> negated = new ArrayList<>(clause.length);
+			for(int literal : clause)
+			{
+				negated.add(new int[] { literal ^ 1 });
+			}
+			result = and(result, negated);
+		}
+		return result;
+	}
+
+	// Union of both sorted clauses or null if it is unsatisfiable
+	private int[] conjoin(int[] clause1, int[] clause2)
+	{
+		int[] result = new int[clause1.length + clause2.length];
+		int i = 0, j = 0, size = 0;
+		while(i < clause1.length || j < clause2.length)
+		{
+			int literal;
+			if(j == clause2.length || (i < clause1.length && clause1[i] < clause2[j]))
+			{
+				literal = clause1[i++];
+			} else if(i == clause1.length || clause2[j] < clause1[i]) {
+				literal = clause2[j++];
+			} else {
+				literal = clause1[i++];
+				j++;
+			}
+			// Complementary literals are adjacent
+			if(size > 0 && (result[size - 1] ^ 1) == literal)
+			{
+				return null;
+			}
+			result[size++] = literal;
+		}
+		if(excludes(result, size))
+		{
+			return null;
+		}
+		return size == result.length ? result : Arrays.copyOf(result, size);
+	}
+
+	// Whether the clause contains two equalities of the same feature with different constants
+	private boolean excludes(int[] clause, int size)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			long[] first = (clause[i] & 1) == 0 ? equalities.get(clause[i] >> 1) : null;
+			if(first == null)
+			{
+				continue;
+			}
+			for(int j = i + 1; j < size; j++)
+			{
+				long[] second = (clause[j] & 1) == 0 ? equalities.get(clause[j] >> 1) : null;
+				if(second != null && first[0] == second[0] && first[1] != second[1])
+				{
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes subsumed clauses and merges clauses which only differ in the sign of one literal,
+	 * until neither applies anymore.
+	 */
+	private List<int[]> reduce(List<int[]> clauses)
+	{
+		do {
+			// Shorter clauses first, so each clause only needs to be checked against the ones kept before
+			clauses.sort((clause1, clause2) -> Integer.compare(clause1.length, clause2.length));
+			List<int[]> kept = new ArrayList<>(clauses.size());
+			for(int[] clause : clauses)
+			{
+				if(clause.length == 0)
+				{
+					return TRUE;
+				}
+				boolean subsumed = false;
+				for(int[] other : kept)
+				{
+					if(subsumes(other, clause))
+					{
+						subsumed = true;
+						break;
+					}
+				}
+				if(!subsumed)
+				{
+					kept.add(clause);
+				}
+			}
+			clauses = kept;
+		} while(mergeOnce(clauses));
+		
+		if(clauses.size() > maxClauses)
+		{
+			throw new Escalate();
+		}
+		return clauses;
+	}
+
+	private static boolean mergeOnce(List<int[]> clauses)
+	{
+		for(int i = 0; i < clauses.size(); i++)
+		{
+			for(int j = i + 1; j < clauses.size(); j++)
+			{
+				int[] merged = merge(clauses.get(i), clauses.get(j));
+				if(merged != null)
+				{
+					clauses.set(i, merged);
+					clauses.remove(j);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	// Whether every literal of the first clause is in the second one, i.e. first absorbs second
+	private static boolean subsumes(int[] clause1, int[] clause2)
+	{
+		if(clause1.length > clause2.length)
+		{
+			return false;
+		}
+		int j = 0;
+		for(int literal : clause1)
+		{
+			while(j < clause2.length && clause2[j] < literal)
+			{
+				j++;
+			}
+			if(j == clause2.length || clause2[j] != literal)
+			{
+				return false;
+			}
+			j++;
+		}
+		return true;
+	}
+
+	// (A and x) or (A and not x) is A
+	private static int[] merge(int[] clause1, int[] clause2)
+	{
+		if(clause1.length != clause2.length)
+		{
+			return null;
+		}
+		int difference = -1;
+		for(int i = 0; i < clause1.length; i++)
+		{
+			if(clause1[i] != clause2[i])
+			{
+				if(difference >= 0 || (clause1[i] ^ 1) != clause2[i])
+				{
+					return null;
+				}
+				difference = i;
+			}
+		}
+		if(difference < 0)
+		{
+			return null;
+		}
+		int[] merged = new int[clause1.length - 1];
+		System.arraycopy(clause1, 0, merged, 0, difference);
+		System.arraycopy(clause1, difference + 1, merged, difference, merged.length - difference);
+		return merged;
+	}
+
+	private String print(List<int[]> formula)
+	{
+		if(formula.isEmpty())
+		{
+			return "false";
+		}
+		if(formula == TRUE)
+		{
+			return "true";
+		}
+		List<int[]> clauses = new ArrayList<>(formula);
+		clauses.sort(ConstraintSimplifier::compare);
+		if(clauses.size() == 1)
+		{
+			return print(clauses.get(0));
+		}
+		StringBuilder result = new StringBuilder("(or");
+		for(int[] clause : clauses)
+		{
+			result.append(' ').append(print(clause));
+		}
+		return result.append(')').toString();
+	}
+
+	private String print(int[] clause)
+	{
+		if(clause.length == 1)
+		{
+			return printLiteral(clause[0]);
+		}
+		StringBuilder result = new StringBuilder("(and");
+		for(int literal : clause)
+		{
+			result.append(' ').append(printLiteral(literal));
+		}
+		return result.append(')').toString();
+	}
+
+	private String printLiteral(int literal)
+	{
+		String atom = atoms.get(literal >> 1);
+		return (literal & 1) == 0 ? atom : "(not " + atom + ")";
+	}
+
+	private static int compare(int[] clause1, int[] clause2)
+	{
+		for(int i = 0; i < clause1.length && i < clause2.length; i++)
+		{
+			if(clause1[i] != clause2[i])
+			{
+				return Integer.compare(clause1[i], clause2[i]);
+			}
+		}
+		return Integer.compare(clause1.length, clause2.length);
+	}
+}
@@ -68,5 +68,10 @@ public class ConstraintTrue implements IConstraint {
 	public String getZ3Constraint() {
 		return "true";
 	}
+	
+	@Override
+	public IConstraint widen(int budget) {
+		return this;
+	}
 
 }
@@ -0,0 +1,532 @@
+package soot.spl.ifds;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sound widening of Z3 constraints to a size budget. The size of a constraint is the number of
+ * its literals. The formula is brought into negation normal form, where it is monotone in its
+ * literals. Replacing all literals of a feature by true therefore yields a weaker constraint
+ * (an over-approximation of projecting the feature out). Features are projected out in the order
+ * of their number of occurrences, least used first, until the constraint fits the budget.
+ *
+ * let expressions are expanded, the nodes of bound terms are shared.
+ */
+class ConstraintWidening {
+
+	private static final Pattern FEATURE = Pattern.compile("\\|\\d+\\||\\w+_\\w+");
+
+	private enum Kind { TRUE, FALSE, LITERAL, AND, OR }
+
+	private static final Node TRUE = new Node(Kind.TRUE, null, false, null);
+	private static final Node FALSE = new Node(Kind.FALSE, null, false, null);
+
+	private static class Node
+	{
+		final Kind kind;
+		final String atom;
+		final boolean negated;
+		final Node[] children;
+		// Features mentioned by the atom
+		String[] features;
+
+		Node(Kind kind, String atom, boolean negated, Node[] children)
+		{
+			this.kind = kind;
+			this.atom = atom;
+			this.negated = negated;
+			this.children = children;
+		}
+	}
+
+	private final String text;
+	private int position;
+	private final Map<String, String> bindings = new HashMap<>();
+	private final Map<String, Node> boundNodes = new HashMap<>();
+	private final Map<Node, Node> negations = new IdentityHashMap<>();
+
+	private ConstraintWidening(String text)
+	{
+		this.text = text;
+	}
+
+	/**
+	 * Returns a formula implied by the given one with at most budget literals, or the given
+	 * formula itself if it already fits.
+	 */
+	static String widen(String formula, int budget)
+	{
+		// Each literal takes at least one character
+		if(formula.length() <= budget)
+		{
+			return formula;
+		}
+		Node node = new ConstraintWidening(formula).parse();
+		if(size(node, new IdentityHashMap<Node, Long>()) <= budget)
+		{
+			return formula;
+		}
+		while(size(node, new IdentityHashMap<Node, Long>()) > budget)
+		{
+			String feature = leastUsedFeature(node);
+			if(feature == null)
+			{
+				// Only atoms without features are left
+				return "true";
+			}
+			node = project(node, feature, new IdentityHashMap<Node, Node>());
+		}
+		StringBuilder result = new StringBuilder();
+		print(node, result);
+		return result.toString();
+	}
+
+	/**
+	 * Number of literals of the formula, counting shared subformulas for each occurrence.
+	 */
+	static long size(String formula)
+	{
+		return size(new ConstraintWidening(formula).parse(), new IdentityHashMap<Node, Long>());
+	}
+
+	private Node parse()
+	{
+		Node result = parseExpression(false);
+		skipWhitespace();
+		if(position != text.length())
+		{
+			throw new IllegalArgumentException("Unexpected input at " + position + " in " + text);
+		}
+		return result;
+	}
+
+	// Parses the next expression in negation normal form, negated if requested
+	private Node parseExpression(boolean negate)
+	{
+		skipWhitespace();
+		if(text.charAt(position) != '(')
+		{
+			String token = readToken();
+			switch(token) {
+			case "true":
+				return negate ? FALSE : TRUE;
+			case "false":
+				return negate ? TRUE : FALSE;
+			}
+			Node bound = boundNodes.get(token);
+			if(bound != null)
+			{
+				return negate ? negate(bound) : bound;
+			}
+			String term = bindings.get(token);
+			return literal(term != null ? term : token, negate);
+		}
+
+		int start = position;
+		position++;
+		skipWhitespace();
+		String head = readToken();
+		switch(head) {
+		case "and":
+		case "or":
+		{
+			List<Node> children = new ArrayList<>();
+			while(!closing())
+			{
+				children.add(parseExpression(negate));
+			}
+			boolean conjunction = head.equals("and") != negate;
+			return combine(conjunction ? Kind.AND : Kind.OR, children);
+		}
+		case "not":
+		{
+			Node result = parseExpression(!negate);
+			closing();
+			return result;
+		}
+		case "let":
+			return parseLet(negate);
+		default:
+			// Any other term is an atom, with bound names expanded
+			position = start;
+			skipExpression();
+			return literal(expand(text.substring(start, position)), negate);
+		}
+	}
+
+	private Node parseLet(boolean negate)
+	{
+		skipWhitespace();
+		position++; // (
+		Map<String, String> previousBindings = new HashMap<>();
+		Map<String, Node> previousNodes = new HashMap<>();
+		Map<String, Object> parsed = new LinkedHashMap<>();
+		while(!closing())
+		{
+			skipWhitespace();
+			position++; // (
+			skipWhitespace();
+			String name = readToken();
+			skipWhitespace();
+			int start = position;
+			skipExpression();
+			String term = text.substring(start, position);
+			// Bindings are parallel, the terms see the outer scope
+			Object value;
+			if(term.startsWith("(and") || term.startsWith("(or") || term.startsWith("(not") || term.startsWith("(let"))
+			{
+				position = start;
+				value = parseExpression(false);
+			} else {
+				// Other terms stay opaque, they may not even be formulas
+				value = expand(term);
+			}
+			closing();
+			parsed.put(name, value);
+		}
+		for(Entry<String, Object> binding : parsed.entrySet())
+		{
+			previousBindings.put(binding.getKey(), bindings.remove(binding.getKey()));
+			previousNodes.put(binding.getKey(), boundNodes.remove(binding.getKey()));
+			if(binding.getValue() instanceof Node)
+			{
+				Node node = (Node) binding.getValue();
+				boundNodes.put(binding.getKey(), node);
+				StringBuilder printed = new StringBuilder();
+				print(node, printed);
+				bindings.put(binding.getKey(), printed.toString());
+			} else {
+				bindings.put(binding.getKey(), (String) binding.getValue());
+			}
+		}
+		Node body = parseExpression(negate);
+		closing();
+		for(String name : parsed.keySet())
+		{
+			restore(bindings, name, previousBindings.get(name));
+			restore(boundNodes, name, previousNodes.get(name));
+		}
+		return body;
+	}
+
+	private static <T> void restore(Map<String, T> map, String name, T previous)
+	{
+		if(previous == null)
+		{
+			map.remove(name);
+		} else {
+			map.put(name, previous);
+		}
+	}
+
+	// Replaces bound names in an atom by their terms
+	private String expand(String atom)
+	{
+		if(bindings.isEmpty())
+		{
+			return atom;
+		}
+		StringBuilder result = new StringBuilder(atom.length());
+		int i = 0;
+		while(i < atom.length())
+		{
+			char c = atom.charAt(i);
+			if(c == '(' || c == ')' || Character.isWhitespace(c))
+			{
+				result.append(c);
+				i++;
+				continue;
+			}
+			int end = i;
+			while(end < atom.length() && atom.charAt(end) != '(' && atom.charAt(end) != ')' && !Character.isWhitespace(atom.charAt(end)))
+			{
+				end++;
+			}
+			String token = atom.substring(i, end);
+			String bound = bindings.get(token);
+			result.append(bound != null ? bound : token);
+			i = end;
+		}
+		return result.toString();
+	}
+
+	private Node literal(String atom, boolean negated)
+	{
+		Node node = new Node(Kind.LITERAL, atom, negated, null);
+		List<String> features = new ArrayList<>();
+		Matcher matcher = FEATURE.matcher(atom);
+		while(matcher.find())
+		{
+			if(!features.contains(matcher.group()))
+			{
+				features.add(matcher.group());
+			}
+		}
+		node.features = features.toArray(new String[features.size()]);
+		return node;
+	}
+
+	private Node negate(Node node)
+	{
+		Node negation = negations.get(node);
+		if(negation != null)
+		{
+			return negation;
+		}
+		switch(node.kind) {
+		case TRUE:
+			return FALSE;
+		case FALSE:
+			return TRUE;
+		case LITERAL:
+			negation = new Node(Kind.LITERAL, node.atom, !node.negated, null);
+			negation.features = node.features;
+			break;
+		default:
+			Node[] children = new Node[node.children.length];
+			for(int i = 0; i < children.length; i++)
+			{
+				children[i] = negate(node.children[i]);
+			}
+			negation = new Node(node.kind == Kind.AND ? Kind.OR : Kind.AND, null, false, children);
+		}
+		negations.put(node, negation);
+		return negation;
+	}
+
+	private static Node combine(Kind kind, List<Node> children)
+	{
+		Node neutral = kind == Kind.AND ? TRUE : FALSE;
+		Node absorbing = kind == Kind.AND ? FALSE : TRUE;
+		List<Node> remaining = new ArrayList<>(children.size());
+		for(Node child : children)
+		{
+			if(child == absorbing)
+			{
+				return absorbing;
+			}
+			if(child != neutral)
+			{
+				remaining.add(child);
+			}
+		}
+		if(remaining.isEmpty())
+		{
+			return neutral;
+		}
+		if(remaining.size() == 1)
+		{
+			return remaining.get(0);
+		}
+		return new Node(kind, null, false, remaining.toArray(new Node[remaining.size()]));
+	}
+
+	private static long size(Node node, Map<Node, Long> sizes)
+	{
+		switch(node.kind) {
+		case TRUE:
+		case FALSE:
+			return 0;
+		case LITERAL:
+			return 1;
+		default:
+			Long size = sizes.get(node);
+			if(size == null)
+			{
+				long sum = 0;
+				for(Node child : node.children)
+				{
+					sum = Math.min(Long.MAX_VALUE / 2, sum + size(child, sizes));
+				}
+				size = sum;
+				sizes.put(node, size);
+			}
+			return size;
+		}
+	}
+
+	// Feature with the fewest literals, counting shared nodes once
+	private static String leastUsedFeature(Node root)
+	{
+		Map<String, Integer> occurrences = new HashMap<>();
+		List<Node> stack = new ArrayList<>();
+		Map<Node, Boolean> visited = new IdentityHashMap<>();
+		stack.add(root);
+		while(!stack.isEmpty())
+		{
+			Node node = stack.remove(stack.size() - 1);
+			if(visited.put(node, Boolean.TRUE) != null)
+			{
+				continue;
+			}
+			if(node.kind == Kind.LITERAL)
+			{
+				for(String feature : node.features)
+				{
+					occurrences.merge(feature, 1, Integer::sum);
+				}
+			} else if(node.children != null) {
+				for(Node child : node.children)
+				{
+					stack.add(child);
+				}
+			}
+		}
+		String least = null;
+		for(Entry<String, Integer> entry : occurrences.entrySet())
+		{
+			if(least == null || entry.getValue() < occurrences.get(least)
+					|| (entry.getValue().equals(occurrences.get(least)) && entry.getKey().compareTo(least) > 0))
+			{
+				least = entry.getKey();
+			}
+		}
+		if(least == null && size(root, new IdentityHashMap<Node, Long>()) > 0)
+		{
+			// Literals without features, e.g. Z3 temporaries, are projected out together
+			return "";
+		}
+		return least;
+	}
+
+	// Replaces all literals mentioning the feature by true
+	private static Node project(Node node, String feature, Map<Node, Node> projected)
+	{
+		switch(node.kind) {
+		case TRUE:
+		case FALSE:
+			return node;
+		case LITERAL:
+			if(feature.isEmpty() ? node.features.length == 0 : contains(node.features, feature))
+			{
+				return TRUE;
+			}
+			return node;
+		default:
+			Node result = projected.get(node);
+			if(result == null)
+			{
+				List<Node> children = new ArrayList<>(node.children.length);
+				boolean changed = false;
+				for(Node child : node.children)
+				{
+					Node projectedChild = project(child, feature, projected);
+					changed |= projectedChild != child;
+					children.add(projectedChild);
+				}
+				result = changed ? combine(node.kind, children) : node;
+				projected.put(node, result);
+			}
+			return result;
+		}
+	}
+
+	private static boolean contains(String[] features, String feature)
+	{
+		for(String candidate : features)
+		{
+			if(candidate.equals(feature))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void print(Node node, StringBuilder result)
+	{
+		switch(node.kind) {
+		case TRUE:
+			result.append("true");
+			break;
+		case FALSE:
+			result.append("false");
+			break;
+		case LITERAL:
+			if(node.negated)
+			{
+				result.append("(not ").append(node.atom).append(')');
+			} else {
+				result.append(node.atom);
+			}
+			break;
+		default:
+			result.append(node.kind == Kind.AND ? "(and" : "(or");
+			for(Node child : node.children)
+			{
+				result.append(' ');
+				print(child, result);
+			}
+			result.append(')');
+		}
+	}
+
+	private boolean closing()
+	{
+		skipWhitespace();
+		if(position < text.length() && text.charAt(position) == ')')
+		{
+			position++;
+			return true;
+		}
+		if(position >= text.length())
+		{
+			throw new IllegalArgumentException("Unbalanced parentheses in " + text);
+		}
+		return false;
+	}
+
+	private void skipWhitespace()
+	{
+		while(position < text.length() && Character.isWhitespace(text.charAt(position)))
+		{
+			position++;
+		}
+	}
+
+	private String readToken()
+	{
+		int start = position;
+		if(position < text.length() && text.charAt(position) == '|')
+		{
+			position = text.indexOf('|', position + 1) + 1;
+			return text.substring(start, position);
+		}
+		while(position < text.length())
+		{
+			char c = text.charAt(position);
+			if(Character.isWhitespace(c) || c == '(' || c == ')')
+			{
+				break;
+			}
+			position++;
+		}
+		return text.substring(start, position);
+	}
+
+	private void skipExpression()
+	{
+		int depth = 0;
+		do {
+			skipWhitespace();
+			char c = text.charAt(position);
+			if(c == '(')
+			{
+				depth++;
+				position++;
+			} else if(c == ')') {
+				depth--;
+				position++;
+			} else {
+				readToken();
+			}
+		} while(depth > 0);
+	}
+}
@@ -41,5 +41,12 @@ public interface IConstraint {
 	public abstract boolean isConstTrue();
 	
 	public abstract String getZ3Constraint();
+	
+	/**
+	 * Returns a constraint implied by this one whose size is at most budget,
+	 * by projecting out the least used features. Returns this if it already fits or the
+	 * budget is negative.
+	 */
+	public abstract IConstraint widen(int budget);
 
 }
\ No newline at end of file
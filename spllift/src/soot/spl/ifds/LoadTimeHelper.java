@@ -1,6 +1,7 @@
 package soot.spl.ifds;
 
 import heros.EdgeFunction;
+import heros.solver.JumpFunctions;
 import heros.solver.PathEdge;
 
 import java.util.BitSet;
@@ -28,4 +29,8 @@ public interface LoadTimeHelper<D> {
 	public D deriveAntiAbstraction(D abstraction);
 	public boolean isAntiAbstraction(D abstraction);
 	public void cleanEdgeList(Collection<PathEdge<Unit, D>> edges);
+	/**
+	 * Called by each solver with its jump functions before it solves. A helper belongs to a single solver.
+	 */
+	public void setJumpFunctions(JumpFunctions<Unit, D, IConstraint> jumpFn);
 }
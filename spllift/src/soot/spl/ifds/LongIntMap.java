@@ -0,0 +1,253 @@
+package soot.spl.ifds;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Thread-safe open addressing hash map from long to int without boxing.
+ * The map is split into segments which are locked independently.
+ * Key 0 is reserved, values must not be negative.
+ */
+public class LongIntMap {
+
+	public static final int NO_VALUE = -1;
+
+	private static final int SEGMENTS = 64;
+	private static final int INITIAL_CAPACITY = 256;
+
+	private final Segment[] segments = new Segment[SEGMENTS];
+
+	public LongIntMap()
+	{
+		for(int i = 0; i < SEGMENTS; i++)
+		{
+			segments[i] = new Segment();
+		}
+	}
+
+	private static int hash(long key)
+	{
+		// MurmurHash3 finalizer
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+
+	private Segment segmentFor(int hash)
+	{
+		return segments[hash & (SEGMENTS - 1)];
+	}
+
+	/**
+	 * Returns the value for the given key or {@link #NO_VALUE}.
+	 */
+	public int get(long key)
+	{
+		int hash = hash(key);
+		return segmentFor(hash).get(key, hash >>> 6);
+	}
+
+	public void put(long key, int value)
+	{
+		if(key == 0)
+		{
+			throw new IllegalArgumentException("Key 0 is reserved");
+		}
+		if(value < 0)
+		{
+			throw new IllegalArgumentException("Negative value " + value);
+		}
+		int hash = hash(key);
+		segmentFor(hash).put(key, hash >>> 6, value);
+	}
+
+	/**
+	 * Puts the value unless the condition fails. The condition is checked while holding the lock
+	 * of the segment, so a concurrent {@link #removeIf(EntryFilter)} either sees the new entry or
+	 * runs before the check.
+	 * @return True if the value was put
+	 */
+	public boolean putIf(long key, int value, BooleanSupplier condition)
+	{
+		if(key == 0)
+		{
+			throw new IllegalArgumentException("Key 0 is reserved");
+		}
+		if(value < 0)
+		{
+			throw new IllegalArgumentException("Negative value " + value);
+		}
+		int hash = hash(key);
+		Segment segment = segmentFor(hash);
+		synchronized (segment) {
+			if(!condition.getAsBoolean())
+			{
+				return false;
+			}
+			segment.put(key, hash >>> 6, value);
+			return true;
+		}
+	}
+
+	public interface EntryFilter
+	{
+		boolean remove(long key, int value);
+	}
+
+	public interface EntryVisitor
+	{
+		void visit(long key, int value);
+	}
+
+	public void forEach(EntryVisitor visitor)
+	{
+		for(Segment segment : segments)
+		{
+			segment.forEach(visitor);
+		}
+	}
+
+	/**
+	 * Removes all entries accepted by the filter.
+	 * @return The number of removed entries
+	 */
+	public long removeIf(EntryFilter filter)
+	{
+		long removed = 0;
+		for(Segment segment : segments)
+		{
+			removed += segment.removeIf(filter);
+		}
+		return removed;
+	}
+
+	public long size()
+	{
+		long size = 0;
+		for(Segment segment : segments)
+		{
+			synchronized (segment) {
+				size += segment.size;
+			}
+		}
+		return size;
+	}
+
+	public void clear()
+	{
+		for(Segment segment : segments)
+		{
+			synchronized (segment) {
+				segment.keys = new long[INITIAL_CAPACITY];
+				segment.values = new int[INITIAL_CAPACITY];
+				segment.size = 0;
+			}
+		}
+	}
+
+	private static class Segment
+	{
+		private long[] keys = new long[INITIAL_CAPACITY];
+		private int[] values = new int[INITIAL_CAPACITY];
+		private int size;
+
+		synchronized int get(long key, int hash)
+		{
+			int mask = keys.length - 1;
+			for(int i = hash & mask; ; i = (i + 1) & mask)
+			{
+				if(keys[i] == key)
+				{
+					return values[i];
+				}
+				if(keys[i] == 0)
+				{
+					return NO_VALUE;
+				}
+			}
+		}
+
+		synchronized void put(long key, int hash, int value)
+		{
+			if((size + 1) * 4 > keys.length * 3)
+			{
+				resize();
+			}
+			if(insert(keys, values, key, hash, value))
+			{
+				size++;
+			}
+		}
+
+		synchronized void forEach(EntryVisitor visitor)
+		{
+			for(int i = 0; i < keys.length; i++)
+			{
+				if(keys[i] != 0)
+				{
+					visitor.visit(keys[i], values[i]);
+				}
+			}
+		}
+
+		// Rebuilds the table without the removed entries, no tombstones needed
+		synchronized int removeIf(EntryFilter filter)
+		{
+			long[] newKeys = new long[keys.length];
+			int[] newValues = new int[values.length];
+			int removed = 0;
+			for(int i = 0; i < keys.length; i++)
+			{
+				if(keys[i] != 0)
+				{
+					if(filter.remove(keys[i], values[i]))
+					{
+						removed++;
+					} else {
+						insert(newKeys, newValues, keys[i], hash(keys[i]) >>> 6, values[i]);
+					}
+				}
+			}
+			keys = newKeys;
+			values = newValues;
+			size -= removed;
+			return removed;
+		}
+
+		private static boolean insert(long[] keys, int[] values, long key, int hash, int value)
+		{
+			int mask = keys.length - 1;
+			for(int i = hash & mask; ; i = (i + 1) & mask)
+			{
+				if(keys[i] == key)
+				{
+					values[i] = value;
+					return false;
+				}
+				if(keys[i] == 0)
+				{
+					keys[i] = key;
+					values[i] = value;
+					return true;
+				}
+			}
+		}
+
+		private void resize()
+		{
+			long[] newKeys = new long[keys.length * 2];
+			int[] newValues = new int[values.length * 2];
+			for(int i = 0; i < keys.length; i++)
+			{
+				if(keys[i] != 0)
+				{
+					insert(newKeys, newValues, keys[i], hash(keys[i]) >>> 6, values[i]);
+				}
+			}
+			keys = newKeys;
+			values = newValues;
+		}
+	}
+}
@@ -1,17 +1,23 @@
 package soot.spl.ifds;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
 import org.bson.Document;
 
 import com.mongodb.MongoClient;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.InsertManyOptions;
 
-public class MongoLoader implements AutoCloseable {
+public class MongoLoader implements SolverResultTier, AutoCloseable {
 	private MongoClient mongoClient;
 	private MongoCollection<Document> collection;
 	
-	public class CacheResult
+	public static class CacheResult
 	{
 		private String result;
 		private String pretty;
@@ -40,11 +46,28 @@ public class MongoLoader implements AutoCloseable {
 		}
 	}
 	
+	@Override
 	public void add(String key, String value, String pretty)
 	{
 		collection.insertOne(new Document("key", key).append("value", value).append("pretty", pretty));
 	}
 	
+	@Override
+	public void addAll(Map<String, CacheResult> entries)
+	{
+		if(entries.isEmpty())
+		{
+			return;
+		}
+		List<Document> documents = new ArrayList<>(entries.size());
+		for(Entry<String, CacheResult> entry : entries.entrySet())
+		{
+			documents.add(new Document("key", entry.getKey()).append("value", entry.getValue().getResult()).append("pretty", entry.getValue().getPretty()));
+		}
+		collection.insertMany(documents, new InsertManyOptions().ordered(false));
+	}
+	
+	@Override
 	public CacheResult get(String key)
 	{
 		FindIterable<Document> iterable = collection.find(new Document("key", key));
@@ -59,6 +82,12 @@ public class MongoLoader implements AutoCloseable {
 		}
 	}
 	
+	// Only evicted results are written back
+	@Override
+	public boolean isWriteThrough() {
+		return false;
+	}
+	
 	@Override
 	public void close() throws Exception {
 		mongoClient.close();
@@ -44,7 +44,7 @@ public class SPLFeatureFunction implements EdgeFunction<IConstraint> {
 	public boolean equalTo(EdgeFunction<IConstraint> other) {
 		if(other instanceof SPLFeatureFunction) {
 			SPLFeatureFunction function = (SPLFeatureFunction) other;
-			return function.features.equals(features);
+			return function.features == features || function.features.equals(features);
 		}
 		return false;
 	}
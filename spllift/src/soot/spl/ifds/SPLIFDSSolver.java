@@ -20,7 +20,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import soot.SootMethod;
 import soot.Unit;
@@ -31,6 +36,17 @@ import soot.toolkits.graph.PseudoTopologicalOrderer;
 
 public class SPLIFDSSolver<D,AccessPath> extends IDESolver<Unit,D,SootMethod,IConstraint,ExtendedInterproceduralCFG> {
 	
+	private static final Logger logger = LoggerFactory.getLogger(SPLIFDSSolver.class);
+	
+	public static final int DEFAULT_WIDENING_BUDGET = 300;
+	
+	// Maximum size of constraints, larger ones are widened. Negative if widening is disabled.
+	private int wideningBudget = DEFAULT_WIDENING_BUDGET;
+	
+	// Statements at which a constraint was widened, each is only logged once
+	private final Set<Unit> widenedStatements = ConcurrentHashMap.newKeySet();
+	private final AtomicLong widenings = new AtomicLong();
+	
 	private LoadTimeHelper<D> helper;
 //	private BDDPairing replacement;
 	private IFDSTabulationProblem<Unit,D,SootMethod,BiDiInterproceduralCFG<Unit,SootMethod>> ifdsProblem;
@@ -43,6 +59,16 @@ public class SPLIFDSSolver<D,AccessPath> extends IDESolver<Unit,D,SootMethod,ICo
 	 */
 	public SPLIFDSSolver(final IFDSTabulationProblem<Unit,D,SootMethod,BiDiInterproceduralCFG<Unit,SootMethod>> ifdsProblem,
 						 final LoadTimeHelper<D> helper) {
+		this(ifdsProblem, helper, false);
+	}
+	
+	/**
+	 * Creates a solver for the given problem. The solver must then be started by calling
+	 * {@link #solve()}.
+	 * @param compactJumpFunctions If true, jump functions are stored in {@link heros.solver.CompactJumpFunctions}.
+	 */
+	public SPLIFDSSolver(final IFDSTabulationProblem<Unit,D,SootMethod,BiDiInterproceduralCFG<Unit,SootMethod>> ifdsProblem,
+						 final LoadTimeHelper<D> helper, boolean compactJumpFunctions) {
 		super(new DefaultIDETabulationProblem<Unit,D,SootMethod,IConstraint,ExtendedInterproceduralCFG>(new ExtendedInterproceduralCFG(ifdsProblem.interproceduralCFG())) {
 
 			public FlowFunctions<Unit,D,SootMethod> createFlowFunctionsFactory() {
@@ -116,11 +142,12 @@ public class SPLIFDSSolver<D,AccessPath> extends IDESolver<Unit,D,SootMethod,ICo
 			public EdgeFunction<IConstraint> createAllTopFunction() {
 				return new SPLFeatureFunction(Constraint.falseValue());
 			}	
-		});
+		}, null, null, compactJumpFunctions);
 		
         JumpFnSingleton.init(jumpFn);
 
 		this.helper = helper;
+		helper.setJumpFunctions(jumpFn);
 		
 //		if(Constraint.FACTORY != null) {
 //			Constraint.FACTORY.done();
@@ -244,6 +271,70 @@ public class SPLIFDSSolver<D,AccessPath> extends IDESolver<Unit,D,SootMethod,ICo
 		return helper.vetoNewFunction(sourceVal, target, targetVal, f, zeroValue);
 	}
 	
+	/**
+	 * Sets the maximum size of the constraints of jump functions and values, i.e., the number of
+	 * literals or BDD nodes. Larger constraints are widened. Defaults to {@link #DEFAULT_WIDENING_BUDGET},
+	 * a negative budget disables widening and constraints may then grow without bound.
+	 */
+	public void setWideningBudget(int wideningBudget) {
+		this.wideningBudget = wideningBudget;
+	}
+	
+	@Override
+	protected EdgeFunction<IConstraint> widenFunction(Unit target, EdgeFunction<IConstraint> f) {
+		if(!(f instanceof SPLFeatureFunction)) {
+			return f;
+		}
+		IConstraint features = ((SPLFeatureFunction) f).getFeatures();
+		IConstraint widened = widen(target, features);
+		return widened == features ? f : new SPLFeatureFunction(widened);
+	}
+	
+	/**
+	 * Once a budget is exceeded, edges hold in all configurations.
+	 */
+	@Override
+	protected EdgeFunction<IConstraint> approximateFunction(Unit target, EdgeFunction<IConstraint> f) {
+		return new SPLFeatureFunction(Constraint.trueValue());
+	}
+	
+	/**
+	 * Summaries of stored methods are computed relative to the constraint at their start point.
+	 */
+	@Override
+	protected EdgeFunction<IConstraint> summaryEntryFunction() {
+		return new SPLFeatureFunction(Constraint.trueValue());
+	}
+	
+	@Override
+	protected IConstraint widenValue(Unit n, IConstraint v) {
+		return widen(n, v);
+	}
+	
+	private IConstraint widen(Unit unit, IConstraint constraint) {
+		if(wideningBudget < 0) {
+			return constraint;
+		}
+		IConstraint widened = constraint.widen(wideningBudget);
+		if(widened != constraint) {
+			widenings.incrementAndGet();
+			if(widenedStatements.add(unit)) {
+				logger.debug("Widened constraint at {} in {}", unit, icfg.getMethodOf(unit));
+			}
+		}
+		return widened;
+	}
+	
+	// Number of widened constraints
+	public long getWideningCount() {
+		return widenings.get();
+	}
+	
+	// Number of statements at which constraints were widened
+	public int getWidenedStatementCount() {
+		return widenedStatements.size();
+	}
+	
 	@Override
 	protected Collection<Entry<PathEdge<Unit, D>, EdgeFunction<IConstraint>>> findMatchingAbstractions(Unit target)
 	{
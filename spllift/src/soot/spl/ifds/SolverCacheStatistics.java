@@ -0,0 +1,121 @@
+package soot.spl.ifds;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of {@link CachedZ3Solver}. All counters are reset by {@link CachedZ3Solver#clearCache()}.
+ */
+public class SolverCacheStatistics {
+
+	final AtomicLong operations = new AtomicLong();
+	final AtomicLong hits = new AtomicLong();
+	final AtomicLong structuralHits = new AtomicLong();
+	final AtomicLong misses = new AtomicLong();
+	final AtomicLong presimplified = new AtomicLong();
+	final AtomicLong escalated = new AtomicLong();
+	final AtomicLong widened = new AtomicLong();
+	final AtomicLong inFlightHits = new AtomicLong();
+	final AtomicLong spillHits = new AtomicLong();
+	final AtomicLong evictedConstraints = new AtomicLong();
+	final AtomicLong evictedResults = new AtomicLong();
+	final AtomicLong spilled = new AtomicLong();
+	final AtomicLong spillDropped = new AtomicLong();
+
+	void reset()
+	{
+		operations.set(0);
+		hits.set(0);
+		structuralHits.set(0);
+		misses.set(0);
+		presimplified.set(0);
+		escalated.set(0);
+		widened.set(0);
+		inFlightHits.set(0);
+		spillHits.set(0);
+		evictedConstraints.set(0);
+		evictedResults.set(0);
+		spilled.set(0);
+		spillDropped.set(0);
+	}
+
+	public long getOperations() {
+		return operations.get();
+	}
+
+	// Operations answered by the in-memory cache
+	public long getHits() {
+		return hits.get();
+	}
+
+	// Operations missing in the in-memory cache but answered by the result of a structurally identical one
+	public long getStructuralHits() {
+		return structuralHits.get();
+	}
+	
+	public double getStructuralHitRate() {
+		long operations = getOperations();
+		return operations == 0 ? 0 : (double) getStructuralHits() / operations;
+	}
+	
+	// Operations simplified by Z3
+	public long getMisses() {
+		return misses.get();
+	}
+
+	// Operations simplified in the JVM without Z3
+	public long getPresimplified() {
+		return presimplified.get();
+	}
+	
+	// Operations the pre-simplifier gave up on
+	public long getEscalated() {
+		return escalated.get();
+	}
+	
+	public double getEscalationRate() {
+		long attempts = getPresimplified() + getEscalated();
+		return attempts == 0 ? 0 : (double) getEscalated() / attempts;
+	}
+	
+	// Constraints widened to the size budget
+	public long getWidened() {
+		return widened.get();
+	}
+
+	// Operations which waited for another thread simplifying the same operation
+	public long getInFlightHits() {
+		return inFlightHits.get();
+	}
+
+	// Operations answered by the persistent tier (MongoDB solverCache or SolverResultStore)
+	public long getSpillHits() {
+		return spillHits.get();
+	}
+
+	public long getEvictedConstraints() {
+		return evictedConstraints.get();
+	}
+
+	public long getEvictedResults() {
+		return evictedResults.get();
+	}
+
+	// Evicted results written to the persistent tier
+	public long getSpilled() {
+		return spilled.get();
+	}
+
+	// Evicted results not written because the spill queue was full
+	public long getSpillDropped() {
+		return spillDropped.get();
+	}
+
+	@Override
+	public String toString() {
+		return "SolverCacheStatistics [operations=" + operations + ", hits=" + hits + ", structuralHits=" + structuralHits
+				+ ", misses=" + misses + ", presimplified=" + presimplified + ", escalated=" + escalated
+				+ ", widened=" + widened + ", inFlightHits=" + inFlightHits + ", spillHits=" + spillHits
+				+ ", evictedConstraints=" + evictedConstraints + ", evictedResults=" + evictedResults
+				+ ", spilled=" + spilled + ", spillDropped=" + spillDropped + "]";
+	}
+}
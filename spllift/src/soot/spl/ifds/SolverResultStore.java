@@ -0,0 +1,305 @@
+package soot.spl.ifds;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.spl.ifds.MongoLoader.CacheResult;
+
+/**
+ * Local persistent store for solver results. Results are appended to a log file, an in-memory
+ * index maps a 64 bit hash of the key to the offset of its record. The index is built from the
+ * memory-mapped file when the store is opened, so results of previous runs are available at once.
+ * New results are appended in batches by a background thread.
+ *
+ * Record layout: key length, value length, pretty length (-1 for none) as int, followed by the
+ * UTF-8 encoded strings.
+ *
+ * The file may be shared by concurrent processes, e.g. the workers of a batch run. Batches are
+ * appended at the current end of the file while holding an exclusive lock on it, results written
+ * by other processes after the store was opened are not indexed.
+ */
+public class SolverResultStore implements SolverResultTier, AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(SolverResultStore.class);
+
+	private static final int HEADER = 12;
+	private static final int BATCH_SIZE = 1000;
+	private static final int MAX_PENDING = 100000;
+
+	private final File file;
+	private final FileChannel channel;
+	private final Map<Long, Long> index = new ConcurrentHashMap<>();
+	// Added but not yet written
+	private final Map<String, CacheResult> pending = new ConcurrentHashMap<>();
+	private final BlockingQueue<String> queue = new LinkedBlockingQueue<>(MAX_PENDING);
+	private final Thread writer;
+	private volatile boolean closed = false;
+	private long end;
+
+	public SolverResultStore(File file) throws IOException
+	{
+		this.file = file;
+		if(file.getParentFile() != null)
+		{
+			file.getParentFile().mkdirs();
+		}
+		@SuppressWarnings("resource")
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		channel = raf.getChannel();
+		try (FileLock lock = channel.lock())
+		{
+			load();
+		}
+
+		writer = new Thread(this::writeLoop, "solver-result-store");
+		writer.setDaemon(true);
+		writer.start();
+		Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+	}
+
+	// Must hold the lock, otherwise the batch another process is appending looks incomplete
+	private void load() throws IOException
+	{
+		long size = channel.size();
+		long offset = 0;
+		if(size > 0)
+		{
+			MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, size);
+			try {
+				while(buffer.remaining() >= HEADER)
+				{
+					int keyLength = buffer.getInt();
+					int valueLength = buffer.getInt();
+					int prettyLength = buffer.getInt();
+					int length = keyLength + valueLength + Math.max(prettyLength, 0);
+					if(keyLength < 0 || valueLength < 0 || length > buffer.remaining())
+					{
+						break;
+					}
+					byte[] key = new byte[keyLength];
+					buffer.get(key);
+					buffer.position(buffer.position() + length - keyLength);
+					index.put(hash(new String(key, StandardCharsets.UTF_8)), offset);
+					offset = buffer.position();
+				}
+			} catch(BufferUnderflowException e) {
+				// incomplete last record
+			}
+		}
+		if(offset < size)
+		{
+			logger.warn("Dropping incomplete record at the end of {}", file);
+			channel.truncate(offset);
+		}
+		end = offset;
+		logger.info("Loaded {} solver results from {}", index.size(), file);
+	}
+
+	private static long hash(String key)
+	{
+		long h = 1125899906842597L;
+		for(int i = 0; i < key.length(); i++)
+		{
+			h = 31 * h + key.charAt(i);
+		}
+		return h ^ ((long) key.length() << 48);
+	}
+
+	@Override
+	public CacheResult get(String key)
+	{
+		CacheResult result = pending.get(key);
+		if(result != null)
+		{
+			return result;
+		}
+		Long offset = index.get(hash(key));
+		if(offset == null)
+		{
+			return null;
+		}
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER);
+			channel.read(header, offset);
+			header.flip();
+			int keyLength = header.getInt();
+			int valueLength = header.getInt();
+			int prettyLength = header.getInt();
+			ByteBuffer data = ByteBuffer.allocate(keyLength + valueLength + Math.max(prettyLength, 0));
+			channel.read(data, offset + HEADER);
+			byte[] bytes = data.array();
+			// Different key with the same hash
+			if(!new String(bytes, 0, keyLength, StandardCharsets.UTF_8).equals(key))
+			{
+				return null;
+			}
+			String value = new String(bytes, keyLength, valueLength, StandardCharsets.UTF_8);
+			String pretty = prettyLength < 0 ? null : new String(bytes, keyLength + valueLength, prettyLength, StandardCharsets.UTF_8);
+			return new CacheResult(value, pretty);
+		} catch (IOException e) {
+			logger.error("Could not read solver result from " + file, e);
+			return null;
+		}
+	}
+
+	@Override
+	public void add(String key, String value, String pretty)
+	{
+		if(closed || index.containsKey(hash(key)))
+		{
+			return;
+		}
+		if(pending.putIfAbsent(key, new CacheResult(value, pretty)) == null)
+		{
+			if(!queue.offer(key))
+			{
+				// Writer is behind, drop the result
+				pending.remove(key);
+			}
+		}
+	}
+
+	@Override
+	public void addAll(Map<String, CacheResult> entries)
+	{
+		for(Entry<String, CacheResult> entry : entries.entrySet())
+		{
+			add(entry.getKey(), entry.getValue().getResult(), entry.getValue().getPretty());
+		}
+	}
+
+	@Override
+	public boolean isWriteThrough()
+	{
+		return true;
+	}
+
+	public File getFile()
+	{
+		return file;
+	}
+
+	public int size()
+	{
+		return index.size() + pending.size();
+	}
+
+	private void writeLoop()
+	{
+		List<String> batch = new ArrayList<>(BATCH_SIZE);
+		while(!closed || !queue.isEmpty())
+		{
+			try {
+				String first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if(first == null)
+				{
+					continue;
+				}
+				batch.add(first);
+				queue.drainTo(batch, BATCH_SIZE - 1);
+				write(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (IOException e) {
+				logger.error("Could not write solver results to " + file, e);
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	private synchronized void write(List<String> keys) throws IOException
+	{
+		List<byte[][]> records = new ArrayList<>(keys.size());
+		int length = 0;
+		for(String key : keys)
+		{
+			CacheResult result = pending.get(key);
+			byte[][] record = new byte[][] {
+				key.getBytes(StandardCharsets.UTF_8),
+				result.getResult().getBytes(StandardCharsets.UTF_8),
+				result.getPretty() == null ? null : result.getPretty().getBytes(StandardCharsets.UTF_8) };
+			records.add(record);
+			length += HEADER + record[0].length + record[1].length + (record[2] == null ? 0 : record[2].length);
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		List<Long> offsets = new ArrayList<>(keys.size());
+		for(byte[][] record : records)
+		{
+			offsets.add(end + buffer.position());
+			buffer.putInt(record[0].length);
+			buffer.putInt(record[1].length);
+			buffer.putInt(record[2] == null ? -1 : record[2].length);
+			buffer.put(record[0]);
+			buffer.put(record[1]);
+			if(record[2] != null)
+			{
+				buffer.put(record[2]);
+			}
+		}
+		buffer.flip();
+		try (FileLock lock = channel.lock())
+		{
+			// Other processes may have appended since the last batch
+			long start = channel.size();
+			for(int i = 0; i < offsets.size(); i++)
+			{
+				offsets.set(i, offsets.get(i) - end + start);
+			}
+			end = start;
+			while(buffer.hasRemaining())
+			{
+				end += channel.write(buffer, end);
+			}
+		}
+
+		for(int i = 0; i < keys.size(); i++)
+		{
+			index.put(hash(keys.get(i)), offsets.get(i));
+			pending.remove(keys.get(i));
+		}
+	}
+
+	/**
+	 * Writes all pending results and closes the file.
+	 */
+	@Override
+	public void close()
+	{
+		if(closed)
+		{
+			return;
+		}
+		closed = true;
+		try {
+			writer.join();
+			channel.force(false);
+			channel.close();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			logger.error("Could not close " + file, e);
+		}
+	}
+}
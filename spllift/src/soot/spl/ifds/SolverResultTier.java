@@ -0,0 +1,28 @@
+package soot.spl.ifds;
+
+import java.util.Map;
+
+import soot.spl.ifds.MongoLoader.CacheResult;
+
+/**
+ * Second tier of {@link CachedZ3Solver} behind the in-memory cache.
+ * Keys are the textual form of a {@link SolverOperation}.
+ */
+public interface SolverResultTier {
+
+	/**
+	 * Returns the stored result or null.
+	 */
+	public CacheResult get(String key);
+
+	public void add(String key, String value, String pretty);
+
+	public void addAll(Map<String, CacheResult> entries);
+
+	/**
+	 * If true, each new result is added to this tier. Otherwise, only results evicted from
+	 * memory are written back.
+	 */
+	public boolean isWriteThrough();
+
+}
@@ -0,0 +1,157 @@
+package soot.spl.ifds;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.microsoft.z3.Context;
+import com.microsoft.z3.Solver;
+
+/**
+ * Bounded pool of Z3 contexts. A Z3 {@link Context} must not be used by more than one thread
+ * at a time, so each simplification leases a context (together with its solver) and returns it
+ * afterwards. Contexts are created lazily up to the configured size and are kept for the
+ * lifetime of the pool.
+ */
+public class Z3ContextPool {
+
+	private final int size;
+	private final AtomicInteger created = new AtomicInteger();
+	private final BlockingQueue<Lease> idle = new LinkedBlockingQueue<Lease>();
+
+	private final AtomicLong leases = new AtomicLong();
+	private final AtomicLong waits = new AtomicLong();
+	private final AtomicLong waitNanos = new AtomicLong();
+
+	public Z3ContextPool(int size)
+	{
+		if(size < 1)
+		{
+			throw new IllegalArgumentException("Pool size must be at least 1, was " + size);
+		}
+		this.size = size;
+	}
+
+	/**
+	 * Leases a context from the pool. Blocks if all contexts are in use.
+	 * The lease must be returned by {@link Lease#close()}, preferably using try-with-resources.
+	 */
+	public Lease lease()
+	{
+		leases.incrementAndGet();
+
+		Lease lease = idle.poll();
+		if(lease == null)
+		{
+			if(created.incrementAndGet() <= size)
+			{
+				lease = new Lease(new Context());
+			} else {
+				created.decrementAndGet();
+				waits.incrementAndGet();
+				long start = System.nanoTime();
+				try {
+					lease = idle.take();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException("Interrupted while waiting for a Z3 context", e);
+				} finally {
+					waitNanos.addAndGet(System.nanoTime() - start);
+				}
+			}
+		}
+
+		lease.solver.reset();
+		return lease;
+	}
+
+	private void release(Lease lease)
+	{
+		idle.offer(lease);
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public Statistics getStatistics()
+	{
+		return new Statistics(leases.get(), waits.get(), waitNanos.get(), created.get());
+	}
+
+	public void resetStatistics()
+	{
+		leases.set(0);
+		waits.set(0);
+		waitNanos.set(0);
+	}
+
+	public class Lease implements AutoCloseable
+	{
+		private final Context ctx;
+		private final Solver solver;
+
+		private Lease(Context ctx)
+		{
+			this.ctx = ctx;
+			this.solver = ctx.mkSolver();
+		}
+
+		public Context getContext() {
+			return ctx;
+		}
+
+		public Solver getSolver() {
+			return solver;
+		}
+
+		@Override
+		public void close() {
+			release(this);
+		}
+	}
+
+	public static class Statistics
+	{
+		private final long leases;
+		private final long waits;
+		private final long waitNanos;
+		private final int contexts;
+
+		private Statistics(long leases, long waits, long waitNanos, int contexts) {
+			this.leases = leases;
+			this.waits = waits;
+			this.waitNanos = waitNanos;
+			this.contexts = contexts;
+		}
+
+		public long getLeases() {
+			return leases;
+		}
+
+		// Leases served by an idle or newly created context
+		public long getHits() {
+			return leases - waits;
+		}
+
+		// Leases which had to wait for another thread to return its context
+		public long getMisses() {
+			return waits;
+		}
+
+		public long getWaitTimeMillis() {
+			return waitNanos / 1000000;
+		}
+
+		public int getContexts() {
+			return contexts;
+		}
+
+		@Override
+		public String toString() {
+			return "Statistics [leases=" + leases + ", hits=" + getHits() + ", misses=" + getMisses()
+					+ ", waitTimeMillis=" + getWaitTimeMillis() + ", contexts=" + contexts + "]";
+		}
+	}
+}